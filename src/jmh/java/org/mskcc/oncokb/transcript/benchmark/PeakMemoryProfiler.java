@@ -0,0 +1,54 @@
+package org.mskcc.oncokb.transcript.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Collection;
+import java.util.Collections;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+/**
+ * Reports the peak heap usage of every iteration, summed over the heap memory pools.
+ * <p>
+ * The gc profiler gives the allocation rate, which does not tell how much of it is alive at once. The peaks of the
+ * pools are reset before each iteration, so the reported value is the high-water mark of that iteration only.
+ */
+public class PeakMemoryProfiler implements InternalProfiler {
+
+    private static final double BYTES_PER_MB = 1024 * 1024;
+
+    @Override
+    public String getDescription() {
+        return "Peak heap usage per iteration";
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    @Override
+    public Collection<? extends Result> afterIteration(
+        BenchmarkParams benchmarkParams,
+        IterationParams iterationParams,
+        IterationResult result
+    ) {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return Collections.singletonList(new ScalarResult("peak.heap", peak / BYTES_PER_MB, "MB", AggregationPolicy.MAX));
+    }
+}
@@ -0,0 +1,206 @@
+package org.mskcc.oncokb.transcript.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Protein sequences of the transcripts the alignment is run on the most, paired with deterministic targets.
+ * <p>
+ * TP53 and BRAF are the canonical UniProt sequences, P04637 and P15056. The 34350 residues of TTN (Q8WZ42) are too large
+ * to inline, they are read from the gzipped FASTA file {@code src/jmh/resources/benchmark/Q8WZ42.fasta.gz}, fetched with
+ * {@code curl https://rest.uniprot.org/uniprotkb/Q8WZ42.fasta | gzip -9 > src/jmh/resources/benchmark/Q8WZ42.fasta.gz}.
+ * Targets are derived from the reference with a fixed seed, so every run and every machine benchmarks the same input.
+ */
+public final class ProteinFixtures {
+
+    private static final String AMINO_ACIDS = "ARNDCQEGHILKMFPSTWYV";
+    //UniProtKB/Swiss-Prot residue frequencies in per mille, in the order of AMINO_ACIDS
+    private static final int[] FREQUENCIES = { 83, 55, 41, 55, 14, 39, 68, 71, 23, 59, 97, 58, 24, 39, 47, 66, 54, 11, 29, 69 };
+    private static final long SEED = 20211001L;
+    private static final String FIXTURE_DIRECTORY = "/benchmark/";
+
+    private static final String TP53_SEQUENCE =
+        "MEEPQSDPSVEPPLSQETFSDLWKLLPENNVLSPLPSQAMDDLMLSPDDIEQWFTEDPGP" +
+        "DEAPRMPEAAPPVAPAPAAPTPAAPAPAPSWPLSSSVPSQKTYQGSYGFRLGFLHSGTAK" +
+        "SVTCTYSPALNKMFCQLAKTCPVQLWVDSTPPPGTRVRAMAIYKQSQHMTEVVRRCPHHE" +
+        "RCSDSDGLAPPQHLIRVEGNLRVEYLDDRNTFRHSVVVPYEPPEVGSDCTTIHYNYMCNS" +
+        "SCMGGMNRRPILTIITLEDSSGNLLGRNSFEVRVCACPGRDRRTEEENLRKKGEPHHELP" +
+        "PGSTKRALPNNTSSSPQPKKKPLDGEYFTLQIRGRERFEMFRELNEALELKDAQAGKEPG" +
+        "GSRAHSSHLKSKKGQSTSRHKKLMFKTEGPDSD";
+
+    private static final String BRAF_SEQUENCE =
+        "MAALSGGGGGGAEPGQALFNGDMEPEAGAGAGAAASSAADPAIPEEVWNIKQMIKLTQEH" +
+        "IEALLDKFGGEHNPPSIYLEAYEEYTSKLDALQQREQQLLESLGNGTDFSVSSSASMDTV" +
+        "TSSSSSSLSVLPSSLSVFQNPTDVARSNPKSPQKPIVRVFLPNKQRTVVPARCGVTVRDS" +
+        "LKKALMMRGLIPECCAVYRIQDGEKKPIGWDTDISWLTGEELHVEVLENVPLTTHNFVRK" +
+        "TFFTLAFCDFCRKLLFQGFRCQTCGYKFHQRCSTEVPLMCVNYDQLDLLFVSKFFEHHPI" +
+        "PQEEASLAETALTSGSSPSAPASDSIGPQILTSPSPSKSIPIPQPFRPADEDHRNQFGQR" +
+        "DRSSSAPNVHINTIEPVNIDDLIRDQGFRGDGGSTTGLSATPPASLPGSLTNVKALQKSP" +
+        "GPQRERKSSSSSEDRNRMKTLGRRDSSDDWEIPDGQITVGQRIGSGSFGTVYKGKWHGDV" +
+        "AVKMLNVTAPTPQQLQAFKNEVGVLRKTRHVNILLFMGYSTKPQLAIVTQWCEGSSLYHH" +
+        "LHIIETKFEMIKLIDIARQTAQGMDYLHAKSIIHRDLKSNNIFLHEDLTVKIGDFGLATV" +
+        "KSRWSGSHQFEQLSGSILWMAPEVIRMQDKNPYSFQSDVYAFGIVLYELMTGQLPYSNIN" +
+        "NRDQIIFMVGRGYLSPDLSKVRSNCPKAMKRLMAECLKKKRDERPLFPQILASIELLARS" +
+        "LPKIHRSASEPSLNRAGFQTEDFSLYACASPKTPIQAGGYGAFPVH";
+
+    //The sequences read from the fixture files, each file is only read once
+    private static final Map<Protein, String> LOADED = new ConcurrentHashMap<>();
+
+    public enum Protein {
+        TP53(TP53_SEQUENCE),
+        BRAF(BRAF_SEQUENCE),
+        TTN("Q8WZ42.fasta.gz", 34350);
+
+        private final String sequence;
+        private final String fixture;
+        private final int length;
+
+        Protein(String sequence) {
+            this.sequence = sequence;
+            this.fixture = null;
+            this.length = sequence.length();
+        }
+
+        Protein(String fixture, int length) {
+            this.sequence = null;
+            this.fixture = fixture;
+            this.length = length;
+        }
+
+        public int getLength() {
+            return length;
+        }
+    }
+
+    public enum Similarity {
+        /**
+         * Another isoform of the same gene: a few substitutions, one skipped exon and a short insertion.
+         */
+        NEAR_IDENTICAL,
+        /**
+         * The residues of the reference in a shuffled order, an unrelated protein of the same length and composition.
+         */
+        DIVERGENT,
+    }
+
+    private ProteinFixtures() {}
+
+    public static String reference(Protein protein) {
+        if (protein.sequence != null) {
+            return protein.sequence;
+        }
+        return LOADED.computeIfAbsent(protein, ProteinFixtures::load);
+    }
+
+    public static String target(Protein protein, Similarity similarity) {
+        String reference = reference(protein);
+        Random random = new Random(SEED + 31L * (protein.ordinal() + 1) + similarity.ordinal());
+        if (similarity == Similarity.DIVERGENT) {
+            return shuffle(random, reference);
+        }
+
+        StringBuilder target = new StringBuilder(reference);
+        substitute(random, target, Math.max(1, reference.length() / 200));
+        //Skip an internal exon of about 3% of the protein, and insert a few residues elsewhere
+        int exonLength = Math.max(2, reference.length() / 33);
+        int exonStart = reference.length() / 3;
+        target.delete(exonStart, exonStart + exonLength);
+        target.insert((2 * target.length()) / 3, randomProtein(random, 4).substring(1));
+        return target.toString();
+    }
+
+    /**
+     * @return the reference with a few substitutions only, as compared residue by residue when the lengths match
+     */
+    public static String sameLengthTarget(Protein protein) {
+        StringBuilder target = new StringBuilder(reference(protein));
+        substitute(new Random(SEED - protein.ordinal()), target, Math.max(1, target.length() / 200));
+        return target.toString();
+    }
+
+    /**
+     * Read the sequence of a gzipped FASTA file, checking its length so a wrong or truncated file is not benchmarked
+     */
+    private static String load(Protein protein) {
+        String resource = FIXTURE_DIRECTORY + protein.fixture;
+        InputStream inputStream = ProteinFixtures.class.getResourceAsStream(resource);
+        if (inputStream == null) {
+            throw new IllegalStateException("The fixture " + resource + " of " + protein + " is missing from src/jmh/resources");
+        }
+        StringBuilder sequence = new StringBuilder(protein.getLength());
+        try (
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(inputStream), StandardCharsets.UTF_8))
+        ) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.startsWith(">")) {
+                    sequence.append(line.trim());
+                }
+            }
+        } catch (IOException exception) {
+            throw new UncheckedIOException("Failed to read the fixture " + resource, exception);
+        }
+        if (sequence.length() != protein.getLength()) {
+            throw new IllegalStateException(
+                "The fixture " + resource + " has " + sequence.length() + " residues, " + protein + " has " + protein.getLength()
+            );
+        }
+        return sequence.toString();
+    }
+
+    private static void substitute(Random random, StringBuilder sequence, int count) {
+        for (int i = 0; i < count; i++) {
+            int position = 1 + random.nextInt(sequence.length() - 1);
+            char residue = sequence.charAt(position);
+            char substitution = residue;
+            while (substitution == residue) {
+                substitution = randomResidue(random);
+            }
+            sequence.setCharAt(position, substitution);
+        }
+    }
+
+    private static String shuffle(Random random, String sequence) {
+        //The initial methionine stays in place
+        List<Character> residues = new ArrayList<>(sequence.length());
+        for (int i = 1; i < sequence.length(); i++) {
+            residues.add(sequence.charAt(i));
+        }
+        Collections.shuffle(residues, random);
+        StringBuilder shuffled = new StringBuilder(sequence.length());
+        shuffled.append(sequence.charAt(0));
+        residues.forEach(shuffled::append);
+        return shuffled.toString();
+    }
+
+    private static String randomProtein(Random random, int length) {
+        StringBuilder protein = new StringBuilder(length);
+        protein.append('M');
+        for (int i = 1; i < length; i++) {
+            protein.append(randomResidue(random));
+        }
+        return protein.toString();
+    }
+
+    private static char randomResidue(Random random) {
+        int draw = random.nextInt(1000);
+        for (int i = 0; i < FREQUENCIES.length; i++) {
+            draw -= FREQUENCIES[i];
+            if (draw < 0) {
+                return AMINO_ACIDS.charAt(i);
+            }
+        }
+        return AMINO_ACIDS.charAt(AMINO_ACIDS.length() - 1);
+    }
+}
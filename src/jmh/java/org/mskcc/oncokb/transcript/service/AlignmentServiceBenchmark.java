@@ -0,0 +1,76 @@
+package org.mskcc.oncokb.transcript.service;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.mskcc.oncokb.transcript.benchmark.ProteinFixtures;
+import org.mskcc.oncokb.transcript.benchmark.ProteinFixtures.Protein;
+import org.mskcc.oncokb.transcript.benchmark.ProteinFixtures.Similarity;
+import org.mskcc.oncokb.transcript.domain.AlignmentResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+public class AlignmentServiceBenchmark {
+
+    @Param({ "TP53", "BRAF", "TTN" })
+    private Protein protein;
+
+    @Param({ "NEAR_IDENTICAL", "DIVERGENT" })
+    private Similarity similarity;
+
+    private AlignmentService alignmentService;
+    private String reference;
+    private String target;
+    private int minimumPenalty;
+
+    @Setup
+    public void setUp() {
+        alignmentService = new AlignmentService();
+        reference = ProteinFixtures.reference(protein);
+        target = ProteinFixtures.target(protein, similarity);
+        minimumPenalty = alignmentService.calcMinimumPenalty(reference, target);
+    }
+
+    @TearDown
+    public void tearDown() {
+        alignmentService.shutdown();
+    }
+
+    @Benchmark
+    public AlignmentResult calcOptimalAlignment() {
+        return alignmentService.calcOptimalAlignment(reference, target, false);
+    }
+
+    /**
+     * Banded alignment with a budget that just fits the pair, as when filtering candidates that are close enough.
+     */
+    @Benchmark
+    public Optional<AlignmentResult> calcOptimalAlignmentWithinPenalty() {
+        return alignmentService.calcOptimalAlignment(reference, target, minimumPenalty);
+    }
+
+    @Benchmark
+    public int calcMinimumPenalty() {
+        return alignmentService.calcMinimumPenalty(reference, target);
+    }
+
+    @Benchmark
+    public int calcEditDistance() {
+        return alignmentService.calcEditDistance(reference, target);
+    }
+}
@@ -0,0 +1,55 @@
+package org.mskcc.oncokb.transcript.service;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.mskcc.oncokb.transcript.benchmark.ProteinFixtures;
+import org.mskcc.oncokb.transcript.benchmark.ProteinFixtures.Protein;
+import org.mskcc.oncokb.transcript.service.sequence.SameLengthComparator;
+import org.mskcc.oncokb.transcript.vm.MissMatchPairVM;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Residue by residue comparison of same length sequences, the shortcut taken before falling back to an alignment.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TranscriptServiceBenchmark {
+
+    @Param({ "TP53", "BRAF", "TTN" })
+    private Protein protein;
+
+    private String reference;
+    private String target;
+    private SameLengthComparator comparator;
+
+    @Setup
+    public void setUp() {
+        reference = ProteinFixtures.reference(protein);
+        target = ProteinFixtures.sameLengthTarget(protein);
+        comparator = new SameLengthComparator(reference);
+    }
+
+    @Benchmark
+    public List<MissMatchPairVM> getNumOfMismatchSameLengthSequences() {
+        return TranscriptService.getNumOfMismatchSameLengthSequences(reference, target);
+    }
+
+    @Benchmark
+    public int countMismatches() {
+        return comparator.countMismatches(target);
+    }
+}
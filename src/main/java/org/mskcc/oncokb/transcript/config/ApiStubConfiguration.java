@@ -0,0 +1,21 @@
+package org.mskcc.oncokb.transcript.config;
+
+import org.mskcc.oncokb.transcript.config.model.StubConfig;
+import org.mskcc.oncokb.transcript.stub.ApiStubServer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Starts the stand-in for Ensembl and Genome Nexus with the application, see {@code application-stub.yml} for how the
+ * clients are pointed at it.
+ */
+@Configuration
+@Profile(Constants.SPRING_PROFILE_STUB)
+public class ApiStubConfiguration {
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public ApiStubServer apiStubServer(ApplicationProperties applicationProperties) {
+        return new ApiStubServer(applicationProperties.getStub() != null ? applicationProperties.getStub() : new StubConfig());
+    }
+}
@@ -1,6 +1,11 @@
 package org.mskcc.oncokb.transcript.config;
 
+import org.mskcc.oncokb.transcript.config.model.AlignmentConfig;
+import org.mskcc.oncokb.transcript.config.model.EnsemblConfig;
+import org.mskcc.oncokb.transcript.config.model.GenomeNexusConfig;
 import org.mskcc.oncokb.transcript.config.model.OncoKbConfig;
+import org.mskcc.oncokb.transcript.config.model.SequenceIndexConfig;
+import org.mskcc.oncokb.transcript.config.model.StubConfig;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 /**
@@ -14,6 +19,16 @@ public class ApplicationProperties extends org.mskcc.oncokb.meta.model.applicati
 
     private OncoKbConfig oncokb;
 
+    private AlignmentConfig alignment;
+
+    private EnsemblConfig ensembl;
+
+    private GenomeNexusConfig genomeNexus;
+
+    private SequenceIndexConfig sequenceIndex;
+
+    private StubConfig stub;
+
     public OncoKbConfig getOncokb() {
         return oncokb;
     }
@@ -21,4 +36,44 @@ public class ApplicationProperties extends org.mskcc.oncokb.meta.model.applicati
     public void setOncokb(OncoKbConfig oncokb) {
         this.oncokb = oncokb;
     }
+
+    public AlignmentConfig getAlignment() {
+        return alignment;
+    }
+
+    public void setAlignment(AlignmentConfig alignment) {
+        this.alignment = alignment;
+    }
+
+    public EnsemblConfig getEnsembl() {
+        return ensembl;
+    }
+
+    public void setEnsembl(EnsemblConfig ensembl) {
+        this.ensembl = ensembl;
+    }
+
+    public GenomeNexusConfig getGenomeNexus() {
+        return genomeNexus;
+    }
+
+    public void setGenomeNexus(GenomeNexusConfig genomeNexus) {
+        this.genomeNexus = genomeNexus;
+    }
+
+    public SequenceIndexConfig getSequenceIndex() {
+        return sequenceIndex;
+    }
+
+    public void setSequenceIndex(SequenceIndexConfig sequenceIndex) {
+        this.sequenceIndex = sequenceIndex;
+    }
+
+    public StubConfig getStub() {
+        return stub;
+    }
+
+    public void setStub(StubConfig stub) {
+        this.stub = stub;
+    }
 }
@@ -6,6 +6,7 @@ import javax.cache.expiry.CreatedExpiryPolicy;
 import javax.cache.expiry.Duration;
 import org.mskcc.oncokb.meta.enumeration.RedisType;
 import org.mskcc.oncokb.transcript.config.cache.*;
+import org.mskcc.oncokb.transcript.service.GenomeNexusService;
 import org.redisson.Redisson;
 import org.redisson.api.RedissonClient;
 import org.redisson.config.Config;
@@ -70,6 +71,26 @@ public class CacheConfiguration {
         return RedissonConfiguration.fromInstance(redissonClient, jcacheConfig);
     }
 
+    /**
+     * Genome Nexus responses only change with its Ensembl release, they are kept longer than the other entries
+     */
+    private javax.cache.configuration.Configuration<Object, Object> getGenomeNexusJcacheConfiguration(
+        ApplicationProperties applicationProperties,
+        RedissonClient redissonClient
+    ) {
+        Integer expiration = applicationProperties.getGenomeNexus() != null
+            ? applicationProperties.getGenomeNexus().getCacheExpiration()
+            : null;
+        MutableConfiguration<Object, Object> jcacheConfig = new MutableConfiguration<>();
+        jcacheConfig.setStatisticsEnabled(true);
+        jcacheConfig.setExpiryPolicyFactory(
+            CreatedExpiryPolicy.factoryOf(
+                new Duration(TimeUnit.SECONDS, expiration != null ? expiration : GenomeNexusService.DEFAULT_CACHE_EXPIRATION)
+            )
+        );
+        return RedissonConfiguration.fromInstance(redissonClient, jcacheConfig);
+    }
+
     private void createCache(
         javax.cache.CacheManager cm,
         CacheCategory cacheCategory,
@@ -86,8 +107,14 @@ public class CacheConfiguration {
     @Bean
     public JCacheManagerCustomizer cacheManagerCustomizer(
         javax.cache.configuration.Configuration<Object, Object> jcacheConfiguration,
-        CacheNameResolver cacheNameResolver
+        CacheNameResolver cacheNameResolver,
+        ApplicationProperties applicationProperties,
+        RedissonClient redissonClient
     ) {
+        javax.cache.configuration.Configuration<Object, Object> genomeNexusJcacheConfiguration = getGenomeNexusJcacheConfiguration(
+            applicationProperties,
+            redissonClient
+        );
         return cm -> {
             createCache(cm, CacheCategory.GENE, CacheKeys.GENES_BY_ENTREZ_GENE_ID, jcacheConfiguration, cacheNameResolver);
             createCache(cm, CacheCategory.GENE, CacheKeys.GENES_BY_HUGO_SYMBOL, jcacheConfiguration, cacheNameResolver);
@@ -99,6 +126,13 @@ public class CacheConfiguration {
                 jcacheConfiguration,
                 cacheNameResolver
             );
+            for (String cacheKey : new String[] {
+                CacheKeys.CANONICAL_ENSEMBL_TRANSCRIPTS_BY_HUGO_SYMBOL,
+                CacheKeys.ENSEMBL_TRANSCRIPTS_BY_HUGO_SYMBOL,
+                CacheKeys.ENSEMBL_TRANSCRIPTS_BY_TRANSCRIPT_ID,
+            }) {
+                createCache(cm, CacheCategory.GENOME_NEXUS, cacheKey, genomeNexusJcacheConfiguration, cacheNameResolver);
+            }
             // jhipster-needle-redis-add-entry
         };
     }
@@ -112,15 +146,6 @@ public class CacheConfiguration {
         return new GeneCacheResolver(cm, applicationProperties, cacheNameResolver);
     }
 
-    @Bean
-    public CacheResolver transcriptCacheResolver(
-        CacheManager cm,
-        ApplicationProperties applicationProperties,
-        CacheNameResolver cacheNameResolver
-    ) {
-        return new TranscriptCacheResolver(cm, applicationProperties, cacheNameResolver);
-    }
-
     @Autowired(required = false)
     public void setGitProperties(GitProperties gitProperties) {
         this.gitProperties = gitProperties;
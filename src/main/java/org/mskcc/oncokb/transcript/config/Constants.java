@@ -8,5 +8,8 @@ public final class Constants {
     public static final String SYSTEM = "system";
     public static final Integer ENSEMBL_POST_THRESHOLD = 100;
 
+    //Serves recorded Ensembl and Genome Nexus responses, see org.mskcc.oncokb.transcript.stub.ApiStubServer
+    public static final String SPRING_PROFILE_STUB = "stub";
+
     private Constants() {}
 }
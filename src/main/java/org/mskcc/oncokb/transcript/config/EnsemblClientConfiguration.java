@@ -0,0 +1,74 @@
+package org.mskcc.oncokb.transcript.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.PoolingHttpClientConnectionManagerMetricsBinder;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.mskcc.oncokb.transcript.config.model.EnsemblConfig;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * The HTTP client shared by all requests to Ensembl. Connections are pooled and kept alive between requests, and
+ * responses are gzip compressed. The timeouts depend on the host, so they are set per reference genome by
+ * {@link org.mskcc.oncokb.transcript.service.EnsemblService}.
+ */
+@Configuration
+public class EnsemblClientConfiguration {
+
+    public static final int DEFAULT_MAX_CONNECTIONS = 50;
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 20;
+    public static final long DEFAULT_KEEP_ALIVE = 30_000L;
+
+    //Check a connection that has been idle for longer than this before reusing it, in milliseconds
+    private static final int VALIDATE_AFTER_INACTIVITY = 2_000;
+
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager ensemblConnectionManager(
+        ApplicationProperties applicationProperties,
+        ObjectProvider<MeterRegistry> meterRegistry
+    ) {
+        EnsemblConfig ensemblConfig = applicationProperties.getEnsembl();
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(
+            ensemblConfig != null && ensemblConfig.getMaxConnections() != null ? ensemblConfig.getMaxConnections() : DEFAULT_MAX_CONNECTIONS
+        );
+        connectionManager.setDefaultMaxPerRoute(
+            ensemblConfig != null && ensemblConfig.getMaxConnectionsPerHost() != null
+                ? ensemblConfig.getMaxConnectionsPerHost()
+                : DEFAULT_MAX_CONNECTIONS_PER_HOST
+        );
+        connectionManager.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY);
+        //Exported as httpcomponents.httpclient.pool.* with the tag httpclient=ensembl
+        meterRegistry.ifAvailable(
+            registry -> new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "ensembl").bindTo(registry)
+        );
+        return connectionManager;
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient ensemblHttpClient(
+        ApplicationProperties applicationProperties,
+        PoolingHttpClientConnectionManager ensemblConnectionManager
+    ) {
+        EnsemblConfig ensemblConfig = applicationProperties.getEnsembl();
+        long keepAlive = ensemblConfig != null && ensemblConfig.getKeepAlive() != null ? ensemblConfig.getKeepAlive() : DEFAULT_KEEP_ALIVE;
+        //Content compression is enabled by default, requests accept gzip and responses are decompressed transparently
+        return HttpClients
+            .custom()
+            .setConnectionManager(ensemblConnectionManager)
+            .setKeepAliveStrategy(
+                (response, context) -> {
+                    long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return duration > 0 ? duration : keepAlive;
+                }
+            )
+            .evictExpiredConnections()
+            .evictIdleConnections(keepAlive, TimeUnit.MILLISECONDS)
+            .build();
+    }
+}
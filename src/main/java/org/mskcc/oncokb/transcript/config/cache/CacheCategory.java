@@ -3,4 +3,5 @@ package org.mskcc.oncokb.transcript.config.cache;
 public enum CacheCategory {
     GENE,
     TRANSCRIPT,
+    GENOME_NEXUS,
 }
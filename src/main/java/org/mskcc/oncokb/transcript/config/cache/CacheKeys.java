@@ -7,4 +7,8 @@ public final class CacheKeys {
     public static final String GENE_ALIASES_BY_NAME = "geneAliasesByName";
 
     public static final String TRANSCRIPTS_BY_ENSEMBL_TRANSCRIPT_IDS = "findByReferenceGenomeAndEnsemblTranscriptIdIsIn";
+
+    public static final String CANONICAL_ENSEMBL_TRANSCRIPTS_BY_HUGO_SYMBOL = "canonicalEnsemblTranscriptsByHugoSymbol";
+    public static final String ENSEMBL_TRANSCRIPTS_BY_HUGO_SYMBOL = "ensemblTranscriptsByHugoSymbol";
+    public static final String ENSEMBL_TRANSCRIPTS_BY_TRANSCRIPT_ID = "ensemblTranscriptsByTranscriptId";
 }
@@ -0,0 +1,96 @@
+package org.mskcc.oncokb.transcript.config.cache;
+
+import com.google.gson.Gson;
+import java.io.Serializable;
+import java.lang.reflect.Type;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+
+/**
+ * Caches the results of a slow upstream in a {@link Cache} whose entries expire on their own, and reloads an entry in the
+ * background once it is older than the refresh delay. So a key that keeps being read is served from the cache without
+ * waiting for the upstream, and a key that is no longer read expires.
+ * <p>
+ * The values are stored as JSON, so classes generated from an API specification can be cached without being
+ * {@link Serializable}.
+ */
+public class RefreshAheadCache {
+
+    @FunctionalInterface
+    public interface Loader<T, E extends Exception> {
+        T load() throws E;
+    }
+
+    private static final Gson GSON = new Gson();
+
+    private final Logger log = LoggerFactory.getLogger(RefreshAheadCache.class);
+
+    private final Cache cache;
+    private final long refreshAfterMillis;
+    private final Executor refresher;
+    //Keys being reloaded, so a key read many times while stale is only reloaded once
+    private final Set<Object> refreshing = ConcurrentHashMap.newKeySet();
+
+    public RefreshAheadCache(Cache cache, long refreshAfterMillis, Executor refresher) {
+        this.cache = cache;
+        this.refreshAfterMillis = refreshAfterMillis;
+        this.refresher = refresher;
+    }
+
+    /**
+     * @param type   the type of the value, e.g. from a {@link com.google.gson.reflect.TypeToken} for a list
+     * @param loader loads the value from the upstream, a value it fails to load is not cached
+     */
+    public <T, E extends Exception> T get(Object key, Type type, Loader<T, E> loader) throws E {
+        Entry entry = cache.get(key, Entry.class);
+        if (entry == null) {
+            T value = loader.load();
+            cache.put(key, new Entry(GSON.toJson(value, type)));
+            return value;
+        }
+        if (System.currentTimeMillis() - entry.getLoadedAt() > refreshAfterMillis && refreshing.add(key)) {
+            refresher.execute(() -> refresh(key, type, loader));
+        }
+        return GSON.fromJson(entry.getJson(), type);
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    private <T, E extends Exception> void refresh(Object key, Type type, Loader<T, E> loader) {
+        try {
+            cache.put(key, new Entry(GSON.toJson(loader.load(), type)));
+        } catch (Exception exception) {
+            //The stale value keeps being served until it expires
+            log.warn("Failed to refresh the cache entry {}", key, exception);
+        } finally {
+            refreshing.remove(key);
+        }
+    }
+
+    public static class Entry implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String json;
+        private final long loadedAt;
+
+        Entry(String json) {
+            this.json = json;
+            this.loadedAt = System.currentTimeMillis();
+        }
+
+        public String getJson() {
+            return json;
+        }
+
+        public long getLoadedAt() {
+            return loadedAt;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package org.mskcc.oncokb.transcript.config.cache;
+
+/**
+ * Keys of the {@link CacheKeys#TRANSCRIPTS_BY_ENSEMBL_TRANSCRIPT_IDS} cache. There is one entry per reference genome and
+ * transcript id, so a saved transcript evicts its own entry directly.
+ */
+public final class TranscriptCacheKey {
+
+    private static final String SEPARATOR = "-";
+
+    private TranscriptCacheKey() {}
+
+    public static String of(String referenceGenome, String ensemblTranscriptId) {
+        return referenceGenome + SEPARATOR + ensemblTranscriptId;
+    }
+}
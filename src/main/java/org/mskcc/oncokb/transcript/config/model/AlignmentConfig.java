@@ -0,0 +1,57 @@
+package org.mskcc.oncokb.transcript.config.model;
+
+public class AlignmentConfig {
+
+    // Alignments with more DP cells than this switch to the linear memory (Hirschberg) mode
+    Long linearMemoryThreshold;
+
+    // One of LEGACY, IDENTITY, BLOSUM62 or PAM250
+    String scoringScheme;
+
+    // Override the gap penalties of the scoring scheme. A gap of length L costs open + L * extend
+    Integer gapOpenPenalty;
+    Integer gapExtendPenalty;
+
+    // The number of threads aligning one reference against many targets, defaults to the number of cores
+    Integer parallelism;
+
+    public Long getLinearMemoryThreshold() {
+        return linearMemoryThreshold;
+    }
+
+    public void setLinearMemoryThreshold(Long linearMemoryThreshold) {
+        this.linearMemoryThreshold = linearMemoryThreshold;
+    }
+
+    public String getScoringScheme() {
+        return scoringScheme;
+    }
+
+    public void setScoringScheme(String scoringScheme) {
+        this.scoringScheme = scoringScheme;
+    }
+
+    public Integer getGapOpenPenalty() {
+        return gapOpenPenalty;
+    }
+
+    public void setGapOpenPenalty(Integer gapOpenPenalty) {
+        this.gapOpenPenalty = gapOpenPenalty;
+    }
+
+    public Integer getGapExtendPenalty() {
+        return gapExtendPenalty;
+    }
+
+    public void setGapExtendPenalty(Integer gapExtendPenalty) {
+        this.gapExtendPenalty = gapExtendPenalty;
+    }
+
+    public Integer getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(Integer parallelism) {
+        this.parallelism = parallelism;
+    }
+}
@@ -0,0 +1,112 @@
+package org.mskcc.oncokb.transcript.config.model;
+
+import java.util.Map;
+import org.mskcc.oncokb.transcript.domain.enumeration.ReferenceGenome;
+
+public class EnsemblConfig {
+
+    // Connections pooled for all Ensembl hosts together, and for each host
+    Integer maxConnections;
+    Integer maxConnectionsPerHost;
+
+    // How long an idle connection is kept when Ensembl does not send a Keep-Alive header, in milliseconds
+    Long keepAlive;
+
+    // Single sequence requests are collected for this many milliseconds and fetched together,
+    // with at most batch-parallelism batches fetched at the same time
+    Long batchWindow;
+    Integer batchParallelism;
+
+    // Ensembl allows 15 requests per second. Requests rejected with 429 are retried up to max-retries times
+    Integer requestsPerSecond;
+    Integer maxRetries;
+
+    // The number of chunks of a long id list fetched at the same time
+    Integer chunkParallelism;
+
+    // Timeouts of the host serving each reference genome
+    Map<ReferenceGenome, EnsemblHostConfig> hosts;
+
+    // The directory the files of an Ensembl release are imported from, no file outside of it is read
+    String importDirectory;
+
+    public Integer getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(Integer maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public Integer getMaxConnectionsPerHost() {
+        return maxConnectionsPerHost;
+    }
+
+    public void setMaxConnectionsPerHost(Integer maxConnectionsPerHost) {
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+    }
+
+    public Long getKeepAlive() {
+        return keepAlive;
+    }
+
+    public void setKeepAlive(Long keepAlive) {
+        this.keepAlive = keepAlive;
+    }
+
+    public Long getBatchWindow() {
+        return batchWindow;
+    }
+
+    public void setBatchWindow(Long batchWindow) {
+        this.batchWindow = batchWindow;
+    }
+
+    public Integer getBatchParallelism() {
+        return batchParallelism;
+    }
+
+    public void setBatchParallelism(Integer batchParallelism) {
+        this.batchParallelism = batchParallelism;
+    }
+
+    public Integer getRequestsPerSecond() {
+        return requestsPerSecond;
+    }
+
+    public void setRequestsPerSecond(Integer requestsPerSecond) {
+        this.requestsPerSecond = requestsPerSecond;
+    }
+
+    public Integer getMaxRetries() {
+        return maxRetries;
+    }
+
+    public void setMaxRetries(Integer maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    public Integer getChunkParallelism() {
+        return chunkParallelism;
+    }
+
+    public void setChunkParallelism(Integer chunkParallelism) {
+        this.chunkParallelism = chunkParallelism;
+    }
+
+    public Map<ReferenceGenome, EnsemblHostConfig> getHosts() {
+        return hosts;
+    }
+
+    public void setHosts(Map<ReferenceGenome, EnsemblHostConfig> hosts) {
+        this.hosts = hosts;
+    }
+
+    public String getImportDirectory() {
+        return importDirectory;
+    }
+
+    public void setImportDirectory(String importDirectory) {
+        this.importDirectory = importDirectory;
+    }
+}
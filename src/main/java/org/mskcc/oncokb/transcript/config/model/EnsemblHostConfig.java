@@ -0,0 +1,44 @@
+package org.mskcc.oncokb.transcript.config.model;
+
+public class EnsemblHostConfig {
+
+    // Base URL of the REST API, defaults to the public Ensembl server of the reference genome
+    String url;
+
+    // All in milliseconds. The connection request timeout is how long to wait for a free connection of the pool
+    Integer connectTimeout;
+    Integer readTimeout;
+    Integer connectionRequestTimeout;
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public Integer getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(Integer connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public Integer getReadTimeout() {
+        return readTimeout;
+    }
+
+    public void setReadTimeout(Integer readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    public Integer getConnectionRequestTimeout() {
+        return connectionRequestTimeout;
+    }
+
+    public void setConnectionRequestTimeout(Integer connectionRequestTimeout) {
+        this.connectionRequestTimeout = connectionRequestTimeout;
+    }
+}
@@ -0,0 +1,69 @@
+package org.mskcc.oncokb.transcript.config.model;
+
+import java.util.Map;
+import org.mskcc.oncokb.transcript.domain.enumeration.ReferenceGenome;
+
+public class GenomeNexusConfig {
+
+    // Base URL of the Genome Nexus server of each reference genome, defaults to the public ones
+    Map<ReferenceGenome, String> urls;
+
+    // In milliseconds
+    Integer readTimeout;
+
+    // In seconds, how long a cached response is kept and after how long a cached response that is read gets reloaded
+    Integer cacheExpiration;
+    Integer cacheRefreshAfter;
+
+    // Ids sent in one request when fetching a long list of ids, and such requests sent at the same time
+    Integer chunkSize;
+    Integer chunkParallelism;
+
+    public Map<ReferenceGenome, String> getUrls() {
+        return urls;
+    }
+
+    public void setUrls(Map<ReferenceGenome, String> urls) {
+        this.urls = urls;
+    }
+
+    public Integer getReadTimeout() {
+        return readTimeout;
+    }
+
+    public void setReadTimeout(Integer readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    public Integer getCacheExpiration() {
+        return cacheExpiration;
+    }
+
+    public void setCacheExpiration(Integer cacheExpiration) {
+        this.cacheExpiration = cacheExpiration;
+    }
+
+    public Integer getCacheRefreshAfter() {
+        return cacheRefreshAfter;
+    }
+
+    public void setCacheRefreshAfter(Integer cacheRefreshAfter) {
+        this.cacheRefreshAfter = cacheRefreshAfter;
+    }
+
+    public Integer getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(Integer chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public Integer getChunkParallelism() {
+        return chunkParallelism;
+    }
+
+    public void setChunkParallelism(Integer chunkParallelism) {
+        this.chunkParallelism = chunkParallelism;
+    }
+}
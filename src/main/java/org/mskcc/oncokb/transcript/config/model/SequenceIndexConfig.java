@@ -0,0 +1,15 @@
+package org.mskcc.oncokb.transcript.config.model;
+
+public class SequenceIndexConfig {
+
+    // Where the indexed FASTA files of the protein sequences are written, one pair of files per reference genome
+    String directory;
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+}
@@ -0,0 +1,101 @@
+package org.mskcc.oncokb.transcript.config.model;
+
+import java.util.Map;
+
+public class StubConfig {
+
+    // The stub server listens on this port when the stub profile is active
+    Integer port;
+
+    // RECORD proxies the requests to the upstreams and saves the responses, REPLAY serves the saved responses only
+    String mode;
+
+    // Where the responses are saved, one directory per upstream
+    String fixtures;
+
+    // Base URL of each upstream, served under /<name>/ by the stub server
+    Map<String, String> upstreams;
+
+    // Artificial delay added to every replayed response, in milliseconds, plus a random jitter up to latency-jitter
+    Integer latency;
+    Integer latencyJitter;
+
+    // Share of replayed requests answered with error-status instead of the saved response, between 0 and 1
+    Double errorRate;
+    Integer errorStatus;
+
+    // Requests served at the same time
+    Integer threads;
+
+    public Integer getPort() {
+        return port;
+    }
+
+    public void setPort(Integer port) {
+        this.port = port;
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public void setMode(String mode) {
+        this.mode = mode;
+    }
+
+    public String getFixtures() {
+        return fixtures;
+    }
+
+    public void setFixtures(String fixtures) {
+        this.fixtures = fixtures;
+    }
+
+    public Map<String, String> getUpstreams() {
+        return upstreams;
+    }
+
+    public void setUpstreams(Map<String, String> upstreams) {
+        this.upstreams = upstreams;
+    }
+
+    public Integer getLatency() {
+        return latency;
+    }
+
+    public void setLatency(Integer latency) {
+        this.latency = latency;
+    }
+
+    public Integer getLatencyJitter() {
+        return latencyJitter;
+    }
+
+    public void setLatencyJitter(Integer latencyJitter) {
+        this.latencyJitter = latencyJitter;
+    }
+
+    public Double getErrorRate() {
+        return errorRate;
+    }
+
+    public void setErrorRate(Double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    public Integer getErrorStatus() {
+        return errorStatus;
+    }
+
+    public void setErrorStatus(Integer errorStatus) {
+        this.errorStatus = errorStatus;
+    }
+
+    public Integer getThreads() {
+        return threads;
+    }
+
+    public void setThreads(Integer threads) {
+        this.threads = threads;
+    }
+}
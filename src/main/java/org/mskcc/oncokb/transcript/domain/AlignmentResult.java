@@ -7,6 +7,13 @@ public class AlignmentResult extends Alignment {
 
     int penalty;
 
+    // The region that differs between the two sequences, as [start, end) residue offsets.
+    // Everything outside of it is identical in both sequences.
+    int refCoreStart;
+    int refCoreEnd;
+    int targetCoreStart;
+    int targetCoreEnd;
+
     public AlignmentResult(Alignment alignment) {
         this.refSeq = alignment.refSeq;
         this.targetSeq = alignment.targetSeq;
@@ -19,4 +26,36 @@ public class AlignmentResult extends Alignment {
     public void setPenalty(int penalty) {
         this.penalty = penalty;
     }
+
+    public int getRefCoreStart() {
+        return refCoreStart;
+    }
+
+    public void setRefCoreStart(int refCoreStart) {
+        this.refCoreStart = refCoreStart;
+    }
+
+    public int getRefCoreEnd() {
+        return refCoreEnd;
+    }
+
+    public void setRefCoreEnd(int refCoreEnd) {
+        this.refCoreEnd = refCoreEnd;
+    }
+
+    public int getTargetCoreStart() {
+        return targetCoreStart;
+    }
+
+    public void setTargetCoreStart(int targetCoreStart) {
+        this.targetCoreStart = targetCoreStart;
+    }
+
+    public int getTargetCoreEnd() {
+        return targetCoreEnd;
+    }
+
+    public void setTargetCoreEnd(int targetCoreEnd) {
+        this.targetCoreEnd = targetCoreEnd;
+    }
 }
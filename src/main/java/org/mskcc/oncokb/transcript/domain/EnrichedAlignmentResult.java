@@ -15,6 +15,10 @@ public class EnrichedAlignmentResult extends AlignmentResult {
         this.refSeq = alignmentResult.refSeq;
         this.targetSeq = alignmentResult.targetSeq;
         this.penalty = alignmentResult.penalty;
+        this.refCoreStart = alignmentResult.refCoreStart;
+        this.refCoreEnd = alignmentResult.refCoreEnd;
+        this.targetCoreStart = alignmentResult.targetCoreStart;
+        this.targetCoreEnd = alignmentResult.targetCoreEnd;
     }
 
     public EnsemblTranscript getRefEnsemblTranscript() {
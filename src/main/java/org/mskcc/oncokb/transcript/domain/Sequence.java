@@ -4,6 +4,7 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import java.io.Serializable;
 import javax.persistence.*;
 import org.mskcc.oncokb.transcript.domain.enumeration.SequenceType;
+import org.mskcc.oncokb.transcript.util.SequenceUtils;
 
 /**
  * A Sequence.
@@ -27,6 +28,26 @@ public class Sequence implements Serializable {
     @Column(name = "sequence")
     private String sequence;
 
+    //Derived from the sequence, to find identical sequences with an index, see SequenceUtils#getHash
+    @Column(name = "sequence_hash", length = 32)
+    private String sequenceHash;
+
+    @Column(name = "sequence_length")
+    private Integer sequenceLength;
+
+    @Column(name = "reference_genome")
+    private String referenceGenome;
+
+    @Column(name = "ensembl_protein_id")
+    private String ensemblProteinId;
+
+    @Column(name = "ensembl_release")
+    private String ensemblRelease;
+
+    //The protein id on the one unlinked row that stores the Ensembl sequence of a protein, unique per reference genome
+    @Column(name = "cached_protein_id")
+    private String cachedProteinId;
+
     @ManyToOne
     @JsonIgnoreProperties(value = { "fragments", "sequences", "ensemblGene" }, allowSetters = true)
     private Transcript transcript;
@@ -70,6 +91,68 @@ public class Sequence implements Serializable {
 
     public void setSequence(String sequence) {
         this.sequence = sequence;
+        this.sequenceHash = SequenceUtils.getHash(sequence);
+        this.sequenceLength = sequence == null ? null : sequence.length();
+    }
+
+    public String getSequenceHash() {
+        return this.sequenceHash;
+    }
+
+    public Integer getSequenceLength() {
+        return this.sequenceLength;
+    }
+
+    public String getReferenceGenome() {
+        return this.referenceGenome;
+    }
+
+    public Sequence referenceGenome(String referenceGenome) {
+        this.setReferenceGenome(referenceGenome);
+        return this;
+    }
+
+    public void setReferenceGenome(String referenceGenome) {
+        this.referenceGenome = referenceGenome;
+    }
+
+    public String getEnsemblProteinId() {
+        return this.ensemblProteinId;
+    }
+
+    public Sequence ensemblProteinId(String ensemblProteinId) {
+        this.setEnsemblProteinId(ensemblProteinId);
+        return this;
+    }
+
+    public void setEnsemblProteinId(String ensemblProteinId) {
+        this.ensemblProteinId = ensemblProteinId;
+    }
+
+    public String getEnsemblRelease() {
+        return this.ensemblRelease;
+    }
+
+    public Sequence ensemblRelease(String ensemblRelease) {
+        this.setEnsemblRelease(ensemblRelease);
+        return this;
+    }
+
+    public void setEnsemblRelease(String ensemblRelease) {
+        this.ensemblRelease = ensemblRelease;
+    }
+
+    public String getCachedProteinId() {
+        return this.cachedProteinId;
+    }
+
+    public Sequence cachedProteinId(String cachedProteinId) {
+        this.setCachedProteinId(cachedProteinId);
+        return this;
+    }
+
+    public void setCachedProteinId(String cachedProteinId) {
+        this.cachedProteinId = cachedProteinId;
     }
 
     public Transcript getTranscript() {
@@ -111,6 +194,12 @@ public class Sequence implements Serializable {
             "id=" + getId() +
             ", sequenceType='" + getSequenceType() + "'" +
             ", sequence='" + getSequence() + "'" +
+            ", sequenceHash='" + getSequenceHash() + "'" +
+            ", sequenceLength=" + getSequenceLength() +
+            ", referenceGenome='" + getReferenceGenome() + "'" +
+            ", ensemblProteinId='" + getEnsemblProteinId() + "'" +
+            ", ensemblRelease='" + getEnsemblRelease() + "'" +
+            ", cachedProteinId='" + getCachedProteinId() + "'" +
             "}";
     }
 }
@@ -0,0 +1,355 @@
+package org.mskcc.oncokb.transcript.importer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.apache.commons.lang3.StringUtils;
+import org.genome_nexus.ApiException;
+import org.genome_nexus.client.EnsemblTranscript;
+import org.mskcc.oncokb.transcript.domain.EnsemblGene;
+import org.mskcc.oncokb.transcript.domain.Gene;
+import org.mskcc.oncokb.transcript.domain.GenomeFragment;
+import org.mskcc.oncokb.transcript.domain.Sequence;
+import org.mskcc.oncokb.transcript.domain.Transcript;
+import org.mskcc.oncokb.transcript.domain.enumeration.GenomeFragmentType;
+import org.mskcc.oncokb.transcript.domain.enumeration.ReferenceGenome;
+import org.mskcc.oncokb.transcript.domain.enumeration.SequenceType;
+import org.mskcc.oncokb.transcript.importer.ensembl.GeneModel;
+import org.mskcc.oncokb.transcript.importer.ensembl.GeneModelReader;
+import org.mskcc.oncokb.transcript.importer.ensembl.PeptideFastaReader;
+import org.mskcc.oncokb.transcript.repository.EnsemblGeneRepository;
+import org.mskcc.oncokb.transcript.repository.GeneRepository;
+import org.mskcc.oncokb.transcript.repository.GenomeFragmentRepository;
+import org.mskcc.oncokb.transcript.repository.SequenceRepository;
+import org.mskcc.oncokb.transcript.repository.TranscriptRepository;
+import org.mskcc.oncokb.transcript.service.GenomeNexusService;
+import org.mskcc.oncokb.transcript.service.TranscriptService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Imports a whole Ensembl release from the files of its FTP site instead of the REST API: the GTF or GFF3 annotation
+ * file, for genes, transcripts, exons and UTRs, and the {@code pep.all.fa} file, for the protein sequences.
+ * <p>
+ * Both files are read as a stream, and the entities are written a batch of genes per transaction so the persistence
+ * context stays small. Genes already imported for the reference genome are skipped, so an import can be resumed.
+ * <p>
+ * The canonical transcripts come from the {@code Ensembl_canonical} tag of the annotation file. The GRCh37 files do not
+ * have it, the canonical transcript of each canonical gene of GRCh37 is taken from Genome Nexus instead.
+ */
+@Component
+public class EnsemblReleaseImporter {
+
+    private static final int GENE_BATCH_SIZE = 500;
+    private static final int SEQUENCE_BATCH_SIZE = 1000;
+    private static final Set<String> PRIMARY_CHROMOSOMES = Stream
+        .concat(IntStream.rangeClosed(1, 22).mapToObj(String::valueOf), Stream.of("X", "Y", "MT"))
+        .collect(Collectors.toSet());
+
+    private final Logger log = LoggerFactory.getLogger(EnsemblReleaseImporter.class);
+
+    private final EnsemblGeneRepository ensemblGeneRepository;
+    private final GeneRepository geneRepository;
+    private final TranscriptRepository transcriptRepository;
+    private final GenomeFragmentRepository genomeFragmentRepository;
+    private final SequenceRepository sequenceRepository;
+    private final TranscriptService transcriptService;
+    private final GenomeNexusService genomeNexusService;
+    private final TransactionTemplate transactionTemplate;
+
+    public EnsemblReleaseImporter(
+        EnsemblGeneRepository ensemblGeneRepository,
+        GeneRepository geneRepository,
+        TranscriptRepository transcriptRepository,
+        GenomeFragmentRepository genomeFragmentRepository,
+        SequenceRepository sequenceRepository,
+        TranscriptService transcriptService,
+        GenomeNexusService genomeNexusService,
+        PlatformTransactionManager transactionManager
+    ) {
+        this.ensemblGeneRepository = ensemblGeneRepository;
+        this.geneRepository = geneRepository;
+        this.transcriptRepository = transcriptRepository;
+        this.genomeFragmentRepository = genomeFragmentRepository;
+        this.sequenceRepository = sequenceRepository;
+        this.transcriptService = transcriptService;
+        this.genomeNexusService = genomeNexusService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * @param referenceGenome the reference genome of the release
+     * @param annotationFile  the GTF or GFF3 file of the release, gzipped or not
+     * @param peptideFile     the pep.all.fa file of the release, gzipped or not
+     * @param release         the Ensembl release number, stored with the sequences
+     */
+    public void importRelease(ReferenceGenome referenceGenome, Path annotationFile, Path peptideFile, String release) throws IOException {
+        log.info("Importing Ensembl release {} of {} from {} and {}", release, referenceGenome, annotationFile, peptideFile);
+        if (isCanonicalFromGenomeNexus(referenceGenome)) {
+            log.info(
+                "The {} annotation files have no Ensembl_canonical tag, canonical transcripts are taken from Genome Nexus",
+                referenceGenome
+            );
+        } else {
+            log.info("Canonical transcripts of {} are taken from the Ensembl_canonical tag of {}", referenceGenome, annotationFile);
+        }
+
+        //The transcript of every protein imported, to link the sequences of the peptide file
+        Map<String, Long> transcriptIdByProteinId = new HashMap<>();
+        ImportCounts counts = new ImportCounts();
+        try (GeneModelReader reader = GeneModelReader.open(annotationFile)) {
+            List<GeneModel> batch = new ArrayList<>(GENE_BATCH_SIZE);
+            GeneModel gene;
+            while ((gene = reader.next()) != null) {
+                batch.add(gene);
+                if (batch.size() == GENE_BATCH_SIZE) {
+                    saveGenes(referenceGenome, batch, transcriptIdByProteinId, counts);
+                    batch.clear();
+                }
+            }
+            saveGenes(referenceGenome, batch, transcriptIdByProteinId, counts);
+        }
+        log.info("Imported {} genes with {} protein coding transcripts", counts.genes, transcriptIdByProteinId.size());
+        if (counts.withoutCanonicalTranscript > 0) {
+            log.warn(
+                "{} of the {} canonical genes imported have no canonical transcript from {}",
+                counts.withoutCanonicalTranscript,
+                counts.canonicalGenes,
+                isCanonicalFromGenomeNexus(referenceGenome) ? "Genome Nexus" : annotationFile
+            );
+        }
+
+        int sequences = 0;
+        try (PeptideFastaReader reader = PeptideFastaReader.open(peptideFile)) {
+            List<PeptideFastaReader.Entry> batch = new ArrayList<>(SEQUENCE_BATCH_SIZE);
+            PeptideFastaReader.Entry entry;
+            while ((entry = reader.next()) != null) {
+                if (transcriptIdByProteinId.containsKey(entry.getProteinId())) {
+                    batch.add(entry);
+                }
+                if (batch.size() == SEQUENCE_BATCH_SIZE) {
+                    sequences += saveSequences(referenceGenome, release, batch, transcriptIdByProteinId);
+                    batch.clear();
+                }
+            }
+            sequences += saveSequences(referenceGenome, release, batch, transcriptIdByProteinId);
+        }
+        log.info("Imported {} protein sequences", sequences);
+
+        transcriptService.clearTranscriptCaches();
+    }
+
+    private void saveGenes(
+        ReferenceGenome referenceGenome,
+        List<GeneModel> genes,
+        Map<String, Long> transcriptIdByProteinId,
+        ImportCounts counts
+    ) {
+        if (genes.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            List<String> geneIds = genes.stream().map(GeneModel::getGeneId).collect(Collectors.toList());
+            List<EnsemblGene> existingGenes = ensemblGeneRepository.findAllByReferenceGenomeAndEnsemblGeneIdIn(
+                referenceGenome.name(),
+                geneIds
+            );
+            Set<String> existing = new HashSet<>();
+            for (EnsemblGene ensemblGene : existingGenes) {
+                existing.add(ensemblGene.getEnsemblGeneId());
+                //Link the sequences of a resumed import as well
+                for (Transcript transcript : ensemblGene.getTranscripts()) {
+                    if (StringUtils.isNotEmpty(transcript.getEnsemblProteinId())) {
+                        transcriptIdByProteinId.put(transcript.getEnsemblProteinId(), transcript.getId());
+                    }
+                }
+            }
+
+            for (GeneModel geneModel : genes) {
+                if (existing.contains(geneModel.getGeneId()) || geneModel.getTranscripts().isEmpty()) {
+                    continue;
+                }
+                EnsemblGene ensemblGene = ensemblGeneRepository.save(toEnsemblGene(referenceGenome, geneModel));
+                Optional<String> canonicalTranscriptId = getCanonicalTranscriptId(referenceGenome, ensemblGene, geneModel);
+                for (GeneModel.TranscriptModel transcriptModel : geneModel.getTranscripts()) {
+                    Transcript transcript = toTranscript(ensemblGene, transcriptModel);
+                    if (isCanonicalFromGenomeNexus(referenceGenome)) {
+                        transcript.setCanonical(canonicalTranscriptId.map(transcriptModel.getTranscriptId()::equals).orElse(false));
+                    }
+                    transcript = transcriptRepository.save(transcript);
+                    genomeFragmentRepository.saveAll(toGenomeFragments(geneModel, transcriptModel, transcript));
+                    if (StringUtils.isNotEmpty(transcript.getEnsemblProteinId())) {
+                        transcriptIdByProteinId.put(transcript.getEnsemblProteinId(), transcript.getId());
+                    }
+                }
+                counts.genes++;
+                if (Boolean.TRUE.equals(ensemblGene.getCanonical())) {
+                    counts.canonicalGenes++;
+                    if (canonicalTranscriptId.isEmpty()) {
+                        counts.withoutCanonicalTranscript++;
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * The canonical transcript of a canonical gene, from the annotation file or from Genome Nexus for GRCh37
+     */
+    private Optional<String> getCanonicalTranscriptId(ReferenceGenome referenceGenome, EnsemblGene ensemblGene, GeneModel geneModel) {
+        if (!isCanonicalFromGenomeNexus(referenceGenome)) {
+            return geneModel
+                .getTranscripts()
+                .stream()
+                .filter(GeneModel.TranscriptModel::isCanonical)
+                .map(GeneModel.TranscriptModel::getTranscriptId)
+                .findFirst();
+        }
+        if (!Boolean.TRUE.equals(ensemblGene.getCanonical())) {
+            return Optional.empty();
+        }
+        String hugoSymbol = ensemblGene.getGene().getHugoSymbol();
+        try {
+            EnsemblTranscript canonical = genomeNexusService.findCanonicalEnsemblTranscript(referenceGenome, hugoSymbol);
+            //Only trusted when Genome Nexus picks a transcript of this very gene
+            Optional<String> transcriptId = Optional
+                .ofNullable(canonical)
+                .map(EnsemblTranscript::getTranscriptId)
+                .filter(id -> geneModel.getTranscripts().stream().anyMatch(transcript -> transcript.getTranscriptId().equals(id)));
+            if (transcriptId.isEmpty()) {
+                log.warn("Genome Nexus has no canonical transcript of {} {} in {}", hugoSymbol, geneModel.getGeneId(), referenceGenome);
+            }
+            return transcriptId;
+        } catch (ApiException exception) {
+            log.warn("Failed to get the canonical transcript of {} in {} from Genome Nexus", hugoSymbol, referenceGenome, exception);
+            return Optional.empty();
+        }
+    }
+
+    private static boolean isCanonicalFromGenomeNexus(ReferenceGenome referenceGenome) {
+        return referenceGenome == ReferenceGenome.GRCh37;
+    }
+
+    private int saveSequences(
+        ReferenceGenome referenceGenome,
+        String release,
+        List<PeptideFastaReader.Entry> entries,
+        Map<String, Long> transcriptIdByProteinId
+    ) {
+        if (entries.isEmpty()) {
+            return 0;
+        }
+        Integer saved = transactionTemplate.execute(status -> {
+            List<String> proteinIds = entries.stream().map(PeptideFastaReader.Entry::getProteinId).collect(Collectors.toList());
+            Set<String> existing = sequenceRepository
+                .findAllByReferenceGenomeAndSequenceTypeAndEnsemblProteinIdIn(referenceGenome.name(), SequenceType.PROTEIN, proteinIds)
+                .stream()
+                .map(Sequence::getEnsemblProteinId)
+                .collect(Collectors.toSet());
+
+            List<Sequence> sequences = new ArrayList<>();
+            for (PeptideFastaReader.Entry entry : entries) {
+                if (existing.contains(entry.getProteinId())) {
+                    continue;
+                }
+                Sequence sequence = new Sequence()
+                    .sequenceType(SequenceType.PROTEIN)
+                    .sequence(entry.getSequence())
+                    .referenceGenome(referenceGenome.name())
+                    .ensemblProteinId(entry.getProteinId())
+                    .ensemblRelease(release)
+                    .transcript(transcriptRepository.getById(transcriptIdByProteinId.get(entry.getProteinId())));
+                sequences.add(sequence);
+            }
+            sequenceRepository.saveAll(sequences);
+            return sequences.size();
+        });
+        return saved == null ? 0 : saved;
+    }
+
+    private EnsemblGene toEnsemblGene(ReferenceGenome referenceGenome, GeneModel geneModel) {
+        EnsemblGene ensemblGene = new EnsemblGene();
+        ensemblGene.setReferenceGenome(referenceGenome.name());
+        ensemblGene.setEnsemblGeneId(geneModel.getGeneId());
+        ensemblGene.setChromosome(geneModel.getChromosome());
+        ensemblGene.setStart(geneModel.getStart());
+        ensemblGene.setEnd(geneModel.getEnd());
+        ensemblGene.setStrand(geneModel.getStrand());
+        ensemblGene.setCanonical(false);
+
+        Optional<Gene> gene = StringUtils.isEmpty(geneModel.getGeneName())
+            ? Optional.empty()
+            : geneRepository.findByHugoSymbol(geneModel.getGeneName());
+        if (gene.isPresent()) {
+            ensemblGene.setGene(gene.get());
+            //Genes also have copies on the patches and alternate haplotypes, only the one on the primary assembly is canonical
+            if (
+                PRIMARY_CHROMOSOMES.contains(geneModel.getChromosome()) &&
+                ensemblGeneRepository.findCanonicalEnsemblGene(gene.get().getEntrezGeneId(), referenceGenome.name()).isEmpty()
+            ) {
+                ensemblGene.setCanonical(true);
+            }
+        }
+        return ensemblGene;
+    }
+
+    private static Transcript toTranscript(EnsemblGene ensemblGene, GeneModel.TranscriptModel transcriptModel) {
+        Transcript transcript = new Transcript();
+        transcript.setEnsemblGene(ensemblGene);
+        transcript.setEnsemblTranscriptId(transcriptModel.getTranscriptId());
+        transcript.setEnsemblProteinId(transcriptModel.getProteinId());
+        transcript.setCanonical(transcriptModel.isCanonical());
+        return transcript;
+    }
+
+    private static List<GenomeFragment> toGenomeFragments(
+        GeneModel geneModel,
+        GeneModel.TranscriptModel transcriptModel,
+        Transcript transcript
+    ) {
+        List<GenomeFragment> fragments = new ArrayList<>();
+        fragments.add(
+            toGenomeFragment(geneModel, transcript, GenomeFragmentType.GENE, transcriptModel.getStart(), transcriptModel.getEnd())
+        );
+        for (GeneModel.Feature feature : transcriptModel.getFeatures()) {
+            fragments.add(toGenomeFragment(geneModel, transcript, feature.getType(), feature.getStart(), feature.getEnd()));
+        }
+        return fragments;
+    }
+
+    private static GenomeFragment toGenomeFragment(
+        GeneModel geneModel,
+        Transcript transcript,
+        GenomeFragmentType type,
+        int start,
+        int end
+    ) {
+        GenomeFragment genomeFragment = new GenomeFragment();
+        genomeFragment.setTranscript(transcript);
+        genomeFragment.setChromosome(geneModel.getChromosome());
+        genomeFragment.setStart(start);
+        genomeFragment.setEnd(end);
+        genomeFragment.setStrand(geneModel.getStrand());
+        genomeFragment.setType(type);
+        return genomeFragment;
+    }
+
+    private static class ImportCounts {
+
+        int genes;
+        int canonicalGenes;
+        int withoutCanonicalTranscript;
+    }
+}
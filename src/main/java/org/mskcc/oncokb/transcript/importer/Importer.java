@@ -1,7 +1,10 @@
 package org.mskcc.oncokb.transcript.importer;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.Collectors;
 import org.mskcc.oncokb.transcript.domain.EnsemblGene;
 import org.mskcc.oncokb.transcript.domain.Sequence;
 import org.mskcc.oncokb.transcript.domain.enumeration.ReferenceGenome;
@@ -68,13 +71,16 @@ public class Importer {
         //        importGeneFragments();
     }
 
-    private void importCanonicalEnsemblGenes() {
-        List<org.mskcc.oncokb.transcript.domain.Gene> genes = geneService.findAll();
-        for (ReferenceGenome rg : ReferenceGenome.values()) {
-            for (org.mskcc.oncokb.transcript.domain.Gene gene : genes) {
-                mainService.createCanonicalEnsemblGene(rg, gene.getEntrezGeneId());
-            }
-        }
+    private void importCanonicalEnsemblGenes() throws ApiException {
+        //All genes are fetched from Genome Nexus in chunks, both reference genomes at the same time, instead of gene by gene
+        List<Integer> entrezGeneIds = geneService
+            .findAll()
+            .stream()
+            .map(org.mskcc.oncokb.transcript.domain.Gene::getEntrezGeneId)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toList());
+        Map<ReferenceGenome, List<EnsemblGene>> savedEnsemblGenes = ensemblGeneService.saveByEntrezGeneIds(entrezGeneIds);
+        savedEnsemblGenes.forEach((rg, ensemblGenes) -> log.info("Saved {} canonical ensembl genes of {}", ensemblGenes.size(), rg));
     }
 
     private void importCanonicalEnsemblTranscripts() throws ApiException {
@@ -184,23 +190,31 @@ public class Importer {
                 }
 
                 if (sequenceGrch37Optional.isPresent() && sequenceGrch38Optional.isPresent()) {
-                    if (sequenceGrch37Optional.get().getSequence().equals(sequenceGrch38Optional.get().getSequence())) {
+                    if (isSameSequence(sequenceGrch37Optional.get(), sequenceGrch38Optional.get())) {
                         log.info("\t\t Sequences match");
                     } else {
                         log.warn("\t\t Sequences do not match");
                         log.info(
                             "\t\t\t Alignment penalty {}",
-                            alignmentService
-                                .calcOptimalAlignment(
-                                    sequenceGrch37Optional.get().getSequence(),
-                                    sequenceGrch38Optional.get().getSequence(),
-                                    false
-                                )
-                                .getPenalty()
+                            alignmentService.calcMinimumPenalty(
+                                sequenceGrch37Optional.get().getSequence(),
+                                sequenceGrch38Optional.get().getSequence()
+                            )
                         );
                     }
                 }
             }
         }
     }
+
+    //Compare the fingerprints rather than the full sequences when both have one
+    private boolean isSameSequence(Sequence sequence1, Sequence sequence2) {
+        if (sequence1.getSequenceHash() != null && sequence2.getSequenceHash() != null) {
+            return (
+                sequence1.getSequenceHash().equals(sequence2.getSequenceHash()) &&
+                Objects.equals(sequence1.getSequenceLength(), sequence2.getSequenceLength())
+            );
+        }
+        return Objects.equals(sequence1.getSequence(), sequence2.getSequence());
+    }
 }
@@ -0,0 +1,205 @@
+package org.mskcc.oncokb.transcript.importer.ensembl;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.mskcc.oncokb.transcript.domain.enumeration.GenomeFragmentType;
+
+/**
+ * A gene of an Ensembl annotation file with its transcripts, as read by {@link GeneModelReader}. Coordinates are
+ * 1-based and inclusive, strand is 1 or -1.
+ */
+public class GeneModel {
+
+    private final String geneId;
+    private String geneName;
+    private String chromosome;
+    private int start;
+    private int end;
+    private int strand;
+    private final Map<String, TranscriptModel> transcripts = new LinkedHashMap<>();
+
+    public GeneModel(String geneId) {
+        this.geneId = geneId;
+    }
+
+    public String getGeneId() {
+        return geneId;
+    }
+
+    public String getGeneName() {
+        return geneName;
+    }
+
+    public String getChromosome() {
+        return chromosome;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
+    public int getStrand() {
+        return strand;
+    }
+
+    public List<TranscriptModel> getTranscripts() {
+        return new ArrayList<>(transcripts.values());
+    }
+
+    void setGeneName(String geneName) {
+        this.geneName = geneName;
+    }
+
+    void setLocation(String chromosome, int start, int end, int strand) {
+        this.chromosome = chromosome;
+        this.start = start;
+        this.end = end;
+        this.strand = strand;
+    }
+
+    /**
+     * Grow the gene to a feature, for files without gene lines
+     */
+    void include(String chromosome, int start, int end, int strand) {
+        if (this.chromosome == null) {
+            setLocation(chromosome, start, end, strand);
+        } else {
+            this.start = Math.min(this.start, start);
+            this.end = Math.max(this.end, end);
+        }
+    }
+
+    TranscriptModel getOrCreateTranscript(String transcriptId) {
+        return transcripts.computeIfAbsent(transcriptId, TranscriptModel::new);
+    }
+
+    public static class TranscriptModel {
+
+        private final String transcriptId;
+        private String proteinId;
+        private boolean canonical;
+        private int start;
+        private int end;
+        private int codingStart = Integer.MAX_VALUE;
+        private int codingEnd = Integer.MIN_VALUE;
+        private final List<Feature> features = new ArrayList<>();
+
+        TranscriptModel(String transcriptId) {
+            this.transcriptId = transcriptId;
+        }
+
+        public String getTranscriptId() {
+            return transcriptId;
+        }
+
+        public String getProteinId() {
+            return proteinId;
+        }
+
+        public boolean isCanonical() {
+            return canonical;
+        }
+
+        public int getStart() {
+            return start;
+        }
+
+        public int getEnd() {
+            return end;
+        }
+
+        /**
+         * @return the exons and UTRs
+         */
+        public List<Feature> getFeatures() {
+            return features;
+        }
+
+        void setProteinId(String proteinId) {
+            this.proteinId = proteinId;
+        }
+
+        void setCanonical(boolean canonical) {
+            this.canonical = canonical;
+        }
+
+        void setLocation(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        void addCoding(int start, int end) {
+            codingStart = Math.min(codingStart, start);
+            codingEnd = Math.max(codingEnd, end);
+        }
+
+        void addFeature(GenomeFragmentType type, int start, int end) {
+            features.add(new Feature(type, start, end));
+            if (this.start == 0 || start < this.start) {
+                this.start = start;
+            }
+            this.end = Math.max(this.end, end);
+        }
+
+        /**
+         * Older GTF files only tell a feature is a UTR, or have no UTR lines at all, as the GRCh37 ones. Then the UTRs are
+         * the parts of the exons outside the coding region, and whether one is the 5' or the 3' UTR depends on which side
+         * of the coding region it lies, on the strand of the gene.
+         */
+        void resolveUtrs(int strand) {
+            if (codingStart <= codingEnd && features.stream().noneMatch(feature -> feature.getType() != GenomeFragmentType.EXON)) {
+                List<Feature> exons = new ArrayList<>(features);
+                for (Feature exon : exons) {
+                    if (exon.getStart() < codingStart) {
+                        features.add(new Feature(null, exon.getStart(), Math.min(exon.getEnd(), codingStart - 1)));
+                    }
+                    if (exon.getEnd() > codingEnd) {
+                        features.add(new Feature(null, Math.max(exon.getStart(), codingEnd + 1), exon.getEnd()));
+                    }
+                }
+            }
+            for (int i = 0; i < features.size(); i++) {
+                Feature feature = features.get(i);
+                if (feature.getType() != null || codingStart > codingEnd) {
+                    continue;
+                }
+                boolean beforeCoding = feature.getEnd() < codingStart;
+                boolean fivePrime = strand >= 0 ? beforeCoding : feature.getStart() > codingEnd;
+                GenomeFragmentType type = fivePrime ? GenomeFragmentType.FIVE_PRIME_UTR : GenomeFragmentType.THREE_PRIME_UTR;
+                features.set(i, new Feature(type, feature.getStart(), feature.getEnd()));
+            }
+            features.removeIf(feature -> feature.getType() == null);
+        }
+    }
+
+    public static class Feature {
+
+        private final GenomeFragmentType type;
+        private final int start;
+        private final int end;
+
+        Feature(GenomeFragmentType type, int start, int end) {
+            this.type = type;
+            this.start = start;
+            this.end = end;
+        }
+
+        public GenomeFragmentType getType() {
+            return type;
+        }
+
+        public int getStart() {
+            return start;
+        }
+
+        public int getEnd() {
+            return end;
+        }
+    }
+}
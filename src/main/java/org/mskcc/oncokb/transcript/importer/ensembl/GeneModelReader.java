@@ -0,0 +1,277 @@
+package org.mskcc.oncokb.transcript.importer.ensembl;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import org.mskcc.oncokb.transcript.domain.enumeration.GenomeFragmentType;
+
+/**
+ * Reads the genes of an Ensembl GTF or GFF3 file one at a time, so a whole release never has to be held in memory.
+ * <p>
+ * Ensembl writes all the features of a gene right after its gene line, which is what makes streaming possible. A gene
+ * is returned once the next one starts, or at the {@code ###} separator of GFF3 files.
+ */
+public class GeneModelReader implements Closeable {
+
+    public enum Format {
+        GTF,
+        GFF3,
+    }
+
+    private final BufferedReader reader;
+    private final Format format;
+    //GFF3 features point at their transcript only, the gene comes from the transcript line
+    private final Map<String, String> geneIdByTranscriptId = new HashMap<>();
+    private GeneModel current;
+
+    public GeneModelReader(InputStream inputStream, Format format) {
+        this.reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        this.format = format;
+    }
+
+    /**
+     * Open a GTF or GFF3 file, gzipped or not, telling them apart by the file name
+     */
+    public static GeneModelReader open(Path path) throws IOException {
+        String name = path.getFileName().toString().toLowerCase();
+        InputStream inputStream = Files.newInputStream(path);
+        if (name.endsWith(".gz")) {
+            inputStream = new GZIPInputStream(inputStream, 1 << 16);
+            name = name.substring(0, name.length() - 3);
+        }
+        Format format = name.endsWith(".gff3") || name.endsWith(".gff") ? Format.GFF3 : Format.GTF;
+        return new GeneModelReader(inputStream, format);
+    }
+
+    /**
+     * @return the next gene of the file, or null at the end
+     */
+    public GeneModel next() throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith("###")) {
+                geneIdByTranscriptId.clear();
+                GeneModel gene = complete();
+                if (gene != null) {
+                    return gene;
+                }
+            } else if (!line.isEmpty() && line.charAt(0) != '#') {
+                GeneModel gene = readLine(line);
+                if (gene != null) {
+                    return gene;
+                }
+            }
+        }
+        return complete();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * @return the previous gene if this line starts a new one
+     */
+    private GeneModel readLine(String line) {
+        String[] columns = line.split("\t", 9);
+        if (columns.length < 9) {
+            return null;
+        }
+        String chromosome = columns[0];
+        String featureType = columns[2];
+        int start = Integer.parseInt(columns[3]);
+        int end = Integer.parseInt(columns[4]);
+        int strand = "-".equals(columns[6]) ? -1 : 1;
+        Map<String, String> attributes = format == Format.GTF ? parseGtfAttributes(columns[8]) : parseGff3Attributes(columns[8]);
+
+        String geneId = getGeneId(attributes);
+        if (geneId == null) {
+            return null;
+        }
+        GeneModel finished = null;
+        if (current != null && !current.getGeneId().equals(geneId)) {
+            finished = complete();
+        }
+        if (current == null) {
+            current = new GeneModel(geneId);
+        }
+        if (isGene(featureType, attributes)) {
+            current.setLocation(chromosome, start, end, strand);
+            current.setGeneName(getGeneName(attributes));
+            return finished;
+        }
+        current.include(chromosome, start, end, strand);
+        if (current.getGeneName() == null) {
+            current.setGeneName(getGeneName(attributes));
+        }
+
+        String transcriptId = getTranscriptId(attributes);
+        if (transcriptId == null) {
+            return finished;
+        }
+        GeneModel.TranscriptModel transcript = current.getOrCreateTranscript(transcriptId);
+        if (isTranscript(featureType, attributes)) {
+            transcript.setLocation(start, end);
+            geneIdByTranscriptId.put(transcriptId, geneId);
+        }
+        if (hasTag(attributes, "Ensembl_canonical")) {
+            transcript.setCanonical(true);
+        }
+        switch (featureType) {
+            case "exon":
+                transcript.addFeature(GenomeFragmentType.EXON, start, end);
+                break;
+            case "five_prime_utr":
+            case "five_prime_UTR":
+                transcript.addFeature(GenomeFragmentType.FIVE_PRIME_UTR, start, end);
+                break;
+            case "three_prime_utr":
+            case "three_prime_UTR":
+                transcript.addFeature(GenomeFragmentType.THREE_PRIME_UTR, start, end);
+                break;
+            case "UTR":
+                //Resolved against the coding region once the transcript is complete
+                transcript.addFeature(null, start, end);
+                break;
+            case "start_codon":
+            case "stop_codon":
+                //GTF files leave the stop codon out of the CDS
+                transcript.addCoding(start, end);
+                break;
+            case "CDS":
+                transcript.addCoding(start, end);
+                String proteinId = attributes.get("protein_id");
+                if (proteinId != null) {
+                    transcript.setProteinId(stripPrefix(proteinId));
+                }
+                break;
+            default:
+                break;
+        }
+        return finished;
+    }
+
+    private GeneModel complete() {
+        GeneModel finished = current;
+        current = null;
+        if (finished != null) {
+            for (GeneModel.TranscriptModel transcript : finished.getTranscripts()) {
+                transcript.resolveUtrs(finished.getStrand());
+            }
+        }
+        return finished;
+    }
+
+    private String getGeneId(Map<String, String> attributes) {
+        if (format == Format.GTF) {
+            return attributes.get("gene_id");
+        }
+        String id = attributes.get("ID");
+        if (id != null && id.startsWith("gene:")) {
+            return stripPrefix(id);
+        }
+        String parent = attributes.get("Parent");
+        if (parent == null) {
+            return null;
+        }
+        if (parent.startsWith("gene:")) {
+            return stripPrefix(parent);
+        }
+        return geneIdByTranscriptId.get(stripPrefix(parent));
+    }
+
+    private String getTranscriptId(Map<String, String> attributes) {
+        if (format == Format.GTF) {
+            return attributes.get("transcript_id");
+        }
+        String id = attributes.get("ID");
+        if (id != null && id.startsWith("transcript:")) {
+            return stripPrefix(id);
+        }
+        String parent = attributes.get("Parent");
+        return parent != null && parent.startsWith("transcript:") ? stripPrefix(parent) : null;
+    }
+
+    private boolean isGene(String featureType, Map<String, String> attributes) {
+        if (format == Format.GTF) {
+            return "gene".equals(featureType);
+        }
+        String id = attributes.get("ID");
+        return id != null && id.startsWith("gene:");
+    }
+
+    private boolean isTranscript(String featureType, Map<String, String> attributes) {
+        if (format == Format.GTF) {
+            return "transcript".equals(featureType);
+        }
+        String id = attributes.get("ID");
+        return id != null && id.startsWith("transcript:");
+    }
+
+    private String getGeneName(Map<String, String> attributes) {
+        return format == Format.GTF ? attributes.get("gene_name") : attributes.get("Name");
+    }
+
+    private static boolean hasTag(Map<String, String> attributes, String tag) {
+        String tags = attributes.get("tag");
+        if (tags == null) {
+            return false;
+        }
+        for (String value : tags.split(",")) {
+            if (tag.equals(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String stripPrefix(String id) {
+        int colon = id.indexOf(':');
+        return colon >= 0 ? id.substring(colon + 1) : id;
+    }
+
+    /**
+     * GTF attributes look like {@code gene_id "ENSG00000141510"; tag "basic"; tag "Ensembl_canonical";}. Repeated keys
+     * are joined with a comma, the way GFF3 writes them.
+     */
+    static Map<String, String> parseGtfAttributes(String column) {
+        Map<String, String> attributes = new HashMap<>();
+        for (String attribute : column.split(";")) {
+            String trimmed = attribute.trim();
+            int space = trimmed.indexOf(' ');
+            if (space < 0) {
+                continue;
+            }
+            String key = trimmed.substring(0, space);
+            String value = trimmed.substring(space + 1).trim();
+            if (value.length() >= 2 && value.charAt(0) == '"' && value.charAt(value.length() - 1) == '"') {
+                value = value.substring(1, value.length() - 1);
+            }
+            attributes.merge(key, value, (previous, added) -> previous + "," + added);
+        }
+        return attributes;
+    }
+
+    /**
+     * GFF3 attributes look like {@code ID=transcript:ENST00000269305;Parent=gene:ENSG00000141510;tag=basic,Ensembl_canonical}
+     */
+    static Map<String, String> parseGff3Attributes(String column) {
+        Map<String, String> attributes = new HashMap<>();
+        for (String attribute : column.split(";")) {
+            int equals = attribute.indexOf('=');
+            if (equals > 0) {
+                attributes.put(attribute.substring(0, equals).trim(), attribute.substring(equals + 1).trim());
+            }
+        }
+        return attributes;
+    }
+}
@@ -0,0 +1,97 @@
+package org.mskcc.oncokb.transcript.importer.ensembl;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads the proteins of an Ensembl {@code pep.all.fa} file, gzipped or not, one at a time.
+ * <p>
+ * Headers look like {@code >ENSP00000269305.4 pep chromosome:GRCh38:17:7661779:7687538:-1 gene:ENSG00000141510.18 ...}.
+ * The protein id is returned without its version, the way it is stored in the transcript table.
+ */
+public class PeptideFastaReader implements Closeable {
+
+    private final BufferedReader reader;
+    private String nextHeader;
+
+    public PeptideFastaReader(InputStream inputStream) {
+        this.reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    }
+
+    public static PeptideFastaReader open(Path path) throws IOException {
+        InputStream inputStream = Files.newInputStream(path);
+        if (path.getFileName().toString().toLowerCase().endsWith(".gz")) {
+            inputStream = new GZIPInputStream(inputStream, 1 << 16);
+        }
+        return new PeptideFastaReader(inputStream);
+    }
+
+    /**
+     * @return the next protein of the file, or null at the end
+     */
+    public Entry next() throws IOException {
+        String header = nextHeader;
+        nextHeader = null;
+        String line;
+        while (header == null && (line = reader.readLine()) != null) {
+            if (line.startsWith(">")) {
+                header = line;
+            }
+        }
+        if (header == null) {
+            return null;
+        }
+        StringBuilder sequence = new StringBuilder();
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith(">")) {
+                nextHeader = line;
+                break;
+            }
+            sequence.append(line.trim());
+        }
+        return new Entry(getProteinId(header), sequence.toString());
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    static String getProteinId(String header) {
+        int end = header.length();
+        for (int i = 1; i < header.length(); i++) {
+            char c = header.charAt(i);
+            if (c == '.' || Character.isWhitespace(c)) {
+                end = i;
+                break;
+            }
+        }
+        return header.substring(1, end);
+    }
+
+    public static class Entry {
+
+        private final String proteinId;
+        private final String sequence;
+
+        Entry(String proteinId, String sequence) {
+            this.proteinId = proteinId;
+            this.sequence = sequence;
+        }
+
+        public String getProteinId() {
+            return proteinId;
+        }
+
+        public String getSequence() {
+            return sequence;
+        }
+    }
+}
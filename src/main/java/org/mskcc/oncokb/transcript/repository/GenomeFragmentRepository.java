@@ -1,7 +1,9 @@
 package org.mskcc.oncokb.transcript.repository;
 
+import java.util.Collection;
 import java.util.List;
 import org.mskcc.oncokb.transcript.domain.GenomeFragment;
+import org.mskcc.oncokb.transcript.domain.enumeration.GenomeFragmentType;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.stereotype.Repository;
 
@@ -13,4 +15,31 @@ import org.springframework.stereotype.Repository;
 public interface GenomeFragmentRepository extends JpaRepository<GenomeFragment, Long> {
     @Query("select genomeFragment from GenomeFragment genomeFragment where genomeFragment.transcript.id = ?1")
     List<GenomeFragment> findAllByTranscriptId(Long id);
+
+    /**
+     * The fragments of the transcripts as plain columns. Selecting the entities would load their EAGER transcript, with its
+     * gene, one select per transcript that is not in the persistence context.
+     */
+    @Query(
+        "select genomeFragment.transcript.id as transcriptId, genomeFragment.id as id, genomeFragment.type as type, " +
+        "genomeFragment.chromosome as chromosome, genomeFragment.start as start, genomeFragment.end as end, " +
+        "genomeFragment.strand as strand from GenomeFragment genomeFragment where genomeFragment.transcript.id in ?1"
+    )
+    List<TranscriptGenomeFragment> findAllByTranscriptIdIn(Collection<Long> ids);
+
+    interface TranscriptGenomeFragment {
+        Long getTranscriptId();
+
+        Long getId();
+
+        GenomeFragmentType getType();
+
+        String getChromosome();
+
+        Integer getStart();
+
+        Integer getEnd();
+
+        Integer getStrand();
+    }
 }
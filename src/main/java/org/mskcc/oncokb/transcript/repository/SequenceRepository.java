@@ -1,9 +1,13 @@
 package org.mskcc.oncokb.transcript.repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import org.mskcc.oncokb.transcript.domain.Sequence;
 import org.mskcc.oncokb.transcript.domain.Transcript;
 import org.mskcc.oncokb.transcript.domain.enumeration.SequenceType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.stereotype.Repository;
 
@@ -14,4 +18,77 @@ import org.springframework.stereotype.Repository;
 @Repository
 public interface SequenceRepository extends JpaRepository<Sequence, Long> {
     Optional<Sequence> findOneByTranscriptAndSequenceType(Transcript transcript, SequenceType sequenceType);
+
+    List<Sequence> findAllByReferenceGenomeAndSequenceTypeAndEnsemblProteinIdIn(
+        String referenceGenome,
+        SequenceType sequenceType,
+        Collection<String> ensemblProteinIds
+    );
+
+    /**
+     * Page through the sequences of a reference genome without loading their transcripts, the most recent first
+     */
+    @Query(
+        "select s.ensemblProteinId as ensemblProteinId, s.sequence as sequence from Sequence s " +
+        "where s.referenceGenome = ?1 and s.sequenceType = ?2 and s.ensemblProteinId is not null order by s.id desc"
+    )
+    Slice<ProteinSequence> findProteinSequences(String referenceGenome, SequenceType sequenceType, Pageable pageable);
+
+    /**
+     * The id of the most recent protein sequence of a reference genome, null when there is none
+     */
+    @Query(
+        "select max(s.id) from Sequence s where s.referenceGenome = ?1 and s.sequenceType = ?2 and s.ensemblProteinId is not null"
+    )
+    Long findMaxProteinSequenceId(String referenceGenome, SequenceType sequenceType);
+
+    /**
+     * The proteins of the sequences of a reference genome stored after the given sequence id
+     */
+    @Query(
+        "select distinct s.ensemblProteinId from Sequence s " +
+        "where s.referenceGenome = ?1 and s.sequenceType = ?2 and s.ensemblProteinId is not null and s.id > ?3"
+    )
+    List<String> findProteinIdsWithIdGreaterThan(String referenceGenome, SequenceType sequenceType, Long id);
+
+    /**
+     * Find the sequences with the given fingerprint, see {@link org.mskcc.oncokb.transcript.util.SequenceUtils#getHash}
+     */
+    @Query(
+        "select s.referenceGenome as referenceGenome, s.ensemblProteinId as ensemblProteinId, " +
+        "t.ensemblTranscriptId as ensemblTranscriptId from Sequence s left join s.transcript t " +
+        "where s.sequenceType = ?1 and s.sequenceHash = ?2 and s.sequenceLength = ?3"
+    )
+    List<IdenticalSequence> findIdenticalSequences(SequenceType sequenceType, String sequenceHash, Integer sequenceLength);
+
+    /**
+     * The proteins of a reference genome with the given fingerprint, only from the rows holding their current sequence:
+     * the ones fetched on their own or stored from the given Ensembl release
+     */
+    @Query(
+        "select distinct s.ensemblProteinId from Sequence s " +
+        "where s.referenceGenome = ?1 and s.sequenceType = ?2 and s.sequenceHash = ?3 and s.sequenceLength = ?4 " +
+        "and s.ensemblProteinId is not null and (s.cachedProteinId is not null or s.ensemblRelease = ?5)"
+    )
+    List<String> findCurrentIdenticalProteinIds(
+        String referenceGenome,
+        SequenceType sequenceType,
+        String sequenceHash,
+        Integer sequenceLength,
+        String ensemblRelease
+    );
+
+    interface ProteinSequence {
+        String getEnsemblProteinId();
+
+        String getSequence();
+    }
+
+    interface IdenticalSequence {
+        String getReferenceGenome();
+
+        String getEnsemblProteinId();
+
+        String getEnsemblTranscriptId();
+    }
 }
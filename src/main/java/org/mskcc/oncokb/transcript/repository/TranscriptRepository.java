@@ -5,7 +5,8 @@ import java.util.Optional;
 import liquibase.pro.packaged.T;
 import org.mskcc.oncokb.transcript.domain.EnsemblGene;
 import org.mskcc.oncokb.transcript.domain.Transcript;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.stereotype.Repository;
 
@@ -18,7 +19,6 @@ public interface TranscriptRepository extends JpaRepository<Transcript, Long> {
     @Query("select t from Transcript t join t.ensemblGene eg where eg.referenceGenome= ?1 and t.ensemblTranscriptId=?2")
     Optional<Transcript> findByReferenceGenomeAndEnsemblTranscriptId(String referenceGenome, String ensemblTranscriptId);
 
-    @Cacheable(cacheResolver = "transcriptCacheResolver")
     @Query("select t from Transcript t join t.ensemblGene eg where eg.referenceGenome= ?1 and t.ensemblTranscriptId in ?2")
     List<Transcript> findByReferenceGenomeAndEnsemblTranscriptIdIsIn(String referenceGenome, List<String> ensemblTranscriptIds);
 
@@ -30,4 +30,9 @@ public interface TranscriptRepository extends JpaRepository<Transcript, Long> {
     Optional<Transcript> findByEnsemblGeneAndEnsemblTranscriptId(EnsemblGene ensemblGene, String ensemblTranscriptId);
 
     Optional<Transcript> findByEnsemblGeneAndCanonicalIsTrue(EnsemblGene ensemblGene);
+
+    /**
+     * Keyset pagination, the next slice starts after the last id of the previous one so no rows are skipped over
+     */
+    Slice<Transcript> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
 }
@@ -1,10 +1,31 @@
 package org.mskcc.oncokb.transcript.service;
 
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import javax.annotation.PreDestroy;
+import org.apache.commons.lang3.tuple.Pair;
+import org.mskcc.oncokb.transcript.config.ApplicationProperties;
+import org.mskcc.oncokb.transcript.config.model.AlignmentConfig;
 import org.mskcc.oncokb.transcript.domain.Alignment;
 import org.mskcc.oncokb.transcript.domain.AlignmentResult;
+import org.mskcc.oncokb.transcript.service.alignment.AlignmentScratch;
+import org.mskcc.oncokb.transcript.service.alignment.AlignmentScratchPool;
+import org.mskcc.oncokb.transcript.service.alignment.BitParallelEditDistance;
+import org.mskcc.oncokb.transcript.service.alignment.DirectionMatrix;
+import org.mskcc.oncokb.transcript.service.alignment.ScoringScheme;
+import org.mskcc.oncokb.transcript.service.alignment.TrimmedSequences;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 /**
@@ -15,25 +36,59 @@ import org.springframework.stereotype.Service;
 public class AlignmentService {
 
     static final String GAP_CHAR = "_"; //Only For printing the final alignment
+    private static final char GAP_SYMBOL = GAP_CHAR.charAt(0);
 
-    private static final Set<Character> vowels = new HashSet<>(Arrays.asList(new Character[] { 'a', 'e', 'i', 'o', 'u' }));
-    private static final Set<Character> consonants = new HashSet<>(
-        Arrays.asList(
-            new Character[] { 'b', 'c', 'd', 'f', 'g', 'h', 'j', 'k', 'l', 'm', 'n', 'p', 'q', 'r', 's', 't', 'v', 'w', 'x', 'y', 'z' }
-        )
-    );
-    private static final Set<Character> numbers = new HashSet<>(
-        Arrays.asList(new Character[] { '0', '1', '2', '3', '4', '5', '6', '7', '8', '9' })
-    );
-
-    private int[][] memoTable;
-    private int[][][] predecessorIndexes; //stores the index where the value at memoTable[i][j] came from (diagonal, above or left)
-
-    private int gapPenalty;
-    private int vowelVowelMismatchPenalty;
-    private int consonantConsonantMismatchPenalty;
-    private int vowelConsonantMismatchPenalty;
-    private int numberNumberMismatchPenalty;
+    public static final long DEFAULT_LINEAR_MEMORY_THRESHOLD = 25_000_000L;
+
+    //Sub-problems of the linear memory mode that are at most this big are solved with a full table
+    private static final long HIRSCHBERG_BASE_CASE_CELLS = 1 << 16;
+
+    private static final int BAND_INFINITY = Integer.MAX_VALUE / 2;
+
+    private static final int SCRATCH_POOL_CAPACITY = Runtime.getRuntime().availableProcessors();
+    public static final int DEFAULT_PARALLELISM = Runtime.getRuntime().availableProcessors();
+    private static final long MAX_RETAINED_SCRATCH_BYTES = 64L * 1024 * 1024;
+
+    private final Logger log = LoggerFactory.getLogger(AlignmentService.class);
+
+    //DP tables are kept per call and recycled through the pool, the service itself holds no alignment state
+    private final AlignmentScratchPool scratchPool = new AlignmentScratchPool(SCRATCH_POOL_CAPACITY, MAX_RETAINED_SCRATCH_BYTES);
+
+    private final ScoringScheme scoringScheme;
+    private final long linearMemoryThreshold;
+
+    //Dedicated to one-vs-many alignments, so they neither queue behind nor starve the common pool
+    private final ForkJoinPool alignmentPool;
+
+    public AlignmentService(ScoringScheme scoringScheme, long linearMemoryThreshold, int parallelism) {
+        this.scoringScheme = scoringScheme;
+        this.linearMemoryThreshold = linearMemoryThreshold;
+        this.alignmentPool = createAlignmentPool(parallelism);
+    }
+
+    public AlignmentService(ScoringScheme scoringScheme, long linearMemoryThreshold) {
+        this(scoringScheme, linearMemoryThreshold, DEFAULT_PARALLELISM);
+    }
+
+    public AlignmentService(
+        int gapPenalty,
+        int vowelVowelMismatchPenalty,
+        int consonantConsonantMismatchPenalty,
+        int vowelConsonantMismatchPenalty,
+        int numberNumberMismatchPenalty,
+        long linearMemoryThreshold
+    ) {
+        this(
+            ScoringScheme.legacy(
+                gapPenalty,
+                vowelVowelMismatchPenalty,
+                consonantConsonantMismatchPenalty,
+                vowelConsonantMismatchPenalty,
+                numberNumberMismatchPenalty
+            ),
+            linearMemoryThreshold
+        );
+    }
 
     public AlignmentService(
         int gapPenalty,
@@ -42,168 +97,884 @@ public class AlignmentService {
         int vowelConsonantMismatchPenalty,
         int numberNumberMismatchPenalty
     ) {
-        this.gapPenalty = gapPenalty;
-        this.vowelVowelMismatchPenalty = vowelVowelMismatchPenalty;
-        this.consonantConsonantMismatchPenalty = consonantConsonantMismatchPenalty;
-        this.vowelConsonantMismatchPenalty = vowelConsonantMismatchPenalty;
-        this.numberNumberMismatchPenalty = numberNumberMismatchPenalty;
+        this(
+            gapPenalty,
+            vowelVowelMismatchPenalty,
+            consonantConsonantMismatchPenalty,
+            vowelConsonantMismatchPenalty,
+            numberNumberMismatchPenalty,
+            DEFAULT_LINEAR_MEMORY_THRESHOLD
+        );
     }
 
     public AlignmentService() {
         this(2, 1, 1, 3, 1);
     }
 
+    @Autowired
+    public AlignmentService(ApplicationProperties applicationProperties) {
+        this(
+            getScoringScheme(applicationProperties.getAlignment()),
+            getLinearMemoryThreshold(applicationProperties.getAlignment()),
+            applicationProperties.getAlignment() != null && applicationProperties.getAlignment().getParallelism() != null
+                ? applicationProperties.getAlignment().getParallelism()
+                : DEFAULT_PARALLELISM
+        );
+    }
+
+    private static ForkJoinPool createAlignmentPool(int parallelism) {
+        return new ForkJoinPool(
+            parallelism,
+            pool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("alignment-" + thread.getPoolIndex());
+                return thread;
+            },
+            null,
+            false
+        );
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        alignmentPool.shutdown();
+    }
+
+    private static ScoringScheme getScoringScheme(AlignmentConfig alignmentConfig) {
+        if (alignmentConfig == null) {
+            return ScoringScheme.of(ScoringScheme.LEGACY);
+        }
+        ScoringScheme scoringScheme = ScoringScheme.of(
+            alignmentConfig.getScoringScheme() != null ? alignmentConfig.getScoringScheme() : ScoringScheme.LEGACY
+        );
+        if (alignmentConfig.getGapOpenPenalty() != null || alignmentConfig.getGapExtendPenalty() != null) {
+            scoringScheme =
+                scoringScheme.withGapPenalties(
+                    alignmentConfig.getGapOpenPenalty() != null ? alignmentConfig.getGapOpenPenalty() : scoringScheme.getGapOpenPenalty(),
+                    alignmentConfig.getGapExtendPenalty() != null
+                        ? alignmentConfig.getGapExtendPenalty()
+                        : scoringScheme.getGapExtendPenalty()
+                );
+        }
+        return scoringScheme;
+    }
+
+    private static long getLinearMemoryThreshold(AlignmentConfig alignmentConfig) {
+        return alignmentConfig != null && alignmentConfig.getLinearMemoryThreshold() != null
+            ? alignmentConfig.getLinearMemoryThreshold()
+            : DEFAULT_LINEAR_MEMORY_THRESHOLD;
+    }
+
+    public ScoringScheme getScoringScheme() {
+        return scoringScheme;
+    }
+
     public void calculateAndPrintOptimalAlignment(String seq1, String seq2) {
         calcOptimalAlignment(seq1, seq2, true);
     }
 
+    /**
+     * Globally align two sequences. The method is safe to be called concurrently.
+     * Identical leading and trailing residues are set aside first, the result records the differing core.
+     * When the DP table would have more cells than the linear memory threshold, the alignment is computed with
+     * Hirschberg's divide and conquer algorithm in O(n+m) memory instead. Schemes with affine gaps always use
+     * Gotoh's algorithm on the full table, the linear memory mode only supports linear gaps.
+     *
+     * @param sequence1Original the reference sequence
+     * @param sequence2Original the target sequence
+     * @param printResults      whether to log the penalty and the alignment on debug level
+     * @return the optimal alignment with its penalty
+     */
     public AlignmentResult calcOptimalAlignment(String sequence1Original, String sequence2Original, boolean printResults) {
         String seq1 = sanitizeSequence(sequence1Original);
         String seq2 = sanitizeSequence(sequence2Original);
 
-        //Initialize 2D arrays for memoization
-        memoTable = new int[seq1.length()][seq2.length()];
-        predecessorIndexes = new int[seq1.length()][seq2.length()][2];
+        //Identical leading and trailing residues do not need DP, only the differing core is aligned
+        TrimmedSequences trimmedSequences = trim(seq1, seq2);
+        AlignmentResult alignmentResult = trimmedSequences.restore(align(trimmedSequences.getCore1(), trimmedSequences.getCore2()));
 
-        //Array bounds are < seq1.length() (not <= ) since both sequences have a blank space @ the start
-        //Fill 0th column
-        for (int i = 0; i < seq1.length(); i++) { // base case: j = 0
-            memoTable[i][0] = i * this.gapPenalty;
-            predecessorIndexes[i][0][0] = i - 1;
-            predecessorIndexes[i][0][1] = 0;
+        if (printResults) {
+            log.debug(
+                "{}\t is the Minimum penalty for aligning \"{}\" with \"{}\"",
+                alignmentResult.getPenalty(),
+                sequence1Original,
+                sequence2Original
+            );
+            log.debug("Optimal Alignment:\n{}\n{}", alignmentResult.getRefSeq(), alignmentResult.getTargetSeq());
         }
-        //Fill 0th row
-        for (int j = 0; j < seq2.length(); j++) { // base case: i = 0
-            memoTable[0][j] = j * this.gapPenalty;
-            predecessorIndexes[0][j][0] = 0;
-            predecessorIndexes[0][j][1] = j - 1;
-        }
-        //Set upper left with negative predecessor since it has no predecessor
-        predecessorIndexes[0][0][0] = -1;
-        predecessorIndexes[0][0][1] = -1;
-
-        //Fill rest of memo table
-        for (int j = 1; j < seq2.length(); j++) {
-            for (int i = 1; i < seq1.length(); i++) {
-                int alignedCharWithCharPenalty = mismatchPenalty(seq1.charAt(i), seq2.charAt(j)) + memoTable[i - 1][j - 1]; //case1: seq1[i] & seq2[j] aligned with each other
-                int seq1CharWithGap = this.gapPenalty + memoTable[i - 1][j]; //case2: seq1 with gap
-                int seq2CharWithGap = this.gapPenalty + memoTable[i][j - 1]; //case3: seq2 with gap
-                //Calculate the min of 3 values & store predecessors
-                if (alignedCharWithCharPenalty <= seq1CharWithGap && alignedCharWithCharPenalty <= seq2CharWithGap) { //case1 is the min
-                    memoTable[i][j] = alignedCharWithCharPenalty;
-                    predecessorIndexes[i][j][0] = i - 1;
-                    predecessorIndexes[i][j][1] = j - 1;
-                } else if (seq1CharWithGap <= alignedCharWithCharPenalty && seq1CharWithGap <= seq2CharWithGap) { //case2 is the min
-                    memoTable[i][j] = seq1CharWithGap;
-                    predecessorIndexes[i][j][0] = i - 1;
-                    predecessorIndexes[i][j][1] = j;
-                } else { //case3 is the min
-                    memoTable[i][j] = seq2CharWithGap;
-                    predecessorIndexes[i][j][0] = i;
-                    predecessorIndexes[i][j][1] = j - 1;
+        return alignmentResult;
+    }
+
+    /**
+     * Globally align two sequences, but only when the penalty does not exceed {@code maxPenalty}.
+     * Every gap residue costs at least the gap extend penalty, so an alignment within the limit can only drift a bounded
+     * number of cells away from the diagonal. The DP is restricted to that band and stops as soon as a whole row is over the limit.
+     *
+     * @param sequence1Original the reference sequence
+     * @param sequence2Original the target sequence
+     * @param maxPenalty        the highest acceptable penalty
+     * @return the optimal alignment, or empty when its penalty is above maxPenalty
+     */
+    public Optional<AlignmentResult> calcOptimalAlignment(String sequence1Original, String sequence2Original, int maxPenalty) {
+        if (maxPenalty < 0) {
+            return Optional.empty();
+        }
+        TrimmedSequences trimmedSequences = trim(sanitizeSequence(sequence1Original), sanitizeSequence(sequence2Original));
+        String seq1 = trimmedSequences.getCore1();
+        String seq2 = trimmedSequences.getCore2();
+        int seq1Length = seq1.length() - 1;
+        int seq2Length = seq2.length() - 1;
+
+        int lowestDiagonal = Integer.MIN_VALUE;
+        int bandWidth = Integer.MAX_VALUE;
+        int gapOpenPenalty = this.scoringScheme.getGapOpenPenalty();
+        int gapExtendPenalty = this.scoringScheme.getGapExtendPenalty();
+        if (gapExtendPenalty > 0) {
+            //The first gap residue also pays the gap open penalty
+            int maxGaps = maxPenalty < gapOpenPenalty + gapExtendPenalty ? 0 : (maxPenalty - gapOpenPenalty) / gapExtendPenalty;
+            int lengthDifference = seq2Length - seq1Length;
+            if (Math.abs(lengthDifference) > maxGaps) {
+                return Optional.empty();
+            }
+            //A path through diagonal d = j - i needs at least |d| + |lengthDifference - d| gaps
+            int slack = (maxGaps - Math.abs(lengthDifference)) / 2;
+            lowestDiagonal = Math.min(0, lengthDifference) - slack;
+            bandWidth = Math.abs(lengthDifference) + 2 * slack + 1;
+        }
+
+        Optional<AlignmentResult> alignmentResult;
+        if (bandWidth > seq2Length || (long) (seq1Length + 1) * bandWidth > this.linearMemoryThreshold) {
+            //The band does not save anything here
+            alignmentResult = Optional.of(align(seq1, seq2)).filter(result -> result.getPenalty() <= maxPenalty);
+        } else {
+            byte[] codes1 = ScoringScheme.encode(seq1);
+            byte[] codes2 = ScoringScheme.encode(seq2);
+            AlignmentScratch scratch = scratchPool.acquire();
+            try {
+                if (this.scoringScheme.isAffine()) {
+                    alignmentResult =
+                        alignAffine(
+                            seq1,
+                            codes1,
+                            seq2,
+                            codes2,
+                            lowestDiagonal,
+                            bandWidth,
+                            maxPenalty,
+                            bandWidth - 1,
+                            -lowestDiagonal,
+                            scratch
+                        );
+                } else {
+                    alignmentResult = alignWithinBand(seq1, codes1, seq2, codes2, lowestDiagonal, bandWidth, maxPenalty, scratch);
                 }
+            } finally {
+                scratchPool.release(scratch);
             }
         }
+        alignmentResult = alignmentResult.map(trimmedSequences::restore);
+        if (log.isDebugEnabled()) {
+            log.debug(
+                "Aligning \"{}\" with \"{}\" within penalty {}: {}",
+                sequence1Original,
+                sequence2Original,
+                maxPenalty,
+                alignmentResult.map(result -> Integer.toString(result.getPenalty())).orElse("over the limit")
+            );
+        }
+        return alignmentResult;
+    }
 
-        int minimumPenalty = memoTable[sequence1Original.length()][sequence2Original.length()];
+    /**
+     * Compute only the minimum penalty of globally aligning two sequences, without the alignment itself.
+     * The DP is done with rolling rows, so it runs in O(m) memory and skips the traceback entirely.
+     * Use {@link #calcOptimalAlignment(String, String, boolean)} afterwards for the candidates that need the alignment.
+     *
+     * @param sequence1Original the reference sequence
+     * @param sequence2Original the target sequence
+     * @return the same penalty {@link #calcOptimalAlignment(String, String, boolean)} would report
+     */
+    public int calcMinimumPenalty(String sequence1Original, String sequence2Original) {
+        TrimmedSequences trimmedSequences = trim(sanitizeSequence(sequence1Original), sanitizeSequence(sequence2Original));
+        String seq1 = trimmedSequences.getCore1();
+        String seq2 = trimmedSequences.getCore2();
+        int seq1Length = seq1.length() - 1;
+        int seq2Length = seq2.length() - 1;
 
-        if (printResults) {
-            //            System.out.println("Aligning \"" + sequence1Original + "\" with \"" + sequence2Original + "\"");
-            //            System.out.println("Memoization table");
-            //            printTable(memoTable);
-            //            System.out.println("\nPredecessor table (where the values came from)");
-            //            printTable3D(predecessorIndexes);
-
-            System.out.println(
-                "\n" +
-                minimumPenalty +
-                "\t is the Minimum penalty for aligning \"" +
-                sequence1Original +
-                "\" with \"" +
-                sequence2Original +
-                "\""
+        byte[] codes1 = ScoringScheme.encode(seq1);
+        byte[] codes2 = ScoringScheme.encode(seq2);
+        AlignmentScratch scratch = scratchPool.acquire();
+        try {
+            if (this.scoringScheme.isAffine()) {
+                return calcAffineMinimumPenalty(codes1, codes2, scratch);
+            }
+            int[] row = scratch.forwardRow(seq2Length + 1);
+            fillForwardRow(codes1, 0, seq1Length, codes2, 0, seq2Length, row);
+            return row[seq2Length];
+        } finally {
+            scratchPool.release(scratch);
+        }
+    }
+
+    /**
+     * Align one reference against many targets. Every target is aligned as its own task on a dedicated pool bounded
+     * to the configured parallelism, so the latency depends on the number of cores rather than the number of targets.
+     * <p>
+     * With a bounded maxPenalty each target is aligned in banded mode and dropped when it cannot stay within the limit.
+     * Otherwise, when there are more targets than requested, they are ranked by their penalty alone and only the
+     * top k are traced back, see {@link #calcMinimumPenalty(String, String)}.
+     *
+     * @param reference  the reference sequence
+     * @param targets    the target sequences, each with a key that identifies it in the results
+     * @param maxPenalty the highest acceptable penalty, Integer.MAX_VALUE for no limit
+     * @param topK       the maximum number of results
+     * @param <T>        the type of the keys
+     * @return at most topK alignments sorted by penalty, targets with the same penalty keep their order
+     */
+    public <T> List<Pair<T, AlignmentResult>> calcOptimalAlignments(
+        String reference,
+        List<Pair<T, String>> targets,
+        int maxPenalty,
+        int topK
+    ) {
+        if (topK <= 0 || maxPenalty < 0 || targets.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Pair<T, String>> candidates = maxPenalty == Integer.MAX_VALUE && targets.size() > topK
+            ? selectTopTargets(reference, targets, topK)
+            : targets;
+
+        List<ForkJoinTask<Optional<AlignmentResult>>> tasks = candidates
+            .stream()
+            .map(candidate ->
+                alignmentPool.submit(() ->
+                    maxPenalty == Integer.MAX_VALUE
+                        ? Optional.of(calcOptimalAlignment(reference, candidate.getValue(), true))
+                        : calcOptimalAlignment(reference, candidate.getValue(), maxPenalty)
+                )
+            )
+            .collect(Collectors.toList());
+        List<Pair<T, AlignmentResult>> results = new ArrayList<>();
+        for (int i = 0; i < tasks.size(); i++) {
+            Optional<AlignmentResult> alignmentResult = tasks.get(i).join();
+            if (alignmentResult.isPresent()) {
+                results.add(Pair.of(candidates.get(i).getKey(), alignmentResult.get()));
+            }
+        }
+        results.sort(Comparator.comparingInt(result -> result.getValue().getPenalty()));
+        return results.size() > topK ? new ArrayList<>(results.subList(0, topK)) : results;
+    }
+
+    /**
+     * Pick the topK targets with the lowest minimum penalty, earlier targets first on ties. The cheap lower bounds are
+     * computed for all targets first, then the minimum penalties in order of the bounds, one wave of pool size at a
+     * time, until no remaining target can get into the top k.
+     */
+    private <T> List<Pair<T, String>> selectTopTargets(String reference, List<Pair<T, String>> targets, int topK) {
+        List<Integer> lowerBounds = joinAll(
+            targets
+                .stream()
+                .map(target -> alignmentPool.submit(() -> calcPenaltyLowerBound(reference, target.getValue())))
+                .collect(Collectors.toList())
+        );
+        List<Integer> screeningOrder = IntStream
+            .range(0, targets.size())
+            .boxed()
+            .sorted(Comparator.comparingInt(lowerBounds::get))
+            .collect(Collectors.toList());
+
+        //The worst of the current top k is at the head: highest penalty, then latest target
+        Comparator<Pair<Integer, Integer>> byPenalty = Comparator.comparingInt(Pair::getValue);
+        PriorityQueue<Pair<Integer, Integer>> topTargets = new PriorityQueue<>(byPenalty.thenComparingInt(Pair::getKey).reversed());
+        int next = 0;
+        while (next < screeningOrder.size()) {
+            List<Integer> wave = new ArrayList<>();
+            while (next < screeningOrder.size() && wave.size() < alignmentPool.getParallelism()) {
+                int index = screeningOrder.get(next);
+                if (topTargets.size() == topK && lowerBounds.get(index) > topTargets.peek().getValue()) {
+                    next = screeningOrder.size();
+                    break;
+                }
+                wave.add(index);
+                next++;
+            }
+            List<Integer> penalties = joinAll(
+                wave
+                    .stream()
+                    .map(index -> alignmentPool.submit(() -> calcMinimumPenalty(reference, targets.get(index).getValue())))
+                    .collect(Collectors.toList())
             );
+            for (int i = 0; i < wave.size(); i++) {
+                topTargets.add(Pair.of(wave.get(i), penalties.get(i)));
+                if (topTargets.size() > topK) {
+                    topTargets.poll();
+                }
+            }
         }
-        Alignment alignment = findAlignment(seq1, seq2, memoTable, printResults);
+        return topTargets.stream().map(Pair::getKey).sorted().map(targets::get).collect(Collectors.toList());
+    }
 
-        AlignmentResult alignmentResult = new AlignmentResult(alignment);
-        alignmentResult.setPenalty(minimumPenalty);
+    private static <V> List<V> joinAll(List<ForkJoinTask<V>> tasks) {
+        return tasks.stream().map(ForkJoinTask::join).collect(Collectors.toList());
+    }
+
+    /**
+     * Compute the unit cost edit distance of two sequences with a bit-parallel kernel, 64 DP cells per word operation.
+     * This is much cheaper than a weighted alignment and works as a prefilter, see {@link #calcPenaltyLowerBound(String, String)}.
+     *
+     * @param sequence1Original the reference sequence
+     * @param sequence2Original the target sequence
+     * @return the minimum number of substitutions, insertions and deletions
+     */
+    public int calcEditDistance(String sequence1Original, String sequence2Original) {
+        //Shared prefix and suffix never count towards a unit cost distance
+        TrimmedSequences trimmedSequences = TrimmedSequences.of(sanitizeSequence(sequence1Original), sanitizeSequence(sequence2Original));
+        byte[] codes1 = ScoringScheme.encode(trimmedSequences.getCore1());
+        byte[] codes2 = ScoringScheme.encode(trimmedSequences.getCore2());
+        AlignmentScratch scratch = scratchPool.acquire();
+        try {
+            return BitParallelEditDistance.calc(codes1, codes2, scratch);
+        } finally {
+            scratchPool.release(scratch);
+        }
+    }
+
+    /**
+     * A cheap lower bound of {@link #calcMinimumPenalty(String, String)}: every edit costs at least the minimum edit cost
+     * of the scoring scheme. Pairs whose bound is already too high do not need the weighted alignment.
+     *
+     * @param sequence1Original the reference sequence
+     * @param sequence2Original the target sequence
+     * @return a penalty no higher than the minimum penalty of aligning the two sequences
+     */
+    public int calcPenaltyLowerBound(String sequence1Original, String sequence2Original) {
+        int minimumEditCost = this.scoringScheme.getMinimumEditCost();
+        if (minimumEditCost <= 0) {
+            return 0;
+        }
+        return calcEditDistance(sequence1Original, sequence2Original) * minimumEditCost;
+    }
+
+    //Trimming is only exact with linear gaps, an affine gap may be cheaper when it reaches into the shared prefix or suffix
+    private TrimmedSequences trim(String seq1, String seq2) {
+        return this.scoringScheme.isAffine() ? TrimmedSequences.untrimmed(seq1, seq2) : TrimmedSequences.of(seq1, seq2);
+    }
+
+    //Aligns sanitized sequences, picking the full table or the linear memory mode depending on the size
+    private AlignmentResult align(String seq1, String seq2) {
+        byte[] codes1 = ScoringScheme.encode(seq1);
+        byte[] codes2 = ScoringScheme.encode(seq2);
+        int seq1Length = seq1.length() - 1;
+        int seq2Length = seq2.length() - 1;
+        AlignmentScratch scratch = scratchPool.acquire();
+        try {
+            if (this.scoringScheme.isAffine()) {
+                return alignAffine(
+                    seq1,
+                    codes1,
+                    seq2,
+                    codes2,
+                    -seq1Length,
+                    seq1Length + seq2Length + 1,
+                    Integer.MAX_VALUE,
+                    seq2Length + 1,
+                    0,
+                    scratch
+                )
+                    .get();
+            } else if ((long) seq1.length() * seq2.length() > this.linearMemoryThreshold) {
+                StringBuilder seq1Aligned = new StringBuilder(seq1Length + seq2Length);
+                StringBuilder seq2Aligned = new StringBuilder(seq1Length + seq2Length);
+                int minimumPenalty = alignWithLinearMemory(
+                    seq1,
+                    codes1,
+                    0,
+                    seq1Length,
+                    seq2,
+                    codes2,
+                    0,
+                    seq2Length,
+                    scratch,
+                    seq1Aligned,
+                    seq2Aligned
+                );
+
+                Alignment alignment = new Alignment();
+                alignment.setRefSeq(seq1Aligned.toString());
+                alignment.setTargetSeq(seq2Aligned.toString());
+                AlignmentResult alignmentResult = new AlignmentResult(alignment);
+                alignmentResult.setPenalty(minimumPenalty);
+                return alignmentResult;
+            } else {
+                return alignWithFullTable(seq1, codes1, seq2, codes2, scratch);
+            }
+        } finally {
+            scratchPool.release(scratch);
+        }
+    }
+
+    private AlignmentResult alignWithFullTable(String seq1, byte[] codes1, String seq2, byte[] codes2, AlignmentScratch scratch) {
+        int rows = seq1.length();
+        int columns = seq2.length();
+        int cells = Math.multiplyExact(rows, columns);
+        int gapPenalty = this.scoringScheme.getGapExtendPenalty();
+        int[] costs = this.scoringScheme.getCosts();
+
+        //Only one row of penalties is kept, the path is recovered from the 2-bit direction stored for cell i * columns + j
+        int[] memoRow = scratch.forwardRow(columns);
+        long[] directions = scratch.directions(DirectionMatrix.words(cells));
+        DirectionMatrix.clear(directions, cells);
+
+        //Array bounds are < rows (not <= ) since both sequences have a blank space @ the start
+        //Fill 0th row
+        for (int j = 0; j < columns; j++) { // base case: i = 0
+            memoRow[j] = j * gapPenalty;
+            DirectionMatrix.set(directions, j, DirectionMatrix.LEFT);
+        }
+
+        //Fill rest of memo table row by row, memoRow[j] still holds the previous row until it is overwritten
+        for (int i = 1; i < rows; i++) {
+            int row = i * columns;
+            int costRow = codes1[i] << ScoringScheme.ALPHABET_BITS;
+            int diagonal = memoRow[0];
+            memoRow[0] = i * gapPenalty; // base case: j = 0
+            DirectionMatrix.set(directions, row, DirectionMatrix.UP);
+            for (int j = 1; j < columns; j++) {
+                int alignedCharWithCharPenalty = costs[costRow | codes2[j]] + diagonal; //case1: seq1[i] & seq2[j] aligned with each other
+                int seq1CharWithGap = gapPenalty + memoRow[j]; //case2: seq1 with gap
+                int seq2CharWithGap = gapPenalty + memoRow[j - 1]; //case3: seq2 with gap
+                diagonal = memoRow[j];
+                if (alignedCharWithCharPenalty <= seq1CharWithGap && alignedCharWithCharPenalty <= seq2CharWithGap) {
+                    memoRow[j] = alignedCharWithCharPenalty;
+                } else if (seq1CharWithGap <= seq2CharWithGap) {
+                    memoRow[j] = seq1CharWithGap;
+                    DirectionMatrix.set(directions, row + j, DirectionMatrix.UP);
+                } else {
+                    memoRow[j] = seq2CharWithGap;
+                    DirectionMatrix.set(directions, row + j, DirectionMatrix.LEFT);
+                }
+            }
+        }
+
+        AlignmentResult alignmentResult = new AlignmentResult(findAlignment(seq1, seq2, directions, columns, 0));
+        alignmentResult.setPenalty(memoRow[columns - 1]);
         return alignmentResult;
     }
 
-    private void printTable(int[][] table) {
-        for (int[] row : table) {
-            for (int value : row) {
-                System.out.print(value + "\t");
+    /**
+     * Banded DP. Only cells whose diagonal j - i lies in [lowestDiagonal, lowestDiagonal + bandWidth) are computed.
+     * The penalties of a row are kept in place at band[j - i - lowestDiagonal], so the diagonal predecessor is at the same
+     * index, the upper one at the next index and the left one at the previous index. Directions are stored for cell
+     * i * bandWidth + (j - i - lowestDiagonal).
+     */
+    private Optional<AlignmentResult> alignWithinBand(
+        String seq1,
+        byte[] codes1,
+        String seq2,
+        byte[] codes2,
+        int lowestDiagonal,
+        int bandWidth,
+        int maxPenalty,
+        AlignmentScratch scratch
+    ) {
+        int seq1Length = seq1.length() - 1;
+        int seq2Length = seq2.length() - 1;
+        int highestDiagonal = lowestDiagonal + bandWidth - 1;
+        int cells = Math.multiplyExact(seq1Length + 1, bandWidth);
+        int gapPenalty = this.scoringScheme.getGapExtendPenalty();
+        int[] costs = this.scoringScheme.getCosts();
+
+        int[] band = scratch.forwardRow(bandWidth + 1);
+        band[bandWidth] = BAND_INFINITY; //the cell above the highest diagonal is outside of the band
+        long[] directions = scratch.directions(DirectionMatrix.words(cells));
+        DirectionMatrix.clear(directions, cells);
+
+        for (int i = 0; i <= seq1Length; i++) {
+            int firstColumn = Math.max(0, i + lowestDiagonal);
+            int lastColumn = Math.min(seq2Length, i + highestDiagonal);
+            int bandShift = -i - lowestDiagonal; //band index of (i, j) is j + bandShift
+            int row = i * bandWidth;
+            int costRow = codes1[i] << ScoringScheme.ALPHABET_BITS;
+            int rowMinimum = BAND_INFINITY;
+            for (int j = firstColumn; j <= lastColumn; j++) {
+                int k = j + bandShift;
+                int penalty;
+                if (i == 0) {
+                    penalty = j * gapPenalty;
+                    DirectionMatrix.set(directions, row + k, DirectionMatrix.LEFT);
+                } else if (j == 0) {
+                    penalty = i * gapPenalty;
+                    DirectionMatrix.set(directions, row + k, DirectionMatrix.UP);
+                } else {
+                    //the diagonal predecessor is always inside the band
+                    penalty = band[k] + costs[costRow | codes2[j]];
+                    int direction = DirectionMatrix.DIAGONAL;
+                    if (band[k + 1] + gapPenalty < penalty) {
+                        penalty = band[k + 1] + gapPenalty;
+                        direction = DirectionMatrix.UP;
+                    }
+                    if (j > firstColumn && band[k - 1] + gapPenalty < penalty) {
+                        penalty = band[k - 1] + gapPenalty;
+                        direction = DirectionMatrix.LEFT;
+                    }
+                    DirectionMatrix.set(directions, row + k, direction);
+                }
+                band[k] = penalty;
+                rowMinimum = Math.min(rowMinimum, penalty);
+            }
+            //Penalties never decrease along a path, nothing below this row can get back under the limit
+            if (rowMinimum > maxPenalty) {
+                return Optional.empty();
+            }
+        }
+        int minimumPenalty = band[seq2Length - seq1Length - lowestDiagonal];
+        if (minimumPenalty > maxPenalty) {
+            return Optional.empty();
+        }
+
+        AlignmentResult alignmentResult = new AlignmentResult(findAlignment(seq1, seq2, directions, bandWidth - 1, -lowestDiagonal));
+        alignmentResult.setPenalty(minimumPenalty);
+        return Optional.of(alignmentResult);
+    }
+
+    /**
+     * Hirschberg's algorithm. Aligns seq1[top+1..bottom] with seq2[left+1..right], appends the alignment to the builders
+     * and returns its penalty. Only two DP rows of the width of the current sub-problem are kept in memory.
+     */
+    private int alignWithLinearMemory(
+        String seq1,
+        byte[] codes1,
+        int top,
+        int bottom,
+        String seq2,
+        byte[] codes2,
+        int left,
+        int right,
+        AlignmentScratch scratch,
+        StringBuilder seq1Aligned,
+        StringBuilder seq2Aligned
+    ) {
+        int rows = bottom - top;
+        int columns = right - left;
+        int gapPenalty = this.scoringScheme.getGapExtendPenalty();
+        if (rows == 0) {
+            for (int j = left + 1; j <= right; j++) {
+                seq1Aligned.append(GAP_CHAR);
+                seq2Aligned.append(seq2.charAt(j));
+            }
+            return columns * gapPenalty;
+        }
+        if (columns == 0) {
+            for (int i = top + 1; i <= bottom; i++) {
+                seq1Aligned.append(seq1.charAt(i));
+                seq2Aligned.append(GAP_CHAR);
+            }
+            return rows * gapPenalty;
+        }
+        if (rows == 1 || columns == 1 || (long) (rows + 1) * (columns + 1) <= HIRSCHBERG_BASE_CASE_CELLS) {
+            //The residue just before the sub-problem takes the place of the leading blank
+            AlignmentResult alignmentResult = alignWithFullTable(
+                seq1.substring(top, bottom + 1),
+                Arrays.copyOfRange(codes1, top, bottom + 1),
+                seq2.substring(left, right + 1),
+                Arrays.copyOfRange(codes2, left, right + 1),
+                scratch
+            );
+            seq1Aligned.append(alignmentResult.getRefSeq());
+            seq2Aligned.append(alignmentResult.getTargetSeq());
+            return alignmentResult.getPenalty();
+        }
+
+        int middle = top + rows / 2;
+        int[] forwardRow = scratch.forwardRow(columns + 1);
+        int[] backwardRow = scratch.backwardRow(columns + 1);
+        fillForwardRow(codes1, top, middle, codes2, left, right, forwardRow);
+        fillBackwardRow(codes1, middle, bottom, codes2, left, right, backwardRow);
+
+        //The optimal path crosses the middle row at the column with the lowest combined penalty
+        int split = 0;
+        int splitPenalty = forwardRow[0] + backwardRow[0];
+        for (int j = 1; j <= columns; j++) {
+            if (forwardRow[j] + backwardRow[j] < splitPenalty) {
+                splitPenalty = forwardRow[j] + backwardRow[j];
+                split = j;
+            }
+        }
+
+        return (
+            alignWithLinearMemory(seq1, codes1, top, middle, seq2, codes2, left, left + split, scratch, seq1Aligned, seq2Aligned) +
+            alignWithLinearMemory(seq1, codes1, middle, bottom, seq2, codes2, left + split, right, scratch, seq1Aligned, seq2Aligned)
+        );
+    }
+
+    //row[j] becomes the minimum penalty of aligning seq1[top+1..bottom] with seq2[left+1..left+j]
+    private void fillForwardRow(byte[] codes1, int top, int bottom, byte[] codes2, int left, int right, int[] row) {
+        int columns = right - left;
+        int gapPenalty = this.scoringScheme.getGapExtendPenalty();
+        int[] costs = this.scoringScheme.getCosts();
+        for (int j = 0; j <= columns; j++) {
+            row[j] = j * gapPenalty;
+        }
+        for (int i = top + 1; i <= bottom; i++) {
+            int costRow = codes1[i] << ScoringScheme.ALPHABET_BITS;
+            int diagonal = row[0];
+            row[0] += gapPenalty;
+            for (int j = 1; j <= columns; j++) {
+                int up = row[j];
+                row[j] = Math.min(diagonal + costs[costRow | codes2[left + j]], Math.min(up, row[j - 1]) + gapPenalty);
+                diagonal = up;
+            }
+        }
+    }
+
+    //row[j] becomes the minimum penalty of aligning seq1[top+1..bottom] with seq2[left+j+1..right]
+    private void fillBackwardRow(byte[] codes1, int top, int bottom, byte[] codes2, int left, int right, int[] row) {
+        int columns = right - left;
+        int gapPenalty = this.scoringScheme.getGapExtendPenalty();
+        int[] costs = this.scoringScheme.getCosts();
+        for (int j = 0; j <= columns; j++) {
+            row[j] = (columns - j) * gapPenalty;
+        }
+        for (int i = bottom; i > top; i--) {
+            int costRow = codes1[i] << ScoringScheme.ALPHABET_BITS;
+            int diagonal = row[columns];
+            row[columns] += gapPenalty;
+            for (int j = columns - 1; j >= 0; j--) {
+                int down = row[j];
+                row[j] = Math.min(diagonal + costs[costRow | codes2[left + j + 1]], Math.min(down, row[j + 1]) + gapPenalty);
+                diagonal = down;
             }
-            System.out.println();
         }
     }
 
-    private void printTable3D(int[][][] table3D) {
-        for (int[][] row : table3D) {
-            for (int[] xyPair : row) {
-                System.out.print(Arrays.toString(xyPair) + "\t");
+    /**
+     * Gotoh's algorithm for affine gaps, restricted to the diagonals [lowestDiagonal, lowestDiagonal + bandWidth).
+     * A full table is the band from -seq1Length to seq2Length. Next to the best penalty of each cell, the best penalty
+     * of ending in a vertical gap (seq1 residue against a gap) is kept per column and the one of ending in a horizontal
+     * gap is carried along the row. Rows are kept in place at j - i - lowestDiagonal like in {@link #alignWithinBand}.
+     * Directions of (i, j) are stored at cell i * rowStride + j + cellShift, together with whether its gaps extend
+     * the gap of the previous cell.
+     */
+    private Optional<AlignmentResult> alignAffine(
+        String seq1,
+        byte[] codes1,
+        String seq2,
+        byte[] codes2,
+        int lowestDiagonal,
+        int bandWidth,
+        int maxPenalty,
+        int rowStride,
+        int cellShift,
+        AlignmentScratch scratch
+    ) {
+        int seq1Length = seq1.length() - 1;
+        int seq2Length = seq2.length() - 1;
+        int highestDiagonal = lowestDiagonal + bandWidth - 1;
+        int cells = Math.addExact(Math.addExact(Math.multiplyExact(seq1Length, rowStride), seq2Length + cellShift), 1);
+        int gapOpenPenalty = this.scoringScheme.getGapOpenPenalty();
+        int gapExtendPenalty = this.scoringScheme.getGapExtendPenalty();
+        int[] costs = this.scoringScheme.getCosts();
+
+        int[] best = scratch.forwardRow(bandWidth + 1);
+        int[] verticalGap = scratch.backwardRow(bandWidth + 1);
+        //the cell above the highest diagonal is outside of the band
+        best[bandWidth] = BAND_INFINITY;
+        verticalGap[bandWidth] = BAND_INFINITY;
+        long[] directions = scratch.directions(DirectionMatrix.words(cells));
+        long[] gapDirections = scratch.gapDirections(DirectionMatrix.words(cells));
+        DirectionMatrix.clear(directions, cells);
+        DirectionMatrix.clear(gapDirections, cells);
+
+        for (int i = 0; i <= seq1Length; i++) {
+            int firstColumn = Math.max(0, i + lowestDiagonal);
+            int lastColumn = Math.min(seq2Length, i + highestDiagonal);
+            int bandShift = -i - lowestDiagonal;
+            int row = i * rowStride + cellShift;
+            int costRow = codes1[i] << ScoringScheme.ALPHABET_BITS;
+            int horizontalGap = BAND_INFINITY;
+            int rowMinimum = BAND_INFINITY;
+            for (int j = firstColumn; j <= lastColumn; j++) {
+                int k = j + bandShift;
+                int gapDirection = 0;
+                int vertical = BAND_INFINITY;
+                if (i > 0) {
+                    vertical = best[k + 1] + gapOpenPenalty + gapExtendPenalty;
+                    if (verticalGap[k + 1] + gapExtendPenalty < vertical) {
+                        vertical = verticalGap[k + 1] + gapExtendPenalty;
+                        gapDirection |= DirectionMatrix.VERTICAL_GAP_EXTENDS;
+                    }
+                }
+                int horizontal = BAND_INFINITY;
+                if (j > firstColumn) {
+                    horizontal = best[k - 1] + gapOpenPenalty + gapExtendPenalty;
+                    if (horizontalGap + gapExtendPenalty < horizontal) {
+                        horizontal = horizontalGap + gapExtendPenalty;
+                        gapDirection |= DirectionMatrix.HORIZONTAL_GAP_EXTENDS;
+                    }
+                }
+
+                int penalty = i == 0 && j == 0 ? 0 : BAND_INFINITY;
+                int direction = DirectionMatrix.DIAGONAL;
+                if (i > 0 && j > 0) {
+                    penalty = best[k] + costs[costRow | codes2[j]];
+                }
+                if (vertical < penalty) {
+                    penalty = vertical;
+                    direction = DirectionMatrix.UP;
+                }
+                if (horizontal < penalty) {
+                    penalty = horizontal;
+                    direction = DirectionMatrix.LEFT;
+                }
+
+                best[k] = penalty;
+                verticalGap[k] = vertical;
+                horizontalGap = horizontal;
+                if (direction != DirectionMatrix.DIAGONAL) {
+                    DirectionMatrix.set(directions, row + j, direction);
+                }
+                if (gapDirection != 0) {
+                    DirectionMatrix.set(gapDirections, row + j, gapDirection);
+                }
+                rowMinimum = Math.min(rowMinimum, penalty);
+            }
+            //Penalties never decrease along a path, nothing below this row can get back under the limit
+            if (rowMinimum > maxPenalty) {
+                return Optional.empty();
             }
-            System.out.println();
         }
+        int minimumPenalty = best[seq2Length - seq1Length - lowestDiagonal];
+        if (minimumPenalty > maxPenalty) {
+            return Optional.empty();
+        }
+
+        AlignmentResult alignmentResult = new AlignmentResult(
+            findAffineAlignment(seq1, seq2, directions, gapDirections, rowStride, cellShift)
+        );
+        alignmentResult.setPenalty(minimumPenalty);
+        return Optional.of(alignmentResult);
     }
 
-    //Retrace the memoTable to find the actual alignment, not just the minimum cost
-    private Alignment findAlignment(String seq1, String seq2, int[][] memoTable, boolean printResults) {
-        String seq1Aligned = ""; //Holds the actual sequence with gaps added
-        String seq2Aligned = "";
+    //Gotoh's recurrences with rolling rows, the minimum penalty with affine gaps in O(m) memory
+    private int calcAffineMinimumPenalty(byte[] codes1, byte[] codes2, AlignmentScratch scratch) {
+        int seq1Length = codes1.length - 1;
+        int seq2Length = codes2.length - 1;
+        int gapOpenPenalty = this.scoringScheme.getGapOpenPenalty();
+        int gapExtendPenalty = this.scoringScheme.getGapExtendPenalty();
+        int[] costs = this.scoringScheme.getCosts();
 
+        int[] best = scratch.forwardRow(seq2Length + 1);
+        int[] verticalGap = scratch.backwardRow(seq2Length + 1);
+        best[0] = 0;
+        verticalGap[0] = BAND_INFINITY;
+        for (int j = 1; j <= seq2Length; j++) {
+            best[j] = gapOpenPenalty + j * gapExtendPenalty;
+            verticalGap[j] = BAND_INFINITY;
+        }
+        for (int i = 1; i <= seq1Length; i++) {
+            int costRow = codes1[i] << ScoringScheme.ALPHABET_BITS;
+            int diagonal = best[0];
+            best[0] = gapOpenPenalty + i * gapExtendPenalty;
+            verticalGap[0] = best[0];
+            int horizontalGap = BAND_INFINITY;
+            for (int j = 1; j <= seq2Length; j++) {
+                int vertical = Math.min(verticalGap[j], best[j] + gapOpenPenalty) + gapExtendPenalty;
+                horizontalGap = Math.min(horizontalGap, best[j - 1] + gapOpenPenalty) + gapExtendPenalty;
+                int penalty = Math.min(diagonal + costs[costRow | codes2[j]], Math.min(vertical, horizontalGap));
+                diagonal = best[j];
+                best[j] = penalty;
+                verticalGap[j] = vertical;
+            }
+        }
+        return best[seq2Length];
+    }
+
+    /**
+     * Retrace the direction matrix to find the actual alignment, not just the minimum cost.
+     * The direction of (i, j) is stored at cell i * rowStride + j + cellShift. Row 0 points left and column 0 points up,
+     * so the walk always ends at (0, 0). The aligned sequences are filled from the back into buffers sized for the
+     * longest possible alignment, so every character is copied once.
+     */
+    private Alignment findAlignment(String seq1, String seq2, long[] directions, int rowStride, int cellShift) {
         int i = seq1.length() - 1; //-1 since seq1 & seq2 have leading space
         int j = seq2.length() - 1;
+        int maxLength = i + j;
+        char[] seq1Aligned = new char[maxLength]; //Holds the actual sequence with gaps added
+        char[] seq2Aligned = new char[maxLength];
+
+        int position = maxLength;
+        while (i > 0 || j > 0) {
+            position--;
+            switch (DirectionMatrix.get(directions, i * rowStride + j + cellShift)) {
+                case DirectionMatrix.DIAGONAL: //case1: both aligned
+                    seq1Aligned[position] = seq1.charAt(i--);
+                    seq2Aligned[position] = seq2.charAt(j--);
+                    break;
+                case DirectionMatrix.UP: //case2: seq1 with gap
+                    seq1Aligned[position] = seq1.charAt(i--);
+                    seq2Aligned[position] = GAP_SYMBOL;
+                    break;
+                default: //case3: seq2 with gap
+                    seq1Aligned[position] = GAP_SYMBOL;
+                    seq2Aligned[position] = seq2.charAt(j--);
+                    break;
+            }
+        }
 
-        //Retrace the memoTable calculations. Stops when reaches the start of 1 sequence (so additional gaps may still need to be added to the other)
-        while (i > 0 && j > 0) {
-            if (memoTable[i][j] - mismatchPenalty(seq1.charAt(i), seq2.charAt(j)) == memoTable[i - 1][j - 1]) { //case1: both aligned
-                seq1Aligned = seq1.charAt(i) + seq1Aligned;
-                seq2Aligned = seq2.charAt(j) + seq2Aligned;
-                i--;
-                j--;
-            } else if (memoTable[i][j] - this.gapPenalty == memoTable[i - 1][j]) { //case2: seq1 with gap
-                seq1Aligned = seq1.charAt(i) + seq1Aligned;
-                seq2Aligned = GAP_CHAR + seq2Aligned;
-                i--;
-            } else if (memoTable[i][j] - this.gapPenalty == memoTable[i][j - 1]) { //case3: seq2 with gap
-                seq2Aligned = seq2.charAt(j) + seq2Aligned;
-                seq1Aligned = GAP_CHAR + seq1Aligned;
-                j--;
-            }
-        }
-        //Now i==0 or j==0 or both. Finish by adding any additional leading gaps to the start of the sequence whose pointer ISN'T == 0
-        while (i > 0) { //Seq1 reached the beginning, print rest of seq2 & add gaps to seq2
-            seq1Aligned = seq1.charAt(i) + seq1Aligned;
-            seq2Aligned = GAP_CHAR + seq2Aligned;
-            i--;
-        }
-        while (j > 0) { //Seq2 reached the beginning, print rest of seq1 & add gaps to seq2
-            seq2Aligned = seq2.charAt(j) + seq2Aligned;
-            seq1Aligned = GAP_CHAR + seq1Aligned;
-            j--;
-        }
-
-        if (printResults) System.out.println("\nOptimal Alignment:\n" + seq1Aligned + "\n" + seq2Aligned + "\n\n");
         Alignment alignment = new Alignment();
-        alignment.setRefSeq(seq1Aligned);
-        alignment.setTargetSeq(seq2Aligned);
+        alignment.setRefSeq(new String(seq1Aligned, position, maxLength - position));
+        alignment.setTargetSeq(new String(seq2Aligned, position, maxLength - position));
         return alignment;
     }
 
-    private int mismatchPenalty(char char1, char char2) {
-        if (char1 == char2) {
-            return 0;
-        } else if (consonants.contains(char1) && consonants.contains(char2)) {
-            return this.consonantConsonantMismatchPenalty;
-        } else if (vowels.contains(char1) && vowels.contains(char2)) {
-            return this.vowelVowelMismatchPenalty;
-        } else if (numbers.contains(char1) && numbers.contains(char2)) {
-            return this.numberNumberMismatchPenalty;
-        }
-        return this.vowelConsonantMismatchPenalty;
+    /**
+     * Retrace {@link #alignAffine}. The walk is either in the best matrix, which says where the best penalty came from,
+     * or inside a vertical or horizontal gap, which goes on for as long as the gap directions say it extends.
+     */
+    private Alignment findAffineAlignment(
+        String seq1,
+        String seq2,
+        long[] directions,
+        long[] gapDirections,
+        int rowStride,
+        int cellShift
+    ) {
+        int i = seq1.length() - 1;
+        int j = seq2.length() - 1;
+        int maxLength = i + j;
+        char[] seq1Aligned = new char[maxLength];
+        char[] seq2Aligned = new char[maxLength];
+
+        int position = maxLength;
+        int matrix = DirectionMatrix.DIAGONAL;
+        while (i > 0 || j > 0) {
+            int cell = i * rowStride + j + cellShift;
+            if (matrix == DirectionMatrix.DIAGONAL) {
+                matrix = DirectionMatrix.get(directions, cell);
+            }
+            position--;
+            if (matrix == DirectionMatrix.DIAGONAL) {
+                seq1Aligned[position] = seq1.charAt(i--);
+                seq2Aligned[position] = seq2.charAt(j--);
+            } else if (matrix == DirectionMatrix.UP) {
+                seq1Aligned[position] = seq1.charAt(i--);
+                seq2Aligned[position] = GAP_SYMBOL;
+                if ((DirectionMatrix.get(gapDirections, cell) & DirectionMatrix.VERTICAL_GAP_EXTENDS) == 0) {
+                    matrix = DirectionMatrix.DIAGONAL;
+                }
+            } else {
+                seq1Aligned[position] = GAP_SYMBOL;
+                seq2Aligned[position] = seq2.charAt(j--);
+                if ((DirectionMatrix.get(gapDirections, cell) & DirectionMatrix.HORIZONTAL_GAP_EXTENDS) == 0) {
+                    matrix = DirectionMatrix.DIAGONAL;
+                }
+            }
+        }
+
+        Alignment alignment = new Alignment();
+        alignment.setRefSeq(new String(seq1Aligned, position, maxLength - position));
+        alignment.setTargetSeq(new String(seq2Aligned, position, maxLength - position));
+        return alignment;
     }
 
     private String sanitizeSequence(String sequence) {
@@ -1,9 +1,11 @@
 package org.mskcc.oncokb.transcript.service;
 
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
 import org.apache.commons.lang3.StringUtils;
 import org.genome_nexus.ApiException;
 import org.mskcc.oncokb.transcript.domain.EnsemblGene;
@@ -139,68 +141,112 @@ public class EnsemblGeneService {
     }
 
     public List<EnsemblGene> saveByReferenceGenomeAndEntrezGeneIds(ReferenceGenome rg, List<Integer> entrezGeneIds) throws ApiException {
-        List<org.genome_nexus.client.EnsemblGene> ensemblGeneFromGN = genomeNexusService.findCanonicalEnsemblGeneTranscript(
+        return saveCanonicalEnsemblGenes(rg, genomeNexusService.findCanonicalEnsemblGeneTranscript(rg, entrezGeneIds));
+    }
+
+    /**
+     * Same as {@link #saveByReferenceGenomeAndEntrezGeneIds} for every reference genome, fetched from Genome Nexus at the
+     * same time
+     */
+    public Map<ReferenceGenome, List<EnsemblGene>> saveByEntrezGeneIds(List<Integer> entrezGeneIds) throws ApiException {
+        Map<ReferenceGenome, List<org.genome_nexus.client.EnsemblGene>> ensemblGenesFromGN =
+            genomeNexusService.findCanonicalEnsemblGeneTranscripts(entrezGeneIds);
+        Map<ReferenceGenome, List<EnsemblGene>> savedEnsemblGenes = new EnumMap<>(ReferenceGenome.class);
+        for (ReferenceGenome rg : ensemblGenesFromGN.keySet()) {
+            savedEnsemblGenes.put(rg, saveCanonicalEnsemblGenes(rg, ensemblGenesFromGN.get(rg)));
+        }
+        return savedEnsemblGenes;
+    }
+
+    /**
+     * Save the canonical Ensembl genes found in Genome Nexus like {@link MainService#createCanonicalEnsemblGene} does for one
+     * gene: a gene that already has a canonical Ensembl gene is skipped, a stored Ensembl gene is made canonical, and the
+     * other ones are looked up in Ensembl, all at once, and saved as canonical. Any other canonical Ensembl gene of the gene
+     * is no longer canonical.
+     */
+    private List<EnsemblGene> saveCanonicalEnsemblGenes(ReferenceGenome rg, List<org.genome_nexus.client.EnsemblGene> ensemblGeneFromGN) {
+        //The gene of each Ensembl gene to save, in the order of Genome Nexus
+        Map<String, Gene> genesByEnsemblGeneId = new LinkedHashMap<>();
+        for (org.genome_nexus.client.EnsemblGene ensemblGeneGN : ensemblGeneFromGN) {
+            if (StringUtils.isEmpty(ensemblGeneGN.getGeneId())) {
+                continue;
+            }
+            String entrezGeneStr = ensemblGeneGN.getEntrezGeneId();
+            if (!StringUtils.isNumeric(entrezGeneStr)) {
+                log.error("The entrez gene is not integer {}", entrezGeneStr);
+                continue;
+            }
+            int entrezGeneId = Integer.parseInt(entrezGeneStr);
+            if (entrezGeneId <= 0) {
+                log.error("The entrez gene is not positive integer {}", entrezGeneId);
+                continue;
+            }
+            if (findCanonicalEnsemblGene(entrezGeneId, rg).isPresent()) {
+                continue;
+            }
+            Optional<Gene> savedGeneOptional = geneService.findGeneByEntrezGeneId(entrezGeneId);
+            if (savedGeneOptional.isEmpty()) {
+                log.error("The entrez gene is not available in DB {}", entrezGeneId);
+                continue;
+            }
+            genesByEnsemblGeneId.putIfAbsent(ensemblGeneGN.getGeneId(), savedGeneOptional.get());
+        }
+
+        List<EnsemblGene> savedEnsemblGenes = new ArrayList<>();
+        Map<String, Gene> newEnsemblGenes = new LinkedHashMap<>(genesByEnsemblGeneId);
+        for (EnsemblGene ensemblGene : findAllByReferenceGenomeAndEnsemblGeneIdIn(rg, new ArrayList<>(genesByEnsemblGeneId.keySet()))) {
+            Gene gene = newEnsemblGenes.remove(ensemblGene.getEnsemblGeneId());
+            savedEnsemblGenes.add(saveAsCanonical(rg, ensemblGene, gene));
+        }
+
+        List<EnsemblTranscript> ensemblTranscriptList = transcriptService.getEnsemblTranscriptIds(
             rg,
-            entrezGeneIds
+            new ArrayList<>(newEnsemblGenes.keySet()),
+            false,
+            false
         );
-        List<String> ensemblGeneIds = ensemblGeneFromGN
-            .stream()
-            .filter(ensemblGene -> StringUtils.isNotEmpty(ensemblGene.getGeneId()))
-            .map(org.genome_nexus.client.EnsemblGene::getGeneId)
-            .collect(Collectors.toList());
-        List<String> existEnsemblGenes = findAllByReferenceGenomeAndEnsemblGeneIdIn(rg, ensemblGeneIds)
-            .stream()
-            .map(EnsemblGene::getEnsemblGeneId)
-            .collect(Collectors.toList());
-        ensemblGeneIds.removeAll(existEnsemblGenes);
-        List<EnsemblTranscript> ensemblTranscriptList = transcriptService.getEnsemblTranscriptIds(rg, ensemblGeneIds, false, false);
-        List<EnsemblGene> savedEnsemblGenes = new ArrayList<>();
         for (int i = 0; i < ensemblTranscriptList.size(); i++) {
             if (i % 100 == 0) {
                 log.info("Processing {} of ensembl genes.", i);
             }
             EnsemblTranscript et = ensemblTranscriptList.get(i);
-            Optional<org.genome_nexus.client.EnsemblGene> ensemblGeneGNOptional = ensemblGeneFromGN
-                .stream()
-                .filter(ensemblGene -> ensemblGene.getGeneId().equals(et.getId()))
-                .findFirst();
-            if (ensemblGeneGNOptional.isPresent()) {
-                String entrezGeneStr = ensemblGeneGNOptional.get().getEntrezGeneId();
-                if (StringUtils.isNumeric(entrezGeneStr)) {
-                    int entrezGeneId = Integer.parseInt(entrezGeneStr);
-                    if (entrezGeneId > 0) {
-                        Optional<Gene> savedGeneOptional = geneService.findGeneByEntrezGeneId(entrezGeneId);
-                        if (savedGeneOptional.isPresent()) {
-                            Optional<EnsemblGene> ensemblGeneOptional = findByEnsemblGeneIdAndReferenceGenome(et.getId(), rg);
-                            if (ensemblGeneOptional.isEmpty()) {
-                                EnsemblGene ensemblGene = new EnsemblGene();
-                                ensemblGene.setCanonical(true);
-                                ensemblGene.setReferenceGenome(rg.name());
-                                ensemblGene.setEnsemblGeneId(et.getId());
-                                ensemblGene.setStrand(et.getStrand());
-                                ensemblGene.setStart(et.getStart());
-                                ensemblGene.setEnd(et.getEnd());
-                                ensemblGene.setChromosome(et.getSeqRegionName());
-                                ensemblGene.setGene(savedGeneOptional.get());
-                                EnsemblGene savedEnsemblGene = save(ensemblGene);
-                                savedEnsemblGenes.add(savedEnsemblGene);
-                            } else {
-                                savedEnsemblGenes.add(ensemblGeneOptional.get());
-                            }
-                        } else {
-                            log.error("The entrez gene is not available in DB {}", entrezGeneId);
-                        }
-                    } else {
-                        log.error("The entrez gene is not positive integer {}", entrezGeneId);
-                    }
-                } else {
-                    log.error("The entrez gene is not integer {}", entrezGeneStr);
-                }
+            Gene gene = newEnsemblGenes.remove(et.getId());
+            if (gene == null) {
+                continue;
             }
+            EnsemblGene ensemblGene = new EnsemblGene();
+            ensemblGene.setReferenceGenome(rg.name());
+            ensemblGene.setEnsemblGeneId(et.getId());
+            ensemblGene.setStrand(et.getStrand());
+            ensemblGene.setStart(et.getStart());
+            ensemblGene.setEnd(et.getEnd());
+            ensemblGene.setChromosome(et.getSeqRegionName());
+            ensemblGene.setGene(gene);
+            savedEnsemblGenes.add(saveAsCanonical(rg, ensemblGene, gene));
         }
         return savedEnsemblGenes;
     }
 
+    /**
+     * Save the Ensembl gene as the canonical one of the gene, and any previous canonical Ensembl gene as non-canonical
+     */
+    private EnsemblGene saveAsCanonical(ReferenceGenome rg, EnsemblGene ensemblGene, Gene gene) {
+        for (EnsemblGene otherEnsemblGene : findAllByGeneAndReferenceGenome(gene, rg)) {
+            if (
+                Boolean.TRUE.equals(otherEnsemblGene.getCanonical()) &&
+                !otherEnsemblGene.getEnsemblGeneId().equals(ensemblGene.getEnsemblGeneId())
+            ) {
+                otherEnsemblGene.setCanonical(false);
+                save(otherEnsemblGene);
+            }
+        }
+        if (ensemblGene.getId() != null && Boolean.TRUE.equals(ensemblGene.getCanonical())) {
+            return ensemblGene;
+        }
+        ensemblGene.setCanonical(true);
+        return save(ensemblGene);
+    }
+
     /**
      * Delete the ensemblGene by id.
      *
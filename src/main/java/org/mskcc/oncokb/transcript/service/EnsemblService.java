@@ -1,20 +1,33 @@
 package org.mskcc.oncokb.transcript.service;
 
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
-import java.lang.reflect.Type;
+import static org.mskcc.oncokb.transcript.config.Constants.ENSEMBL_POST_THRESHOLD;
+
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import javax.annotation.PreDestroy;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.http.client.HttpClient;
 import org.genome_nexus.ApiClient;
 import org.genome_nexus.client.EnsemblControllerApi;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.mskcc.oncokb.transcript.config.ApplicationProperties;
+import org.mskcc.oncokb.transcript.config.model.EnsemblConfig;
+import org.mskcc.oncokb.transcript.config.model.EnsemblHostConfig;
 import org.mskcc.oncokb.transcript.domain.enumeration.ReferenceGenome;
+import org.mskcc.oncokb.transcript.service.ensembl.ChunkFetcher;
+import org.mskcc.oncokb.transcript.service.ensembl.LookupResponseReader;
+import org.mskcc.oncokb.transcript.service.ensembl.ProteinSequenceCoalescer;
+import org.mskcc.oncokb.transcript.service.ensembl.RateLimitInterceptor;
 import org.mskcc.oncokb.transcript.vm.ensembl.EnsemblSequence;
-import org.mskcc.oncokb.transcript.vm.ensembl.EnsemblTranscript;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.http.*;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 import org.springframework.web.client.RestClientException;
@@ -29,30 +42,129 @@ public class EnsemblService {
     public final String ENSEMBL_37_API_URL = "https://grch37.rest.ensembl.org";
     public final String ENSEMBL_38_API_URL = "https://rest.ensembl.org";
 
-    private String getSequenceGETUrl(ReferenceGenome referenceGenome, String transcript) {
-        return getEnsemblAPIUrl(referenceGenome) + "/sequence/id/" + transcript;
+    public static final int DEFAULT_CONNECT_TIMEOUT = 5_000;
+    public static final int DEFAULT_READ_TIMEOUT = 60_000;
+    public static final int DEFAULT_CONNECTION_REQUEST_TIMEOUT = 10_000;
+    public static final long DEFAULT_BATCH_WINDOW = 5L;
+    public static final int DEFAULT_BATCH_PARALLELISM = 4;
+    public static final int DEFAULT_REQUESTS_PER_SECOND = 15;
+    public static final int DEFAULT_MAX_RETRIES = 3;
+    public static final int DEFAULT_CHUNK_PARALLELISM = 4;
+
+    private final Logger log = LoggerFactory.getLogger(EnsemblService.class);
+
+    private final Map<ReferenceGenome, String> urls = new EnumMap<>(ReferenceGenome.class);
+    private final Map<ReferenceGenome, RestTemplate> restTemplates = new EnumMap<>(ReferenceGenome.class);
+    //How long a caller waits for the batch of its protein sequence, in milliseconds
+    private final Map<ReferenceGenome, Long> proteinSequenceTimeouts = new EnumMap<>(ReferenceGenome.class);
+    private final ProteinSequenceCoalescer proteinSequenceCoalescer;
+    private final ChunkFetcher chunkFetcher;
+
+    public EnsemblService(ApplicationProperties applicationProperties, HttpClient ensemblHttpClient) {
+        EnsemblConfig ensemblConfig = applicationProperties.getEnsembl();
+        int requestsPerSecond = ensemblConfig != null && ensemblConfig.getRequestsPerSecond() != null
+            ? ensemblConfig.getRequestsPerSecond()
+            : DEFAULT_REQUESTS_PER_SECOND;
+        int maxRetries = ensemblConfig != null && ensemblConfig.getMaxRetries() != null
+            ? ensemblConfig.getMaxRetries()
+            : DEFAULT_MAX_RETRIES;
+        long batchWindow = ensemblConfig != null && ensemblConfig.getBatchWindow() != null
+            ? ensemblConfig.getBatchWindow()
+            : DEFAULT_BATCH_WINDOW;
+        for (ReferenceGenome referenceGenome : ReferenceGenome.values()) {
+            EnsemblHostConfig hostConfig = ensemblConfig != null && ensemblConfig.getHosts() != null
+                ? ensemblConfig.getHosts().get(referenceGenome)
+                : null;
+            urls.put(
+                referenceGenome,
+                hostConfig != null && StringUtils.isNotEmpty(hostConfig.getUrl()) ? hostConfig.getUrl() : getDefaultUrl(referenceGenome)
+            );
+            RestTemplate restTemplate = new RestTemplate(getRequestFactory(ensemblHttpClient, hostConfig));
+            //Each host has its own limit
+            restTemplate.getInterceptors().add(new RateLimitInterceptor(requestsPerSecond, requestsPerSecond, maxRetries));
+            restTemplates.put(referenceGenome, restTemplate);
+            proteinSequenceTimeouts.put(referenceGenome, batchWindow + getRequestTimeout(hostConfig));
+        }
+        chunkFetcher =
+            new ChunkFetcher(
+                ensemblConfig != null && ensemblConfig.getChunkParallelism() != null
+                    ? ensemblConfig.getChunkParallelism()
+                    : DEFAULT_CHUNK_PARALLELISM,
+                "ensembl-chunk"
+            );
+        proteinSequenceCoalescer =
+            new ProteinSequenceCoalescer(
+                this::getProteinSequences,
+                batchWindow,
+                ENSEMBL_POST_THRESHOLD,
+                ensemblConfig != null && ensemblConfig.getBatchParallelism() != null
+                    ? ensemblConfig.getBatchParallelism()
+                    : DEFAULT_BATCH_PARALLELISM
+            );
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        proteinSequenceCoalescer.shutdown();
+        chunkFetcher.shutdown();
+    }
+
+    private static HttpComponentsClientHttpRequestFactory getRequestFactory(HttpClient httpClient, EnsemblHostConfig hostConfig) {
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        requestFactory.setConnectTimeout(
+            hostConfig != null && hostConfig.getConnectTimeout() != null ? hostConfig.getConnectTimeout() : DEFAULT_CONNECT_TIMEOUT
+        );
+        requestFactory.setReadTimeout(
+            hostConfig != null && hostConfig.getReadTimeout() != null ? hostConfig.getReadTimeout() : DEFAULT_READ_TIMEOUT
+        );
+        requestFactory.setConnectionRequestTimeout(
+            hostConfig != null && hostConfig.getConnectionRequestTimeout() != null
+                ? hostConfig.getConnectionRequestTimeout()
+                : DEFAULT_CONNECTION_REQUEST_TIMEOUT
+        );
+        return requestFactory;
+    }
+
+    /**
+     * The longest a single request may take: waiting for a pooled connection, connecting, then reading the response
+     */
+    private static long getRequestTimeout(EnsemblHostConfig hostConfig) {
+        long timeout = hostConfig != null && hostConfig.getConnectionRequestTimeout() != null
+            ? hostConfig.getConnectionRequestTimeout()
+            : DEFAULT_CONNECTION_REQUEST_TIMEOUT;
+        timeout += hostConfig != null && hostConfig.getConnectTimeout() != null ? hostConfig.getConnectTimeout() : DEFAULT_CONNECT_TIMEOUT;
+        timeout += hostConfig != null && hostConfig.getReadTimeout() != null ? hostConfig.getReadTimeout() : DEFAULT_READ_TIMEOUT;
+        return timeout;
     }
 
     private String getSequencePOSTUrl(ReferenceGenome referenceGenome) {
         return getEnsemblAPIUrl(referenceGenome) + "/sequence/id";
     }
 
-    public Optional<EnsemblSequence> getProteinSequence(ReferenceGenome referenceGenome, String transcript) {
-        HttpHeaders httpHeaders = new HttpHeaders();
-        httpHeaders.setContentType(MediaType.APPLICATION_JSON);
-        HttpEntity<String> entity = new HttpEntity<>(httpHeaders);
+    private String getInfoDataGETUrl(ReferenceGenome referenceGenome) {
+        return getEnsemblAPIUrl(referenceGenome) + "/info/data";
+    }
 
-        RestTemplate restTemplate = new RestTemplate();
+    /**
+     * Get a protein sequence. Concurrent calls are merged into batched requests, see {@link ProteinSequenceCoalescer}.
+     *
+     * @param referenceGenome Reference Genome
+     * @param transcript      the ensembl protein id
+     * @return the sequence, empty when it does not exist, cannot be fetched, or its batch takes longer than a request may
+     */
+    public Optional<EnsemblSequence> getProteinSequence(ReferenceGenome referenceGenome, String transcript) {
         try {
-            ResponseEntity<EnsemblSequence> response = restTemplate.exchange(
-                getSequenceGETUrl(referenceGenome, transcript),
-                HttpMethod.GET,
-                entity,
-                EnsemblSequence.class
-            );
-            return Optional.of(response.getBody());
-        } catch (RestClientException exception) {
-            exception.printStackTrace();
+            return proteinSequenceCoalescer
+                .submit(referenceGenome, transcript)
+                .get(proteinSequenceTimeouts.get(referenceGenome), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException exception) {
+            log.warn("Failed to get the protein sequence of {} from {}", transcript, referenceGenome, exception.getCause());
+            return Optional.empty();
+        } catch (TimeoutException exception) {
+            log.warn("Timed out getting the protein sequence of {} from {}", transcript, referenceGenome);
+            return Optional.empty();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
             return Optional.empty();
         }
     }
@@ -73,7 +185,7 @@ public class EnsemblService {
         }
         HttpEntity<String> entity = new HttpEntity<>(jsonObject.toString(), httpHeaders);
 
-        RestTemplate restTemplate = new RestTemplate();
+        RestTemplate restTemplate = restTemplates.get(referenceGenome);
         ResponseEntity<EnsemblSequence[]> response = restTemplate.postForEntity(
             getSequencePOSTUrl(referenceGenome),
             entity,
@@ -82,6 +194,31 @@ public class EnsemblService {
         return Arrays.asList(response.getBody());
     }
 
+    /**
+     * @param referenceGenome Reference Genome
+     * @return the Ensembl release currently served for the reference genome
+     */
+    public Optional<String> getRelease(ReferenceGenome referenceGenome) {
+        HttpHeaders httpHeaders = new HttpHeaders();
+        httpHeaders.setContentType(MediaType.APPLICATION_JSON);
+        HttpEntity<String> entity = new HttpEntity<>(httpHeaders);
+
+        RestTemplate restTemplate = restTemplates.get(referenceGenome);
+        try {
+            ResponseEntity<String> response = restTemplate.exchange(
+                getInfoDataGETUrl(referenceGenome),
+                HttpMethod.GET,
+                entity,
+                String.class
+            );
+            JSONArray releases = new JSONObject(response.getBody()).getJSONArray("releases");
+            return releases.length() > 0 ? Optional.of(releases.get(0).toString()) : Optional.empty();
+        } catch (RestClientException | JSONException exception) {
+            log.warn("Failed to get the Ensembl release of {}", referenceGenome, exception);
+            return Optional.empty();
+        }
+    }
+
     public Optional<org.mskcc.oncokb.transcript.vm.ensembl.EnsemblTranscript> getTranscript(
         ReferenceGenome referenceGenome,
         String transcriptId
@@ -115,9 +252,27 @@ public class EnsemblService {
         List<String> ids,
         boolean includeUtr,
         boolean expand
+    ) {
+        List<org.mskcc.oncokb.transcript.vm.ensembl.EnsemblTranscript> transcripts = new ArrayList<>();
+        streamIds(referenceGenome, ids, includeUtr, expand, transcripts::add);
+        return transcripts;
+    }
+
+    /**
+     * Look ids up like {@link #getIds(ReferenceGenome, List, boolean, boolean)}, decoding the response entry by entry while
+     * it is read, see {@link LookupResponseReader}
+     *
+     * @param consumer receives every transcript or gene found
+     */
+    public void streamIds(
+        ReferenceGenome referenceGenome,
+        List<String> ids,
+        boolean includeUtr,
+        boolean expand,
+        Consumer<org.mskcc.oncokb.transcript.vm.ensembl.EnsemblTranscript> consumer
     ) {
         if (ids.size() == 0) {
-            return new ArrayList<>();
+            return;
         }
         HttpHeaders httpHeaders = new HttpHeaders();
         httpHeaders.setContentType(MediaType.APPLICATION_JSON);
@@ -131,12 +286,32 @@ public class EnsemblService {
         }
         HttpEntity<String> entity = new HttpEntity<>(jsonObject.toString(), httpHeaders);
 
-        RestTemplate restTemplate = new RestTemplate();
-        String response = restTemplate.postForObject(getLookupPOSTUrl(referenceGenome, includeUtr, expand), entity, String.class);
-        Gson gson = new Gson();
-        Type type = new TypeToken<Map<String, EnsemblTranscript>>() {}.getType();
-        Map<String, org.mskcc.oncokb.transcript.vm.ensembl.EnsemblTranscript> transcriptMap = gson.fromJson(response, type);
-        return transcriptMap.values().stream().filter(val -> val != null).collect(Collectors.toList());
+        RestTemplate restTemplate = restTemplates.get(referenceGenome);
+        restTemplate.execute(
+            getLookupPOSTUrl(referenceGenome, includeUtr, expand),
+            HttpMethod.POST,
+            restTemplate.httpEntityCallback(entity),
+            response -> {
+                LookupResponseReader.read(response.getBody(), consumer);
+                return null;
+            }
+        );
+    }
+
+    /**
+     * Look ids up in chunks of at most {@link org.mskcc.oncokb.transcript.config.Constants#ENSEMBL_POST_THRESHOLD} ids,
+     * several chunks at a time, see {@link #getIds(ReferenceGenome, List, boolean, boolean)}
+     *
+     * @param onChunk receives the transcripts of every chunk as soon as it completes, on the calling thread
+     */
+    public void getIds(
+        ReferenceGenome referenceGenome,
+        List<String> ids,
+        boolean includeUtr,
+        boolean expand,
+        Consumer<List<org.mskcc.oncokb.transcript.vm.ensembl.EnsemblTranscript>> onChunk
+    ) {
+        chunkFetcher.fetch(ids, ENSEMBL_POST_THRESHOLD, chunk -> getIds(referenceGenome, chunk, includeUtr, expand), onChunk);
     }
 
     private String getLookupPOSTUrl(ReferenceGenome referenceGenome, boolean includeUtr, boolean expand) {
@@ -157,6 +332,10 @@ public class EnsemblService {
     }
 
     private String getEnsemblAPIUrl(ReferenceGenome referenceGenome) {
+        return urls.get(referenceGenome);
+    }
+
+    private String getDefaultUrl(ReferenceGenome referenceGenome) {
         switch (referenceGenome) {
             case GRCh37:
                 return ENSEMBL_37_API_URL;
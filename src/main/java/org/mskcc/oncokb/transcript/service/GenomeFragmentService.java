@@ -1,9 +1,17 @@
 package org.mskcc.oncokb.transcript.service;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 import org.mskcc.oncokb.transcript.domain.GenomeFragment;
+import org.mskcc.oncokb.transcript.domain.Transcript;
 import org.mskcc.oncokb.transcript.repository.GenomeFragmentRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -116,6 +124,66 @@ public class GenomeFragmentService {
         genomeFragmentRepository.deleteAll(genomeFragmentList);
     }
 
+    /**
+     * Make the given genome fragments the stored fragments of a transcript. Fragments are matched by type, chromosome,
+     * start, end and strand, so only the stored fragments that are not given anymore are deleted and only the given
+     * fragments that are not stored yet are inserted.
+     *
+     * @param transcript      the saved transcript
+     * @param genomeFragments all the genome fragments of the transcript
+     * @return whether any fragment was deleted or inserted
+     */
+    public boolean replaceAllByTranscript(Transcript transcript, List<GenomeFragment> genomeFragments) {
+        Map<List<Object>, Deque<GenomeFragment>> storedByKey = new HashMap<>();
+        if (transcript.getId() != null) {
+            for (GenomeFragment stored : genomeFragmentRepository.findAllByTranscriptId(transcript.getId())) {
+                storedByKey.computeIfAbsent(getNaturalKey(stored), key -> new ArrayDeque<>()).add(stored);
+            }
+        }
+
+        List<GenomeFragment> added = new ArrayList<>();
+        for (GenomeFragment genomeFragment : genomeFragments) {
+            Deque<GenomeFragment> stored = storedByKey.get(getNaturalKey(genomeFragment));
+            if (stored == null || stored.poll() == null) {
+                //A new row, even when the fragment has the id of a stored one that no longer matches and is deleted below
+                added.add(
+                    new GenomeFragment()
+                        .type(genomeFragment.getType())
+                        .chromosome(genomeFragment.getChromosome())
+                        .start(genomeFragment.getStart())
+                        .end(genomeFragment.getEnd())
+                        .strand(genomeFragment.getStrand())
+                        .transcript(transcript)
+                );
+            }
+        }
+        List<GenomeFragment> removed = storedByKey.values().stream().flatMap(Collection::stream).collect(Collectors.toList());
+
+        log.debug(
+            "Request to replace GenomeFragments of Transcript {} : {} removed, {} added",
+            transcript.getId(),
+            removed.size(),
+            added.size()
+        );
+        if (!removed.isEmpty()) {
+            genomeFragmentRepository.deleteAll(removed);
+        }
+        if (!added.isEmpty()) {
+            genomeFragmentRepository.saveAll(added);
+        }
+        return !removed.isEmpty() || !added.isEmpty();
+    }
+
+    private static List<Object> getNaturalKey(GenomeFragment genomeFragment) {
+        return Arrays.asList(
+            genomeFragment.getType(),
+            genomeFragment.getChromosome(),
+            genomeFragment.getStart(),
+            genomeFragment.getEnd(),
+            genomeFragment.getStrand()
+        );
+    }
+
     /**
      * Get all genomeFragments by giving a transcript ID
      * @param transcriptId Transcript ID
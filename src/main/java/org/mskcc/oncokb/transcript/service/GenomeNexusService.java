@@ -2,17 +2,39 @@ package org.mskcc.oncokb.transcript.service;
 
 import static org.mskcc.oncokb.transcript.config.Constants.ENSEMBL_POST_THRESHOLD;
 
-import java.util.ArrayList;
+import com.google.gson.reflect.TypeToken;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
 import org.genome_nexus.ApiClient;
 import org.genome_nexus.ApiException;
 import org.genome_nexus.client.EnsemblControllerApi;
 import org.genome_nexus.client.EnsemblGene;
+import org.genome_nexus.client.EnsemblTranscript;
+import org.mskcc.oncokb.transcript.config.ApplicationProperties;
+import org.mskcc.oncokb.transcript.config.cache.CacheCategory;
+import org.mskcc.oncokb.transcript.config.cache.CacheKeys;
+import org.mskcc.oncokb.transcript.config.cache.CacheNameResolver;
+import org.mskcc.oncokb.transcript.config.cache.RefreshAheadCache;
+import org.mskcc.oncokb.transcript.config.model.GenomeNexusConfig;
 import org.mskcc.oncokb.transcript.domain.enumeration.ReferenceGenome;
 import org.mskcc.oncokb.transcript.importer.Importer;
+import org.mskcc.oncokb.transcript.service.ensembl.ChunkFetcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
 /**
@@ -24,20 +46,80 @@ public class GenomeNexusService {
     public final String GN_37_URL = "https://www.genomenexus.org";
     public final String GN_38_URL = "https://grch38.genomenexus.org";
     private final int GN_READ_TIMEOUT_OVERRIDE = 30000;
+    public static final int DEFAULT_CACHE_EXPIRATION = 7 * 24 * 60 * 60;
+    public static final int DEFAULT_CACHE_REFRESH_AFTER = 24 * 60 * 60;
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+    public static final int DEFAULT_CHUNK_PARALLELISM = 4;
+
+    private static final Type ENSEMBL_TRANSCRIPT_TYPE = EnsemblTranscript.class;
+    private static final Type ENSEMBL_TRANSCRIPT_LIST_TYPE = new TypeToken<List<EnsemblTranscript>>() {}.getType();
 
     private final EnsemblControllerApi ensemblControllerApi38;
     private final EnsemblControllerApi ensemblControllerApi37;
 
+    //Empty when the caches are disabled, the responses are then fetched every time
+    private final Map<String, RefreshAheadCache> caches = new HashMap<>();
+    private final ExecutorService cacheRefresher;
+
+    private final int chunkSize;
+    private final ChunkFetcher chunkFetcher;
+    //Runs the reference genomes side by side, their chunks are fetched by the chunk fetcher
+    private final ExecutorService referenceGenomeExecutor;
+
     private final Logger log = LoggerFactory.getLogger(GenomeNexusService.class);
 
-    public GenomeNexusService() {
-        this.ensemblControllerApi37 = getGNEnsemblControllerApi(GN_37_URL);
-        this.ensemblControllerApi38 = getGNEnsemblControllerApi(GN_38_URL);
+    public GenomeNexusService(
+        ApplicationProperties applicationProperties,
+        CacheNameResolver cacheNameResolver,
+        Optional<CacheManager> optionalCacheManager
+    ) {
+        GenomeNexusConfig genomeNexusConfig = applicationProperties.getGenomeNexus();
+        Map<ReferenceGenome, String> urls = genomeNexusConfig != null && genomeNexusConfig.getUrls() != null
+            ? genomeNexusConfig.getUrls()
+            : Collections.emptyMap();
+        int readTimeout = genomeNexusConfig != null && genomeNexusConfig.getReadTimeout() != null
+            ? genomeNexusConfig.getReadTimeout()
+            : GN_READ_TIMEOUT_OVERRIDE;
+        this.ensemblControllerApi37 = getGNEnsemblControllerApi(urls.getOrDefault(ReferenceGenome.GRCh37, GN_37_URL), readTimeout);
+        this.ensemblControllerApi38 = getGNEnsemblControllerApi(urls.getOrDefault(ReferenceGenome.GRCh38, GN_38_URL), readTimeout);
+
+        this.chunkSize = genomeNexusConfig != null && genomeNexusConfig.getChunkSize() != null
+            ? genomeNexusConfig.getChunkSize()
+            : DEFAULT_CHUNK_SIZE;
+        this.chunkFetcher =
+            new ChunkFetcher(
+                genomeNexusConfig != null && genomeNexusConfig.getChunkParallelism() != null
+                    ? genomeNexusConfig.getChunkParallelism()
+                    : DEFAULT_CHUNK_PARALLELISM,
+                "genome-nexus-chunk"
+            );
+        CustomizableThreadFactory referenceGenomeThreadFactory = new CustomizableThreadFactory("genome-nexus-reference-genome-");
+        referenceGenomeThreadFactory.setDaemon(true);
+        this.referenceGenomeExecutor = Executors.newFixedThreadPool(ReferenceGenome.values().length, referenceGenomeThreadFactory);
+
+        int refreshAfter = genomeNexusConfig != null && genomeNexusConfig.getCacheRefreshAfter() != null
+            ? genomeNexusConfig.getCacheRefreshAfter()
+            : DEFAULT_CACHE_REFRESH_AFTER;
+        CustomizableThreadFactory cacheRefresherThreadFactory = new CustomizableThreadFactory("genome-nexus-cache-refresh-");
+        cacheRefresherThreadFactory.setDaemon(true);
+        this.cacheRefresher = Executors.newSingleThreadExecutor(cacheRefresherThreadFactory);
+        if (optionalCacheManager.isPresent()) {
+            for (String cacheKey : new String[] {
+                CacheKeys.CANONICAL_ENSEMBL_TRANSCRIPTS_BY_HUGO_SYMBOL,
+                CacheKeys.ENSEMBL_TRANSCRIPTS_BY_HUGO_SYMBOL,
+                CacheKeys.ENSEMBL_TRANSCRIPTS_BY_TRANSCRIPT_ID,
+            }) {
+                Cache cache = optionalCacheManager.get().getCache(cacheNameResolver.getCacheName(CacheCategory.GENOME_NEXUS, cacheKey));
+                if (cache != null) {
+                    caches.put(cacheKey, new RefreshAheadCache(cache, refreshAfter * 1000L, cacheRefresher));
+                }
+            }
+        }
     }
 
-    private EnsemblControllerApi getGNEnsemblControllerApi(String url) {
+    private EnsemblControllerApi getGNEnsemblControllerApi(String url, int readTimeout) {
         ApiClient client = new ApiClient();
-        client.setReadTimeout(GN_READ_TIMEOUT_OVERRIDE);
+        client.setReadTimeout(readTimeout);
         client.setBasePath(url);
         return new EnsemblControllerApi(client);
     }
@@ -53,23 +135,133 @@ public class GenomeNexusService {
         }
     }
 
+    public EnsemblTranscript findCanonicalEnsemblTranscript(ReferenceGenome referenceGenome, String hugoSymbol) throws ApiException {
+        return getCached(
+            CacheKeys.CANONICAL_ENSEMBL_TRANSCRIPTS_BY_HUGO_SYMBOL,
+            referenceGenome,
+            hugoSymbol,
+            ENSEMBL_TRANSCRIPT_TYPE,
+            () -> this.getEnsemblControllerApi(referenceGenome).fetchCanonicalEnsemblTranscriptByHugoSymbolGET(hugoSymbol, "msk")
+        );
+    }
+
+    public List<EnsemblTranscript> findEnsemblTranscripts(ReferenceGenome referenceGenome, String hugoSymbol) throws ApiException {
+        return getCached(
+            CacheKeys.ENSEMBL_TRANSCRIPTS_BY_HUGO_SYMBOL,
+            referenceGenome,
+            hugoSymbol,
+            ENSEMBL_TRANSCRIPT_LIST_TYPE,
+            () -> this.getEnsemblControllerApi(referenceGenome).fetchEnsemblTranscriptsGET(null, null, hugoSymbol)
+        );
+    }
+
+    public EnsemblTranscript findEnsemblTranscript(ReferenceGenome referenceGenome, String transcriptId) throws ApiException {
+        return getCached(
+            CacheKeys.ENSEMBL_TRANSCRIPTS_BY_TRANSCRIPT_ID,
+            referenceGenome,
+            transcriptId,
+            ENSEMBL_TRANSCRIPT_TYPE,
+            () -> this.getEnsemblControllerApi(referenceGenome).fetchEnsemblTranscriptByTranscriptIdGET(transcriptId)
+        );
+    }
+
+    private <T> T getCached(
+        String cacheKey,
+        ReferenceGenome referenceGenome,
+        String id,
+        Type type,
+        RefreshAheadCache.Loader<T, ApiException> loader
+    ) throws ApiException {
+        RefreshAheadCache cache = caches.get(cacheKey);
+        if (cache == null) {
+            return loader.load();
+        }
+        return cache.get(referenceGenome + "-" + id, type, loader);
+    }
+
     public EnsemblGene findCanonicalEnsemblGeneTranscript(ReferenceGenome referenceGenome, Integer entrezGeneId) throws ApiException {
         return this.getEnsemblControllerApi(referenceGenome).fetchCanonicalEnsemblGeneIdByEntrezGeneIdGET(Integer.toString(entrezGeneId));
     }
 
+    /**
+     * Fetch the canonical Ensembl genes in chunks of chunk-size ids, chunk-parallelism chunks at a time
+     *
+     * @return the genes in the order of the chunks
+     */
     public List<EnsemblGene> findCanonicalEnsemblGeneTranscript(ReferenceGenome referenceGenome, List<Integer> entrezGeneIds)
         throws ApiException {
-        List<EnsemblGene> ensemblGenesList = new ArrayList<>();
         List<String> idStrs = entrezGeneIds.stream().map(id -> Integer.toString(id)).collect(Collectors.toList());
-        log.info("Fetching canonical ensembl genes from GN, total {}", idStrs.size());
-        int postThreshold = 1000;
-        for (int i = 0; i < idStrs.size(); i += postThreshold) {
-            log.info("\ton index {}", i);
-            ensemblGenesList.addAll(
-                this.getEnsemblControllerApi(referenceGenome)
-                    .fetchCanonicalEnsemblGeneIdByEntrezGeneIdsPOST(idStrs.subList(i, Math.min(idStrs.toArray().length, i + postThreshold)))
+        log.info("Fetching canonical ensembl genes of {} from GN, total {}", referenceGenome, idStrs.size());
+        long start = System.currentTimeMillis();
+        try {
+            List<EnsemblGene> ensemblGenesList = chunkFetcher.fetchAll(
+                idStrs,
+                chunkSize,
+                chunk -> {
+                    long chunkStart = System.currentTimeMillis();
+                    try {
+                        List<EnsemblGene> ensemblGenes =
+                            this.getEnsemblControllerApi(referenceGenome).fetchCanonicalEnsemblGeneIdByEntrezGeneIdsPOST(chunk);
+                        log.info(
+                            "\tfetched {} ids of {} from GN in {} ms",
+                            chunk.size(),
+                            referenceGenome,
+                            System.currentTimeMillis() - chunkStart
+                        );
+                        return ensemblGenes;
+                    } catch (ApiException exception) {
+                        throw new IllegalStateException(exception);
+                    }
+                }
             );
+            log.info("Fetched canonical ensembl genes of {} from GN in {} ms", referenceGenome, System.currentTimeMillis() - start);
+            return ensemblGenesList;
+        } catch (IllegalStateException exception) {
+            if (exception.getCause() instanceof ApiException) {
+                throw (ApiException) exception.getCause();
+            }
+            throw exception;
         }
-        return ensemblGenesList;
+    }
+
+    /**
+     * Fetch the canonical Ensembl genes of every reference genome, all of them at the same time
+     */
+    public Map<ReferenceGenome, List<EnsemblGene>> findCanonicalEnsemblGeneTranscripts(List<Integer> entrezGeneIds) throws ApiException {
+        Map<ReferenceGenome, CompletableFuture<List<EnsemblGene>>> futures = new EnumMap<>(ReferenceGenome.class);
+        for (ReferenceGenome referenceGenome : ReferenceGenome.values()) {
+            futures.put(
+                referenceGenome,
+                CompletableFuture.supplyAsync(
+                    () -> {
+                        try {
+                            return findCanonicalEnsemblGeneTranscript(referenceGenome, entrezGeneIds);
+                        } catch (ApiException exception) {
+                            throw new CompletionException(exception);
+                        }
+                    },
+                    referenceGenomeExecutor
+                )
+            );
+        }
+        Map<ReferenceGenome, List<EnsemblGene>> ensemblGenes = new EnumMap<>(ReferenceGenome.class);
+        try {
+            for (Map.Entry<ReferenceGenome, CompletableFuture<List<EnsemblGene>>> future : futures.entrySet()) {
+                ensemblGenes.put(future.getKey(), future.getValue().join());
+            }
+        } catch (CompletionException exception) {
+            if (exception.getCause() instanceof ApiException) {
+                throw (ApiException) exception.getCause();
+            }
+            throw exception;
+        }
+        return ensemblGenes;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        chunkFetcher.shutdown();
+        referenceGenomeExecutor.shutdownNow();
+        cacheRefresher.shutdownNow();
     }
 }
@@ -0,0 +1,233 @@
+package org.mskcc.oncokb.transcript.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.lang3.StringUtils;
+import org.mskcc.oncokb.transcript.config.ApplicationProperties;
+import org.mskcc.oncokb.transcript.domain.enumeration.ReferenceGenome;
+import org.mskcc.oncokb.transcript.domain.enumeration.SequenceType;
+import org.mskcc.oncokb.transcript.repository.SequenceRepository;
+import org.mskcc.oncokb.transcript.service.sequence.IndexedFasta;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Service;
+
+/**
+ * Read-only copy of the protein sequences of the {@code sequence} table, as one memory mapped FASTA file per reference
+ * genome, see {@link IndexedFasta}. Checking a residue reads a single byte of the file instead of loading the sequence.
+ * <p>
+ * The files are only written by {@link #rebuild(ReferenceGenome)}, next to a stamp holding the most recent sequence id
+ * they were built from. The proteins of sequences stored after the stamp are dropped from the index, so callers fall back
+ * to {@link ProteinSequenceService} for them, and an index whose stamp is ahead of the table is not served at all.
+ * Nothing is indexed unless {@code application.sequence-index.directory} is set.
+ */
+@Service
+public class ProteinSequenceIndexService {
+
+    private static final int PAGE_SIZE = 1000;
+    //How long the sequences stored by other instances may be served from the index before being dropped
+    private static final long STAMP_CHECK_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+    private static final String STAMP_EXTENSION = ".stamp";
+
+    private final Logger log = LoggerFactory.getLogger(ProteinSequenceIndexService.class);
+
+    private final SequenceRepository sequenceRepository;
+    private final Optional<Path> directory;
+
+    //Empty for the reference genomes that have not been indexed, or whose index is stale
+    private final Map<ReferenceGenome, Optional<Index>> indexes = new ConcurrentHashMap<>();
+
+    public ProteinSequenceIndexService(ApplicationProperties applicationProperties, SequenceRepository sequenceRepository) {
+        this.sequenceRepository = sequenceRepository;
+        String directory = null;
+        if (applicationProperties.getSequenceIndex() != null) {
+            directory = applicationProperties.getSequenceIndex().getDirectory();
+        }
+        this.directory = StringUtils.isEmpty(directory) ? Optional.empty() : Optional.of(Paths.get(directory));
+    }
+
+    public boolean contains(ReferenceGenome referenceGenome, String proteinId) {
+        return getIndex(referenceGenome).map(index -> index.contains(proteinId)).orElse(false);
+    }
+
+    public Optional<String> getSequence(ReferenceGenome referenceGenome, String proteinId) {
+        return getIndex(referenceGenome).filter(index -> index.contains(proteinId)).flatMap(index -> index.fasta.getSequence(proteinId));
+    }
+
+    /**
+     * @param position the 1-based protein position
+     * @return the residue, empty when the protein is not indexed or is shorter than the position
+     */
+    public Optional<Character> residueAt(ReferenceGenome referenceGenome, String proteinId, int position) {
+        return getIndex(referenceGenome)
+            .filter(index -> index.contains(proteinId))
+            .flatMap(index -> index.fasta.residueAt(proteinId, position));
+    }
+
+    /**
+     * Stop serving proteins from the index, because their stored sequence was just written
+     *
+     * @param proteinIds the ensembl protein ids
+     */
+    public void drop(ReferenceGenome referenceGenome, Collection<String> proteinIds) {
+        Optional<Index> index = indexes.get(referenceGenome);
+        if (index != null && index.isPresent()) {
+            index.get().dropped.addAll(proteinIds);
+        }
+    }
+
+    /**
+     * Write the protein sequences of a reference genome stored in the sequence table to its file, and serve them from
+     * the new file. When a protein has several sequences stored, the most recent one is kept.
+     *
+     * @return the number of sequences indexed
+     * @throws IllegalStateException when no index directory is configured
+     */
+    public synchronized int rebuild(ReferenceGenome referenceGenome) throws IOException {
+        Path directory = this.directory.orElseThrow(() ->
+            new IllegalStateException("The protein sequence index directory application.sequence-index.directory is not set")
+        );
+        Files.createDirectories(directory);
+        Path fasta = getFastaPath(directory, referenceGenome);
+        Path temporary = fasta.resolveSibling(fasta.getFileName() + ".tmp");
+        Path stamp = getStampPath(fasta);
+
+        //Sequences stored while the file is written are dropped by the next check, as their ids are above the stamp
+        long stampId = getMaxSequenceId(referenceGenome);
+        Set<String> written = new HashSet<>();
+        try (IndexedFasta.Writer writer = new IndexedFasta.Writer(temporary)) {
+            Pageable pageable = PageRequest.of(0, PAGE_SIZE);
+            Slice<SequenceRepository.ProteinSequence> page;
+            do {
+                page = sequenceRepository.findProteinSequences(referenceGenome.name(), SequenceType.PROTEIN, pageable);
+                for (SequenceRepository.ProteinSequence sequence : page) {
+                    if (StringUtils.isNotEmpty(sequence.getSequence()) && written.add(sequence.getEnsemblProteinId())) {
+                        writer.write(sequence.getEnsemblProteinId(), sequence.getSequence());
+                    }
+                }
+                pageable = page.nextPageable();
+            } while (page.hasNext());
+        }
+
+        //A file without its stamp is never loaded, so a failure below leaves no index that looks up to date
+        Files.deleteIfExists(stamp);
+        //A replaced file stays readable through its existing mappings until they are garbage collected
+        Files.move(IndexedFasta.getIndexPath(temporary), IndexedFasta.getIndexPath(fasta), StandardCopyOption.REPLACE_EXISTING);
+        Files.move(temporary, fasta, StandardCopyOption.REPLACE_EXISTING);
+        Path temporaryStamp = stamp.resolveSibling(stamp.getFileName() + ".tmp");
+        Files.write(temporaryStamp, String.valueOf(stampId).getBytes(StandardCharsets.US_ASCII));
+        Files.move(temporaryStamp, stamp, StandardCopyOption.REPLACE_EXISTING);
+
+        indexes.put(referenceGenome, Optional.of(new Index(IndexedFasta.open(fasta), stampId)));
+        log.info("Indexed {} protein sequences of {} in {}", written.size(), referenceGenome, fasta);
+        return written.size();
+    }
+
+    private Optional<Index> getIndex(ReferenceGenome referenceGenome) {
+        Optional<Index> index = indexes.get(referenceGenome);
+        if (index == null) {
+            index = loadIndex(referenceGenome);
+        }
+        if (index.isPresent() && System.currentTimeMillis() - index.get().checkedAt > STAMP_CHECK_INTERVAL) {
+            index = checkIndex(referenceGenome, index.get());
+        }
+        return index;
+    }
+
+    /**
+     * Map the file left by a previous run, if any
+     */
+    private synchronized Optional<Index> loadIndex(ReferenceGenome referenceGenome) {
+        Optional<Index> index = indexes.get(referenceGenome);
+        if (index != null) {
+            return index;
+        }
+        index = Optional.empty();
+        if (directory.isPresent()) {
+            Path fasta = getFastaPath(directory.get(), referenceGenome);
+            Path stamp = getStampPath(fasta);
+            if (Files.exists(fasta) && Files.exists(IndexedFasta.getIndexPath(fasta)) && Files.exists(stamp)) {
+                try {
+                    long stampId = Long.parseLong(new String(Files.readAllBytes(stamp), StandardCharsets.US_ASCII).trim());
+                    index = Optional.of(new Index(IndexedFasta.open(fasta), stampId));
+                } catch (IOException | NumberFormatException exception) {
+                    log.warn("Failed to open the protein sequence index {}", fasta, exception);
+                }
+            }
+        }
+        indexes.put(referenceGenome, index);
+        return index;
+    }
+
+    /**
+     * Drop the proteins stored since the last check. The index is not served anymore when the table no longer has the
+     * sequences it was built from, e.g. after they were deleted and imported again.
+     */
+    private synchronized Optional<Index> checkIndex(ReferenceGenome referenceGenome, Index index) {
+        if (System.currentTimeMillis() - index.checkedAt <= STAMP_CHECK_INTERVAL) {
+            return Optional.of(index);
+        }
+        long maxSequenceId = getMaxSequenceId(referenceGenome);
+        if (maxSequenceId < index.stampId) {
+            log.warn("The protein sequence index of {} is ahead of the sequence table and will not be used until rebuilt", referenceGenome);
+            indexes.put(referenceGenome, Optional.empty());
+            return Optional.empty();
+        }
+        if (maxSequenceId > index.checkedId) {
+            index.dropped.addAll(
+                sequenceRepository.findProteinIdsWithIdGreaterThan(referenceGenome.name(), SequenceType.PROTEIN, index.checkedId)
+            );
+            index.checkedId = maxSequenceId;
+        }
+        index.checkedAt = System.currentTimeMillis();
+        return Optional.of(index);
+    }
+
+    private long getMaxSequenceId(ReferenceGenome referenceGenome) {
+        Long maxSequenceId = sequenceRepository.findMaxProteinSequenceId(referenceGenome.name(), SequenceType.PROTEIN);
+        return maxSequenceId == null ? 0 : maxSequenceId;
+    }
+
+    private static Path getFastaPath(Path directory, ReferenceGenome referenceGenome) {
+        return directory.resolve(referenceGenome.name() + ".protein.fa");
+    }
+
+    private static Path getStampPath(Path fasta) {
+        return fasta.resolveSibling(fasta.getFileName() + STAMP_EXTENSION);
+    }
+
+    private static final class Index {
+
+        private final IndexedFasta fasta;
+        //The most recent sequence id the file was built from
+        private final long stampId;
+        private final Set<String> dropped = ConcurrentHashMap.newKeySet();
+        //The sequences up to this id have been checked, checkedAt is 0 so that a loaded index is checked on first use
+        private volatile long checkedId;
+        private volatile long checkedAt;
+
+        private Index(IndexedFasta fasta, long stampId) {
+            this.fasta = fasta;
+            this.stampId = stampId;
+            this.checkedId = stampId;
+        }
+
+        private boolean contains(String proteinId) {
+            return fasta.contains(proteinId) && !dropped.contains(proteinId);
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package org.mskcc.oncokb.transcript.service;
+
+import static org.mskcc.oncokb.transcript.config.Constants.ENSEMBL_POST_THRESHOLD;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
+import org.mskcc.oncokb.transcript.domain.Sequence;
+import org.mskcc.oncokb.transcript.domain.Transcript;
+import org.mskcc.oncokb.transcript.domain.enumeration.ReferenceGenome;
+import org.mskcc.oncokb.transcript.domain.enumeration.SequenceType;
+import org.mskcc.oncokb.transcript.repository.SequenceRepository;
+import org.mskcc.oncokb.transcript.util.SequenceUtils;
+import org.mskcc.oncokb.transcript.vm.ensembl.EnsemblSequence;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestClientException;
+
+/**
+ * Read-through store of protein sequences in front of the Ensembl /sequence/id endpoint.
+ * <p>
+ * Sequences are served from the {@code sequence} table, keyed by reference genome and Ensembl protein id. Only the
+ * ones that are missing, or were fetched from an older Ensembl release, are requested from Ensembl and written back.
+ * Each protein has at most one unlinked row holding its fetched sequence, see {@link Sequence#getCachedProteinId()}.
+ */
+@Service
+public class ProteinSequenceService {
+
+    //How long the Ensembl release of a reference genome is trusted before asking Ensembl again
+    private static final long RELEASE_CHECK_INTERVAL = TimeUnit.HOURS.toMillis(6);
+    private static final String PROTEIN_MOLECULE = "protein";
+
+    private final Logger log = LoggerFactory.getLogger(ProteinSequenceService.class);
+
+    private final EnsemblService ensemblService;
+    private final SequenceRepository sequenceRepository;
+    private final ProteinSequenceIndexService proteinSequenceIndexService;
+    private final TransactionTemplate writeTransactionTemplate;
+
+    //The release of each reference genome, with the time it was checked at
+    private final Map<ReferenceGenome, Pair<String, Long>> releases = new ConcurrentHashMap<>();
+
+    public ProteinSequenceService(
+        EnsemblService ensemblService,
+        SequenceRepository sequenceRepository,
+        ProteinSequenceIndexService proteinSequenceIndexService,
+        PlatformTransactionManager transactionManager
+    ) {
+        this.ensemblService = ensemblService;
+        this.sequenceRepository = sequenceRepository;
+        this.proteinSequenceIndexService = proteinSequenceIndexService;
+        //Each write back commits on its own, so a concurrent duplicate only loses that write
+        this.writeTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.writeTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Get a protein sequence, see {@link EnsemblService#getProteinSequence(ReferenceGenome, String)}
+     *
+     * @param referenceGenome Reference Genome
+     * @param proteinId       the ensembl protein id
+     * @return the sequence, empty when neither stored nor available from Ensembl
+     */
+    public Optional<EnsemblSequence> getProteinSequence(ReferenceGenome referenceGenome, String proteinId) {
+        if (StringUtils.isEmpty(proteinId)) {
+            return Optional.empty();
+        }
+        try {
+            return getProteinSequences(referenceGenome, Collections.singletonList(proteinId)).stream().findFirst();
+        } catch (RestClientException exception) {
+            log.warn("Failed to get the protein sequence of {} from {}", proteinId, referenceGenome, exception);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Get protein sequences, see {@link EnsemblService#getProteinSequences(ReferenceGenome, List)}. The sequences that
+     * are not stored yet are requested from Ensembl, at most
+     * {@link org.mskcc.oncokb.transcript.config.Constants#ENSEMBL_POST_THRESHOLD} ids at a time.
+     *
+     * @param referenceGenome Reference Genome
+     * @param proteinIds      the ensembl protein ids
+     * @return the sequences that were found
+     * @throws RestClientException when Ensembl fails for sequences that are not stored at all. Outdated sequences are
+     *                             still served when they cannot be refreshed.
+     */
+    public List<EnsemblSequence> getProteinSequences(ReferenceGenome referenceGenome, List<String> proteinIds) {
+        Set<String> ids = proteinIds.stream().filter(StringUtils::isNotEmpty).collect(Collectors.toCollection(LinkedHashSet::new));
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Optional<String> release = getRelease(referenceGenome);
+
+        List<Sequence> sequencesOfIds = sequenceRepository.findAllByReferenceGenomeAndSequenceTypeAndEnsemblProteinIdIn(
+            referenceGenome.name(),
+            SequenceType.PROTEIN,
+            ids
+        );
+        Map<String, Sequence> stored = new HashMap<>();
+        //The rows a refreshed sequence is written to, never one linked to a transcript
+        Map<String, Sequence> unlinked = new HashMap<>();
+        for (Sequence sequence : sequencesOfIds) {
+            if (sequence.getTranscript() == null) {
+                unlinked.merge(
+                    sequence.getEnsemblProteinId(),
+                    sequence,
+                    (sequence1, sequence2) -> sequence1.getCachedProteinId() == null ? sequence2 : sequence1
+                );
+            }
+            if (StringUtils.isNotEmpty(sequence.getSequence())) {
+                stored.merge(
+                    sequence.getEnsemblProteinId(),
+                    sequence,
+                    (sequence1, sequence2) -> isOutdated(sequence1, release) ? sequence2 : sequence1
+                );
+            }
+        }
+
+        List<String> missingIds = ids.stream().filter(id -> !stored.containsKey(id)).collect(Collectors.toList());
+        List<String> outdatedIds = ids
+            .stream()
+            .filter(id -> stored.containsKey(id) && isOutdated(stored.get(id), release))
+            .collect(Collectors.toList());
+
+        Map<String, EnsemblSequence> fetched = fetch(referenceGenome, missingIds);
+        try {
+            fetched.putAll(fetch(referenceGenome, outdatedIds));
+        } catch (RestClientException exception) {
+            log.warn(
+                "Failed to refresh {} protein sequences of {}, serving the stored ones",
+                outdatedIds.size(),
+                referenceGenome,
+                exception
+            );
+        }
+        for (EnsemblSequence ensemblSequence : fetched.values()) {
+            save(referenceGenome, ensemblSequence, unlinked.get(ensemblSequence.getId()), release.orElse(null));
+        }
+
+        List<EnsemblSequence> sequences = new ArrayList<>();
+        for (String id : ids) {
+            if (fetched.containsKey(id)) {
+                sequences.add(fetched.get(id));
+            } else if (stored.containsKey(id)) {
+                sequences.add(toEnsemblSequence(stored.get(id)));
+            }
+        }
+        return sequences;
+    }
+
+    /**
+     * Link the protein sequence of a transcript to it, fetching it from Ensembl when it is not stored yet.
+     *
+     * @param transcript a transcript with an ensembl protein id and an ensembl gene
+     * @return the linked sequence
+     */
+    public Optional<Sequence> linkProteinSequence(Transcript transcript) {
+        ReferenceGenome referenceGenome = ReferenceGenome.valueOf(transcript.getEnsemblGene().getReferenceGenome());
+        String proteinId = transcript.getEnsemblProteinId();
+        Optional<EnsemblSequence> ensemblSequence = getProteinSequence(referenceGenome, proteinId);
+        if (ensemblSequence.isEmpty()) {
+            return Optional.empty();
+        }
+        //Reuse the stored sequence unless it already belongs to another transcript
+        Sequence sequence = sequenceRepository
+            .findAllByReferenceGenomeAndSequenceTypeAndEnsemblProteinIdIn(
+                referenceGenome.name(),
+                SequenceType.PROTEIN,
+                Collections.singletonList(proteinId)
+            )
+            .stream()
+            .filter(storedSequence -> storedSequence.getTranscript() == null)
+            .min(Comparator.comparing(storedSequence -> storedSequence.getCachedProteinId() != null))
+            .orElseGet(() ->
+                new Sequence()
+                    .sequenceType(SequenceType.PROTEIN)
+                    .referenceGenome(referenceGenome.name())
+                    .ensemblProteinId(proteinId)
+                    .sequence(ensemblSequence.get().getSeq())
+                    .ensemblRelease(getRelease(referenceGenome).orElse(null))
+            );
+        //A linked row stops being the stored row of the protein, the next fetch writes a new one
+        return Optional.of(sequenceRepository.save(sequence.transcript(transcript).cachedProteinId(null)));
+    }
+
+    private Map<String, EnsemblSequence> fetch(ReferenceGenome referenceGenome, List<String> proteinIds) {
+        Map<String, EnsemblSequence> fetched = new HashMap<>();
+        if (proteinIds.size() == 1) {
+            //Single ids of concurrent callers are merged into batched requests by EnsemblService
+            ensemblService
+                .getProteinSequence(referenceGenome, proteinIds.get(0))
+                .filter(ensemblSequence -> StringUtils.isNotEmpty(ensemblSequence.getSeq()))
+                .ifPresent(ensemblSequence -> fetched.put(ensemblSequence.getId(), ensemblSequence));
+            return fetched;
+        }
+        for (int i = 0; i < proteinIds.size(); i += ENSEMBL_POST_THRESHOLD) {
+            List<String> batch = proteinIds.subList(i, Math.min(proteinIds.size(), i + ENSEMBL_POST_THRESHOLD));
+            for (EnsemblSequence ensemblSequence : ensemblService.getProteinSequences(referenceGenome, batch)) {
+                if (ensemblSequence != null && StringUtils.isNotEmpty(ensemblSequence.getSeq())) {
+                    fetched.putIfAbsent(ensemblSequence.getId(), ensemblSequence);
+                }
+            }
+        }
+        return fetched;
+    }
+
+    /**
+     * A sequence linked to a transcript keeps the protein the transcript was saved with, so a fetched sequence replaces
+     * the unlinked row of the protein, if any. The new row gets a new id, which tells {@link ProteinSequenceIndexService}
+     * of every instance that the indexed sequence is outdated. When a concurrent request already inserted that row, the
+     * unique cached protein id rejects this one, which is dropped since both hold the same sequence.
+     */
+    private void save(ReferenceGenome referenceGenome, EnsemblSequence ensemblSequence, Sequence unlinked, String release) {
+        Sequence sequence = new Sequence();
+        sequence.setSequenceType(SequenceType.PROTEIN);
+        sequence.setReferenceGenome(referenceGenome.name());
+        sequence.setEnsemblProteinId(ensemblSequence.getId());
+        sequence.setCachedProteinId(ensemblSequence.getId());
+        sequence.setSequence(ensemblSequence.getSeq());
+        sequence.setEnsemblRelease(release);
+        try {
+            writeTransactionTemplate.executeWithoutResult(status -> {
+                if (unlinked != null) {
+                    //Flushed first, the insert would otherwise run before the delete and hit the unique constraint
+                    sequenceRepository.delete(unlinked);
+                    sequenceRepository.flush();
+                }
+                sequenceRepository.save(sequence);
+            });
+        } catch (DataIntegrityViolationException exception) {
+            log.debug("The protein sequence of {} from {} was stored concurrently", ensemblSequence.getId(), referenceGenome);
+        }
+        proteinSequenceIndexService.drop(referenceGenome, Collections.singletonList(ensemblSequence.getId()));
+    }
+
+    /**
+     * Find the stored proteins with exactly the given residues by their fingerprint. Only current rows count, the
+     * sequence of a row linked to a transcript or fetched from an older release may differ from the one served.
+     *
+     * @param referenceGenome Reference Genome
+     * @param sequence        the protein residues
+     * @return the ensembl protein ids
+     */
+    public Set<String> findIdenticalProteinIds(ReferenceGenome referenceGenome, String sequence) {
+        if (StringUtils.isEmpty(sequence)) {
+            return new HashSet<>();
+        }
+        return new HashSet<>(
+            sequenceRepository.findCurrentIdenticalProteinIds(
+                referenceGenome.name(),
+                SequenceType.PROTEIN,
+                SequenceUtils.getHash(sequence),
+                sequence.length(),
+                getRelease(referenceGenome).orElse(null)
+            )
+        );
+    }
+
+    private Optional<String> getRelease(ReferenceGenome referenceGenome) {
+        long now = System.currentTimeMillis();
+        Pair<String, Long> checked = releases.get(referenceGenome);
+        if (checked == null || now - checked.getValue() > RELEASE_CHECK_INTERVAL) {
+            //Keep the last known release when Ensembl cannot be reached
+            String release = ensemblService.getRelease(referenceGenome).orElse(checked == null ? null : checked.getKey());
+            checked = Pair.of(release, now);
+            releases.put(referenceGenome, checked);
+        }
+        return Optional.ofNullable(checked.getKey());
+    }
+
+    private static boolean isOutdated(Sequence sequence, Optional<String> release) {
+        return release.isPresent() && !release.get().equals(sequence.getEnsemblRelease());
+    }
+
+    private static EnsemblSequence toEnsemblSequence(Sequence sequence) {
+        EnsemblSequence ensemblSequence = new EnsemblSequence();
+        ensemblSequence.setId(sequence.getEnsemblProteinId());
+        ensemblSequence.setQuery(sequence.getEnsemblProteinId());
+        ensemblSequence.setMolecule(PROTEIN_MOLECULE);
+        ensemblSequence.setSeq(sequence.getSequence());
+        return ensemblSequence;
+    }
+}
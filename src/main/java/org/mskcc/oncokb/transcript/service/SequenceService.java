@@ -1,11 +1,17 @@
 package org.mskcc.oncokb.transcript.service;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import org.apache.commons.lang3.StringUtils;
 import org.mskcc.oncokb.transcript.domain.Sequence;
 import org.mskcc.oncokb.transcript.domain.Transcript;
+import org.mskcc.oncokb.transcript.domain.enumeration.ReferenceGenome;
 import org.mskcc.oncokb.transcript.domain.enumeration.SequenceType;
 import org.mskcc.oncokb.transcript.repository.SequenceRepository;
+import org.mskcc.oncokb.transcript.util.SequenceUtils;
+import org.mskcc.oncokb.transcript.vm.IdenticalProteinVM;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -55,6 +61,15 @@ public class SequenceService {
                 if (sequence.getSequence() != null) {
                     existingSequence.setSequence(sequence.getSequence());
                 }
+                if (sequence.getReferenceGenome() != null) {
+                    existingSequence.setReferenceGenome(sequence.getReferenceGenome());
+                }
+                if (sequence.getEnsemblProteinId() != null) {
+                    existingSequence.setEnsemblProteinId(sequence.getEnsemblProteinId());
+                }
+                if (sequence.getEnsemblRelease() != null) {
+                    existingSequence.setEnsemblRelease(sequence.getEnsemblRelease());
+                }
 
                 return existingSequence;
             })
@@ -97,4 +112,30 @@ public class SequenceService {
     public Optional<Sequence> findOneByTranscriptAndSequenceType(Transcript transcript, SequenceType sequenceType) {
         return sequenceRepository.findOneByTranscriptAndSequenceType(transcript, sequenceType);
     }
+
+    /**
+     * Find the stored proteins of any reference genome with exactly the given residues, with one index lookup on their
+     * fingerprint
+     *
+     * @param sequence the protein residues
+     * @return the proteins, with the transcript encoding them when it is stored
+     */
+    @Transactional(readOnly = true)
+    public List<IdenticalProteinVM> findIdenticalProteins(String sequence) {
+        if (StringUtils.isEmpty(sequence)) {
+            return new ArrayList<>();
+        }
+        return sequenceRepository
+            .findIdenticalSequences(SequenceType.PROTEIN, SequenceUtils.getHash(sequence), sequence.length())
+            .stream()
+            .filter(identicalSequence -> identicalSequence.getReferenceGenome() != null)
+            .map(identicalSequence -> {
+                IdenticalProteinVM identicalProteinVM = new IdenticalProteinVM();
+                identicalProteinVM.setReferenceGenome(ReferenceGenome.valueOf(identicalSequence.getReferenceGenome()));
+                identicalProteinVM.setEnsemblProteinId(identicalSequence.getEnsemblProteinId());
+                identicalProteinVM.setEnsemblTranscriptId(identicalSequence.getEnsemblTranscriptId());
+                return identicalProteinVM;
+            })
+            .collect(Collectors.toList());
+    }
 }
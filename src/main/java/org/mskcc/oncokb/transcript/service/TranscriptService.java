@@ -7,11 +7,13 @@ import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
 import org.genome_nexus.ApiException;
-import org.genome_nexus.client.EnsemblControllerApi;
 import org.genome_nexus.client.EnsemblTranscript;
 import org.mskcc.oncokb.transcript.config.cache.CacheCategory;
+import org.mskcc.oncokb.transcript.config.cache.CacheKeys;
 import org.mskcc.oncokb.transcript.config.cache.CacheNameResolver;
+import org.mskcc.oncokb.transcript.config.cache.TranscriptCacheKey;
 import org.mskcc.oncokb.transcript.domain.*;
 import org.mskcc.oncokb.transcript.domain.enumeration.GenomeFragmentType;
 import org.mskcc.oncokb.transcript.domain.enumeration.ReferenceGenome;
@@ -19,15 +21,21 @@ import org.mskcc.oncokb.transcript.domain.enumeration.SequenceType;
 import org.mskcc.oncokb.transcript.repository.TranscriptRepository;
 import org.mskcc.oncokb.transcript.service.dto.TranscriptDTO;
 import org.mskcc.oncokb.transcript.service.mapper.TranscriptMapper;
+import org.mskcc.oncokb.transcript.service.sequence.SameLengthComparator;
 import org.mskcc.oncokb.transcript.vm.MissMatchPairVM;
 import org.mskcc.oncokb.transcript.vm.TranscriptMatchResultVM;
 import org.mskcc.oncokb.transcript.vm.TranscriptPairVM;
 import org.mskcc.oncokb.transcript.vm.ensembl.EnsemblSequence;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.client.RestClientException;
 
 /**
  * Service Implementation for managing {@link Transcript}.
@@ -36,8 +44,12 @@ import org.springframework.transaction.annotation.Transactional;
 @Transactional
 public class TranscriptService {
 
+    public static final int MAX_SLICE_SIZE = 1000;
+
     private final GenomeNexusService genomeNexusService;
     private final EnsemblService ensemblService;
+    private final ProteinSequenceService proteinSequenceService;
+    private final ProteinSequenceIndexService proteinSequenceIndexService;
     private final AlignmentService alignmentService;
     private final SequenceService sequenceService;
     private final TranscriptMapper transcriptMapper;
@@ -52,6 +64,8 @@ public class TranscriptService {
     public TranscriptService(
         GenomeNexusService genomeNexusService,
         EnsemblService ensemblService,
+        ProteinSequenceService proteinSequenceService,
+        ProteinSequenceIndexService proteinSequenceIndexService,
         AlignmentService alignmentService,
         SequenceService sequenceService,
         TranscriptRepository transcriptRepository,
@@ -62,6 +76,8 @@ public class TranscriptService {
     ) {
         this.genomeNexusService = genomeNexusService;
         this.ensemblService = ensemblService;
+        this.proteinSequenceService = proteinSequenceService;
+        this.proteinSequenceIndexService = proteinSequenceIndexService;
         this.alignmentService = alignmentService;
         this.sequenceService = sequenceService;
         this.transcriptRepository = transcriptRepository;
@@ -79,45 +95,64 @@ public class TranscriptService {
      */
     public TranscriptDTO save(TranscriptDTO transcriptDTO) {
         log.debug("Request to save Transcript : {}", transcriptDTO);
+        //Compared before the save, which merges into the stored entity
+        Optional<Transcript> storedTranscript = Optional.ofNullable(transcriptDTO.getId()).flatMap(transcriptRepository::findById);
+        Optional<Pair<String, String>> storedKey = storedTranscript.map(TranscriptService::getCacheKey);
+        boolean transcriptChanged = storedTranscript.map(stored -> !isSameTranscript(stored, transcriptDTO)).orElse(true);
+
         Transcript transcript = transcriptMapper.toEntity(transcriptDTO);
         Transcript savedTranscript = transcriptRepository.save(transcript);
 
-        List<GenomeFragment> transcriptGenomeFragments = genomeFragmentService.findAllByTranscriptId(transcriptDTO.getId());
-        genomeFragmentService.deleteAll(transcriptGenomeFragments);
-
         GenomeFragment genomeFragment = new GenomeFragment();
-        genomeFragment.setTranscript(savedTranscript);
         genomeFragment.setChromosome(transcriptDTO.getChromosome());
         genomeFragment.setStart(transcriptDTO.getStart());
         genomeFragment.setEnd(transcriptDTO.getEnd());
         genomeFragment.setStrand(transcriptDTO.getStrand());
         genomeFragment.setType(GenomeFragmentType.GENE);
-        genomeFragmentService.save(genomeFragment);
-
-        transcriptDTO.getExons().stream().forEach(exon -> exon.setTranscript(savedTranscript));
-        genomeFragmentService.saveAll(transcriptDTO.getExons());
-        transcriptDTO.getUtrs().stream().forEach(utr -> utr.setTranscript(savedTranscript));
-        genomeFragmentService.saveAll(transcriptDTO.getUtrs());
+        List<GenomeFragment> genomeFragments = new ArrayList<>();
+        genomeFragments.add(genomeFragment);
+        genomeFragments.addAll(transcriptDTO.getExons());
+        genomeFragments.addAll(transcriptDTO.getUtrs());
+        genomeFragmentService.replaceAllByTranscript(savedTranscript, genomeFragments);
 
         // save sequence automatically when a new transcript saved
         Optional<Sequence> sequenceOptional = sequenceService.findOneByTranscriptAndSequenceType(savedTranscript, SequenceType.PROTEIN);
         if (sequenceOptional.isEmpty() && StringUtils.isNotEmpty(savedTranscript.getEnsemblProteinId())) {
-            Optional<EnsemblSequence> ensemblSequenceOptional = ensemblService.getProteinSequence(
-                ReferenceGenome.valueOf(savedTranscript.getEnsemblGene().getReferenceGenome()),
-                savedTranscript.getEnsemblProteinId()
-            );
-            if (ensemblSequenceOptional.isPresent()) {
-                Sequence sequence = new Sequence();
-                sequence.setTranscript(savedTranscript);
-                sequence.setSequenceType(SequenceType.PROTEIN);
-                sequence.setSequence(ensemblSequenceOptional.get().getSeq());
-                sequenceService.save(sequence);
-            }
+            proteinSequenceService.linkProteinSequence(savedTranscript);
+        }
+
+        //The cached transcripts do not include their fragments, so they are only stale when the transcript itself changed
+        if (transcriptChanged) {
+            Set<Pair<String, String>> affectedKeys = new HashSet<>();
+            storedKey.ifPresent(affectedKeys::add);
+            affectedKeys.add(getCacheKey(savedTranscript));
+            evictTranscriptCaches(affectedKeys);
         }
-        clearTranscriptCaches();
         return transcriptMapper.toDto(savedTranscript);
     }
 
+    private static boolean isSameTranscript(Transcript transcript, TranscriptDTO transcriptDTO) {
+        return (
+            Objects.equals(transcript.getEnsemblTranscriptId(), transcriptDTO.getEnsemblTranscriptId()) &&
+            Objects.equals(transcript.getCanonical(), transcriptDTO.getCanonical()) &&
+            Objects.equals(transcript.getEnsemblProteinId(), transcriptDTO.getEnsemblProteinId()) &&
+            Objects.equals(transcript.getReferenceSequenceId(), transcriptDTO.getReferenceSequenceId()) &&
+            Objects.equals(transcript.getDescription(), transcriptDTO.getDescription()) &&
+            Objects.equals(
+                Optional.ofNullable(transcript.getEnsemblGene()).map(EnsemblGene::getId),
+                Optional.ofNullable(transcriptDTO.getEnsemblGene()).map(EnsemblGene::getId)
+            )
+        );
+    }
+
+    /**
+     * @return the reference genome and the ensembl transcript id that requests for the transcript are cached by
+     */
+    private static Pair<String, String> getCacheKey(Transcript transcript) {
+        String referenceGenome = transcript.getEnsemblGene() == null ? null : transcript.getEnsemblGene().getReferenceGenome();
+        return Pair.of(referenceGenome, transcript.getEnsemblTranscriptId());
+    }
+
     /**
      * Partially update a transcript.
      *
@@ -146,7 +181,24 @@ public class TranscriptService {
     @Transactional(readOnly = true)
     public List<TranscriptDTO> findAll() {
         log.debug("Request to get all Transcripts");
-        return transcriptRepository.findAll().stream().map(transcriptMapper::toDto).collect(Collectors.toCollection(LinkedList::new));
+        return new LinkedList<>(transcriptMapper.toDto(transcriptRepository.findAll()));
+    }
+
+    /**
+     * Get a slice of the transcripts ordered by id, each slice mapped with one query for all of its genome fragments.
+     *
+     * @param afterId the last id of the previous slice, 0 for the first one
+     * @param size    the maximum number of transcripts, at most {@link #MAX_SLICE_SIZE}
+     * @return the transcripts with an id above afterId
+     */
+    @Transactional(readOnly = true)
+    public Slice<TranscriptDTO> findAllAfter(long afterId, int size) {
+        log.debug("Request to get Transcripts after : {}", afterId);
+        Slice<Transcript> transcripts = transcriptRepository.findByIdGreaterThanOrderByIdAsc(
+            afterId,
+            PageRequest.of(0, Math.max(1, Math.min(size, MAX_SLICE_SIZE)))
+        );
+        return new SliceImpl<>(transcriptMapper.toDto(transcripts.getContent()), transcripts.getPageable(), transcripts.hasNext());
     }
 
     /**
@@ -227,16 +279,45 @@ public class TranscriptService {
         }
     }
 
+    /**
+     * Transcripts are cached one entry per transcript id, so only the ids that are not cached are queried, with one query.
+     * Ids without a transcript are not cached.
+     */
     @Transactional(readOnly = true)
     public List<TranscriptDTO> findByReferenceGenomeAndEnsemblTranscriptIdIsIn(
         ReferenceGenome referenceGenome,
         List<String> ensemblTranscriptIds
     ) {
-        return transcriptRepository
-            .findByReferenceGenomeAndEnsemblTranscriptIdIsIn(referenceGenome.name(), ensemblTranscriptIds)
-            .stream()
-            .map(transcriptMapper::toDto)
-            .collect(Collectors.toList());
+        Optional<Cache> cache = getTranscriptCache();
+        List<Transcript> transcripts = new ArrayList<>();
+        List<String> missedIds = new ArrayList<>();
+        for (String ensemblTranscriptId : new LinkedHashSet<>(ensemblTranscriptIds)) {
+            List<Transcript> cached = cache.map(c -> getCachedTranscripts(c, referenceGenome, ensemblTranscriptId)).orElse(null);
+            if (cached == null) {
+                missedIds.add(ensemblTranscriptId);
+            } else {
+                transcripts.addAll(cached);
+            }
+        }
+
+        if (!missedIds.isEmpty()) {
+            Map<String, List<Transcript>> loaded = transcriptRepository
+                .findByReferenceGenomeAndEnsemblTranscriptIdIsIn(referenceGenome.name(), missedIds)
+                .stream()
+                .collect(Collectors.groupingBy(Transcript::getEnsemblTranscriptId, LinkedHashMap::new, Collectors.toList()));
+            loaded.forEach((ensemblTranscriptId, loadedTranscripts) -> {
+                transcripts.addAll(loadedTranscripts);
+                cache.ifPresent(c -> c.put(TranscriptCacheKey.of(referenceGenome.name(), ensemblTranscriptId), loadedTranscripts));
+            });
+        }
+
+        return transcriptMapper.toDto(transcripts);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Transcript> getCachedTranscripts(Cache cache, ReferenceGenome referenceGenome, String ensemblTranscriptId) {
+        Cache.ValueWrapper cached = cache.get(TranscriptCacheKey.of(referenceGenome.name(), ensemblTranscriptId));
+        return cached == null ? null : (List<Transcript>) cached.get();
     }
 
     @Transactional(readOnly = true)
@@ -250,17 +331,33 @@ public class TranscriptService {
         int proteinPosition,
         String expectedAllele
     ) {
-        return transcripts
+        List<EnsemblTranscript> transcriptsWithProtein = transcripts
             .stream()
             .filter(ensemblTranscript -> StringUtils.isNotEmpty(ensemblTranscript.getProteinId()))
+            .collect(Collectors.toList());
+        //Indexed proteins are checked by reading the one residue, only the others are loaded
+        Map<String, String> sequences = getEnsemblProteinSequences(
+            referenceGenome,
+            transcriptsWithProtein
+                .stream()
+                .map(EnsemblTranscript::getProteinId)
+                .filter(proteinId -> !proteinSequenceIndexService.contains(referenceGenome, proteinId))
+                .distinct()
+                .collect(Collectors.toList())
+        )
+            .stream()
+            .collect(Collectors.toMap(EnsemblSequence::getId, EnsemblSequence::getSeq, (sequence1, sequence2) -> sequence1));
+        return transcriptsWithProtein
+            .stream()
             .filter(ensemblTranscript -> {
-                Optional<EnsemblSequence> sequence = ensemblService.getProteinSequence(referenceGenome, ensemblTranscript.getProteinId());
-                if (sequence.isPresent()) {
-                    if (sequence.get().getSeq().length() >= proteinPosition) {
-                        return sequence.get().getSeq().substring(proteinPosition - 1, proteinPosition).equals(expectedAllele);
-                    } else {
-                        return false;
-                    }
+                String sequence = sequences.get(ensemblTranscript.getProteinId());
+                if (sequence == null) {
+                    return proteinSequenceIndexService
+                        .residueAt(referenceGenome, ensemblTranscript.getProteinId(), proteinPosition)
+                        .map(residue -> expectedAllele.equals(String.valueOf(residue)))
+                        .orElse(false);
+                } else if (sequence.length() >= proteinPosition) {
+                    return sequence.substring(proteinPosition - 1, proteinPosition).equals(expectedAllele);
                 } else {
                     return false;
                 }
@@ -280,7 +377,7 @@ public class TranscriptService {
 
         if (_ensemblTranscript.isPresent()) {
             transcriptMatchResultVM.setOriginalEnsemblTranscript(_ensemblTranscript.get());
-            Optional<EnsemblSequence> _sequence = ensemblService.getProteinSequence(
+            Optional<EnsemblSequence> _sequence = proteinSequenceService.getProteinSequence(
                 transcript.getReferenceGenome(),
                 _ensemblTranscript.get().getProteinId()
             );
@@ -305,9 +402,8 @@ public class TranscriptService {
     }
 
     public Optional<EnsemblTranscript> getEnsemblTranscript(String transcriptId, ReferenceGenome referenceGenome) {
-        EnsemblControllerApi controllerApi = genomeNexusService.getEnsemblControllerApi(referenceGenome);
         try {
-            EnsemblTranscript ensemblTranscript = controllerApi.fetchEnsemblTranscriptByTranscriptIdGET(transcriptId);
+            EnsemblTranscript ensemblTranscript = genomeNexusService.findEnsemblTranscript(referenceGenome, transcriptId);
             return ensemblTranscript == null ? Optional.empty() : Optional.of(ensemblTranscript);
         } catch (Exception e) {
             e.printStackTrace();
@@ -316,7 +412,6 @@ public class TranscriptService {
     }
 
     public List<EnsemblTranscript> getEnsemblTranscriptList(String hugoSymbol, ReferenceGenome referenceGenome) {
-        EnsemblControllerApi controllerApi = genomeNexusService.getEnsemblControllerApi(referenceGenome);
         Set<EnsemblTranscript> transcripts = new LinkedHashSet<>();
         try {
             transcripts.add(getCanonicalEnsemblTranscript(hugoSymbol, referenceGenome));
@@ -324,7 +419,7 @@ public class TranscriptService {
             e.printStackTrace();
         }
         try {
-            transcripts.addAll(controllerApi.fetchEnsemblTranscriptsGET(null, null, hugoSymbol));
+            transcripts.addAll(genomeNexusService.findEnsemblTranscripts(referenceGenome, hugoSymbol));
         } catch (ApiException e) {
             e.printStackTrace();
         }
@@ -332,8 +427,7 @@ public class TranscriptService {
     }
 
     public EnsemblTranscript getCanonicalEnsemblTranscript(String hugoSymbol, ReferenceGenome referenceGenome) throws ApiException {
-        EnsemblControllerApi controllerApi = genomeNexusService.getEnsemblControllerApi(referenceGenome);
-        return controllerApi.fetchCanonicalEnsemblTranscriptByHugoSymbolGET(hugoSymbol, "msk");
+        return genomeNexusService.findCanonicalEnsemblTranscript(referenceGenome, hugoSymbol);
     }
 
     public Optional<EnsemblTranscript> getEnsemblTranscript(String hugoSymbol, TranscriptPairVM transcriptPairVM) throws ApiException {
@@ -361,17 +455,16 @@ public class TranscriptService {
     ) {
         List<org.mskcc.oncokb.transcript.vm.ensembl.EnsemblTranscript> ensemblTranscriptList = new ArrayList<>();
         log.info("Get {} ensembl trancript ids", ids.size());
-        for (int i = 0; i < ids.size(); i += ENSEMBL_POST_THRESHOLD) {
-            log.info("\tIndex {}", i);
-            ensemblTranscriptList.addAll(
-                ensemblService.getIds(
-                    referenceGenome,
-                    ids.subList(i, Math.min(ids.toArray().length, i + ENSEMBL_POST_THRESHOLD)),
-                    includeUtr,
-                    expand
-                )
-            );
-        }
+        ensemblService.getIds(
+            referenceGenome,
+            ids,
+            includeUtr,
+            expand,
+            chunk -> {
+                ensemblTranscriptList.addAll(chunk);
+                log.info("\tFetched {} of {}", ensemblTranscriptList.size(), ids.size());
+            }
+        );
         return ensemblTranscriptList;
     }
 
@@ -388,7 +481,19 @@ public class TranscriptService {
             )
             .collect(Collectors.toList());
 
-        List<EnsemblSequence> sequences = ensemblService
+        //A stored identical protein is found by its fingerprint, without loading the candidates
+        Set<String> identicalProteinIds = proteinSequenceService.findIdenticalProteinIds(referenceGenome, sequence.getSeq());
+        Optional<EnsemblTranscript> identicalTranscript = sameLengthList
+            .stream()
+            .filter(ensemblTranscript -> identicalProteinIds.contains(ensemblTranscript.getProteinId()))
+            .findFirst();
+        if (identicalTranscript.isPresent()) {
+            transcriptMatchResultVM.setTargetEnsemblTranscript(identicalTranscript.get());
+            transcriptMatchResultVM.setNote("Same sequence");
+            return transcriptMatchResultVM;
+        }
+
+        List<EnsemblSequence> sequences = proteinSequenceService
             .getProteinSequences(referenceGenome, sameLengthList.stream().map(EnsemblTranscript::getProteinId).collect(Collectors.toList()))
             .stream()
             .filter(filteredSequence -> filteredSequence.getSeq().length() == sequence.getSeq().length())
@@ -404,8 +509,10 @@ public class TranscriptService {
             transcriptMatchResultVM.setNote("Same sequence");
         } else if (sequences.size() > 0) {
             // We should make some comparison with the original sequence for the same length
-            sequences.sort(Comparator.comparingInt(s -> getNumOfMismatchSameLengthSequences(sequence.getSeq(), s.getSeq()).size()));
-            EnsemblSequence pickedSequence = sequences.iterator().next();
+            //Mismatches are counted once per candidate, the list is only built for the picked one
+            EnsemblSequence pickedSequence = SameLengthComparator
+                .pickLeastMismatches(sequence.getSeq(), sequences, EnsemblSequence::getSeq)
+                .get();
 
             Optional<EnsemblTranscript> ensemblTranscript = getEnsemblTranscriptBySequence(availableTranscripts, pickedSequence);
             transcriptMatchResultVM.setTargetEnsemblTranscript(ensemblTranscript.get());
@@ -435,7 +542,7 @@ public class TranscriptService {
                 )
                 .collect(Collectors.toList());
 
-            List<EnsemblSequence> longerSequences = ensemblService.getProteinSequences(
+            List<EnsemblSequence> longerSequences = proteinSequenceService.getProteinSequences(
                 referenceGenome,
                 longerOnes.stream().map(EnsemblTranscript::getProteinId).collect(Collectors.toList())
             );
@@ -463,42 +570,92 @@ public class TranscriptService {
         ReferenceGenome targetReferenceGenome,
         List<EnsemblTranscript> targetTranscripts
     ) {
-        Optional<EnsemblSequence> refSequenceOptional = ensemblService.getProteinSequence(
+        return getAlignmentResult(
+            refReferenceGenome,
+            refEnsemblTranscript,
+            targetReferenceGenome,
+            targetTranscripts,
+            Integer.MAX_VALUE,
+            Integer.MAX_VALUE
+        );
+    }
+
+    /**
+     * Align the reference transcript with the target transcripts and return the best ones.
+     * The target sequences are fetched in batches and aligned in parallel, see
+     * {@link AlignmentService#calcOptimalAlignments(String, List, int, int)}.
+     *
+     * @param maxPenalty the highest acceptable penalty, Integer.MAX_VALUE for no limit
+     * @param topK       the maximum number of results
+     * @return at most topK alignment results, sorted by penalty
+     */
+    public List<EnrichedAlignmentResult> getAlignmentResult(
+        ReferenceGenome refReferenceGenome,
+        EnsemblTranscript refEnsemblTranscript,
+        ReferenceGenome targetReferenceGenome,
+        List<EnsemblTranscript> targetTranscripts,
+        int maxPenalty,
+        int topK
+    ) {
+        Optional<EnsemblSequence> refSequenceOptional = proteinSequenceService.getProteinSequence(
             refReferenceGenome,
             refEnsemblTranscript.getProteinId()
         );
-        if (refSequenceOptional.isPresent()) {
-            return targetTranscripts
-                .stream()
-                .filter(ensemblTranscript -> StringUtils.isNotEmpty(ensemblTranscript.getProteinId()))
-                .map(ensemblTranscript -> {
-                    Optional<EnsemblSequence> targetSequenceOptional = ensemblService.getProteinSequence(
-                        targetReferenceGenome,
-                        ensemblTranscript.getProteinId()
-                    );
-                    if (targetSequenceOptional.isPresent()) {
-                        AlignmentResult alignmentResult =
-                            this.alignmentService.calcOptimalAlignment(
-                                    refSequenceOptional.get().getSeq(),
-                                    targetSequenceOptional.get().getSeq(),
-                                    true
-                                );
-                        EnrichedAlignmentResult enrichedAlignmentResult = new EnrichedAlignmentResult(alignmentResult);
-                        enrichedAlignmentResult.setRefEnsemblTranscript(refEnsemblTranscript);
-                        enrichedAlignmentResult.setTargetEnsemblTranscript(ensemblTranscript);
-                        return Optional.of(enrichedAlignmentResult);
-                    } else {
-                        Optional<EnrichedAlignmentResult> optional = Optional.empty();
-                        return optional;
-                    }
-                })
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .sorted(Comparator.comparingInt(EnrichedAlignmentResult::getPenalty))
-                .collect(Collectors.toList());
-        } else {
+        if (refSequenceOptional.isEmpty()) {
             return new ArrayList<>();
         }
+        String refSequence = refSequenceOptional.get().getSeq();
+
+        Map<String, String> targetSequences = getEnsemblProteinSequences(
+            targetReferenceGenome,
+            targetTranscripts
+                .stream()
+                .map(EnsemblTranscript::getProteinId)
+                .filter(StringUtils::isNotEmpty)
+                .distinct()
+                .collect(Collectors.toList())
+        )
+            .stream()
+            .collect(Collectors.toMap(EnsemblSequence::getId, EnsemblSequence::getSeq, (sequence1, sequence2) -> sequence1));
+        List<Pair<EnsemblTranscript, String>> targets = targetTranscripts
+            .stream()
+            .filter(ensemblTranscript -> StringUtils.isNotEmpty(ensemblTranscript.getProteinId()))
+            .filter(ensemblTranscript -> targetSequences.containsKey(ensemblTranscript.getProteinId()))
+            .map(ensemblTranscript -> Pair.of(ensemblTranscript, targetSequences.get(ensemblTranscript.getProteinId())))
+            .collect(Collectors.toList());
+
+        return alignmentService
+            .calcOptimalAlignments(refSequence, targets, maxPenalty, topK)
+            .stream()
+            .map(result -> {
+                EnrichedAlignmentResult enrichedAlignmentResult = new EnrichedAlignmentResult(result.getValue());
+                enrichedAlignmentResult.setRefEnsemblTranscript(refEnsemblTranscript);
+                enrichedAlignmentResult.setTargetEnsemblTranscript(result.getKey());
+                return enrichedAlignmentResult;
+            })
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Get protein sequences, from the stored ones first and then from ensembl.org, at most
+     * {@link org.mskcc.oncokb.transcript.config.Constants#ENSEMBL_POST_THRESHOLD} ids per request. A batch that fails is
+     * skipped, like a missing sequence.
+     *
+     * @param referenceGenome Reference Genome
+     * @param proteinIds      the ensembl protein ids
+     * @return the sequences that were found
+     */
+    private List<EnsemblSequence> getEnsemblProteinSequences(ReferenceGenome referenceGenome, List<String> proteinIds) {
+        List<EnsemblSequence> ensemblSequences = new ArrayList<>();
+        for (int i = 0; i < proteinIds.size(); i += ENSEMBL_POST_THRESHOLD) {
+            List<String> batch = proteinIds.subList(i, Math.min(proteinIds.size(), i + ENSEMBL_POST_THRESHOLD));
+            try {
+                ensemblSequences.addAll(proteinSequenceService.getProteinSequences(referenceGenome, batch));
+            } catch (RestClientException exception) {
+                log.warn("Failed to get {} protein sequences from {}", batch.size(), referenceGenome, exception);
+            }
+        }
+        return ensemblSequences;
     }
 
     private Optional<EnsemblTranscript> getEnsemblTranscriptBySequence(
@@ -517,7 +674,7 @@ public class TranscriptService {
             .findAny();
     }
 
-    private List<MissMatchPairVM> getNumOfMismatchSameLengthSequences(String reference, String newSequence) {
+    static List<MissMatchPairVM> getNumOfMismatchSameLengthSequences(String reference, String newSequence) {
         List<MissMatchPairVM> mismatch = new ArrayList<>();
         for (int i = 0; i < reference.length(); i++) {
             char r = reference.charAt(i);
@@ -533,7 +690,31 @@ public class TranscriptService {
         return mismatch;
     }
 
-    private void clearTranscriptCaches() {
+    /**
+     * Evict the cached transcripts of the given ids, the other entries are kept.
+     *
+     * @param transcriptKeys pairs of reference genome and ensembl transcript id
+     */
+    public void evictTranscriptCaches(Collection<Pair<String, String>> transcriptKeys) {
+        getTranscriptCache()
+            .ifPresent(cache -> {
+                for (Pair<String, String> transcriptKey : transcriptKeys) {
+                    if (transcriptKey.getLeft() != null && transcriptKey.getRight() != null) {
+                        cache.evict(TranscriptCacheKey.of(transcriptKey.getLeft(), transcriptKey.getRight()));
+                    }
+                }
+            });
+    }
+
+    private Optional<Cache> getTranscriptCache() {
+        return this.optionalCacheManager.map(cacheManager ->
+                cacheManager.getCache(
+                    this.cacheNameResolver.getCacheName(CacheCategory.TRANSCRIPT, CacheKeys.TRANSCRIPTS_BY_ENSEMBL_TRANSCRIPT_IDS)
+                )
+            );
+    }
+
+    public void clearTranscriptCaches() {
         if (this.optionalCacheManager.isPresent()) {
             for (String cacheKey : this.optionalCacheManager.get().getCacheNames()) {
                 String cacheKeyPrefix = this.cacheNameResolver.getCacheName(CacheCategory.TRANSCRIPT, "");
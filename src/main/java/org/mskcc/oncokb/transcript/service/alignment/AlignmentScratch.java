@@ -0,0 +1,65 @@
+package org.mskcc.oncokb.transcript.service.alignment;
+
+/**
+ * Working memory for a single alignment call. The buffers are flat primitive arrays that only ever grow,
+ * so a recycled scratch can serve any alignment up to the largest one it has already seen without reallocating.
+ * <p>
+ * A scratch is owned by exactly one thread between {@link AlignmentScratchPool#acquire()} and
+ * {@link AlignmentScratchPool#release(AlignmentScratch)}.
+ */
+public final class AlignmentScratch {
+
+    private long[] directions = new long[0];
+    private long[] gapDirections = new long[0];
+    private long[] bitVectors = new long[0];
+    private int[] forwardRow = new int[0];
+    private int[] backwardRow = new int[0];
+
+    /**
+     * @param size the number of words needed, see {@link DirectionMatrix#words(int)}
+     * @return a direction matrix with at least {@code size} words. The content is undefined and must be cleared by the caller.
+     */
+    public long[] directions(int size) {
+        if (directions.length < size) {
+            directions = new long[size];
+        }
+        return directions;
+    }
+
+    public long[] gapDirections(int size) {
+        if (gapDirections.length < size) {
+            gapDirections = new long[size];
+        }
+        return gapDirections;
+    }
+
+    public long[] bitVectors(int size) {
+        if (bitVectors.length < size) {
+            bitVectors = new long[size];
+        }
+        return bitVectors;
+    }
+
+    public int[] forwardRow(int size) {
+        if (forwardRow.length < size) {
+            forwardRow = new int[size];
+        }
+        return forwardRow;
+    }
+
+    public int[] backwardRow(int size) {
+        if (backwardRow.length < size) {
+            backwardRow = new int[size];
+        }
+        return backwardRow;
+    }
+
+    /**
+     * @return the number of bytes currently held by this scratch
+     */
+    public long footprint() {
+        long longs = (long) directions.length + gapDirections.length + bitVectors.length;
+        long ints = (long) forwardRow.length + backwardRow.length;
+        return longs * Long.BYTES + ints * Integer.BYTES;
+    }
+}
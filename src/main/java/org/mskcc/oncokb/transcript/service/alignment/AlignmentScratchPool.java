@@ -0,0 +1,36 @@
+package org.mskcc.oncokb.transcript.service.alignment;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A bounded pool of {@link AlignmentScratch} instances shared by concurrent alignment calls.
+ * <p>
+ * Acquiring never blocks: when every pooled scratch is in use a fresh one is created, and it is only kept
+ * on release if there is room in the pool. Scratches that grew beyond {@code maxRetainedBytes} are dropped on
+ * release so a single huge alignment does not pin its memory for the lifetime of the application.
+ */
+public final class AlignmentScratchPool {
+
+    private final BlockingQueue<AlignmentScratch> idle;
+    private final long maxRetainedBytes;
+
+    public AlignmentScratchPool(int capacity, long maxRetainedBytes) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The pool capacity has to be positive, but got " + capacity);
+        }
+        this.idle = new ArrayBlockingQueue<>(capacity);
+        this.maxRetainedBytes = maxRetainedBytes;
+    }
+
+    public AlignmentScratch acquire() {
+        AlignmentScratch scratch = idle.poll();
+        return scratch == null ? new AlignmentScratch() : scratch;
+    }
+
+    public void release(AlignmentScratch scratch) {
+        if (scratch != null && scratch.footprint() <= maxRetainedBytes) {
+            idle.offer(scratch);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package org.mskcc.oncokb.transcript.service.alignment;
+
+import java.util.Arrays;
+
+/**
+ * Unit cost edit distance with Myers' bit-vector algorithm, in the multi-word form of Hyyro.
+ * <p>
+ * A DP column is kept as the vertical differences between neighbouring cells, which are always -1, 0 or +1. They are
+ * stored as two bit-vectors (positive and negative) of 64 cells per {@code long}, so one column step costs a handful of
+ * word operations per 64 cells. That is O(n * m / 64) for the whole distance.
+ */
+public final class BitParallelEditDistance {
+
+    private static final int WORD_BITS = Long.SIZE;
+
+    private BitParallelEditDistance() {}
+
+    /**
+     * @param codes1  the encoded first sequence with its leading placeholder, see {@link ScoringScheme#encode(String)}
+     * @param codes2  the encoded second sequence with its leading placeholder
+     * @param scratch supplies the bit-vectors
+     * @return the minimum number of substitutions, insertions and deletions turning one sequence into the other
+     */
+    public static int calc(byte[] codes1, byte[] codes2, AlignmentScratch scratch) {
+        //The shorter sequence goes along the bit-vectors so there are fewer words per column
+        byte[] pattern = codes1.length <= codes2.length ? codes1 : codes2;
+        byte[] text = pattern == codes1 ? codes2 : codes1;
+        int patternLength = pattern.length - 1;
+        int textLength = text.length - 1;
+        if (patternLength == 0) {
+            return textLength;
+        }
+
+        int blocks = (patternLength + WORD_BITS - 1) / WORD_BITS;
+        int lastBit = (patternLength - 1) % WORD_BITS;
+        //Layout: positive vertical differences, negative vertical differences, then the match mask of every residue code
+        long[] bitVectors = scratch.bitVectors((2 + ScoringScheme.ALPHABET_SIZE) * blocks);
+        int masks = 2 * blocks;
+        Arrays.fill(bitVectors, 0, blocks, -1L); //D[i][0] = i, every vertical difference is +1
+        Arrays.fill(bitVectors, blocks, masks + ScoringScheme.ALPHABET_SIZE * blocks, 0L);
+        for (int i = 0; i < patternLength; i++) {
+            bitVectors[masks + pattern[i + 1] * blocks + i / WORD_BITS] |= 1L << (i % WORD_BITS);
+        }
+
+        int distance = patternLength;
+        for (int j = 1; j <= textLength; j++) {
+            int mask = masks + text[j] * blocks;
+            //D[0][j] = j, the horizontal difference entering the first word is +1
+            int horizontalIn = 1;
+            for (int block = 0; block < blocks; block++) {
+                long positiveVertical = bitVectors[block];
+                long negativeVertical = bitVectors[blocks + block];
+                long match = bitVectors[mask + block];
+
+                long horizontalInIsNegative = horizontalIn < 0 ? 1L : 0L;
+                long verticalChange = match | negativeVertical;
+                match |= horizontalInIsNegative;
+                long horizontalChange = (((match & positiveVertical) + positiveVertical) ^ positiveVertical) | match;
+                long positiveHorizontal = negativeVertical | ~(horizontalChange | positiveVertical);
+                long negativeHorizontal = positiveVertical & horizontalChange;
+
+                if (block == blocks - 1) {
+                    distance += (int) ((positiveHorizontal >>> lastBit) & 1L) - (int) ((negativeHorizontal >>> lastBit) & 1L);
+                }
+                int horizontalOut = (int) (positiveHorizontal >>> (WORD_BITS - 1)) - (int) (negativeHorizontal >>> (WORD_BITS - 1));
+
+                //Shift in the horizontal difference coming from the word above
+                positiveHorizontal = (positiveHorizontal << 1) | (horizontalIn > 0 ? 1L : 0L);
+                negativeHorizontal = (negativeHorizontal << 1) | horizontalInIsNegative;
+                bitVectors[block] = negativeHorizontal | ~(verticalChange | positiveHorizontal);
+                bitVectors[blocks + block] = positiveHorizontal & verticalChange;
+                horizontalIn = horizontalOut;
+            }
+        }
+        return distance;
+    }
+}
@@ -0,0 +1,49 @@
+package org.mskcc.oncokb.transcript.service.alignment;
+
+import java.util.Arrays;
+
+/**
+ * Traceback directions of a DP table packed at 2 bits per cell, 32 cells per {@code long}.
+ * <p>
+ * Storing where each cell came from, instead of the penalties themselves, lets the DP keep a single row of penalties
+ * while the path is still recoverable. That is 16 times less memory than a full {@code int} table.
+ */
+public final class DirectionMatrix {
+
+    public static final int DIAGONAL = 0;
+    public static final int UP = 1;
+    public static final int LEFT = 2;
+
+    //Flags of the gap direction matrix used with affine gaps, set when the gap continues the one of the previous cell
+    public static final int VERTICAL_GAP_EXTENDS = 1;
+    public static final int HORIZONTAL_GAP_EXTENDS = 2;
+
+    private static final int CELLS_PER_WORD_SHIFT = 5;
+    private static final int CELL_IN_WORD_MASK = (1 << CELLS_PER_WORD_SHIFT) - 1;
+    private static final long DIRECTION_MASK = 3L;
+
+    private DirectionMatrix() {}
+
+    /**
+     * @param cells the number of cells of the DP table
+     * @return the number of words needed to hold their directions
+     */
+    public static int words(int cells) {
+        return (cells + CELL_IN_WORD_MASK) >>> CELLS_PER_WORD_SHIFT;
+    }
+
+    /**
+     * Reset the first {@code cells} cells to {@link #DIAGONAL}, so only the other directions need to be set.
+     */
+    public static void clear(long[] matrix, int cells) {
+        Arrays.fill(matrix, 0, words(cells), 0L);
+    }
+
+    public static void set(long[] matrix, int cell, int direction) {
+        matrix[cell >>> CELLS_PER_WORD_SHIFT] |= (long) direction << ((cell & CELL_IN_WORD_MASK) << 1);
+    }
+
+    public static int get(long[] matrix, int cell) {
+        return (int) ((matrix[cell >>> CELLS_PER_WORD_SHIFT] >>> ((cell & CELL_IN_WORD_MASK) << 1)) & DIRECTION_MASK);
+    }
+}
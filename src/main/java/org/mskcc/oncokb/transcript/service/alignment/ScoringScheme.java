@@ -0,0 +1,290 @@
+package org.mskcc.oncokb.transcript.service.alignment;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * How much aligning two residues, or a residue against a gap, costs. The alignment looks for the lowest total cost.
+ * <p>
+ * Every scheme is compiled once into a flat cost table indexed by residue code, see {@link #encode(String)}, so the DP
+ * inner loop only does array arithmetic. Similarity matrices are turned into costs with
+ * {@code cost(a, b) = (s(a, a) + s(b, b)) / 2 - s(a, b)}, at least 1 for different residues and 0 for identical ones.
+ * <p>
+ * A gap of length L costs {@code gapOpenPenalty + L * gapExtendPenalty}. With a gap open penalty of 0 gaps are linear.
+ */
+public final class ScoringScheme {
+
+    public static final String LEGACY = "LEGACY";
+    public static final String IDENTITY = "IDENTITY";
+    public static final String BLOSUM62 = "BLOSUM62";
+    public static final String PAM250 = "PAM250";
+
+    //Sanitized sequences only have A-Z and 0-9, 36 residue codes do not fit in 5 bits
+    public static final int ALPHABET_BITS = 6;
+    public static final int ALPHABET_SIZE = 1 << ALPHABET_BITS;
+
+    //The code of anything that is not a residue, like the leading blank of a sanitized sequence
+    private static final byte PLACEHOLDER_CODE = 36;
+
+    private static final int DEFAULT_MATRIX_GAP_OPEN_PENALTY = 10;
+    private static final int DEFAULT_MATRIX_GAP_EXTEND_PENALTY = 1;
+
+    //Residue order of the similarity matrices below, residues that are not listed are scored like X
+    private static final String MATRIX_RESIDUES = "ARNDCQEGHILKMFPSTWYVBZX";
+
+    private static final int[][] BLOSUM62_SIMILARITIES = {
+        { 4, -1, -2, -2, 0, -1, -1, 0, -2, -1, -1, -1, -1, -2, -1, 1, 0, -3, -2, 0, -2, -1, 0 },
+        { -1, 5, 0, -2, -3, 1, 0, -2, 0, -3, -2, 2, -1, -3, -2, -1, -1, -3, -2, -3, -1, 0, -1 },
+        { -2, 0, 6, 1, -3, 0, 0, 0, 1, -3, -3, 0, -2, -3, -2, 1, 0, -4, -2, -3, 3, 0, -1 },
+        { -2, -2, 1, 6, -3, 0, 2, -1, -1, -3, -4, -1, -3, -3, -1, 0, -1, -4, -3, -3, 4, 1, -1 },
+        { 0, -3, -3, -3, 9, -3, -4, -3, -3, -1, -1, -3, -1, -2, -3, -1, -1, -2, -2, -1, -3, -3, -2 },
+        { -1, 1, 0, 0, -3, 5, 2, -2, 0, -3, -2, 1, 0, -3, -1, 0, -1, -2, -1, -2, 0, 3, -1 },
+        { -1, 0, 0, 2, -4, 2, 5, -2, 0, -3, -3, 1, -2, -3, -1, 0, -1, -3, -2, -2, 1, 4, -1 },
+        { 0, -2, 0, -1, -3, -2, -2, 6, -2, -4, -4, -2, -3, -3, -2, 0, -2, -2, -3, -3, -1, -2, -1 },
+        { -2, 0, 1, -1, -3, 0, 0, -2, 8, -3, -3, -1, -2, -1, -2, -1, -2, -2, 2, -3, 0, 0, -1 },
+        { -1, -3, -3, -3, -1, -3, -3, -4, -3, 4, 2, -3, 1, 0, -3, -2, -1, -3, -1, 3, -3, -3, -1 },
+        { -1, -2, -3, -4, -1, -2, -3, -4, -3, 2, 4, -2, 2, 0, -3, -2, -1, -2, -1, 1, -4, -3, -1 },
+        { -1, 2, 0, -1, -3, 1, 1, -2, -1, -3, -2, 5, -1, -3, -1, 0, -1, -3, -2, -2, 0, 1, -1 },
+        { -1, -1, -2, -3, -1, 0, -2, -3, -2, 1, 2, -1, 5, 0, -2, -1, -1, -1, -1, 1, -3, -1, -1 },
+        { -2, -3, -3, -3, -2, -3, -3, -3, -1, 0, 0, -3, 0, 6, -4, -2, -2, 1, 3, -1, -3, -3, -1 },
+        { -1, -2, -2, -1, -3, -1, -1, -2, -2, -3, -3, -1, -2, -4, 7, -1, -1, -4, -3, -2, -2, -1, -2 },
+        { 1, -1, 1, 0, -1, 0, 0, 0, -1, -2, -2, 0, -1, -2, -1, 4, 1, -3, -2, -2, 0, 0, 0 },
+        { 0, -1, 0, -1, -1, -1, -1, -2, -2, -1, -1, -1, -1, -2, -1, 1, 5, -2, -2, 0, -1, -1, 0 },
+        { -3, -3, -4, -4, -2, -2, -3, -2, -2, -3, -2, -3, -1, 1, -4, -3, -2, 11, 2, -3, -4, -3, -2 },
+        { -2, -2, -2, -3, -2, -1, -2, -3, 2, -1, -1, -2, -1, 3, -3, -2, -2, 2, 7, -1, -3, -2, -1 },
+        { 0, -3, -3, -3, -1, -2, -2, -3, -3, 3, 1, -2, 1, -1, -2, -2, 0, -3, -1, 4, -3, -2, -1 },
+        { -2, -1, 3, 4, -3, 0, 1, -1, 0, -3, -4, 0, -3, -3, -2, 0, -1, -4, -3, -3, 4, 1, -1 },
+        { -1, 0, 0, 1, -3, 3, 4, -2, 0, -3, -3, 1, -1, -3, -1, 0, -1, -3, -2, -2, 1, 4, -1 },
+        { 0, -1, -1, -1, -2, -1, -1, -1, -1, -1, -1, -1, -1, -1, -2, 0, 0, -2, -1, -1, -1, -1, -1 }
+    };
+
+    private static final int[][] PAM250_SIMILARITIES = {
+        { 2, -2, 0, 0, -2, 0, 0, 1, -1, -1, -2, -1, -1, -3, 1, 1, 1, -6, -3, 0, 0, 0, 0 },
+        { -2, 6, 0, -1, -4, 1, -1, -3, 2, -2, -3, 3, 0, -4, 0, 0, -1, 2, -4, -2, -1, 0, -1 },
+        { 0, 0, 2, 2, -4, 1, 1, 0, 2, -2, -3, 1, -2, -3, 0, 1, 0, -4, -2, -2, 2, 1, 0 },
+        { 0, -1, 2, 4, -5, 2, 3, 1, 1, -2, -4, 0, -3, -6, -1, 0, 0, -7, -4, -2, 3, 3, -1 },
+        { -2, -4, -4, -5, 12, -5, -5, -3, -3, -2, -6, -5, -5, -4, -3, 0, -2, -8, 0, -2, -4, -5, -3 },
+        { 0, 1, 1, 2, -5, 4, 2, -1, 3, -2, -2, 1, -1, -5, 0, -1, -1, -5, -4, -2, 1, 3, -1 },
+        { 0, -1, 1, 3, -5, 2, 4, 0, 1, -2, -3, 0, -2, -5, -1, 0, 0, -7, -4, -2, 3, 3, -1 },
+        { 1, -3, 0, 1, -3, -1, 0, 5, -2, -3, -4, -2, -3, -5, 0, 1, 0, -7, -5, -1, 0, 0, -1 },
+        { -1, 2, 2, 1, -3, 3, 1, -2, 6, -2, -2, 0, -2, -2, 0, -1, -1, -3, 0, -2, 1, 2, -1 },
+        { -1, -2, -2, -2, -2, -2, -2, -3, -2, 5, 2, -2, 2, 1, -2, -1, 0, -5, -1, 4, -2, -2, -1 },
+        { -2, -3, -3, -4, -6, -2, -3, -4, -2, 2, 6, -3, 4, 2, -3, -3, -2, -2, -1, 2, -3, -3, -1 },
+        { -1, 3, 1, 0, -5, 1, 0, -2, 0, -2, -3, 5, 0, -5, -1, 0, 0, -3, -4, -2, 1, 0, -1 },
+        { -1, 0, -2, -3, -5, -1, -2, -3, -2, 2, 4, 0, 6, 0, -2, -2, -1, -4, -2, 2, -2, -2, -1 },
+        { -3, -4, -3, -6, -4, -5, -5, -5, -2, 1, 2, -5, 0, 9, -5, -3, -3, 0, 7, -1, -4, -5, -2 },
+        { 1, 0, 0, -1, -3, 0, -1, 0, 0, -2, -3, -1, -2, -5, 6, 1, 0, -6, -5, -1, -1, 0, -1 },
+        { 1, 0, 1, 0, 0, -1, 0, 1, -1, -1, -3, 0, -2, -3, 1, 2, 1, -2, -3, -1, 0, 0, 0 },
+        { 1, -1, 0, 0, -2, -1, 0, 0, -1, 0, -2, 0, -1, -3, 0, 1, 3, -5, -3, 0, 0, -1, 0 },
+        { -6, 2, -4, -7, -8, -5, -7, -7, -3, -5, -2, -3, -4, 0, -6, -2, -5, 17, 0, -6, -5, -6, -4 },
+        { -3, -4, -2, -4, 0, -4, -4, -5, 0, -1, -1, -4, -2, 7, -5, -3, -3, 0, 10, -2, -3, -4, -2 },
+        { 0, -2, -2, -2, -2, -2, -2, -1, -2, 4, 2, -2, 2, -1, -1, -1, 0, -6, -2, 4, -2, -2, -1 },
+        { 0, -1, 2, 3, -4, 1, 3, 0, 1, -2, -3, 1, -2, -4, -1, 0, 0, -5, -3, -2, 3, 2, -1 },
+        { 0, 0, 1, 3, -5, 3, 3, 0, 2, -2, -3, 0, -2, -5, 0, 0, -1, -6, -4, -2, 2, 3, -1 },
+        { 0, -1, 0, -1, -3, -1, -1, -1, -1, -1, -1, -1, -1, -2, -1, 0, 0, -4, -2, -1, -1, -1, -1 }
+    };
+
+    private final String name;
+    private final int[] costs;
+    private final int gapOpenPenalty;
+    private final int gapExtendPenalty;
+    private final int minimumMismatchCost;
+
+    private ScoringScheme(String name, int[] costs, int gapOpenPenalty, int gapExtendPenalty) {
+        if (gapOpenPenalty < 0 || gapExtendPenalty < 0) {
+            throw new IllegalArgumentException(
+                "Gap penalties can not be negative, but got open " + gapOpenPenalty + " and extend " + gapExtendPenalty
+            );
+        }
+        this.name = name;
+        this.costs = costs;
+        this.gapOpenPenalty = gapOpenPenalty;
+        this.gapExtendPenalty = gapExtendPenalty;
+
+        int minimumMismatchCost = Integer.MAX_VALUE;
+        for (char char1 : residues()) {
+            for (char char2 : residues()) {
+                if (char1 != char2) {
+                    minimumMismatchCost = Math.min(minimumMismatchCost, costs[index(code(char1), code(char2))]);
+                }
+            }
+        }
+        this.minimumMismatchCost = minimumMismatchCost;
+    }
+
+    /**
+     * The scheme the alignment has always used. Residues are upper case by the time they are scored while the vowel and
+     * consonant sets are lower case, so in practice only digit against digit mismatches get their own penalty.
+     * The rule is kept as is so penalties, and the thresholds tuned on them, do not change.
+     */
+    public static ScoringScheme legacy(
+        int gapPenalty,
+        int vowelVowelMismatchPenalty,
+        int consonantConsonantMismatchPenalty,
+        int vowelConsonantMismatchPenalty,
+        int numberNumberMismatchPenalty
+    ) {
+        Set<Character> vowels = new HashSet<>(Arrays.asList(new Character[] { 'a', 'e', 'i', 'o', 'u' }));
+        Set<Character> consonants = new HashSet<>(
+            Arrays.asList(
+                new Character[] { 'b', 'c', 'd', 'f', 'g', 'h', 'j', 'k', 'l', 'm', 'n', 'p', 'q', 'r', 's', 't', 'v', 'w', 'x', 'y', 'z' }
+            )
+        );
+        Set<Character> numbers = new HashSet<>(Arrays.asList(new Character[] { '0', '1', '2', '3', '4', '5', '6', '7', '8', '9' }));
+
+        int[] costs = new int[ALPHABET_SIZE * ALPHABET_SIZE];
+        for (char char1 : residues()) {
+            for (char char2 : residues()) {
+                int penalty;
+                if (char1 == char2) {
+                    penalty = 0;
+                } else if (consonants.contains(char1) && consonants.contains(char2)) {
+                    penalty = consonantConsonantMismatchPenalty;
+                } else if (vowels.contains(char1) && vowels.contains(char2)) {
+                    penalty = vowelVowelMismatchPenalty;
+                } else if (numbers.contains(char1) && numbers.contains(char2)) {
+                    penalty = numberNumberMismatchPenalty;
+                } else {
+                    penalty = vowelConsonantMismatchPenalty;
+                }
+                costs[index(code(char1), code(char2))] = penalty;
+            }
+        }
+        return new ScoringScheme(LEGACY, costs, 0, gapPenalty);
+    }
+
+    /**
+     * Every mismatch and every gap residue costs 1, the penalty is the edit distance.
+     */
+    public static ScoringScheme identity() {
+        int[] costs = new int[ALPHABET_SIZE * ALPHABET_SIZE];
+        for (char char1 : residues()) {
+            for (char char2 : residues()) {
+                costs[index(code(char1), code(char2))] = char1 == char2 ? 0 : 1;
+            }
+        }
+        return new ScoringScheme(IDENTITY, costs, 0, 1);
+    }
+
+    public static ScoringScheme blosum62() {
+        return fromSimilarityMatrix(BLOSUM62, BLOSUM62_SIMILARITIES);
+    }
+
+    public static ScoringScheme pam250() {
+        return fromSimilarityMatrix(PAM250, PAM250_SIMILARITIES);
+    }
+
+    /**
+     * @param name one of {@link #LEGACY}, {@link #IDENTITY}, {@link #BLOSUM62} or {@link #PAM250}, case insensitive
+     * @return the scheme with its default gap penalties
+     */
+    public static ScoringScheme of(String name) {
+        switch (name.toUpperCase(Locale.ROOT)) {
+            case LEGACY:
+                return legacy(2, 1, 1, 3, 1);
+            case IDENTITY:
+                return identity();
+            case BLOSUM62:
+                return blosum62();
+            case PAM250:
+                return pam250();
+            default:
+                throw new IllegalArgumentException("Unknown scoring scheme " + name);
+        }
+    }
+
+    /**
+     * @return the same residue costs with other gap penalties
+     */
+    public ScoringScheme withGapPenalties(int gapOpenPenalty, int gapExtendPenalty) {
+        return new ScoringScheme(name, costs, gapOpenPenalty, gapExtendPenalty);
+    }
+
+    /**
+     * Encode a sanitized sequence once, so the DP can look costs up by code instead of by character.
+     * Characters other than A-Z and 0-9, like the leading blank, get a placeholder code.
+     */
+    public static byte[] encode(String sequence) {
+        byte[] codes = new byte[sequence.length()];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = code(sequence.charAt(i));
+        }
+        return codes;
+    }
+
+    public static int index(byte code1, byte code2) {
+        return (code1 << ALPHABET_BITS) | code2;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * The cost of aligning residue code1 with residue code2 is at {@link #index(byte, byte)}.
+     * The table is shared and must not be modified.
+     */
+    public int[] getCosts() {
+        return costs;
+    }
+
+    public int getCost(byte code1, byte code2) {
+        return costs[index(code1, code2)];
+    }
+
+    public int getGapOpenPenalty() {
+        return gapOpenPenalty;
+    }
+
+    public int getGapExtendPenalty() {
+        return gapExtendPenalty;
+    }
+
+    /**
+     * @return the least any single edit costs, a substitution or one gap residue. The penalty of an alignment is at least
+     * its unit cost edit distance times this.
+     */
+    public int getMinimumEditCost() {
+        return Math.min(minimumMismatchCost, gapExtendPenalty);
+    }
+
+    public boolean isAffine() {
+        return gapOpenPenalty != 0;
+    }
+
+    private static ScoringScheme fromSimilarityMatrix(String name, int[][] similarities) {
+        int[] costs = new int[ALPHABET_SIZE * ALPHABET_SIZE];
+        for (char char1 : residues()) {
+            int row = matrixIndex(char1);
+            for (char char2 : residues()) {
+                int column = matrixIndex(char2);
+                int cost = 0;
+                if (char1 != char2) {
+                    cost = Math.max(1, (similarities[row][row] + similarities[column][column]) / 2 - similarities[row][column]);
+                }
+                costs[index(code(char1), code(char2))] = cost;
+            }
+        }
+        return new ScoringScheme(name, costs, DEFAULT_MATRIX_GAP_OPEN_PENALTY, DEFAULT_MATRIX_GAP_EXTEND_PENALTY);
+    }
+
+    private static int matrixIndex(char residue) {
+        int index = MATRIX_RESIDUES.indexOf(residue);
+        return index < 0 ? MATRIX_RESIDUES.indexOf('X') : index;
+    }
+
+    private static char[] residues() {
+        return "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789".toCharArray();
+    }
+
+    private static byte code(char residue) {
+        if (residue >= 'A' && residue <= 'Z') {
+            return (byte) (residue - 'A');
+        } else if (residue >= '0' && residue <= '9') {
+            return (byte) (26 + residue - '0');
+        }
+        return PLACEHOLDER_CODE;
+    }
+}
@@ -0,0 +1,83 @@
+package org.mskcc.oncokb.transcript.service.alignment;
+
+import org.mskcc.oncokb.transcript.domain.Alignment;
+import org.mskcc.oncokb.transcript.domain.AlignmentResult;
+
+/**
+ * Two sequences with their identical leading and trailing residues peeled off.
+ * <p>
+ * Matching residues cost nothing and gaps cost the same wherever they are, so an optimal alignment of the differing
+ * cores, put back between the shared prefix and suffix, is an optimal alignment of the whole sequences.
+ * Like everywhere in {@link org.mskcc.oncokb.transcript.service.AlignmentService}, sequences are sanitized and
+ * carry a leading blank.
+ */
+public final class TrimmedSequences {
+
+    private final String seq1;
+    private final String seq2;
+    private final int prefixLength;
+    private final int suffixLength;
+
+    private TrimmedSequences(String seq1, String seq2, int prefixLength, int suffixLength) {
+        this.seq1 = seq1;
+        this.seq2 = seq2;
+        this.prefixLength = prefixLength;
+        this.suffixLength = suffixLength;
+    }
+
+    /**
+     * Find the shared prefix and suffix in linear time. The suffix never overlaps the prefix.
+     */
+    public static TrimmedSequences of(String seq1, String seq2) {
+        int shorterLength = Math.min(seq1.length(), seq2.length()) - 1;
+        int prefixLength = 0;
+        while (prefixLength < shorterLength && seq1.charAt(prefixLength + 1) == seq2.charAt(prefixLength + 1)) {
+            prefixLength++;
+        }
+        int suffixLength = 0;
+        while (
+            suffixLength < shorterLength - prefixLength &&
+            seq1.charAt(seq1.length() - 1 - suffixLength) == seq2.charAt(seq2.length() - 1 - suffixLength)
+        ) {
+            suffixLength++;
+        }
+        return new TrimmedSequences(seq1, seq2, prefixLength, suffixLength);
+    }
+
+    /**
+     * Keep the whole sequences as the core.
+     */
+    public static TrimmedSequences untrimmed(String seq1, String seq2) {
+        return new TrimmedSequences(seq1, seq2, 0, 0);
+    }
+
+    public String getCore1() {
+        return " " + seq1.substring(prefixLength + 1, seq1.length() - suffixLength);
+    }
+
+    public String getCore2() {
+        return " " + seq2.substring(prefixLength + 1, seq2.length() - suffixLength);
+    }
+
+    /**
+     * Put the shared prefix and suffix back around the alignment of the cores.
+     *
+     * @param coreAlignmentResult the alignment of {@link #getCore1()} with {@link #getCore2()}
+     * @return the alignment of the whole sequences, with the core boundaries recorded
+     */
+    public AlignmentResult restore(AlignmentResult coreAlignmentResult) {
+        String prefix = seq1.substring(1, prefixLength + 1);
+        String suffix = seq1.substring(seq1.length() - suffixLength);
+
+        Alignment alignment = new Alignment();
+        alignment.setRefSeq(prefix + coreAlignmentResult.getRefSeq() + suffix);
+        alignment.setTargetSeq(prefix + coreAlignmentResult.getTargetSeq() + suffix);
+        AlignmentResult alignmentResult = new AlignmentResult(alignment);
+        alignmentResult.setPenalty(coreAlignmentResult.getPenalty());
+        alignmentResult.setRefCoreStart(prefixLength);
+        alignmentResult.setRefCoreEnd(seq1.length() - 1 - suffixLength);
+        alignmentResult.setTargetCoreStart(prefixLength);
+        alignmentResult.setTargetCoreEnd(seq2.length() - 1 - suffixLength);
+        return alignmentResult;
+    }
+}
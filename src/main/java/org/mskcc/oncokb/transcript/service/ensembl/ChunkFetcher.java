@@ -0,0 +1,89 @@
+package org.mskcc.oncokb.transcript.service.ensembl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Fetches a long list of ids in chunks, several chunks at a time.
+ * <p>
+ * The results are handed to the caller chunk by chunk, in the order the chunks complete, on the calling thread. So the
+ * consumer does not need to be thread-safe and can start processing before the last chunk arrives.
+ */
+public final class ChunkFetcher {
+
+    private final ExecutorService executor;
+
+    /**
+     * @param parallelism the number of chunks fetched at the same time, shared by all calls
+     * @param threadName  the prefix of the fetching threads
+     */
+    public ChunkFetcher(int parallelism, String threadName) {
+        this.executor = Executors.newFixedThreadPool(parallelism, ProteinSequenceCoalescer.daemonThreadFactory(threadName));
+    }
+
+    /**
+     * @param ids       the ids to fetch
+     * @param chunkSize the maximum number of ids fetched by one call of the fetcher
+     * @param fetcher   fetches a chunk of ids
+     * @param onChunk   receives the result of every chunk as soon as it completes
+     * @throws RuntimeException the first error of a chunk, the chunks that have not completed yet are cancelled
+     */
+    public <T> void fetch(List<String> ids, int chunkSize, Function<List<String>, List<T>> fetcher, Consumer<List<T>> onChunk) {
+        CompletionService<List<T>> completionService = new ExecutorCompletionService<>(executor);
+        List<Future<List<T>>> chunks = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += chunkSize) {
+            List<String> chunk = ids.subList(i, Math.min(ids.size(), i + chunkSize));
+            chunks.add(completionService.submit(() -> fetcher.apply(chunk)));
+        }
+        try {
+            for (int i = 0; i < chunks.size(); i++) {
+                onChunk.accept(completionService.take().get());
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while fetching chunks", exception);
+        } catch (ExecutionException exception) {
+            if (exception.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) exception.getCause();
+            }
+            throw new IllegalStateException(exception.getCause());
+        } finally {
+            chunks.forEach(chunk -> chunk.cancel(true));
+        }
+    }
+
+    /**
+     * Like {@link #fetch}, but waits for all the chunks and returns their results in the order of the ids
+     */
+    public <T> List<T> fetchAll(List<String> ids, int chunkSize, Function<List<String>, List<T>> fetcher) {
+        List<Future<List<T>>> chunks = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += chunkSize) {
+            List<String> chunk = ids.subList(i, Math.min(ids.size(), i + chunkSize));
+            chunks.add(executor.submit(() -> fetcher.apply(chunk)));
+        }
+        List<T> results = new ArrayList<>();
+        try {
+            for (Future<List<T>> chunk : chunks) {
+                results.addAll(chunk.get());
+            }
+            return results;
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while fetching chunks", exception);
+        } catch (ExecutionException exception) {
+            if (exception.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) exception.getCause();
+            }
+            throw new IllegalStateException(exception.getCause());
+        } finally {
+            chunks.forEach(chunk -> chunk.cancel(true));
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
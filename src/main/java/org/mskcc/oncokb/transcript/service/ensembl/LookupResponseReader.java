@@ -0,0 +1,42 @@
+package org.mskcc.oncokb.transcript.service.ensembl;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+import org.mskcc.oncokb.transcript.vm.ensembl.EnsemblTranscript;
+
+/**
+ * Decodes the response of the Ensembl /lookup/id POST endpoint entry by entry, while it is being read.
+ * <p>
+ * The response maps every requested id to its entry. With expand=1 an entry holds all transcripts of a gene with their
+ * exons and UTRs, so a whole batch can be many megabytes. Only one entry is held in memory at a time here.
+ */
+public final class LookupResponseReader {
+
+    private static final Gson GSON = new Gson();
+
+    private LookupResponseReader() {}
+
+    /**
+     * @param body     the response body, left open
+     * @param consumer receives every entry found, in the order of the response. The ids that are not found are skipped.
+     */
+    public static void read(InputStream body, Consumer<EnsemblTranscript> consumer) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        reader.beginObject();
+        while (reader.hasNext()) {
+            reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+            } else {
+                consumer.accept(GSON.fromJson(reader, EnsemblTranscript.class));
+            }
+        }
+        reader.endObject();
+    }
+}
@@ -0,0 +1,188 @@
+package org.mskcc.oncokb.transcript.service.ensembl;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import org.apache.commons.lang3.tuple.Pair;
+import org.mskcc.oncokb.transcript.domain.enumeration.ReferenceGenome;
+import org.mskcc.oncokb.transcript.vm.ensembl.EnsemblSequence;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+
+/**
+ * Merges single protein sequence requests of concurrent callers into batched requests.
+ * <p>
+ * The first request of a reference genome opens a batch that collects the requests of all threads for a short window.
+ * The batch is then fetched with one multi-id request, or as soon as it is full. An id that is already pending or being
+ * fetched is not requested again, its callers share the same result.
+ * <p>
+ * A batch Ensembl rejects with a 4xx response is split in halves that are fetched again, so one id it does not accept only
+ * fails the ids that are also rejected on their own. Any other failure, a timeout, a connection error, a 5xx or a 429
+ * response, fails the whole batch at once, since fetching its halves would only wait for the same failure again.
+ */
+public final class ProteinSequenceCoalescer {
+
+    private final BiFunction<ReferenceGenome, List<String>, List<EnsemblSequence>> fetcher;
+    private final long windowMillis;
+    private final int maxBatchSize;
+
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService dispatcher;
+
+    //Guarded by this: the batch collecting requests of each reference genome, and every id pending or being fetched
+    private final Map<ReferenceGenome, Map<String, CompletableFuture<Optional<EnsemblSequence>>>> openBatches = new EnumMap<>(
+        ReferenceGenome.class
+    );
+    private final Map<Pair<ReferenceGenome, String>, CompletableFuture<Optional<EnsemblSequence>>> inFlight = new HashMap<>();
+
+    /**
+     * @param fetcher      requests the sequences of a batch of ids, called with at most {@code maxBatchSize} ids
+     * @param windowMillis how long a batch collects requests before it is fetched
+     * @param maxBatchSize the number of ids after which a batch is fetched without waiting for the window to end
+     * @param parallelism  the number of batches fetched at the same time
+     */
+    public ProteinSequenceCoalescer(
+        BiFunction<ReferenceGenome, List<String>, List<EnsemblSequence>> fetcher,
+        long windowMillis,
+        int maxBatchSize,
+        int parallelism
+    ) {
+        this.fetcher = fetcher;
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = maxBatchSize;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(daemonThreadFactory("sequence-batch-timer"));
+        this.dispatcher = Executors.newFixedThreadPool(parallelism, daemonThreadFactory("sequence-batch"));
+    }
+
+    /**
+     * @param referenceGenome Reference Genome
+     * @param proteinId       the ensembl protein id
+     * @return completes with the sequence once its batch is fetched, or exceptionally with the error of fetching the id
+     * alone
+     */
+    public CompletableFuture<Optional<EnsemblSequence>> submit(ReferenceGenome referenceGenome, String proteinId) {
+        Map<String, CompletableFuture<Optional<EnsemblSequence>>> fullBatch = null;
+        CompletableFuture<Optional<EnsemblSequence>> future;
+        synchronized (this) {
+            future = inFlight.get(Pair.of(referenceGenome, proteinId));
+            if (future != null) {
+                return future;
+            }
+            future = new CompletableFuture<>();
+            inFlight.put(Pair.of(referenceGenome, proteinId), future);
+
+            Map<String, CompletableFuture<Optional<EnsemblSequence>>> batch = openBatches.get(referenceGenome);
+            if (batch == null) {
+                batch = new LinkedHashMap<>();
+                openBatches.put(referenceGenome, batch);
+                Map<String, CompletableFuture<Optional<EnsemblSequence>>> scheduledBatch = batch;
+                scheduler.schedule(() -> close(referenceGenome, scheduledBatch), windowMillis, TimeUnit.MILLISECONDS);
+            }
+            batch.put(proteinId, future);
+            if (batch.size() >= maxBatchSize) {
+                openBatches.remove(referenceGenome);
+                fullBatch = batch;
+            }
+        }
+        if (fullBatch != null) {
+            dispatch(referenceGenome, fullBatch);
+        }
+        return future;
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+        dispatcher.shutdownNow();
+    }
+
+    private void close(ReferenceGenome referenceGenome, Map<String, CompletableFuture<Optional<EnsemblSequence>>> batch) {
+        synchronized (this) {
+            //The batch may have been dispatched already because it was full
+            if (openBatches.get(referenceGenome) != batch) {
+                return;
+            }
+            openBatches.remove(referenceGenome);
+        }
+        dispatch(referenceGenome, batch);
+    }
+
+    private void dispatch(ReferenceGenome referenceGenome, Map<String, CompletableFuture<Optional<EnsemblSequence>>> batch) {
+        try {
+            dispatcher.execute(() -> fetch(referenceGenome, batch));
+        } catch (RejectedExecutionException exception) {
+            complete(referenceGenome, batch, null, exception);
+        }
+    }
+
+    private void fetch(ReferenceGenome referenceGenome, Map<String, CompletableFuture<Optional<EnsemblSequence>>> batch) {
+        Map<String, EnsemblSequence> sequences = new HashMap<>();
+        try {
+            for (EnsemblSequence sequence : fetcher.apply(referenceGenome, new ArrayList<>(batch.keySet()))) {
+                //Ensembl answers with the unversioned id, the query is the id as requested
+                if (sequence.getQuery() != null) {
+                    sequences.putIfAbsent(sequence.getQuery(), sequence);
+                }
+                sequences.putIfAbsent(sequence.getId(), sequence);
+            }
+        } catch (RuntimeException exception) {
+            if (batch.size() == 1 || !isRejectedRequest(exception)) {
+                complete(referenceGenome, batch, null, exception);
+            } else {
+                List<String> proteinIds = new ArrayList<>(batch.keySet());
+                int half = proteinIds.size() / 2;
+                fetch(referenceGenome, subBatch(batch, proteinIds.subList(0, half)));
+                fetch(referenceGenome, subBatch(batch, proteinIds.subList(half, proteinIds.size())));
+            }
+            return;
+        }
+        complete(referenceGenome, batch, sequences, null);
+    }
+
+    private static boolean isRejectedRequest(RuntimeException exception) {
+        return (
+            exception instanceof HttpClientErrorException &&
+            ((HttpClientErrorException) exception).getStatusCode() != HttpStatus.TOO_MANY_REQUESTS
+        );
+    }
+
+    private static Map<String, CompletableFuture<Optional<EnsemblSequence>>> subBatch(
+        Map<String, CompletableFuture<Optional<EnsemblSequence>>> batch,
+        List<String> proteinIds
+    ) {
+        Map<String, CompletableFuture<Optional<EnsemblSequence>>> subBatch = new LinkedHashMap<>();
+        for (String proteinId : proteinIds) {
+            subBatch.put(proteinId, batch.get(proteinId));
+        }
+        return subBatch;
+    }
+
+    private void complete(
+        ReferenceGenome referenceGenome,
+        Map<String, CompletableFuture<Optional<EnsemblSequence>>> batch,
+        Map<String, EnsemblSequence> sequences,
+        Throwable error
+    ) {
+        synchronized (this) {
+            for (String proteinId : batch.keySet()) {
+                inFlight.remove(Pair.of(referenceGenome, proteinId));
+            }
+        }
+        for (Map.Entry<String, CompletableFuture<Optional<EnsemblSequence>>> request : batch.entrySet()) {
+            if (error != null) {
+                request.getValue().completeExceptionally(error);
+            } else {
+                request.getValue().complete(Optional.ofNullable(sequences.get(request.getKey())));
+            }
+        }
+    }
+
+    static ThreadFactory daemonThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
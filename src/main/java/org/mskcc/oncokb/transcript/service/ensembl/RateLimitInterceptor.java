@@ -0,0 +1,107 @@
+package org.mskcc.oncokb.transcript.service.ensembl;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * Keeps the requests to a host under its published rate limit with a token bucket, and waits as told by
+ * {@code Retry-After} before retrying a request that was rejected with 429 Too Many Requests.
+ * <p>
+ * Waiting callers reserve their token up front, so they are served in order and a burst of callers never exceeds
+ * the rate. A 429 response empties the bucket and pauses every caller, not only the one that was rejected.
+ */
+public final class RateLimitInterceptor implements ClientHttpRequestInterceptor {
+
+    private static final long DEFAULT_RETRY_AFTER = TimeUnit.SECONDS.toNanos(1);
+
+    private final double permitsPerNano;
+    private final double burst;
+    private final int maxRetries;
+
+    //Guarded by this. The bucket is refilled up to refilledAt, which is in the future while paused
+    private double tokens;
+    private long refilledAt;
+    private long resumeAt;
+
+    /**
+     * @param requestsPerSecond the sustained rate allowed by the host
+     * @param burst             the number of requests that can be sent at once after being idle
+     * @param maxRetries        how many times a request rejected with 429 is retried before the response is returned
+     */
+    public RateLimitInterceptor(double requestsPerSecond, int burst, int maxRetries) {
+        this.permitsPerNano = requestsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = burst;
+        this.maxRetries = maxRetries;
+        this.tokens = burst;
+        this.refilledAt = System.nanoTime();
+        this.resumeAt = refilledAt;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        for (int attempt = 0;; attempt++) {
+            sleep(reserve());
+            //Callers that reserved their token before a 429 wait for the pause as well
+            sleep(getPauseRemaining());
+            ClientHttpResponse response = execution.execute(request, body);
+            if (response.getRawStatusCode() != HttpStatus.TOO_MANY_REQUESTS.value() || attempt >= maxRetries) {
+                return response;
+            }
+            long retryAfter = getRetryAfter(response.getHeaders());
+            response.close();
+            pause(retryAfter);
+        }
+    }
+
+    /**
+     * @return how long to wait for the reserved token, in nanoseconds
+     */
+    private synchronized long reserve() {
+        long now = System.nanoTime();
+        if (now > refilledAt) {
+            tokens = Math.min(burst, tokens + (now - refilledAt) * permitsPerNano);
+            refilledAt = now;
+        }
+        tokens -= 1;
+        long wait = Math.max(0, refilledAt - now);
+        return tokens >= 0 ? wait : wait + (long) (-tokens / permitsPerNano);
+    }
+
+    private synchronized void pause(long nanos) {
+        resumeAt = Math.max(resumeAt, System.nanoTime() + nanos);
+        if (resumeAt > refilledAt) {
+            refilledAt = resumeAt;
+            tokens = Math.min(tokens, 0);
+        }
+    }
+
+    private synchronized long getPauseRemaining() {
+        return resumeAt - System.nanoTime();
+    }
+
+    private static long getRetryAfter(HttpHeaders headers) {
+        //Ensembl sends the number of seconds, possibly fractional
+        double seconds = NumberUtils.toDouble(headers.getFirst(HttpHeaders.RETRY_AFTER), -1);
+        return seconds >= 0 ? (long) (seconds * TimeUnit.SECONDS.toNanos(1)) : DEFAULT_RETRY_AFTER;
+    }
+
+    private static void sleep(long nanos) throws InterruptedIOException {
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the rate limit");
+        }
+    }
+}
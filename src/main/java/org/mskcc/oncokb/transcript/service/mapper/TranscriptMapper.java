@@ -1,57 +1,124 @@
 package org.mskcc.oncokb.transcript.service.mapper;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Map;
 import org.mapstruct.*;
 import org.mskcc.oncokb.transcript.domain.GenomeFragment;
 import org.mskcc.oncokb.transcript.domain.Transcript;
 import org.mskcc.oncokb.transcript.domain.enumeration.GenomeFragmentType;
 import org.mskcc.oncokb.transcript.repository.GenomeFragmentRepository;
+import org.mskcc.oncokb.transcript.repository.GenomeFragmentRepository.TranscriptGenomeFragment;
 import org.mskcc.oncokb.transcript.service.dto.TranscriptDTO;
 import org.springframework.beans.factory.annotation.Autowired;
 
 /**
  * Mapper for the entity {@link Transcript} and its DTO {@link TranscriptDTO}.
+ * <p>
+ * The genome fragments of a list of transcripts are loaded with one query per {@link #FRAGMENT_QUERY_BATCH_SIZE}
+ * transcripts instead of one query per transcript.
  */
 @Mapper(componentModel = "spring", uses = {})
 public abstract class TranscriptMapper implements EntityMapper<TranscriptDTO, Transcript> {
 
+    static final int FRAGMENT_QUERY_BATCH_SIZE = 1000;
+
     @Autowired
     GenomeFragmentRepository genomeFragmentRepository;
 
+    /**
+     * Map the transcript without its location, exons and utrs, which come from the genome fragments
+     */
+    @Named("toDtoWithoutFragments")
+    public abstract TranscriptDTO toDtoWithoutFragments(Transcript transcript);
+
+    @Override
+    public TranscriptDTO toDto(Transcript transcript) {
+        if (transcript == null) {
+            return null;
+        }
+        TranscriptDTO transcriptDTO = toDtoWithoutFragments(transcript);
+        updateDTO(transcriptDTO, genomeFragmentRepository.findAllByTranscriptId(transcriptDTO.getId()));
+        return transcriptDTO;
+    }
+
+    @Override
+    public List<TranscriptDTO> toDto(List<Transcript> transcripts) {
+        if (transcripts == null) {
+            return null;
+        }
+        //The fragments point to the given transcripts, which may be detached, e.g. when they come from the cache
+        Map<Long, Transcript> transcriptsById = new LinkedHashMap<>();
+        for (Transcript transcript : transcripts) {
+            if (transcript != null && transcript.getId() != null) {
+                transcriptsById.put(transcript.getId(), transcript);
+            }
+        }
+        List<Long> transcriptIds = new ArrayList<>(transcriptsById.keySet());
+
+        Map<Long, List<GenomeFragment>> genomeFragmentsByTranscriptId = new HashMap<>();
+        for (int i = 0; i < transcriptIds.size(); i += FRAGMENT_QUERY_BATCH_SIZE) {
+            List<Long> batch = transcriptIds.subList(i, Math.min(transcriptIds.size(), i + FRAGMENT_QUERY_BATCH_SIZE));
+            for (TranscriptGenomeFragment fragment : genomeFragmentRepository.findAllByTranscriptIdIn(batch)) {
+                genomeFragmentsByTranscriptId
+                    .computeIfAbsent(fragment.getTranscriptId(), transcriptId -> new ArrayList<>())
+                    .add(
+                        new GenomeFragment()
+                            .id(fragment.getId())
+                            .type(fragment.getType())
+                            .chromosome(fragment.getChromosome())
+                            .start(fragment.getStart())
+                            .end(fragment.getEnd())
+                            .strand(fragment.getStrand())
+                            .transcript(transcriptsById.get(fragment.getTranscriptId()))
+                    );
+            }
+        }
+
+        List<TranscriptDTO> transcriptDTOs = new ArrayList<>();
+        for (Transcript transcript : transcripts) {
+            TranscriptDTO transcriptDTO = toDtoWithoutFragments(transcript);
+            if (transcriptDTO == null) {
+                transcriptDTOs.add(null);
+                continue;
+            }
+            updateDTO(transcriptDTO, genomeFragmentsByTranscriptId.getOrDefault(transcriptDTO.getId(), Collections.emptyList()));
+            transcriptDTOs.add(transcriptDTO);
+        }
+        return transcriptDTOs;
+    }
+
     /**
      * @param transcriptDTO
+     * @param genomeFragmentList all the genome fragments of the transcript
      */
-    @AfterMapping
-    protected void updateDTO(@MappingTarget TranscriptDTO transcriptDTO) {
-        List<GenomeFragment> genomeFragmentList = genomeFragmentRepository.findAllByTranscriptId(transcriptDTO.getId());
-
-        Optional<GenomeFragment> geneInfo = genomeFragmentList
-            .stream()
-            .filter(genomeFragment -> genomeFragment.getType().equals(GenomeFragmentType.GENE))
-            .findFirst();
-        if (geneInfo.isPresent()) {
-            GenomeFragment gf = geneInfo.get();
-            transcriptDTO.setChromosome(gf.getChromosome());
-            transcriptDTO.setStart(gf.getStart());
-            transcriptDTO.setEnd(gf.getEnd());
-            transcriptDTO.setStrand(gf.getStrand());
+    protected void updateDTO(TranscriptDTO transcriptDTO, List<GenomeFragment> genomeFragmentList) {
+        GenomeFragment geneInfo = null;
+        List<GenomeFragment> exons = new ArrayList<>();
+        List<GenomeFragment> utrs = new ArrayList<>();
+        for (GenomeFragment genomeFragment : genomeFragmentList) {
+            GenomeFragmentType type = genomeFragment.getType();
+            if (type == GenomeFragmentType.GENE) {
+                if (geneInfo == null) {
+                    geneInfo = genomeFragment;
+                }
+            } else if (type == GenomeFragmentType.EXON) {
+                exons.add(genomeFragment);
+            } else if (type == GenomeFragmentType.FIVE_PRIME_UTR || type == GenomeFragmentType.THREE_PRIME_UTR) {
+                utrs.add(genomeFragment);
+            }
         }
 
-        List<GenomeFragment> exons = genomeFragmentList
-            .stream()
-            .filter(genomeFragment -> genomeFragment.getType().equals(GenomeFragmentType.EXON))
-            .collect(Collectors.toList());
+        if (geneInfo != null) {
+            transcriptDTO.setChromosome(geneInfo.getChromosome());
+            transcriptDTO.setStart(geneInfo.getStart());
+            transcriptDTO.setEnd(geneInfo.getEnd());
+            transcriptDTO.setStrand(geneInfo.getStrand());
+        }
         transcriptDTO.setExons(exons);
-
-        List<GenomeFragment> utrs = genomeFragmentList
-            .stream()
-            .filter(genomeFragment ->
-                genomeFragment.getType().equals(GenomeFragmentType.FIVE_PRIME_UTR) ||
-                genomeFragment.getType().equals(GenomeFragmentType.THREE_PRIME_UTR)
-            )
-            .collect(Collectors.toList());
         transcriptDTO.setUtrs(utrs);
     }
 
@@ -0,0 +1,178 @@
+package org.mskcc.oncokb.transcript.service.sequence;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A read-only FASTA file with a samtools {@code .fai} index, memory mapped so a sequence, or a single residue, is read
+ * straight from the page cache without going through the database or building the whole string.
+ * <p>
+ * The index keeps, for every sequence, its length, the offset of its first residue and the layout of its lines. Reads
+ * only use absolute positions of the mapped buffer, so one instance can be shared by any number of threads.
+ */
+public final class IndexedFasta {
+
+    private static final String INDEX_EXTENSION = ".fai";
+
+    private final ByteBuffer buffer;
+    private final Map<String, Entry> entries;
+
+    private IndexedFasta(ByteBuffer buffer, Map<String, Entry> entries) {
+        this.buffer = buffer;
+        this.entries = entries;
+    }
+
+    /**
+     * Map a FASTA file with its index, which is expected next to it with the {@code .fai} extension appended
+     */
+    public static IndexedFasta open(Path fasta) throws IOException {
+        Map<String, Entry> entries = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(getIndexPath(fasta), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] columns = line.split("\t");
+                if (columns.length >= 5) {
+                    entries.put(
+                        columns[0],
+                        new Entry(
+                            Integer.parseInt(columns[1]),
+                            Long.parseLong(columns[2]),
+                            Integer.parseInt(columns[3]),
+                            Integer.parseInt(columns[4])
+                        )
+                    );
+                }
+            }
+        }
+        try (FileChannel channel = FileChannel.open(fasta, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(fasta + " is too large to be mapped at once");
+            }
+            //The mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new IndexedFasta(buffer, entries);
+        }
+    }
+
+    public static Path getIndexPath(Path fasta) {
+        return fasta.resolveSibling(fasta.getFileName() + INDEX_EXTENSION);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public boolean contains(String id) {
+        return entries.containsKey(id);
+    }
+
+    /**
+     * @return the length of a sequence, or -1 if it is not in the file
+     */
+    public int getLength(String id) {
+        Entry entry = entries.get(id);
+        return entry == null ? -1 : entry.length;
+    }
+
+    public Optional<String> getSequence(String id) {
+        Entry entry = entries.get(id);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        byte[] residues = new byte[entry.length];
+        ByteBuffer view = buffer.duplicate();
+        int read = 0;
+        while (read < entry.length) {
+            int count = Math.min(entry.lineBases, entry.length - read);
+            view.position(Math.toIntExact(entry.getOffset(read)));
+            view.get(residues, read, count);
+            read += count;
+        }
+        return Optional.of(new String(residues, StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * @param position the 1-based position of the residue
+     * @return the residue, empty if the sequence is not in the file or shorter than the position
+     */
+    public Optional<Character> residueAt(String id, int position) {
+        Entry entry = entries.get(id);
+        if (entry == null || position < 1 || position > entry.length) {
+            return Optional.empty();
+        }
+        return Optional.of((char) buffer.get(Math.toIntExact(entry.getOffset(position - 1))));
+    }
+
+    /**
+     * Writes a FASTA file with one line per sequence together with its index
+     */
+    public static class Writer implements Closeable {
+
+        private final OutputStream fasta;
+        private final BufferedWriter index;
+        private long offset;
+
+        public Writer(Path fasta) throws IOException {
+            this.fasta = new BufferedOutputStream(Files.newOutputStream(fasta), 1 << 16);
+            this.index = Files.newBufferedWriter(getIndexPath(fasta), StandardCharsets.UTF_8);
+        }
+
+        public void write(String id, String sequence) throws IOException {
+            byte[] header = (">" + id + "\n").getBytes(StandardCharsets.US_ASCII);
+            byte[] residues = sequence.getBytes(StandardCharsets.US_ASCII);
+            fasta.write(header);
+            fasta.write(residues);
+            fasta.write('\n');
+            long sequenceOffset = offset + header.length;
+            index.write(id + "\t" + residues.length + "\t" + sequenceOffset + "\t" + residues.length + "\t" + (residues.length + 1));
+            index.write('\n');
+            offset = sequenceOffset + residues.length + 1;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                fasta.close();
+            } finally {
+                index.close();
+            }
+        }
+    }
+
+    private static final class Entry {
+
+        private final int length;
+        private final long offset;
+        private final int lineBases;
+        private final int lineWidth;
+
+        private Entry(int length, long offset, int lineBases, int lineWidth) {
+            this.length = length;
+            this.offset = offset;
+            //Sequences on a single line have as many bases per line as residues, or 0 when they are empty
+            this.lineBases = lineBases > 0 ? lineBases : Math.max(1, length);
+            this.lineWidth = lineWidth > 0 ? lineWidth : this.lineBases + 1;
+        }
+
+        /**
+         * @return the offset in the file of the residue at a 0-based index
+         */
+        private long getOffset(int index) {
+            return offset + (long) (index / lineBases) * lineWidth + index % lineBases;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.mskcc.oncokb.transcript.service.sequence;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Counts the residues that differ between a reference and sequences of the same length.
+ * <p>
+ * The reference is packed once, 8 residues per {@code long} with one byte each. A target word is packed on the fly and
+ * XORed with the reference word, so a word of 8 residues is compared with a single popcount of its non-zero bytes. A
+ * residue above 0xFF cannot be packed in a byte, that word is compared residue by residue instead.
+ */
+public final class SameLengthComparator {
+
+    private static final int RESIDUES_PER_WORD = Long.BYTES;
+    private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    private final String reference;
+    private final long[] packedReference;
+    private final boolean packable;
+
+    public SameLengthComparator(String reference) {
+        this.reference = reference;
+        this.packedReference = new long[(reference.length() + RESIDUES_PER_WORD - 1) / RESIDUES_PER_WORD];
+        int residues = 0;
+        for (int i = 0; i < reference.length(); i++) {
+            char residue = reference.charAt(i);
+            residues |= residue;
+            packedReference[i / RESIDUES_PER_WORD] |= (long) (residue & 0xFF) << ((i % RESIDUES_PER_WORD) * Byte.SIZE);
+        }
+        this.packable = residues <= 0xFF;
+    }
+
+    public int countMismatches(String target) {
+        return countMismatches(target, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param target a sequence of the same length as the reference
+     * @param limit  counting stops once the count exceeds it
+     * @return the number of positions where the target differs from the reference, or a number above the limit
+     * @throws IllegalArgumentException when the target does not have the length of the reference
+     */
+    public int countMismatches(String target, int limit) {
+        if (target.length() != reference.length()) {
+            throw new IllegalArgumentException(
+                "Expected a sequence of length " + reference.length() + ", but the length is " + target.length()
+            );
+        }
+        int mismatches = 0;
+        for (int word = 0; word < packedReference.length && mismatches <= limit; word++) {
+            int start = word * RESIDUES_PER_WORD;
+            int end = Math.min(target.length(), start + RESIDUES_PER_WORD);
+            long packed = 0;
+            int residues = 0;
+            for (int i = start; i < end; i++) {
+                char residue = target.charAt(i);
+                residues |= residue;
+                packed |= (long) (residue & 0xFF) << ((i - start) * Byte.SIZE);
+            }
+            if (packable && residues <= 0xFF) {
+                mismatches += countNonZeroBytes(packed ^ packedReference[word]);
+            } else {
+                for (int i = start; i < end; i++) {
+                    if (reference.charAt(i) != target.charAt(i)) {
+                        mismatches++;
+                    }
+                }
+            }
+        }
+        return mismatches;
+    }
+
+    /**
+     * Pick the candidate with the fewest mismatches, counting each candidate once. Counting a candidate stops as soon as it
+     * has more mismatches than the best one so far.
+     *
+     * @param reference  the sequence to compare with
+     * @param candidates sequences of the same length as the reference
+     * @param sequence   gets the sequence of a candidate
+     * @return the candidate with the fewest mismatches, the first one on a tie, or empty when there are no candidates
+     */
+    public static <T> Optional<T> pickLeastMismatches(String reference, Collection<T> candidates, Function<T, String> sequence) {
+        SameLengthComparator comparator = new SameLengthComparator(reference);
+        T picked = null;
+        int leastMismatches = Integer.MAX_VALUE;
+        for (T candidate : candidates) {
+            int mismatches = comparator.countMismatches(sequence.apply(candidate), leastMismatches - 1);
+            if (mismatches < leastMismatches) {
+                picked = candidate;
+                leastMismatches = mismatches;
+                if (mismatches == 0) {
+                    break;
+                }
+            }
+        }
+        return Optional.ofNullable(picked);
+    }
+
+    /**
+     * Bit 7 of a byte is set when its low 7 bits are not all zero, the sum of two bytes at most 0x7F does not carry into
+     * the next byte. Or-ing in the byte itself covers bit 7.
+     */
+    private static int countNonZeroBytes(long word) {
+        return Long.bitCount((((word & LOW_BITS) + LOW_BITS) | word) & HIGH_BITS);
+    }
+}
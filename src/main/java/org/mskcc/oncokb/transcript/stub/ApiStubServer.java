@@ -0,0 +1,332 @@
+package org.mskcc.oncokb.transcript.stub;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import org.apache.commons.lang3.StringUtils;
+import org.mskcc.oncokb.transcript.config.model.StubConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * A local stand-in for the Ensembl and Genome Nexus APIs, so the application can be load tested without internet
+ * access and without depending on the latency of the public servers.
+ * <p>
+ * Every upstream is served under {@code /<name>/}, e.g. {@code http://localhost:9099/ensembl-grch38/sequence/id}. In
+ * RECORD mode requests are proxied to the upstream and the responses saved to a {@link FixtureStore}. In REPLAY mode
+ * only the saved responses are served, after an artificial latency and with a share of them replaced by errors, and a
+ * request that was never recorded gets a 502.
+ * <p>
+ * Which ids end up together in a batched POST such as {@code {"ids": [...]}} depends on timing, see
+ * {@link org.mskcc.oncokb.transcript.service.ensembl.ProteinSequenceCoalescer}. So the entry of every id of such a
+ * request is recorded on its own, the ids missing from the response as not found, and a replayed batch is answered
+ * from the entries of its ids.
+ */
+public class ApiStubServer {
+
+    public enum Mode {
+        RECORD,
+        REPLAY,
+    }
+
+    public static final int DEFAULT_PORT = 9099;
+    public static final String DEFAULT_FIXTURES = "src/test/resources/stub";
+    public static final int DEFAULT_ERROR_STATUS = HttpStatus.SERVICE_UNAVAILABLE.value();
+    public static final int DEFAULT_THREADS = 64;
+    private static final Duration UPSTREAM_TIMEOUT = Duration.ofSeconds(60);
+
+    private final Logger log = LoggerFactory.getLogger(ApiStubServer.class);
+
+    private final int port;
+    private final Mode mode;
+    private final FixtureStore fixtureStore;
+    private final Map<String, String> upstreams;
+    private final int latency;
+    private final int latencyJitter;
+    private final double errorRate;
+    private final int errorStatus;
+    private final int threads;
+
+    private HttpServer server;
+    private ExecutorService executor;
+    private HttpClient upstreamClient;
+
+    public ApiStubServer(StubConfig stubConfig) {
+        this.port = stubConfig.getPort() != null ? stubConfig.getPort() : DEFAULT_PORT;
+        this.mode = StringUtils.isNotEmpty(stubConfig.getMode()) ? Mode.valueOf(stubConfig.getMode().toUpperCase()) : Mode.REPLAY;
+        this.fixtureStore =
+            new FixtureStore(Paths.get(StringUtils.isNotEmpty(stubConfig.getFixtures()) ? stubConfig.getFixtures() : DEFAULT_FIXTURES));
+        this.upstreams = stubConfig.getUpstreams() != null ? new HashMap<>(stubConfig.getUpstreams()) : Collections.emptyMap();
+        this.latency = stubConfig.getLatency() != null ? stubConfig.getLatency() : 0;
+        this.latencyJitter = stubConfig.getLatencyJitter() != null ? stubConfig.getLatencyJitter() : 0;
+        this.errorRate = stubConfig.getErrorRate() != null ? stubConfig.getErrorRate() : 0;
+        this.errorStatus = stubConfig.getErrorStatus() != null ? stubConfig.getErrorStatus() : DEFAULT_ERROR_STATUS;
+        this.threads = stubConfig.getThreads() != null ? stubConfig.getThreads() : DEFAULT_THREADS;
+    }
+
+    public void start() throws IOException {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("api-stub-");
+        threadFactory.setDaemon(true);
+        executor = Executors.newFixedThreadPool(threads, threadFactory);
+        if (mode == Mode.RECORD) {
+            upstreamClient = HttpClient.newBuilder().connectTimeout(UPSTREAM_TIMEOUT).build();
+        }
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+        log.info("Stub server {} {} on port {}", mode == Mode.RECORD ? "recording" : "replaying", upstreams.keySet(), getPort());
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the port listened on, the one picked by the system when configured with 0
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getRawPath();
+            int slash = path.indexOf('/', 1);
+            String upstream = slash > 0 ? path.substring(1, slash) : path.substring(1);
+            if (!upstreams.containsKey(upstream)) {
+                respond(exchange, HttpStatus.NOT_FOUND.value(), null, "Unknown upstream " + upstream);
+                return;
+            }
+            String uri = slash > 0 ? path.substring(slash) : "/";
+            if (exchange.getRequestURI().getRawQuery() != null) {
+                uri += "?" + exchange.getRequestURI().getRawQuery();
+            }
+            byte[] body = readBody(exchange.getRequestBody());
+
+            if (mode == Mode.RECORD) {
+                record(exchange, upstream, uri, body);
+            } else {
+                replay(exchange, upstream, uri, body);
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            respond(exchange, HttpStatus.SERVICE_UNAVAILABLE.value(), null, "Interrupted");
+        } catch (RuntimeException exception) {
+            log.warn("Stub server failed to serve {}", exchange.getRequestURI(), exception);
+            respond(exchange, HttpStatus.INTERNAL_SERVER_ERROR.value(), null, exception.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void record(HttpExchange exchange, String upstream, String uri, byte[] body) throws IOException, InterruptedException {
+        String method = exchange.getRequestMethod();
+        HttpRequest.Builder request = HttpRequest
+            .newBuilder(URI.create(upstreams.get(upstream) + uri))
+            .timeout(UPSTREAM_TIMEOUT)
+            .method(method, body.length == 0 ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofByteArray(body));
+        //The encoding is not forwarded, so the responses are saved uncompressed
+        for (String header : new String[] { HttpHeaders.CONTENT_TYPE, HttpHeaders.ACCEPT }) {
+            String value = exchange.getRequestHeaders().getFirst(header);
+            if (value != null) {
+                request.header(header, value);
+            }
+        }
+        HttpResponse<String> response = upstreamClient.send(request.build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        String contentType = response.headers().firstValue(HttpHeaders.CONTENT_TYPE).orElse(null);
+
+        //Throttled and failed requests would make the replays fail, they are passed on without being saved
+        if (response.statusCode() != HttpStatus.TOO_MANY_REQUESTS.value() && response.statusCode() < 500) {
+            BatchRequest batch = BatchRequest.parse(method, body);
+            boolean savedEntries = batch != null &&
+                response.statusCode() == HttpStatus.OK.value() &&
+                saveEntries(upstream, uri, batch, contentType, response);
+            if (!savedEntries) {
+                FixtureStore.Fixture fixture = new FixtureStore.Fixture(
+                    method,
+                    uri,
+                    new String(body, StandardCharsets.UTF_8),
+                    response.statusCode(),
+                    contentType,
+                    response.body()
+                );
+                fixtureStore.save(upstream, fixture);
+            }
+        }
+        respond(exchange, response.statusCode(), contentType, response.body());
+    }
+
+    /**
+     * Save the entry of every id of a batched response on its own
+     *
+     * @return false when the response is not a list or a map of entries
+     */
+    private boolean saveEntries(String upstream, String uri, BatchRequest batch, String contentType, HttpResponse<String> response)
+        throws IOException {
+        JsonElement json;
+        try {
+            json = JsonParser.parseString(response.body());
+        } catch (JsonParseException exception) {
+            return false;
+        }
+        Map<String, JsonElement> entries = new LinkedHashMap<>();
+        boolean keyed = json.isJsonObject();
+        if (keyed) {
+            for (Map.Entry<String, JsonElement> entry : json.getAsJsonObject().entrySet()) {
+                entries.put(entry.getKey(), entry.getValue());
+            }
+        } else if (json.isJsonArray()) {
+            for (JsonElement element : json.getAsJsonArray()) {
+                //Ensembl tells which requested id an entry answers in query
+                JsonElement id = element.isJsonObject() ? element.getAsJsonObject().get("query") : null;
+                if (id == null || !id.isJsonPrimitive()) {
+                    return false;
+                }
+                entries.put(id.getAsString(), element);
+            }
+        } else {
+            return false;
+        }
+        for (Map.Entry<String, JsonElement> entry : entries.entrySet()) {
+            saveEntry(upstream, uri, batch, entry.getKey(), HttpStatus.OK.value(), contentType, entry.getValue().toString(), keyed);
+        }
+        //Ensembl leaves unknown ids out of the response, they are recorded as not found so the batch can be replayed
+        for (String id : batch.getIds()) {
+            if (!entries.containsKey(id)) {
+                saveEntry(upstream, uri, batch, id, HttpStatus.NOT_FOUND.value(), contentType, null, keyed);
+            }
+        }
+        return true;
+    }
+
+    private void saveEntry(
+        String upstream,
+        String uri,
+        BatchRequest batch,
+        String id,
+        int status,
+        String contentType,
+        String entry,
+        boolean keyed
+    ) throws IOException {
+        FixtureStore.Fixture fixture = new FixtureStore.Fixture(
+            batch.getMethod(),
+            uri,
+            batch.getEntryKey(id),
+            status,
+            contentType,
+            entry,
+            keyed
+        );
+        fixtureStore.save(upstream, fixture);
+    }
+
+    private void replay(HttpExchange exchange, String upstream, String uri, byte[] body) throws IOException, InterruptedException {
+        int delay = latency + (latencyJitter > 0 ? ThreadLocalRandom.current().nextInt(latencyJitter + 1) : 0);
+        if (delay > 0) {
+            Thread.sleep(delay);
+        }
+        if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+            if (errorStatus == HttpStatus.TOO_MANY_REQUESTS.value()) {
+                exchange.getResponseHeaders().set(HttpHeaders.RETRY_AFTER, "1");
+            }
+            respond(exchange, errorStatus, null, "Injected error");
+            return;
+        }
+        String method = exchange.getRequestMethod();
+        Optional<FixtureStore.Fixture> fixture = fixtureStore.find(upstream, method, uri, body);
+        if (fixture.isEmpty()) {
+            fixture = assembleEntries(upstream, uri, BatchRequest.parse(method, body));
+        }
+        if (fixture.isPresent()) {
+            respond(exchange, fixture.get().getStatus(), fixture.get().getContentType(), fixture.get().getBody());
+        } else {
+            log.warn("No fixture recorded for {} {} of {}", method, uri, upstream);
+            respond(exchange, HttpStatus.BAD_GATEWAY.value(), null, "No fixture recorded for " + method + " " + uri);
+        }
+    }
+
+    /**
+     * Answer a batched request from the entries of its ids, whichever requests they were recorded with. Ids that were
+     * recorded as not found are left out, as Ensembl does.
+     */
+    private Optional<FixtureStore.Fixture> assembleEntries(String upstream, String uri, BatchRequest batch) {
+        if (batch == null) {
+            return Optional.empty();
+        }
+        JsonObject keyedEntries = new JsonObject();
+        JsonArray entries = new JsonArray();
+        FixtureStore.Fixture any = null;
+        for (String id : batch.getIds()) {
+            byte[] entryKey = batch.getEntryKey(id).getBytes(StandardCharsets.UTF_8);
+            Optional<FixtureStore.Fixture> entry = fixtureStore.find(upstream, batch.getMethod(), uri, entryKey);
+            if (entry.isEmpty()) {
+                return Optional.empty();
+            }
+            any = entry.get();
+            if (entry.get().getStatus() == HttpStatus.NOT_FOUND.value()) {
+                continue;
+            }
+            if (entry.get().isKeyed()) {
+                keyedEntries.add(id, JsonParser.parseString(entry.get().getBody()));
+            } else {
+                entries.add(JsonParser.parseString(entry.get().getBody()));
+            }
+        }
+        if (any == null) {
+            return Optional.empty();
+        }
+        String body = any.isKeyed() ? keyedEntries.toString() : entries.toString();
+        return Optional.of(new FixtureStore.Fixture(batch.getMethod(), uri, "", HttpStatus.OK.value(), any.getContentType(), body));
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body == null ? new byte[0] : body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set(HttpHeaders.CONTENT_TYPE, contentType != null ? contentType : "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(bytes);
+            }
+        }
+    }
+
+    private static byte[] readBody(InputStream inputStream) throws IOException {
+        try (InputStream body = inputStream) {
+            return body.readAllBytes();
+        }
+    }
+}
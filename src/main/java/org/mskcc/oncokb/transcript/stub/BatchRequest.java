@@ -0,0 +1,68 @@
+package org.mskcc.oncokb.transcript.stub;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A POST asking for several ids at once, like {@code {"ids": ["ENSP00000269305"], "type": "protein"}}
+ */
+final class BatchRequest {
+
+    private final String method;
+    private final List<String> ids;
+    //The rest of the body, which applies to every id
+    private final String parameters;
+
+    private BatchRequest(String method, List<String> ids, String parameters) {
+        this.method = method;
+        this.ids = ids;
+        this.parameters = parameters;
+    }
+
+    /**
+     * @return the batch, or null when the request is not one
+     */
+    static BatchRequest parse(String method, byte[] body) {
+        if (!"POST".equals(method) || body.length == 0) {
+            return null;
+        }
+        JsonElement json;
+        try {
+            json = JsonParser.parseString(new String(body, StandardCharsets.UTF_8));
+        } catch (JsonParseException exception) {
+            return null;
+        }
+        if (!json.isJsonObject() || !json.getAsJsonObject().has("ids") || !json.getAsJsonObject().get("ids").isJsonArray()) {
+            return null;
+        }
+        JsonObject parameters = json.getAsJsonObject().deepCopy();
+        List<String> ids = new ArrayList<>();
+        for (JsonElement id : parameters.remove("ids").getAsJsonArray()) {
+            if (!id.isJsonPrimitive()) {
+                return null;
+            }
+            ids.add(id.getAsString());
+        }
+        return new BatchRequest(method, ids, parameters.toString());
+    }
+
+    String getMethod() {
+        return method;
+    }
+
+    List<String> getIds() {
+        return ids;
+    }
+
+    /**
+     * @return what identifies the entry of an id, in place of the request body
+     */
+    String getEntryKey(String id) {
+        return parameters + "\n" + id;
+    }
+}
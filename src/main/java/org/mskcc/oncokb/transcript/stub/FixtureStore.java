@@ -0,0 +1,138 @@
+package org.mskcc.oncokb.transcript.stub;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The responses recorded by {@link ApiStubServer}, one JSON file per request under a directory per upstream. A request
+ * is identified by its method, its path with the query and its body, so the file name is stable across recordings and
+ * the fixtures can be committed and reviewed. Batched requests are saved one file per id instead, see
+ * {@link ApiStubServer}.
+ */
+public class FixtureStore {
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+
+    private final Path directory;
+    //Replays are served from memory after the first read, so the stub does not add disk latency
+    private final Map<String, Optional<Fixture>> loaded = new ConcurrentHashMap<>();
+
+    public FixtureStore(Path directory) {
+        this.directory = directory;
+    }
+
+    public Optional<Fixture> find(String upstream, String method, String uri, byte[] body) {
+        Path path = getPath(upstream, method, uri, body);
+        return loaded.computeIfAbsent(
+            path.toString(),
+            key -> {
+                if (!Files.exists(path)) {
+                    return Optional.empty();
+                }
+                try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                    return Optional.ofNullable(GSON.fromJson(reader, Fixture.class));
+                } catch (IOException exception) {
+                    throw new IllegalStateException("Failed to read the fixture " + path, exception);
+                }
+            }
+        );
+    }
+
+    public void save(String upstream, Fixture fixture) throws IOException {
+        Path path = getPath(upstream, fixture.getMethod(), fixture.getUri(), fixture.getRequestBody().getBytes(StandardCharsets.UTF_8));
+        Files.createDirectories(path.getParent());
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            GSON.toJson(fixture, writer);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+        loaded.put(path.toString(), Optional.of(fixture));
+    }
+
+    private Path getPath(String upstream, String method, String uri, byte[] body) {
+        return directory.resolve(upstream).resolve(getKey(method, uri, body) + ".json");
+    }
+
+    static String getKey(String method, String uri, byte[] body) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((method + " " + uri + "\n").getBytes(StandardCharsets.UTF_8));
+            digest.update(body);
+            StringBuilder key = new StringBuilder();
+            for (byte b : digest.digest()) {
+                key.append(String.format("%02x", b));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    public static class Fixture {
+
+        private String method;
+        private String uri;
+        private String requestBody;
+        private int status;
+        private String contentType;
+        private String body;
+        //For the entry of one id of a batched request, whether the response maps the ids to their entries
+        private boolean keyed;
+
+        public Fixture() {}
+
+        public Fixture(String method, String uri, String requestBody, int status, String contentType, String body) {
+            this(method, uri, requestBody, status, contentType, body, false);
+        }
+
+        public Fixture(String method, String uri, String requestBody, int status, String contentType, String body, boolean keyed) {
+            this.method = method;
+            this.uri = uri;
+            this.requestBody = requestBody;
+            this.status = status;
+            this.contentType = contentType;
+            this.body = body;
+            this.keyed = keyed;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public String getUri() {
+            return uri;
+        }
+
+        public String getRequestBody() {
+            return requestBody;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getBody() {
+            return body;
+        }
+
+        public boolean isKeyed() {
+            return keyed;
+        }
+    }
+}
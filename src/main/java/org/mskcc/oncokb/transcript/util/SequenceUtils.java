@@ -0,0 +1,36 @@
+package org.mskcc.oncokb.transcript.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+public class SequenceUtils {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * Fingerprint of a sequence, used together with its length to find identical sequences without comparing them.
+     * Same as MySQL's md5(), so stored sequences can be hashed in SQL.
+     *
+     * @param sequence the residues
+     * @return the 128 bit MD5 of the sequence as 32 lower case hex digits, or null for a null sequence
+     */
+    public static String getHash(String sequence) {
+        if (sequence == null) {
+            return null;
+        }
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+        byte[] hash = digest.digest(sequence.getBytes(StandardCharsets.UTF_8));
+        char[] hex = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(hash[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX_DIGITS[hash[i] & 0xF];
+        }
+        return new String(hex);
+    }
+}
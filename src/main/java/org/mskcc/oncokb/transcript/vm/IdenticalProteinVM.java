@@ -0,0 +1,37 @@
+package org.mskcc.oncokb.transcript.vm;
+
+import org.mskcc.oncokb.transcript.domain.enumeration.ReferenceGenome;
+
+/**
+ * A stored protein with exactly the residues asked for, and the transcript encoding it when known
+ */
+public class IdenticalProteinVM {
+
+    ReferenceGenome referenceGenome;
+    String ensemblProteinId;
+    String ensemblTranscriptId;
+
+    public ReferenceGenome getReferenceGenome() {
+        return referenceGenome;
+    }
+
+    public void setReferenceGenome(ReferenceGenome referenceGenome) {
+        this.referenceGenome = referenceGenome;
+    }
+
+    public String getEnsemblProteinId() {
+        return ensemblProteinId;
+    }
+
+    public void setEnsemblProteinId(String ensemblProteinId) {
+        this.ensemblProteinId = ensemblProteinId;
+    }
+
+    public String getEnsemblTranscriptId() {
+        return ensemblTranscriptId;
+    }
+
+    public void setEnsemblTranscriptId(String ensemblTranscriptId) {
+        this.ensemblTranscriptId = ensemblTranscriptId;
+    }
+}
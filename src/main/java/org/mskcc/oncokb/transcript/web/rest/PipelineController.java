@@ -1,11 +1,23 @@
 package org.mskcc.oncokb.transcript.web.rest;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import org.apache.commons.lang3.StringUtils;
+import org.mskcc.oncokb.transcript.config.ApplicationProperties;
+import org.mskcc.oncokb.transcript.domain.enumeration.ReferenceGenome;
+import org.mskcc.oncokb.transcript.importer.EnsemblReleaseImporter;
+import org.mskcc.oncokb.transcript.security.AuthoritiesConstants;
 import org.mskcc.oncokb.transcript.service.GeneService;
 import org.mskcc.oncokb.transcript.service.NcitService;
+import org.mskcc.oncokb.transcript.service.ProteinSequenceIndexService;
+import org.mskcc.oncokb.transcript.web.rest.errors.BadRequestException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 /**
@@ -17,12 +29,24 @@ public class PipelineController {
 
     NcitService ncitService;
     GeneService geneService;
+    EnsemblReleaseImporter ensemblReleaseImporter;
+    ProteinSequenceIndexService proteinSequenceIndexService;
+    ApplicationProperties applicationProperties;
 
     private final Logger log = LoggerFactory.getLogger(PipelineController.class);
 
-    public PipelineController(NcitService ncitService, GeneService geneService) {
+    public PipelineController(
+        NcitService ncitService,
+        GeneService geneService,
+        EnsemblReleaseImporter ensemblReleaseImporter,
+        ProteinSequenceIndexService proteinSequenceIndexService,
+        ApplicationProperties applicationProperties
+    ) {
         this.ncitService = ncitService;
         this.geneService = geneService;
+        this.ensemblReleaseImporter = ensemblReleaseImporter;
+        this.proteinSequenceIndexService = proteinSequenceIndexService;
+        this.applicationProperties = applicationProperties;
     }
 
     @PostMapping("/update-ncit")
@@ -36,4 +60,65 @@ public class PipelineController {
         geneService.updatePortalGenes();
         return new ResponseEntity<>(HttpStatus.OK);
     }
+
+    /**
+     * Import an Ensembl release from files downloaded from its FTP site, on the server. The paths are relative to the
+     * configured {@code application.ensembl.import-directory}.
+     *
+     * @param referenceGenome the reference genome of the release
+     * @param annotationFile  path of the GTF or GFF3 file, e.g. Homo_sapiens.GRCh38.105.gtf.gz
+     * @param peptideFile     path of the peptide file, e.g. Homo_sapiens.GRCh38.pep.all.fa.gz
+     * @param release         the Ensembl release, e.g. 105
+     */
+    @PostMapping("/update-ensembl-release")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<Void> updateEnsemblRelease(
+        @RequestParam ReferenceGenome referenceGenome,
+        @RequestParam String annotationFile,
+        @RequestParam String peptideFile,
+        @RequestParam String release
+    ) throws Exception {
+        Path importDirectory = getImportDirectory();
+        ensemblReleaseImporter.importRelease(
+            referenceGenome,
+            resolveImportFile(importDirectory, annotationFile),
+            resolveImportFile(importDirectory, peptideFile),
+            release
+        );
+        return new ResponseEntity<>(HttpStatus.OK);
+    }
+
+    /**
+     * Rebuild the memory mapped protein sequence file of a reference genome from the sequence table
+     *
+     * @param referenceGenome the reference genome to index
+     */
+    @PostMapping("/update-protein-sequence-index")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<Void> updateProteinSequenceIndex(@RequestParam ReferenceGenome referenceGenome) throws Exception {
+        proteinSequenceIndexService.rebuild(referenceGenome);
+        return new ResponseEntity<>(HttpStatus.OK);
+    }
+
+    private Path getImportDirectory() throws IOException {
+        String importDirectory = null;
+        if (applicationProperties.getEnsembl() != null) {
+            importDirectory = applicationProperties.getEnsembl().getImportDirectory();
+        }
+        if (StringUtils.isEmpty(importDirectory)) {
+            throw new BadRequestException("No Ensembl import directory is configured");
+        }
+        return Paths.get(importDirectory).toRealPath();
+    }
+
+    /**
+     * @return the real path of the file, which has to be in the import directory once links and .. are resolved
+     */
+    private static Path resolveImportFile(Path importDirectory, String file) throws IOException {
+        Path path = importDirectory.resolve(file).normalize();
+        if (!path.startsWith(importDirectory) || !Files.isRegularFile(path) || !path.toRealPath().startsWith(importDirectory)) {
+            throw new BadRequestException("The file " + file + " is not in the Ensembl import directory");
+        }
+        return path.toRealPath();
+    }
 }
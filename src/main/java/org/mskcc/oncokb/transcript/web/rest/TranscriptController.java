@@ -1,7 +1,12 @@
 package org.mskcc.oncokb.transcript.web.rest;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.stream.Collectors;
+import javax.servlet.http.HttpServletResponse;
 import org.genome_nexus.ApiException;
 import org.genome_nexus.client.EnsemblTranscript;
 import org.mskcc.oncokb.transcript.domain.AlignmentResult;
@@ -14,6 +19,7 @@ import org.mskcc.oncokb.transcript.vm.ensembl.EnsemblSequence;
 import org.mskcc.oncokb.transcript.web.rest.model.AddTranscriptBody;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
 
@@ -21,23 +27,31 @@ import org.springframework.web.bind.annotation.*;
 @RequestMapping("/api")
 public class TranscriptController {
 
+    static final String NEXT_AFTER_ID_HEADER = "X-Next-After-Id";
+
     private final Logger log = LoggerFactory.getLogger(TranscriptController.class);
 
     private final AlignmentService alignmentService;
     private final TranscriptService transcriptService;
     private final MainService mainService;
-    private final EnsemblService ensemblService;
+    private final ProteinSequenceService proteinSequenceService;
+    private final SequenceService sequenceService;
+    private final ObjectMapper objectMapper;
 
     public TranscriptController(
         AlignmentService alignmentService,
         TranscriptService transcriptService,
         MainService mainService,
-        EnsemblService ensemblService
+        ProteinSequenceService proteinSequenceService,
+        SequenceService sequenceService,
+        ObjectMapper objectMapper
     ) {
         this.alignmentService = alignmentService;
         this.transcriptService = transcriptService;
         this.mainService = mainService;
-        this.ensemblService = ensemblService;
+        this.proteinSequenceService = proteinSequenceService;
+        this.sequenceService = sequenceService;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping("/compare-transcript/{hugoSymbol}")
@@ -60,7 +74,7 @@ public class TranscriptController {
         Optional<EnsemblSequence> sequenceA = Optional.of(new EnsemblSequence());
         if (ensemblA.isPresent()) {
             sequenceA =
-                ensemblService.getProteinSequence(
+                proteinSequenceService.getProteinSequence(
                     transcriptComparisonVM.getTranscriptA().getReferenceGenome(),
                     ensemblA.get().getProteinId()
                 );
@@ -69,7 +83,7 @@ public class TranscriptController {
         Optional<EnsemblSequence> sequenceB = Optional.of(new EnsemblSequence());
         if (ensemblB.isPresent()) {
             sequenceB =
-                ensemblService.getProteinSequence(
+                proteinSequenceService.getProteinSequence(
                     transcriptComparisonVM.getTranscriptB().getReferenceGenome(),
                     ensemblB.get().getProteinId()
                 );
@@ -122,6 +136,64 @@ public class TranscriptController {
         );
     }
 
+    /**
+     * Get a page of the stored transcripts ordered by id. When there are more, the id to pass as afterId for the next page
+     * is in the {@value #NEXT_AFTER_ID_HEADER} header.
+     *
+     * @param afterId the last id of the previous page, 0 for the first one
+     * @param size    the maximum number of transcripts
+     */
+    @GetMapping("/transcripts")
+    public ResponseEntity<List<TranscriptDTO>> getTranscripts(
+        @RequestParam(defaultValue = "0") long afterId,
+        @RequestParam(defaultValue = "" + TranscriptService.MAX_SLICE_SIZE) int size
+    ) {
+        Slice<TranscriptDTO> transcripts = transcriptService.findAllAfter(afterId, size);
+        HttpHeaders headers = new HttpHeaders();
+        if (transcripts.hasNext()) {
+            headers.add(NEXT_AFTER_ID_HEADER, String.valueOf(lastId(transcripts.getContent())));
+        }
+        return new ResponseEntity<>(transcripts.getContent(), headers, HttpStatus.OK);
+    }
+
+    /**
+     * Export all the stored transcripts as newline delimited JSON, one transcript per line ordered by id.
+     * <p>
+     * The transcripts are read and written one page at a time, each page in its own transaction, and flushed as soon as
+     * it is written. So the response starts right away and the heap does not grow with the number of transcripts.
+     */
+    @GetMapping(value = "/transcripts/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void exportTranscripts(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        OutputStream outputStream = response.getOutputStream();
+        long afterId = 0;
+        Slice<TranscriptDTO> transcripts;
+        do {
+            transcripts = transcriptService.findAllAfter(afterId, TranscriptService.MAX_SLICE_SIZE);
+            for (TranscriptDTO transcriptDTO : transcripts.getContent()) {
+                outputStream.write(objectMapper.writeValueAsBytes(transcriptDTO));
+                outputStream.write('\n');
+            }
+            outputStream.flush();
+            afterId = lastId(transcripts.getContent());
+        } while (transcripts.hasNext());
+    }
+
+    /**
+     * Find the stored transcripts of either reference genome that encode exactly this protein
+     *
+     * @param sequence the protein residues, as a plain text body so that no JSON quotes are hashed with them
+     */
+    @PostMapping(value = "/find-identical-proteins", consumes = MediaType.TEXT_PLAIN_VALUE)
+    public ResponseEntity<List<IdenticalProteinVM>> findIdenticalProteins(@RequestBody String sequence) {
+        return new ResponseEntity<>(sequenceService.findIdenticalProteins(sequence.trim()), HttpStatus.OK);
+    }
+
+    private static long lastId(List<TranscriptDTO> transcripts) {
+        return transcripts.isEmpty() ? 0 : transcripts.get(transcripts.size() - 1).getId();
+    }
+
     private int findMatchedIndex(String sequence, int proteinPosition) {
         int count = 0;
         int matchedIndex = -1;
@@ -192,16 +264,14 @@ public class TranscriptController {
                 ) {
                     allReferenceTranscriptSuggestionVM.getGrch37().setNote("Exact match");
                 } else {
-                    List<EnrichedAlignmentResult> alignmentResults = transcriptService.getAlignmentResult(
+                    List<EnrichedAlignmentResult> belowThresholdPenalty = transcriptService.getAlignmentResult(
                         ReferenceGenome.GRCh37,
                         ensemblTranscriptOptional.get(),
                         ReferenceGenome.GRCh37,
-                        ensembl37Transcripts
+                        ensembl37Transcripts,
+                        PENALTY_THRESHOLD,
+                        Integer.MAX_VALUE
                     );
-                    List<EnrichedAlignmentResult> belowThresholdPenalty = alignmentResults
-                        .stream()
-                        .filter(enrichedAlignmentResult -> enrichedAlignmentResult.getPenalty() <= PENALTY_THRESHOLD)
-                        .collect(Collectors.toList());
                     if (belowThresholdPenalty.size() == 0) {
                         allReferenceTranscriptSuggestionVM.getGrch37().setNote("No easy alignment has been performed.");
                     } else {
@@ -248,16 +318,14 @@ public class TranscriptController {
                 ) {
                     allReferenceTranscriptSuggestionVM.getGrch38().setNote("Exact match");
                 } else {
-                    List<EnrichedAlignmentResult> alignmentResults = transcriptService.getAlignmentResult(
+                    List<EnrichedAlignmentResult> belowThresholdPenalty = transcriptService.getAlignmentResult(
                         ReferenceGenome.GRCh38,
                         ensemblTranscriptOptional.get(),
                         ReferenceGenome.GRCh38,
-                        ensembl38Transcripts
+                        ensembl38Transcripts,
+                        PENALTY_THRESHOLD,
+                        Integer.MAX_VALUE
                     );
-                    List<EnrichedAlignmentResult> belowThresholdPenalty = alignmentResults
-                        .stream()
-                        .filter(enrichedAlignmentResult -> enrichedAlignmentResult.getPenalty() <= PENALTY_THRESHOLD)
-                        .collect(Collectors.toList());
                     if (belowThresholdPenalty.size() == 0) {
                         allReferenceTranscriptSuggestionVM.getGrch38().setNote("No easy alignment has been performed.");
                     } else {
@@ -0,0 +1,77 @@
+package org.mskcc.oncokb.transcript.config.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.google.gson.reflect.TypeToken;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+class RefreshAheadCacheTest {
+
+    private static final Type LIST_TYPE = new TypeToken<List<String>>() {}.getType();
+
+    private final ConcurrentMapCache cache = new ConcurrentMapCache("test");
+    private final List<Runnable> refreshes = new ArrayList<>();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void loadOnceWhileFresh() {
+        RefreshAheadCache refreshAheadCache = new RefreshAheadCache(cache, 60_000, refreshes::add);
+
+        assertThat(refreshAheadCache.<List<String>, RuntimeException>get("GRCh37-BRAF", LIST_TYPE, this::load)).containsExactly("1");
+        assertThat(refreshAheadCache.<List<String>, RuntimeException>get("GRCh37-BRAF", LIST_TYPE, this::load)).containsExactly("1");
+        assertThat(refreshAheadCache.<List<String>, RuntimeException>get("GRCh38-BRAF", LIST_TYPE, this::load)).containsExactly("2");
+
+        assertThat(loads).hasValue(2);
+        assertThat(refreshes).isEmpty();
+    }
+
+    @Test
+    void serveStaleValueWhileRefreshing() {
+        RefreshAheadCache refreshAheadCache = new RefreshAheadCache(cache, -1, refreshes::add);
+
+        refreshAheadCache.<List<String>, RuntimeException>get("GRCh37-BRAF", LIST_TYPE, this::load);
+        assertThat(refreshAheadCache.<List<String>, RuntimeException>get("GRCh37-BRAF", LIST_TYPE, this::load)).containsExactly("1");
+        //Already being refreshed
+        refreshAheadCache.<List<String>, RuntimeException>get("GRCh37-BRAF", LIST_TYPE, this::load);
+        assertThat(refreshes).hasSize(1);
+
+        refreshes.get(0).run();
+        assertThat(refreshAheadCache.<List<String>, RuntimeException>get("GRCh37-BRAF", LIST_TYPE, this::load)).containsExactly("2");
+        assertThat(refreshes).hasSize(2);
+    }
+
+    @Test
+    void keepStaleValueWhenRefreshFails() {
+        RefreshAheadCache refreshAheadCache = new RefreshAheadCache(cache, -1, refreshes::add);
+
+        refreshAheadCache.<List<String>, RuntimeException>get("GRCh37-BRAF", LIST_TYPE, this::load);
+        refreshAheadCache.<List<String>, IOException>get("GRCh37-BRAF", LIST_TYPE, this::fail);
+        refreshes.get(0).run();
+
+        assertThat(refreshAheadCache.<List<String>, RuntimeException>get("GRCh37-BRAF", LIST_TYPE, this::load)).containsExactly("1");
+    }
+
+    @Test
+    void doNotCacheFailedLoad() {
+        RefreshAheadCache refreshAheadCache = new RefreshAheadCache(cache, 60_000, refreshes::add);
+
+        assertThatThrownBy(() -> refreshAheadCache.get("GRCh37-BRAF", LIST_TYPE, this::fail)).isInstanceOf(IOException.class);
+        assertThat(refreshAheadCache.<List<String>, RuntimeException>get("GRCh37-BRAF", LIST_TYPE, this::load)).containsExactly("1");
+    }
+
+    private List<String> load() {
+        return Arrays.asList(Integer.toString(loads.incrementAndGet()));
+    }
+
+    private List<String> fail() throws IOException {
+        throw new IOException("Genome Nexus is down");
+    }
+}
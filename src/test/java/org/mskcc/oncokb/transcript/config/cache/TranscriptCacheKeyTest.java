@@ -0,0 +1,14 @@
+package org.mskcc.oncokb.transcript.config.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class TranscriptCacheKeyTest {
+
+    @Test
+    void of() {
+        assertThat(TranscriptCacheKey.of("GRCh37", "ENST00000269305")).isEqualTo("GRCh37-ENST00000269305");
+        assertThat(TranscriptCacheKey.of("GRCh37", "ENST00000269305")).isNotEqualTo(TranscriptCacheKey.of("GRCh38", "ENST00000269305"));
+    }
+}
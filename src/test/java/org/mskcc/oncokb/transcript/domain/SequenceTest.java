@@ -20,4 +20,19 @@ class SequenceTest {
         sequence1.setId(null);
         assertThat(sequence1).isNotEqualTo(sequence2);
     }
+
+    @Test
+    void fingerprint() {
+        Sequence sequence = new Sequence().sequence("MEEPQSDPSV");
+        //Same as MySQL's md5('MEEPQSDPSV')
+        assertThat(sequence.getSequenceHash()).isEqualTo("39722a2486ea4ce9e180e9e8410629f7");
+        assertThat(sequence.getSequenceLength()).isEqualTo(10);
+
+        assertThat(new Sequence().sequence("MEEPQSDPSV").getSequenceHash()).isEqualTo(sequence.getSequenceHash());
+        assertThat(new Sequence().sequence("MEEPQSDPSA").getSequenceHash()).isNotEqualTo(sequence.getSequenceHash());
+
+        sequence.setSequence(null);
+        assertThat(sequence.getSequenceHash()).isNull();
+        assertThat(sequence.getSequenceLength()).isNull();
+    }
 }
@@ -0,0 +1,129 @@
+package org.mskcc.oncokb.transcript.importer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import org.genome_nexus.ApiException;
+import org.genome_nexus.client.EnsemblTranscript;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mskcc.oncokb.transcript.domain.Gene;
+import org.mskcc.oncokb.transcript.domain.Transcript;
+import org.mskcc.oncokb.transcript.domain.enumeration.ReferenceGenome;
+import org.mskcc.oncokb.transcript.repository.EnsemblGeneRepository;
+import org.mskcc.oncokb.transcript.repository.GeneRepository;
+import org.mskcc.oncokb.transcript.repository.GenomeFragmentRepository;
+import org.mskcc.oncokb.transcript.repository.SequenceRepository;
+import org.mskcc.oncokb.transcript.repository.TranscriptRepository;
+import org.mskcc.oncokb.transcript.service.GenomeNexusService;
+import org.mskcc.oncokb.transcript.service.TranscriptService;
+import org.springframework.transaction.PlatformTransactionManager;
+
+class EnsemblReleaseImporterTest {
+
+    @TempDir
+    Path directory;
+
+    private GenomeNexusService genomeNexusService;
+    private List<Transcript> savedTranscripts;
+    private EnsemblReleaseImporter ensemblReleaseImporter;
+
+    @BeforeEach
+    public void setUp() {
+        EnsemblGeneRepository ensemblGeneRepository = mock(EnsemblGeneRepository.class);
+        when(ensemblGeneRepository.findAllByReferenceGenomeAndEnsemblGeneIdIn(anyString(), anyList())).thenReturn(new ArrayList<>());
+        when(ensemblGeneRepository.findCanonicalEnsemblGene(anyInt(), anyString())).thenReturn(Optional.empty());
+        when(ensemblGeneRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        GeneRepository geneRepository = mock(GeneRepository.class);
+        when(geneRepository.findByHugoSymbol("TP53")).thenReturn(Optional.of(new Gene().id(1L).entrezGeneId(7157).hugoSymbol("TP53")));
+        savedTranscripts = new ArrayList<>();
+        TranscriptRepository transcriptRepository = mock(TranscriptRepository.class);
+        when(transcriptRepository.save(any()))
+            .thenAnswer(invocation -> {
+                savedTranscripts.add(invocation.getArgument(0));
+                return invocation.getArgument(0);
+            });
+        genomeNexusService = mock(GenomeNexusService.class);
+        ensemblReleaseImporter =
+            new EnsemblReleaseImporter(
+                ensemblGeneRepository,
+                geneRepository,
+                transcriptRepository,
+                mock(GenomeFragmentRepository.class),
+                mock(SequenceRepository.class),
+                mock(TranscriptService.class),
+                genomeNexusService,
+                mock(PlatformTransactionManager.class)
+            );
+    }
+
+    @Test
+    void takeGrch37CanonicalTranscriptFromGenomeNexus() throws Exception {
+        EnsemblTranscript canonical = new EnsemblTranscript();
+        canonical.setTranscriptId("ENST00000269305");
+        when(genomeNexusService.findCanonicalEnsemblTranscript(ReferenceGenome.GRCh37, "TP53")).thenReturn(canonical);
+
+        importRelease(ReferenceGenome.GRCh37);
+
+        assertThat(getCanonical()).containsEntry("ENST00000269305", true).containsEntry("ENST00000413465", false);
+    }
+
+    @Test
+    void noGrch37CanonicalTranscriptWhenGenomeNexusFails() throws Exception {
+        when(genomeNexusService.findCanonicalEnsemblTranscript(ReferenceGenome.GRCh37, "TP53")).thenThrow(new ApiException("timeout"));
+
+        importRelease(ReferenceGenome.GRCh37);
+
+        assertThat(getCanonical()).containsEntry("ENST00000269305", false).containsEntry("ENST00000413465", false);
+    }
+
+    @Test
+    void takeGrch38CanonicalTranscriptFromTag() throws Exception {
+        importRelease(ReferenceGenome.GRCh38);
+
+        assertThat(getCanonical()).containsEntry("ENST00000269305", false).containsEntry("ENST00000413465", true);
+        verifyNoInteractions(genomeNexusService);
+    }
+
+    private void importRelease(ReferenceGenome referenceGenome) throws Exception {
+        //The tag is only in the GRCh38 files, it is on the transcript Genome Nexus does not pick to tell them apart
+        String gtf = String.join(
+            "\n",
+            gtfLine("exon", 7571720, 7573008, "ENST00000269305", ""),
+            gtfLine("exon", 7572000, 7590856, "ENST00000413465", " tag \"Ensembl_canonical\";")
+        );
+        Path annotationFile = Files.writeString(directory.resolve("Homo_sapiens.gtf"), gtf, StandardCharsets.UTF_8);
+        Path peptideFile = Files.writeString(directory.resolve("Homo_sapiens.pep.all.fa"), "", StandardCharsets.UTF_8);
+
+        ensemblReleaseImporter.importRelease(referenceGenome, annotationFile, peptideFile, "105");
+    }
+
+    private Map<String, Boolean> getCanonical() {
+        return savedTranscripts.stream().collect(Collectors.toMap(Transcript::getEnsemblTranscriptId, Transcript::getCanonical));
+    }
+
+    private static String gtfLine(String type, int start, int end, String transcript, String extra) {
+        return String.join(
+            "\t",
+            "17",
+            "ensembl_havana",
+            type,
+            String.valueOf(start),
+            String.valueOf(end),
+            ".",
+            "-",
+            ".",
+            "gene_id \"ENSG00000141510\"; transcript_id \"" + transcript + "\"; gene_name \"TP53\";" + extra
+        );
+    }
+}
@@ -0,0 +1,123 @@
+package org.mskcc.oncokb.transcript.importer.ensembl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class GeneModelReaderTest {
+
+    @Test
+    void readGtfWithoutUtrLines() throws Exception {
+        //As in the GRCh37 GTF files: no gene or transcript lines, and the stop codon outside the CDS
+        String gtf = String.join(
+            "\n",
+            "#!genome-build GRCh37.p13",
+            gtfLine("exon", 200, 300, "-", "ENSG1", "ENST1", "GENE1", ""),
+            gtfLine("CDS", 200, 250, "-", "ENSG1", "ENST1", "GENE1", " protein_id \"ENSP1\";"),
+            gtfLine("exon", 100, 150, "-", "ENSG1", "ENST1", "GENE1", ""),
+            gtfLine("CDS", 130, 150, "-", "ENSG1", "ENST1", "GENE1", " protein_id \"ENSP1\";"),
+            gtfLine("stop_codon", 127, 129, "-", "ENSG1", "ENST1", "GENE1", ""),
+            gtfLine("exon", 500, 600, "+", "ENSG2", "ENST2", "GENE2", "")
+        );
+
+        GeneModelReader reader = new GeneModelReader(
+            new ByteArrayInputStream(gtf.getBytes(StandardCharsets.UTF_8)),
+            GeneModelReader.Format.GTF
+        );
+        GeneModel first = reader.next();
+        GeneModel second = reader.next();
+
+        assertThat(reader.next()).isNull();
+        assertThat(first.getGeneId()).isEqualTo("ENSG1");
+        assertThat(first.getGeneName()).isEqualTo("GENE1");
+        assertThat(first.getStart()).isEqualTo(100);
+        assertThat(first.getEnd()).isEqualTo(300);
+        assertThat(first.getStrand()).isEqualTo(-1);
+
+        GeneModel.TranscriptModel transcript = first.getTranscripts().get(0);
+        assertThat(transcript.getProteinId()).isEqualTo("ENSP1");
+        assertThat(describe(transcript)).containsExactlyInAnyOrder(
+            "EXON:200-300",
+            "EXON:100-150",
+            "FIVE_PRIME_UTR:251-300",
+            "THREE_PRIME_UTR:100-126"
+        );
+        assertThat(second.getTranscripts().get(0).getProteinId()).isNull();
+        assertThat(describe(second.getTranscripts().get(0))).containsExactly("EXON:500-600");
+    }
+
+    @Test
+    void readGff3() throws Exception {
+        String gff3 = String.join(
+            "\n",
+            "##gff-version 3",
+            "17\tensembl_havana\tgene\t100\t400\t.\t+\t.\tID=gene:ENSG1;Name=GENE1;biotype=protein_coding",
+            "17\tensembl_havana\tmRNA\t100\t400\t.\t+\t.\tID=transcript:ENST1;Parent=gene:ENSG1;tag=basic,Ensembl_canonical",
+            "17\tensembl_havana\tfive_prime_UTR\t100\t119\t.\t+\t.\tParent=transcript:ENST1",
+            "17\tensembl_havana\texon\t100\t400\t.\t+\t.\tParent=transcript:ENST1;Name=ENSE1",
+            "17\tensembl_havana\tCDS\t120\t380\t.\t+\t0\tID=CDS:ENSP1;Parent=transcript:ENST1;protein_id=ENSP1",
+            "17\tensembl_havana\tthree_prime_UTR\t381\t400\t.\t+\t.\tParent=transcript:ENST1",
+            "17\tensembl_havana\tlnc_RNA\t150\t300\t.\t+\t.\tID=transcript:ENST2;Parent=gene:ENSG1",
+            "17\tensembl_havana\texon\t150\t300\t.\t+\t.\tParent=transcript:ENST2",
+            "###"
+        );
+
+        GeneModelReader reader = new GeneModelReader(
+            new ByteArrayInputStream(gff3.getBytes(StandardCharsets.UTF_8)),
+            GeneModelReader.Format.GFF3
+        );
+        GeneModel gene = reader.next();
+
+        assertThat(reader.next()).isNull();
+        assertThat(gene.getGeneId()).isEqualTo("ENSG1");
+        assertThat(gene.getGeneName()).isEqualTo("GENE1");
+        assertThat(gene.getTranscripts()).hasSize(2);
+
+        GeneModel.TranscriptModel canonical = gene.getTranscripts().get(0);
+        assertThat(canonical.getTranscriptId()).isEqualTo("ENST1");
+        assertThat(canonical.isCanonical()).isTrue();
+        assertThat(canonical.getProteinId()).isEqualTo("ENSP1");
+        assertThat(describe(canonical)).containsExactly("FIVE_PRIME_UTR:100-119", "EXON:100-400", "THREE_PRIME_UTR:381-400");
+
+        GeneModel.TranscriptModel nonCoding = gene.getTranscripts().get(1);
+        assertThat(nonCoding.isCanonical()).isFalse();
+        assertThat(nonCoding.getStart()).isEqualTo(150);
+        assertThat(describe(nonCoding)).containsExactly("EXON:150-300");
+    }
+
+    private static String gtfLine(
+        String type,
+        int start,
+        int end,
+        String strand,
+        String gene,
+        String transcript,
+        String name,
+        String extra
+    ) {
+        return String.join(
+            "\t",
+            "17",
+            "ensembl",
+            type,
+            String.valueOf(start),
+            String.valueOf(end),
+            ".",
+            strand,
+            ".",
+            "gene_id \"" + gene + "\"; transcript_id \"" + transcript + "\"; gene_name \"" + name + "\";" + extra
+        );
+    }
+
+    private static List<String> describe(GeneModel.TranscriptModel transcript) {
+        return transcript
+            .getFeatures()
+            .stream()
+            .map(feature -> feature.getType() + ":" + feature.getStart() + "-" + feature.getEnd())
+            .collect(Collectors.toList());
+    }
+}
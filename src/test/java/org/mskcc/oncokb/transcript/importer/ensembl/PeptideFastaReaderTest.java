@@ -0,0 +1,32 @@
+package org.mskcc.oncokb.transcript.importer.ensembl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+class PeptideFastaReaderTest {
+
+    @Test
+    void readEntries() throws Exception {
+        String fasta = String.join(
+            "\n",
+            ">ENSP00000269305.4 pep chromosome:GRCh38:17:7661779:7687538:-1 gene:ENSG00000141510.18",
+            "MEEPQSDPSV",
+            "EPPLSQETFS",
+            ">ENSP00000288602 pep chromosome:GRCh37:7:140424943:140624564:-1",
+            "MAALSGGGGG"
+        );
+
+        PeptideFastaReader reader = new PeptideFastaReader(new ByteArrayInputStream(fasta.getBytes(StandardCharsets.UTF_8)));
+        PeptideFastaReader.Entry first = reader.next();
+        PeptideFastaReader.Entry second = reader.next();
+
+        assertThat(reader.next()).isNull();
+        assertThat(first.getProteinId()).isEqualTo("ENSP00000269305");
+        assertThat(first.getSequence()).isEqualTo("MEEPQSDPSVEPPLSQETFS");
+        assertThat(second.getProteinId()).isEqualTo("ENSP00000288602");
+        assertThat(second.getSequence()).isEqualTo("MAALSGGGGG");
+    }
+}
@@ -0,0 +1,252 @@
+package org.mskcc.oncokb.transcript.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mskcc.oncokb.transcript.domain.AlignmentResult;
+import org.mskcc.oncokb.transcript.service.alignment.ScoringScheme;
+
+class AlignmentServiceTest {
+
+    private AlignmentService alignmentService;
+
+    @BeforeEach
+    public void setUp() {
+        alignmentService = new AlignmentService();
+    }
+
+    @Test
+    void alignIdenticalSequences() {
+        AlignmentResult alignmentResult = alignmentService.calcOptimalAlignment("MEEPQSDPSV", "MEEPQSDPSV", false);
+        assertThat(alignmentResult.getPenalty()).isZero();
+        assertThat(alignmentResult.getRefSeq()).isEqualTo("MEEPQSDPSV");
+        assertThat(alignmentResult.getTargetSeq()).isEqualTo("MEEPQSDPSV");
+    }
+
+    @Test
+    void alignSequencesWithGapAndMismatch() {
+        AlignmentResult alignmentResult = alignmentService.calcOptimalAlignment("MEEPQSDPSV", "MEEQSDPAV", false);
+        assertThat(alignmentResult.getPenalty()).isEqualTo(5);
+        assertThat(alignmentResult.getRefSeq()).isEqualTo("MEEPQSDPSV");
+        assertThat(alignmentResult.getTargetSeq()).isEqualTo("MEE_QSDPAV");
+    }
+
+    @Test
+    void alignConcurrently() throws Exception {
+        String reference = "MEEPQSDPSVEPPLSQETFSDLWKLLPENNVLSPLPSQAMDDLMLSPDDIEQWFTEDPGP";
+        List<String> targets = new ArrayList<>();
+        for (int i = 1; i < reference.length(); i++) {
+            targets.add(reference.substring(0, i) + reference.substring(i + 1));
+        }
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<AlignmentResult>> futures = new ArrayList<>();
+            for (String target : targets) {
+                futures.add(executorService.submit(() -> alignmentService.calcOptimalAlignment(reference, target, false)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                AlignmentResult alignmentResult = futures.get(i).get();
+                assertThat(alignmentResult.getPenalty()).isEqualTo(2);
+                assertThat(alignmentResult.getRefSeq()).isEqualTo(reference);
+                assertThat(alignmentResult.getTargetSeq().replace(AlignmentService.GAP_CHAR, "")).isEqualTo(targets.get(i));
+            }
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    void alignWithLinearMemory() {
+        AlignmentService linearMemoryAlignmentService = new AlignmentService(2, 1, 1, 3, 1, 0);
+        Random random = new Random(0);
+        for (int i = 0; i < 20; i++) {
+            String reference = randomProtein(random, 200 + random.nextInt(800));
+            String target = mutate(random, reference, random.nextInt(30));
+
+            AlignmentResult expected = alignmentService.calcOptimalAlignment(reference, target, false);
+            AlignmentResult alignmentResult = linearMemoryAlignmentService.calcOptimalAlignment(reference, target, false);
+            assertThat(alignmentResult.getPenalty()).isEqualTo(expected.getPenalty());
+            assertThat(alignmentResult.getRefSeq()).hasSameSizeAs(alignmentResult.getTargetSeq());
+            assertThat(alignmentResult.getRefSeq().replace(AlignmentService.GAP_CHAR, "")).isEqualTo(reference);
+            assertThat(alignmentResult.getTargetSeq().replace(AlignmentService.GAP_CHAR, "")).isEqualTo(target);
+        }
+    }
+
+    @Test
+    void calcMinimumPenalty() {
+        Random random = new Random(1);
+        for (int i = 0; i < 20; i++) {
+            String reference = randomProtein(random, random.nextInt(500));
+            String target = random.nextBoolean()
+                ? mutate(random, reference, random.nextInt(30))
+                : randomProtein(random, random.nextInt(500));
+            assertThat(alignmentService.calcMinimumPenalty(reference, target))
+                .isEqualTo(alignmentService.calcOptimalAlignment(reference, target, false).getPenalty());
+        }
+    }
+
+    @Test
+    void alignWithinPenalty() {
+        Random random = new Random(2);
+        for (int i = 0; i < 50; i++) {
+            String reference = randomProtein(random, 1 + random.nextInt(500));
+            String target = mutate(random, reference, random.nextInt(6));
+            int maxPenalty = random.nextInt(12);
+
+            AlignmentResult expected = alignmentService.calcOptimalAlignment(reference, target, false);
+            Optional<AlignmentResult> alignmentResult = alignmentService.calcOptimalAlignment(reference, target, maxPenalty);
+            if (expected.getPenalty() <= maxPenalty) {
+                assertThat(alignmentResult).isPresent();
+                assertThat(alignmentResult.get().getPenalty()).isEqualTo(expected.getPenalty());
+                assertThat(alignmentResult.get().getRefSeq().replace(AlignmentService.GAP_CHAR, "")).isEqualTo(reference);
+                assertThat(alignmentResult.get().getTargetSeq().replace(AlignmentService.GAP_CHAR, "")).isEqualTo(target);
+            } else {
+                assertThat(alignmentResult).isEmpty();
+            }
+        }
+    }
+
+    @Test
+    void alignTrimmedCore() {
+        String prefix = "MEEPQSDPSVEPPLSQETFSDLWKLLPENNVLSPLPSQAMDDLMLSPDDIEQWFTEDPGP";
+        String suffix = "DEAPRMPEAAPPVAPAPAAPTPAAPAPAPSWPLSSSVPSQKTYQGSYGFRLGFLHSGTAK";
+        AlignmentResult alignmentResult = alignmentService.calcOptimalAlignment(prefix + "KRQ" + suffix, prefix + "W" + suffix, false);
+        assertThat(alignmentResult.getPenalty()).isEqualTo(7);
+        assertThat(alignmentResult.getRefSeq()).isEqualTo(prefix + "KRQ" + suffix);
+        assertThat(alignmentResult.getTargetSeq().replace(AlignmentService.GAP_CHAR, "")).isEqualTo(prefix + "W" + suffix);
+        assertThat(alignmentResult.getRefCoreStart()).isEqualTo(prefix.length());
+        assertThat(alignmentResult.getRefCoreEnd()).isEqualTo(prefix.length() + 3);
+        assertThat(alignmentResult.getTargetCoreStart()).isEqualTo(prefix.length());
+        assertThat(alignmentResult.getTargetCoreEnd()).isEqualTo(prefix.length() + 1);
+
+        Optional<AlignmentResult> bandedAlignmentResult = alignmentService.calcOptimalAlignment(
+            prefix + "KRQ" + suffix,
+            prefix + "W" + suffix,
+            7
+        );
+        assertThat(bandedAlignmentResult).isPresent();
+        assertThat(bandedAlignmentResult.get().getRefCoreEnd()).isEqualTo(prefix.length() + 3);
+        assertThat(alignmentService.calcMinimumPenalty(prefix + "KRQ" + suffix, prefix + "W" + suffix)).isEqualTo(7);
+    }
+
+    @Test
+    void alignWithAffineGaps() {
+        AlignmentService affineAlignmentService = new AlignmentService(ScoringScheme.identity().withGapPenalties(3, 1), 0);
+        AlignmentResult alignmentResult = affineAlignmentService.calcOptimalAlignment("MEEPKKKQSDPSV", "MEEPQSDPSV", false);
+        //one gap of three residues is cheaper than three gaps of one
+        assertThat(alignmentResult.getPenalty()).isEqualTo(6);
+        assertThat(alignmentResult.getTargetSeq()).isEqualTo("MEEP___QSDPSV");
+        assertThat(affineAlignmentService.calcMinimumPenalty("MEEPKKKQSDPSV", "MEEPQSDPSV")).isEqualTo(6);
+        assertThat(affineAlignmentService.calcOptimalAlignment("MEEPKKKQSDPSV", "MEEPQSDPSV", 6)).isPresent();
+        assertThat(affineAlignmentService.calcOptimalAlignment("MEEPKKKQSDPSV", "MEEPQSDPSV", 5)).isEmpty();
+    }
+
+    @Test
+    void alignWithSubstitutionMatrix() {
+        AlignmentService blosumAlignmentService = new AlignmentService(
+            ScoringScheme.blosum62(),
+            AlignmentService.DEFAULT_LINEAR_MEMORY_THRESHOLD
+        );
+        //I and V are similar, I and W are not
+        assertThat(blosumAlignmentService.calcMinimumPenalty("MEEPISDPSV", "MEEPVSDPSV"))
+            .isLessThan(blosumAlignmentService.calcMinimumPenalty("MEEPISDPSV", "MEEPWSDPSV"));
+        assertThat(blosumAlignmentService.calcOptimalAlignment("MEEPISDPSV", "MEEPVSDPSV", false).getTargetSeq()).isEqualTo("MEEPVSDPSV");
+    }
+
+    @Test
+    void calcEditDistance() {
+        AlignmentService identityAlignmentService = new AlignmentService(
+            ScoringScheme.identity(),
+            AlignmentService.DEFAULT_LINEAR_MEMORY_THRESHOLD
+        );
+        Random random = new Random(3);
+        for (int i = 0; i < 20; i++) {
+            //long enough to span several 64 bit words
+            String reference = randomProtein(random, random.nextInt(300));
+            String target = random.nextBoolean()
+                ? mutate(random, reference, random.nextInt(30))
+                : randomProtein(random, random.nextInt(300));
+            int editDistance = alignmentService.calcEditDistance(reference, target);
+            assertThat(editDistance).isEqualTo(identityAlignmentService.calcMinimumPenalty(reference, target));
+            assertThat(alignmentService.calcPenaltyLowerBound(reference, target))
+                .isLessThanOrEqualTo(alignmentService.calcMinimumPenalty(reference, target));
+        }
+    }
+
+    @Test
+    void calcOptimalAlignments() {
+        Random random = new Random(4);
+        String reference = randomProtein(random, 400);
+        List<Pair<Integer, String>> targets = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            targets.add(Pair.of(i, mutate(random, reference, random.nextInt(40))));
+        }
+
+        List<Pair<Integer, AlignmentResult>> alignmentResults = alignmentService.calcOptimalAlignments(
+            reference,
+            targets,
+            Integer.MAX_VALUE,
+            5
+        );
+        List<Integer> expectedPenalties = targets
+            .stream()
+            .map(target -> alignmentService.calcMinimumPenalty(reference, target.getValue()))
+            .sorted()
+            .limit(5)
+            .collect(Collectors.toList());
+        assertThat(alignmentResults.stream().map(result -> result.getValue().getPenalty()).collect(Collectors.toList()))
+            .isEqualTo(expectedPenalties);
+        for (Pair<Integer, AlignmentResult> alignmentResult : alignmentResults) {
+            assertThat(alignmentResult.getValue().getTargetSeq().replace(AlignmentService.GAP_CHAR, ""))
+                .isEqualTo(targets.get(alignmentResult.getKey()).getValue());
+        }
+
+        int maxPenalty = expectedPenalties.get(2);
+        long withinPenalty = targets
+            .stream()
+            .filter(target -> alignmentService.calcMinimumPenalty(reference, target.getValue()) <= maxPenalty)
+            .count();
+        assertThat(alignmentService.calcOptimalAlignments(reference, targets, maxPenalty, Integer.MAX_VALUE))
+            .allMatch(result -> result.getValue().getPenalty() <= maxPenalty)
+            .hasSize((int) withinPenalty);
+    }
+
+    private static final String AMINO_ACIDS = "ACDEFGHIKLMNPQRSTVWY";
+
+    private static String randomProtein(Random random, int length) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(AMINO_ACIDS.charAt(random.nextInt(AMINO_ACIDS.length())));
+        }
+        return sb.toString();
+    }
+
+    private static String mutate(Random random, String sequence, int edits) {
+        StringBuilder sb = new StringBuilder(sequence);
+        for (int i = 0; i < edits; i++) {
+            int position = random.nextInt(sb.length() + 1);
+            switch (position == sb.length() ? 2 : random.nextInt(3)) {
+                case 0:
+                    sb.setCharAt(position, AMINO_ACIDS.charAt(random.nextInt(AMINO_ACIDS.length())));
+                    break;
+                case 1:
+                    sb.deleteCharAt(position);
+                    break;
+                default:
+                    sb.insert(position, AMINO_ACIDS.charAt(random.nextInt(AMINO_ACIDS.length())));
+                    break;
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,114 @@
+package org.mskcc.oncokb.transcript.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mskcc.oncokb.transcript.domain.EnsemblGene;
+import org.mskcc.oncokb.transcript.domain.Gene;
+import org.mskcc.oncokb.transcript.domain.enumeration.ReferenceGenome;
+import org.mskcc.oncokb.transcript.repository.EnsemblGeneRepository;
+import org.mskcc.oncokb.transcript.vm.ensembl.EnsemblTranscript;
+
+class EnsemblGeneServiceTest {
+
+    private static final Gene BRAF = new Gene().id(1L).entrezGeneId(673).hugoSymbol("BRAF");
+    private static final Gene TP53 = new Gene().id(2L).entrezGeneId(7157).hugoSymbol("TP53");
+    private static final List<Integer> IDS = Arrays.asList(673, 7157);
+
+    private EnsemblGeneRepository ensemblGeneRepository;
+    private GenomeNexusService genomeNexusService;
+    private TranscriptService transcriptService;
+    private EnsemblGeneService ensemblGeneService;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        ensemblGeneRepository = mock(EnsemblGeneRepository.class);
+        when(ensemblGeneRepository.findCanonicalEnsemblGene(anyInt(), anyString())).thenReturn(Optional.empty());
+        when(ensemblGeneRepository.findAllByGeneAndReferenceGenome(any(), anyString())).thenReturn(new ArrayList<>());
+        when(ensemblGeneRepository.findAllByReferenceGenomeAndEnsemblGeneIdIn(anyString(), anyList())).thenReturn(new ArrayList<>());
+        when(ensemblGeneRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        genomeNexusService = mock(GenomeNexusService.class);
+        when(genomeNexusService.findCanonicalEnsemblGeneTranscript(eq(ReferenceGenome.GRCh37), anyList()))
+            .thenReturn(Arrays.asList(ensemblGeneGN("ENSG00000157764", "673"), ensemblGeneGN("ENSG00000141510", "7157")));
+        transcriptService = mock(TranscriptService.class);
+        when(transcriptService.getEnsemblTranscriptIds(eq(ReferenceGenome.GRCh37), anyList(), eq(false), eq(false)))
+            .thenReturn(new ArrayList<>());
+        GeneService geneService = mock(GeneService.class);
+        when(geneService.findGeneByEntrezGeneId(673)).thenReturn(Optional.of(BRAF));
+        when(geneService.findGeneByEntrezGeneId(7157)).thenReturn(Optional.of(TP53));
+        ensemblGeneService = new EnsemblGeneService(ensemblGeneRepository, genomeNexusService, transcriptService, geneService);
+    }
+
+    @Test
+    void skipGenesWithCanonicalEnsemblGene() throws Exception {
+        EnsemblGene canonical = new EnsemblGene().id(1L).ensemblGeneId("ENSG00000157764").canonical(true).gene(BRAF);
+        when(ensemblGeneRepository.findCanonicalEnsemblGene(673, "GRCh37")).thenReturn(Optional.of(canonical));
+        when(ensemblGeneRepository.findCanonicalEnsemblGene(7157, "GRCh37"))
+            .thenReturn(Optional.of(new EnsemblGene().id(2L).ensemblGeneId("ENSG00000141510").canonical(true).gene(TP53)));
+
+        List<EnsemblGene> saved = ensemblGeneService.saveByReferenceGenomeAndEntrezGeneIds(ReferenceGenome.GRCh37, IDS);
+
+        assertThat(saved).isEmpty();
+        verify(ensemblGeneRepository, never()).save(any());
+        verify(transcriptService).getEnsemblTranscriptIds(ReferenceGenome.GRCh37, Collections.emptyList(), false, false);
+    }
+
+    @Test
+    void promoteStoredEnsemblGene() throws Exception {
+        EnsemblGene stored = ensemblGene(1L, "ENSG00000157764", false, BRAF);
+        when(ensemblGeneRepository.findAllByReferenceGenomeAndEnsemblGeneIdIn(eq("GRCh37"), anyList()))
+            .thenReturn(Collections.singletonList(stored));
+
+        List<EnsemblGene> saved = ensemblGeneService.saveByReferenceGenomeAndEntrezGeneIds(ReferenceGenome.GRCh37, IDS);
+
+        assertThat(saved).containsExactly(stored);
+        assertThat(stored.getCanonical()).isTrue();
+        verify(ensemblGeneRepository).save(stored);
+        //Only the Ensembl gene that is not stored yet is looked up
+        verify(transcriptService)
+            .getEnsemblTranscriptIds(ReferenceGenome.GRCh37, Collections.singletonList("ENSG00000141510"), false, false);
+    }
+
+    @Test
+    void saveNewEnsemblGeneAsCanonicalAndDemotePreviousOne() throws Exception {
+        EnsemblGene previous = ensemblGene(3L, "ENSG00000000001", true, TP53);
+        when(ensemblGeneRepository.findAllByGeneAndReferenceGenome(TP53, "GRCh37")).thenReturn(Collections.singletonList(previous));
+        EnsemblTranscript tp53 = new EnsemblTranscript();
+        tp53.setId("ENSG00000141510");
+        tp53.setSeqRegionName("17");
+        tp53.setStart(7661779);
+        tp53.setEnd(7687538);
+        tp53.setStrand(-1);
+        when(transcriptService.getEnsemblTranscriptIds(eq(ReferenceGenome.GRCh37), anyList(), eq(false), eq(false)))
+            .thenReturn(Collections.singletonList(tp53));
+
+        List<EnsemblGene> saved = ensemblGeneService.saveByReferenceGenomeAndEntrezGeneIds(ReferenceGenome.GRCh37, IDS);
+
+        assertThat(saved).hasSize(1);
+        assertThat(saved.get(0).getEnsemblGeneId()).isEqualTo("ENSG00000141510");
+        assertThat(saved.get(0).getCanonical()).isTrue();
+        assertThat(saved.get(0).getGene()).isSameAs(TP53);
+        assertThat(saved.get(0).getChromosome()).isEqualTo("17");
+        assertThat(previous.getCanonical()).isFalse();
+        verify(ensemblGeneRepository).save(previous);
+    }
+
+    private static EnsemblGene ensemblGene(Long id, String ensemblGeneId, boolean canonical, Gene gene) {
+        return new EnsemblGene().id(id).referenceGenome("GRCh37").ensemblGeneId(ensemblGeneId).canonical(canonical).gene(gene);
+    }
+
+    private static org.genome_nexus.client.EnsemblGene ensemblGeneGN(String ensemblGeneId, String entrezGeneId) {
+        org.genome_nexus.client.EnsemblGene ensemblGene = new org.genome_nexus.client.EnsemblGene();
+        ensemblGene.setGeneId(ensemblGeneId);
+        ensemblGene.setEntrezGeneId(entrezGeneId);
+        return ensemblGene;
+    }
+}
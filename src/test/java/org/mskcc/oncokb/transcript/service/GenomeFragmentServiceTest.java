@@ -0,0 +1,68 @@
+package org.mskcc.oncokb.transcript.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mskcc.oncokb.transcript.domain.GenomeFragment;
+import org.mskcc.oncokb.transcript.domain.Transcript;
+import org.mskcc.oncokb.transcript.domain.enumeration.GenomeFragmentType;
+import org.mskcc.oncokb.transcript.repository.GenomeFragmentRepository;
+
+class GenomeFragmentServiceTest {
+
+    private final Transcript transcript = new Transcript().id(1L);
+
+    private GenomeFragmentRepository genomeFragmentRepository;
+    private GenomeFragmentService genomeFragmentService;
+
+    @BeforeEach
+    public void setUp() {
+        genomeFragmentRepository = mock(GenomeFragmentRepository.class);
+        genomeFragmentService = new GenomeFragmentService(genomeFragmentRepository);
+        when(genomeFragmentRepository.findAllByTranscriptId(1L))
+            .thenReturn(Arrays.asList(gene().id(10L).transcript(transcript), exon(140719327, 140726516).id(11L).transcript(transcript)));
+    }
+
+    @Test
+    void replaceUnchangedFragments() {
+        assertThat(genomeFragmentService.replaceAllByTranscript(transcript, Arrays.asList(gene(), exon(140719327, 140726516)))).isFalse();
+
+        verify(genomeFragmentRepository, never()).deleteAll(any());
+        verify(genomeFragmentRepository, never()).saveAll(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void replaceChangedFragments() {
+        assertThat(genomeFragmentService.replaceAllByTranscript(transcript, Arrays.asList(gene(), exon(140734597, 140734770).id(11L))))
+            .isTrue();
+
+        ArgumentCaptor<Iterable<GenomeFragment>> removed = ArgumentCaptor.forClass(Iterable.class);
+        verify(genomeFragmentRepository).deleteAll(removed.capture());
+        assertThat(removed.getValue()).extracting(GenomeFragment::getId).containsExactly(11L);
+
+        ArgumentCaptor<Collection<GenomeFragment>> added = ArgumentCaptor.forClass(Collection.class);
+        verify(genomeFragmentRepository).saveAll(added.capture());
+        List<GenomeFragment> addedFragments = new ArrayList<>(added.getValue());
+        assertThat(addedFragments).hasSize(1);
+        assertThat(addedFragments.get(0).getId()).isNull();
+        assertThat(addedFragments.get(0).getStart()).isEqualTo(140734597);
+        assertThat(addedFragments.get(0).getTranscript()).isSameAs(transcript);
+    }
+
+    private static GenomeFragment gene() {
+        return new GenomeFragment().type(GenomeFragmentType.GENE).chromosome("7").start(140719327).end(140924929).strand(-1);
+    }
+
+    private static GenomeFragment exon(int start, int end) {
+        return new GenomeFragment().type(GenomeFragmentType.EXON).chromosome("7").start(start).end(end).strand(-1);
+    }
+}
@@ -0,0 +1,126 @@
+package org.mskcc.oncokb.transcript.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mskcc.oncokb.transcript.config.ApplicationProperties;
+import org.mskcc.oncokb.transcript.config.model.SequenceIndexConfig;
+import org.mskcc.oncokb.transcript.domain.enumeration.ReferenceGenome;
+import org.mskcc.oncokb.transcript.domain.enumeration.SequenceType;
+import org.mskcc.oncokb.transcript.repository.SequenceRepository;
+import org.mskcc.oncokb.transcript.repository.SequenceRepository.ProteinSequence;
+import org.springframework.data.domain.SliceImpl;
+
+class ProteinSequenceIndexServiceTest {
+
+    private static final String BRAF = "ENSP00000288602";
+    private static final String TP53 = "ENSP00000269305";
+
+    @TempDir
+    Path directory;
+
+    private SequenceRepository sequenceRepository;
+
+    @BeforeEach
+    public void setUp() {
+        sequenceRepository = mock(SequenceRepository.class);
+        //Built before stubbing the repository, the sequences are mocks themselves
+        List<ProteinSequence> sequences = Arrays.asList(proteinSequence(BRAF, "MAALSGG"), proteinSequence(TP53, "MEEPQSD"));
+        when(sequenceRepository.findProteinSequences(eq("GRCh37"), eq(SequenceType.PROTEIN), any())).thenReturn(new SliceImpl<>(sequences));
+        when(sequenceRepository.findMaxProteinSequenceId("GRCh37", SequenceType.PROTEIN)).thenReturn(10L);
+    }
+
+    @Test
+    void serveRebuiltIndex() throws Exception {
+        ProteinSequenceIndexService proteinSequenceIndexService = createService(directory.toString());
+
+        assertThat(proteinSequenceIndexService.rebuild(ReferenceGenome.GRCh37)).isEqualTo(2);
+
+        assertThat(proteinSequenceIndexService.contains(ReferenceGenome.GRCh37, BRAF)).isTrue();
+        assertThat(proteinSequenceIndexService.residueAt(ReferenceGenome.GRCh37, TP53, 2)).contains('E');
+        assertThat(Files.readAllLines(directory.resolve("GRCh37.protein.fa.stamp"))).containsExactly("10");
+        verify(sequenceRepository, never()).findProteinIdsWithIdGreaterThan(any(), any(), any());
+    }
+
+    @Test
+    void dropProteinsStoredAfterTheStamp() throws Exception {
+        ProteinSequenceIndexService proteinSequenceIndexService = createService(directory.toString());
+        proteinSequenceIndexService.rebuild(ReferenceGenome.GRCh37);
+        when(sequenceRepository.findMaxProteinSequenceId("GRCh37", SequenceType.PROTEIN)).thenReturn(12L);
+        when(sequenceRepository.findProteinIdsWithIdGreaterThan("GRCh37", SequenceType.PROTEIN, 10L))
+            .thenReturn(Collections.singletonList(BRAF));
+
+        assertThat(proteinSequenceIndexService.contains(ReferenceGenome.GRCh37, BRAF)).isFalse();
+        assertThat(proteinSequenceIndexService.getSequence(ReferenceGenome.GRCh37, BRAF)).isEmpty();
+        assertThat(proteinSequenceIndexService.contains(ReferenceGenome.GRCh37, TP53)).isTrue();
+    }
+
+    @Test
+    void dropRewrittenProteins() throws Exception {
+        ProteinSequenceIndexService proteinSequenceIndexService = createService(directory.toString());
+        proteinSequenceIndexService.rebuild(ReferenceGenome.GRCh37);
+
+        proteinSequenceIndexService.drop(ReferenceGenome.GRCh37, Collections.singletonList(TP53));
+
+        assertThat(proteinSequenceIndexService.contains(ReferenceGenome.GRCh37, TP53)).isFalse();
+        assertThat(proteinSequenceIndexService.residueAt(ReferenceGenome.GRCh37, TP53, 2)).isEmpty();
+        assertThat(proteinSequenceIndexService.contains(ReferenceGenome.GRCh37, BRAF)).isTrue();
+    }
+
+    @Test
+    void loadIndexOfPreviousRun() throws Exception {
+        createService(directory.toString()).rebuild(ReferenceGenome.GRCh37);
+
+        assertThat(createService(directory.toString()).contains(ReferenceGenome.GRCh37, BRAF)).isTrue();
+    }
+
+    @Test
+    void skipIndexAheadOfSequenceTable() throws Exception {
+        createService(directory.toString()).rebuild(ReferenceGenome.GRCh37);
+        //The sequences were deleted and imported again
+        when(sequenceRepository.findMaxProteinSequenceId("GRCh37", SequenceType.PROTEIN)).thenReturn(null);
+
+        assertThat(createService(directory.toString()).contains(ReferenceGenome.GRCh37, BRAF)).isFalse();
+    }
+
+    @Test
+    void skipIndexWithoutStamp() throws Exception {
+        createService(directory.toString()).rebuild(ReferenceGenome.GRCh37);
+        Files.delete(directory.resolve("GRCh37.protein.fa.stamp"));
+
+        assertThat(createService(directory.toString()).contains(ReferenceGenome.GRCh37, BRAF)).isFalse();
+    }
+
+    @Test
+    void noIndexWithoutDirectory() {
+        ProteinSequenceIndexService proteinSequenceIndexService = createService(null);
+
+        assertThat(proteinSequenceIndexService.contains(ReferenceGenome.GRCh37, BRAF)).isFalse();
+        assertThatThrownBy(() -> proteinSequenceIndexService.rebuild(ReferenceGenome.GRCh37)).isInstanceOf(IllegalStateException.class);
+    }
+
+    private ProteinSequenceIndexService createService(String directory) {
+        SequenceIndexConfig sequenceIndexConfig = new SequenceIndexConfig();
+        sequenceIndexConfig.setDirectory(directory);
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.setSequenceIndex(sequenceIndexConfig);
+        return new ProteinSequenceIndexService(applicationProperties, sequenceRepository);
+    }
+
+    private static ProteinSequence proteinSequence(String proteinId, String sequence) {
+        ProteinSequence proteinSequence = mock(ProteinSequence.class);
+        when(proteinSequence.getEnsemblProteinId()).thenReturn(proteinId);
+        when(proteinSequence.getSequence()).thenReturn(sequence);
+        return proteinSequence;
+    }
+}
@@ -0,0 +1,213 @@
+package org.mskcc.oncokb.transcript.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mskcc.oncokb.transcript.domain.EnsemblGene;
+import org.mskcc.oncokb.transcript.domain.Sequence;
+import org.mskcc.oncokb.transcript.domain.Transcript;
+import org.mskcc.oncokb.transcript.domain.enumeration.ReferenceGenome;
+import org.mskcc.oncokb.transcript.domain.enumeration.SequenceType;
+import org.mskcc.oncokb.transcript.repository.SequenceRepository;
+import org.mskcc.oncokb.transcript.util.SequenceUtils;
+import org.mskcc.oncokb.transcript.vm.ensembl.EnsemblSequence;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.client.RestClientException;
+
+class ProteinSequenceServiceTest {
+
+    private static final String BRAF = "ENSP00000288602";
+    private static final String TP53 = "ENSP00000269305";
+    private static final String RELEASE = "104";
+    private static final String OLD_RELEASE = "103";
+
+    private EnsemblService ensemblService;
+    private SequenceRepository sequenceRepository;
+    private ProteinSequenceIndexService proteinSequenceIndexService;
+    private List<Sequence> stored;
+    private ProteinSequenceService proteinSequenceService;
+
+    @BeforeEach
+    public void setUp() {
+        ensemblService = mock(EnsemblService.class);
+        when(ensemblService.getRelease(ReferenceGenome.GRCh37)).thenReturn(Optional.of(RELEASE));
+        stored = new ArrayList<>();
+        sequenceRepository = mock(SequenceRepository.class);
+        when(sequenceRepository.findAllByReferenceGenomeAndSequenceTypeAndEnsemblProteinIdIn(eq("GRCh37"), eq(SequenceType.PROTEIN), any()))
+            .thenReturn(stored);
+        when(sequenceRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        proteinSequenceIndexService = mock(ProteinSequenceIndexService.class);
+        proteinSequenceService =
+            new ProteinSequenceService(
+                ensemblService,
+                sequenceRepository,
+                proteinSequenceIndexService,
+                mock(PlatformTransactionManager.class)
+            );
+    }
+
+    @Test
+    void serveStoredSequenceWithoutEnsembl() {
+        stored.add(sequence(BRAF, "MAALSGG", RELEASE));
+
+        assertThat(proteinSequenceService.getProteinSequence(ReferenceGenome.GRCh37, BRAF))
+            .map(EnsemblSequence::getSeq)
+            .contains("MAALSGG");
+        verify(ensemblService, never()).getProteinSequence(any(), any());
+        verify(ensemblService, never()).getProteinSequences(any(), any());
+        verify(sequenceRepository, never()).save(any());
+    }
+
+    @Test
+    void fetchAndWriteBackMissingSequence() {
+        when(ensemblService.getProteinSequence(ReferenceGenome.GRCh37, BRAF)).thenReturn(Optional.of(ensemblSequence(BRAF, "MAALSGG")));
+
+        assertThat(proteinSequenceService.getProteinSequence(ReferenceGenome.GRCh37, BRAF))
+            .map(EnsemblSequence::getSeq)
+            .contains("MAALSGG");
+        Sequence saved = captureSaved();
+        assertThat(saved.getId()).isNull();
+        assertThat(saved.getEnsemblProteinId()).isEqualTo(BRAF);
+        assertThat(saved.getCachedProteinId()).isEqualTo(BRAF);
+        assertThat(saved.getSequence()).isEqualTo("MAALSGG");
+        assertThat(saved.getEnsemblRelease()).isEqualTo(RELEASE);
+        verify(sequenceRepository, never()).delete(any());
+        verify(proteinSequenceIndexService).drop(ReferenceGenome.GRCh37, Collections.singletonList(BRAF));
+    }
+
+    @Test
+    void replaceOutdatedUnlinkedRow() {
+        Sequence outdated = sequence(BRAF, "MAALS", OLD_RELEASE).id(1L).cachedProteinId(BRAF);
+        stored.add(outdated);
+        when(ensemblService.getProteinSequence(ReferenceGenome.GRCh37, BRAF)).thenReturn(Optional.of(ensemblSequence(BRAF, "MAALSGG")));
+
+        assertThat(proteinSequenceService.getProteinSequence(ReferenceGenome.GRCh37, BRAF))
+            .map(EnsemblSequence::getSeq)
+            .contains("MAALSGG");
+        Sequence saved = captureSaved();
+        verify(sequenceRepository).delete(outdated);
+        assertThat(saved).isNotSameAs(outdated);
+        assertThat(saved.getCachedProteinId()).isEqualTo(BRAF);
+        assertThat(saved.getSequence()).isEqualTo("MAALSGG");
+        assertThat(saved.getEnsemblRelease()).isEqualTo(RELEASE);
+        verify(proteinSequenceIndexService).drop(ReferenceGenome.GRCh37, Collections.singletonList(BRAF));
+    }
+
+    @Test
+    void neverRewriteSequenceLinkedToTranscript() {
+        Sequence linked = sequence(BRAF, "MAALS", OLD_RELEASE).id(1L).transcript(new Transcript().id(1L));
+        stored.add(linked);
+        when(ensemblService.getProteinSequence(ReferenceGenome.GRCh37, BRAF)).thenReturn(Optional.of(ensemblSequence(BRAF, "MAALSGG")));
+
+        proteinSequenceService.getProteinSequence(ReferenceGenome.GRCh37, BRAF);
+
+        Sequence saved = captureSaved();
+        verify(sequenceRepository, never()).delete(any());
+        assertThat(saved).isNotSameAs(linked);
+        assertThat(saved.getCachedProteinId()).isEqualTo(BRAF);
+        assertThat(linked.getSequence()).isEqualTo("MAALS");
+        assertThat(linked.getEnsemblRelease()).isEqualTo(OLD_RELEASE);
+    }
+
+    @Test
+    void serveOutdatedSequencesWhenEnsemblFails() {
+        stored.add(sequence(BRAF, "MAALS", OLD_RELEASE));
+        stored.add(sequence(TP53, "MEEPQ", OLD_RELEASE));
+        when(ensemblService.getProteinSequences(eq(ReferenceGenome.GRCh37), anyList())).thenThrow(new RestClientException("timeout"));
+
+        assertThat(proteinSequenceService.getProteinSequences(ReferenceGenome.GRCh37, Arrays.asList(BRAF, TP53)))
+            .extracting(EnsemblSequence::getSeq)
+            .containsExactly("MAALS", "MEEPQ");
+        verify(sequenceRepository, never()).save(any());
+    }
+
+    @Test
+    void failMissingSequencesWhenEnsemblFails() {
+        when(ensemblService.getProteinSequences(eq(ReferenceGenome.GRCh37), anyList())).thenThrow(new RestClientException("timeout"));
+
+        assertThatThrownBy(() -> proteinSequenceService.getProteinSequences(ReferenceGenome.GRCh37, Arrays.asList(BRAF, TP53)))
+            .isInstanceOf(RestClientException.class);
+        verify(sequenceRepository, never()).save(any());
+    }
+
+    @Test
+    void emptyWhenMissingSequenceCannotBeFetched() {
+        when(ensemblService.getProteinSequence(ReferenceGenome.GRCh37, BRAF)).thenReturn(Optional.empty());
+
+        assertThat(proteinSequenceService.getProteinSequence(ReferenceGenome.GRCh37, BRAF)).isEmpty();
+        verify(sequenceRepository, never()).save(any());
+    }
+
+    @Test
+    void ignoreSequenceStoredConcurrently() {
+        when(ensemblService.getProteinSequence(ReferenceGenome.GRCh37, BRAF)).thenReturn(Optional.of(ensemblSequence(BRAF, "MAALSGG")));
+        when(sequenceRepository.save(any())).thenThrow(new DataIntegrityViolationException("ux_sequence__cached_protein_id"));
+
+        assertThat(proteinSequenceService.getProteinSequence(ReferenceGenome.GRCh37, BRAF))
+            .map(EnsemblSequence::getSeq)
+            .contains("MAALSGG");
+    }
+
+    @Test
+    void linkingSequenceReleasesItsCachedProteinId() {
+        Sequence cached = sequence(BRAF, "MAALSGG", RELEASE).id(1L).cachedProteinId(BRAF);
+        stored.add(cached);
+        Transcript transcript = new Transcript().ensemblProteinId(BRAF).ensemblGene(new EnsemblGene().referenceGenome("GRCh37"));
+
+        assertThat(proteinSequenceService.linkProteinSequence(transcript)).containsSame(cached);
+        assertThat(cached.getTranscript()).isSameAs(transcript);
+        assertThat(cached.getCachedProteinId()).isNull();
+    }
+
+    @Test
+    void findIdenticalProteinsOfCurrentRelease() {
+        String hash = SequenceUtils.getHash("MAALSGG");
+        when(sequenceRepository.findCurrentIdenticalProteinIds("GRCh37", SequenceType.PROTEIN, hash, 7, RELEASE))
+            .thenReturn(Collections.singletonList(BRAF));
+
+        assertThat(proteinSequenceService.findIdenticalProteinIds(ReferenceGenome.GRCh37, "MAALSGG")).containsExactly(BRAF);
+    }
+
+    @Test
+    void findOnlyCachedIdenticalProteinsWithoutRelease() {
+        when(ensemblService.getRelease(ReferenceGenome.GRCh37)).thenReturn(Optional.empty());
+
+        proteinSequenceService.findIdenticalProteinIds(ReferenceGenome.GRCh37, "MAALSGG");
+
+        verify(sequenceRepository)
+            .findCurrentIdenticalProteinIds("GRCh37", SequenceType.PROTEIN, SequenceUtils.getHash("MAALSGG"), 7, null);
+    }
+
+    private Sequence captureSaved() {
+        ArgumentCaptor<Sequence> captor = ArgumentCaptor.forClass(Sequence.class);
+        verify(sequenceRepository, times(1)).save(captor.capture());
+        return captor.getValue();
+    }
+
+    private static Sequence sequence(String proteinId, String seq, String release) {
+        return new Sequence()
+            .sequenceType(SequenceType.PROTEIN)
+            .referenceGenome("GRCh37")
+            .ensemblProteinId(proteinId)
+            .sequence(seq)
+            .ensemblRelease(release);
+    }
+
+    private static EnsemblSequence ensemblSequence(String proteinId, String seq) {
+        EnsemblSequence ensemblSequence = new EnsemblSequence();
+        ensemblSequence.setId(proteinId);
+        ensemblSequence.setSeq(seq);
+        return ensemblSequence;
+    }
+}
@@ -0,0 +1,153 @@
+package org.mskcc.oncokb.transcript.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mskcc.oncokb.transcript.config.cache.CacheNameResolver;
+import org.mskcc.oncokb.transcript.domain.Transcript;
+import org.mskcc.oncokb.transcript.domain.enumeration.ReferenceGenome;
+import org.mskcc.oncokb.transcript.repository.TranscriptRepository;
+import org.mskcc.oncokb.transcript.service.dto.TranscriptDTO;
+import org.mskcc.oncokb.transcript.service.mapper.TranscriptMapper;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+
+class TranscriptServiceTest {
+
+    private static final String BRAF = "ENST00000288602";
+    private static final String TP53 = "ENST00000269305";
+
+    private TranscriptRepository transcriptRepository;
+    private TranscriptService transcriptService;
+
+    @BeforeEach
+    public void setUp() {
+        transcriptRepository = mock(TranscriptRepository.class);
+        when(transcriptRepository.findByReferenceGenomeAndEnsemblTranscriptIdIsIn(eq("GRCh37"), anyList()))
+            .thenAnswer(invocation -> {
+                List<String> ids = invocation.getArgument(1);
+                if (ids.contains(BRAF)) {
+                    return Collections.singletonList(new Transcript().id(1L).ensemblTranscriptId(BRAF));
+                }
+                return Collections.emptyList();
+            });
+        TranscriptMapper transcriptMapper = mock(TranscriptMapper.class);
+        when(transcriptMapper.toDto(anyList()))
+            .thenAnswer(invocation -> {
+                List<Transcript> transcripts = invocation.getArgument(0);
+                return transcripts
+                    .stream()
+                    .map(transcript -> {
+                        TranscriptDTO transcriptDTO = new TranscriptDTO();
+                        transcriptDTO.setId(transcript.getId());
+                        return transcriptDTO;
+                    })
+                    .collect(Collectors.toList());
+            });
+        CacheNameResolver cacheNameResolver = mock(CacheNameResolver.class);
+        when(cacheNameResolver.getCacheName(any(), anyString())).thenReturn("transcripts");
+        CacheManager cacheManager = new ConcurrentMapCacheManager("transcripts");
+
+        transcriptService =
+            new TranscriptService(
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                transcriptRepository,
+                transcriptMapper,
+                null,
+                cacheNameResolver,
+                Optional.of(cacheManager)
+            );
+    }
+
+    @Test
+    void queryOnlyTranscriptsThatAreNotCached() {
+        assertThat(transcriptService.findByReferenceGenomeAndEnsemblTranscriptIdIsIn(ReferenceGenome.GRCh37, Arrays.asList(BRAF, TP53)))
+            .extracting(TranscriptDTO::getId)
+            .containsExactly(1L);
+        verify(transcriptRepository).findByReferenceGenomeAndEnsemblTranscriptIdIsIn("GRCh37", Arrays.asList(BRAF, TP53));
+
+        //TP53 has no transcript, it is not cached
+        assertThat(transcriptService.findByReferenceGenomeAndEnsemblTranscriptIdIsIn(ReferenceGenome.GRCh37, Arrays.asList(BRAF, TP53)))
+            .extracting(TranscriptDTO::getId)
+            .containsExactly(1L);
+        verify(transcriptRepository).findByReferenceGenomeAndEnsemblTranscriptIdIsIn("GRCh37", Collections.singletonList(TP53));
+    }
+
+    @Test
+    void walkSlicesAcrossPageBoundary() {
+        List<Transcript> stored = Arrays.asList(
+            new Transcript().id(3L),
+            new Transcript().id(5L),
+            new Transcript().id(8L),
+            new Transcript().id(13L),
+            new Transcript().id(21L)
+        );
+        when(transcriptRepository.findByIdGreaterThanOrderByIdAsc(anyLong(), any()))
+            .thenAnswer(invocation -> {
+                long afterId = invocation.getArgument(0);
+                Pageable pageable = invocation.getArgument(1);
+                List<Transcript> after = stored.stream().filter(transcript -> transcript.getId() > afterId).collect(Collectors.toList());
+                int size = Math.min(after.size(), pageable.getPageSize());
+                return new SliceImpl<>(after.subList(0, size), pageable, after.size() > size);
+            });
+
+        Slice<TranscriptDTO> first = transcriptService.findAllAfter(0, 2);
+        assertThat(first.getContent()).extracting(TranscriptDTO::getId).containsExactly(3L, 5L);
+        assertThat(first.hasNext()).isTrue();
+
+        //The last id of a slice is the afterId of the next one, as sent in the X-Next-After-Id header
+        Slice<TranscriptDTO> second = transcriptService.findAllAfter(5, 2);
+        assertThat(second.getContent()).extracting(TranscriptDTO::getId).containsExactly(8L, 13L);
+        assertThat(second.hasNext()).isTrue();
+
+        Slice<TranscriptDTO> last = transcriptService.findAllAfter(13, 2);
+        assertThat(last.getContent()).extracting(TranscriptDTO::getId).containsExactly(21L);
+        assertThat(last.hasNext()).isFalse();
+
+        //A slice ending exactly on the last transcript has no next one
+        Slice<TranscriptDTO> exact = transcriptService.findAllAfter(8, 2);
+        assertThat(exact.getContent()).extracting(TranscriptDTO::getId).containsExactly(13L, 21L);
+        assertThat(exact.hasNext()).isFalse();
+    }
+
+    @Test
+    void limitSliceSize() {
+        when(transcriptRepository.findByIdGreaterThanOrderByIdAsc(anyLong(), any())).thenReturn(new SliceImpl<>(Collections.emptyList()));
+
+        transcriptService.findAllAfter(0, 5000);
+        transcriptService.findAllAfter(0, 0);
+
+        verify(transcriptRepository).findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, TranscriptService.MAX_SLICE_SIZE));
+        verify(transcriptRepository).findByIdGreaterThanOrderByIdAsc(0L, PageRequest.of(0, 1));
+    }
+
+    @Test
+    void evictOnlyTheSavedTranscript() {
+        transcriptService.findByReferenceGenomeAndEnsemblTranscriptIdIsIn(ReferenceGenome.GRCh37, Collections.singletonList(BRAF));
+        transcriptService.evictTranscriptCaches(Collections.singletonList(Pair.of("GRCh38", BRAF)));
+        transcriptService.findByReferenceGenomeAndEnsemblTranscriptIdIsIn(ReferenceGenome.GRCh37, Collections.singletonList(BRAF));
+        verify(transcriptRepository, times(1)).findByReferenceGenomeAndEnsemblTranscriptIdIsIn(anyString(), anyList());
+
+        transcriptService.evictTranscriptCaches(Collections.singletonList(Pair.of("GRCh37", BRAF)));
+        transcriptService.findByReferenceGenomeAndEnsemblTranscriptIdIsIn(ReferenceGenome.GRCh37, Collections.singletonList(BRAF));
+        verify(transcriptRepository, times(2)).findByReferenceGenomeAndEnsemblTranscriptIdIsIn(anyString(), anyList());
+    }
+}
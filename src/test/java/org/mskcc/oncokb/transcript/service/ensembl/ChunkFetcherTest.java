@@ -0,0 +1,63 @@
+package org.mskcc.oncokb.transcript.service.ensembl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class ChunkFetcherTest {
+
+    private final ChunkFetcher chunkFetcher = new ChunkFetcher(3, "test-chunk");
+
+    @AfterEach
+    void shutdown() {
+        chunkFetcher.shutdown();
+    }
+
+    @Test
+    void fetchAllInOrder() {
+        List<String> ids = Arrays.asList("1", "2", "3", "4", "5", "6", "7");
+
+        //The first chunks complete last
+        List<String> results = chunkFetcher.fetchAll(
+            ids,
+            2,
+            chunk -> {
+                sleep(10 * (4 - Integer.parseInt(chunk.get(0)) / 2));
+                return chunk.stream().map(id -> "ENSG" + id).collect(Collectors.toList());
+            }
+        );
+
+        assertThat(results).containsExactly("ENSG1", "ENSG2", "ENSG3", "ENSG4", "ENSG5", "ENSG6", "ENSG7");
+    }
+
+    @Test
+    void fetchAllFails() {
+        assertThatThrownBy(() ->
+                chunkFetcher.fetchAll(
+                    Arrays.asList("1", "2", "3"),
+                    1,
+                    chunk -> {
+                        if (chunk.get(0).equals("2")) {
+                            throw new IllegalArgumentException("Bad chunk");
+                        }
+                        return chunk;
+                    }
+                )
+            )
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("Bad chunk");
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package org.mskcc.oncokb.transcript.service.ensembl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.mskcc.oncokb.transcript.vm.ensembl.EnsemblTranscript;
+
+class LookupResponseReaderTest {
+
+    @Test
+    void readEntriesAndSkipMissingIds() throws Exception {
+        String response =
+            "{" +
+            "\"ENSG00000141510\": {\"id\": \"ENSG00000141510\", \"start\": 7661779, " +
+            "\"Transcript\": [{\"id\": \"ENST00000269305\", \"Parent\": \"ENSG00000141510\", " +
+            "\"Exon\": [{\"id\": \"ENSE00001146308\"}], \"UTR\": []}]}," +
+            "\"ENSG00000000000\": null," +
+            "\"ENSG00000157764\": {\"id\": \"ENSG00000157764\", \"start\": 140719327}" +
+            "}";
+
+        List<EnsemblTranscript> transcripts = new ArrayList<>();
+        LookupResponseReader.read(new ByteArrayInputStream(response.getBytes(StandardCharsets.UTF_8)), transcripts::add);
+
+        assertThat(transcripts).hasSize(2);
+        assertThat(transcripts.get(0).getId()).isEqualTo("ENSG00000141510");
+        assertThat(transcripts.get(0).getStart()).isEqualTo(7661779);
+        assertThat(transcripts.get(0).getTranscripts()).hasSize(1);
+        assertThat(transcripts.get(0).getTranscripts().get(0).getParent()).isEqualTo("ENSG00000141510");
+        assertThat(transcripts.get(0).getTranscripts().get(0).getExons()).hasSize(1);
+        assertThat(transcripts.get(1).getId()).isEqualTo("ENSG00000157764");
+    }
+}
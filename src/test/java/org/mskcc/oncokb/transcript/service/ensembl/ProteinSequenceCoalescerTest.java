@@ -0,0 +1,162 @@
+package org.mskcc.oncokb.transcript.service.ensembl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mskcc.oncokb.transcript.domain.enumeration.ReferenceGenome;
+import org.mskcc.oncokb.transcript.vm.ensembl.EnsemblSequence;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+class ProteinSequenceCoalescerTest {
+
+    private final List<List<String>> requests = new CopyOnWriteArrayList<>();
+
+    private ProteinSequenceCoalescer coalescer;
+
+    @AfterEach
+    public void tearDown() {
+        coalescer.shutdown();
+    }
+
+    @Test
+    void mergeConcurrentRequests() {
+        coalescer = new ProteinSequenceCoalescer(this::fetch, 50, 100, 2);
+
+        List<CompletableFuture<Optional<EnsemblSequence>>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(coalescer.submit(ReferenceGenome.GRCh37, "ENSP" + i));
+        }
+        //Already pending, so it is not requested twice
+        futures.add(coalescer.submit(ReferenceGenome.GRCh37, "ENSP0"));
+
+        for (int i = 0; i < futures.size(); i++) {
+            Optional<EnsemblSequence> sequence = futures.get(i).join();
+            assertThat(sequence).isPresent();
+            assertThat(sequence.get().getSeq()).isEqualTo("M" + "ENSP" + (i % 10));
+        }
+        assertThat(requests).hasSize(1);
+        assertThat(requests.get(0)).hasSize(10);
+    }
+
+    @Test
+    void splitFullBatches() {
+        coalescer = new ProteinSequenceCoalescer(this::fetch, 10_000, 4, 2);
+
+        List<CompletableFuture<Optional<EnsemblSequence>>> futures = IntStream
+            .range(0, 8)
+            .mapToObj(i -> coalescer.submit(ReferenceGenome.GRCh38, "ENSP" + i))
+            .collect(Collectors.toList());
+
+        //Both batches are full, so neither waits for the window to end
+        futures.forEach(CompletableFuture::join);
+        assertThat(requests).hasSize(2);
+        assertThat(requests).allSatisfy(request -> assertThat(request).hasSize(4));
+    }
+
+    @Test
+    void failWholeBatch() {
+        coalescer = new ProteinSequenceCoalescer(
+            (referenceGenome, ids) -> {
+                throw new IllegalStateException("Ensembl is down");
+            },
+            10,
+            100,
+            1
+        );
+
+        CompletableFuture<Optional<EnsemblSequence>> future = coalescer.submit(ReferenceGenome.GRCh37, "ENSP0");
+        assertThatThrownBy(future::join).isInstanceOf(CompletionException.class).hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void splitRejectedBatch() {
+        coalescer = new ProteinSequenceCoalescer(
+            (referenceGenome, ids) -> {
+                if (ids.contains("ENSP3")) {
+                    requests.add(ids);
+                    throw new HttpClientErrorException(HttpStatus.BAD_REQUEST, "ENSP3 is not a valid id");
+                }
+                return fetch(referenceGenome, ids);
+            },
+            10_000,
+            8,
+            1
+        );
+
+        List<CompletableFuture<Optional<EnsemblSequence>>> futures = IntStream
+            .range(0, 8)
+            .mapToObj(i -> coalescer.submit(ReferenceGenome.GRCh37, "ENSP" + i))
+            .collect(Collectors.toList());
+
+        assertThatThrownBy(futures.get(3)::join).isInstanceOf(CompletionException.class).hasCauseInstanceOf(HttpClientErrorException.class);
+        for (int i = 0; i < futures.size(); i++) {
+            if (i != 3) {
+                assertThat(futures.get(i).join()).map(EnsemblSequence::getSeq).contains("MENSP" + i);
+            }
+        }
+        //8, then 4 and 4, then 2 and 2 of the failed half, then 1 and 1
+        assertThat(requests).hasSize(7);
+    }
+
+    @Test
+    void failWholeBatchWhenEnsemblIsUnreachable() {
+        coalescer = failingCoalescer(new ResourceAccessException("Read timed out"));
+
+        assertFailWholeBatch(ResourceAccessException.class);
+    }
+
+    @Test
+    void failWholeBatchWhenRateLimited() {
+        coalescer = failingCoalescer(new HttpClientErrorException(HttpStatus.TOO_MANY_REQUESTS));
+
+        assertFailWholeBatch(HttpClientErrorException.class);
+    }
+
+    private ProteinSequenceCoalescer failingCoalescer(RuntimeException exception) {
+        return new ProteinSequenceCoalescer(
+            (referenceGenome, ids) -> {
+                requests.add(ids);
+                throw exception;
+            },
+            10_000,
+            8,
+            1
+        );
+    }
+
+    private void assertFailWholeBatch(Class<? extends Throwable> cause) {
+        List<CompletableFuture<Optional<EnsemblSequence>>> futures = IntStream
+            .range(0, 8)
+            .mapToObj(i -> coalescer.submit(ReferenceGenome.GRCh37, "ENSP" + i))
+            .collect(Collectors.toList());
+
+        futures.forEach(future -> assertThatThrownBy(future::join).isInstanceOf(CompletionException.class).hasCauseInstanceOf(cause));
+        assertThat(requests).hasSize(1);
+    }
+
+    private List<EnsemblSequence> fetch(ReferenceGenome referenceGenome, List<String> ids) {
+        requests.add(ids);
+        return ids
+            .stream()
+            .map(id -> {
+                EnsemblSequence sequence = new EnsemblSequence();
+                sequence.setId(id);
+                sequence.setQuery(id);
+                sequence.setSeq("M" + id);
+                return sequence;
+            })
+            .collect(Collectors.toList());
+    }
+}
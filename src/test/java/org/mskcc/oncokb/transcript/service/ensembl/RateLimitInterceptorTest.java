@@ -0,0 +1,65 @@
+package org.mskcc.oncokb.transcript.service.ensembl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+class RateLimitInterceptorTest {
+
+    @Test
+    void retryAfterTooManyRequests() throws Exception {
+        MockClientHttpResponse rejected = new MockClientHttpResponse(new byte[0], HttpStatus.TOO_MANY_REQUESTS);
+        rejected.getHeaders().set(HttpHeaders.RETRY_AFTER, "0.2");
+        Deque<ClientHttpResponse> responses = new ArrayDeque<>();
+        responses.add(rejected);
+        responses.add(new MockClientHttpResponse(new byte[0], HttpStatus.OK));
+
+        RateLimitInterceptor interceptor = new RateLimitInterceptor(100, 10, 3);
+        long start = System.nanoTime();
+        ClientHttpResponse response = interceptor.intercept(new MockClientHttpRequest(), new byte[0], (request, body) -> responses.poll());
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(200_000_000L);
+    }
+
+    @Test
+    void giveUpAfterMaxRetries() throws Exception {
+        RateLimitInterceptor interceptor = new RateLimitInterceptor(100, 10, 1);
+        int[] calls = new int[1];
+        ClientHttpResponse response = interceptor.intercept(
+            new MockClientHttpRequest(),
+            new byte[0],
+            (request, body) -> {
+                calls[0]++;
+                MockClientHttpResponse rejected = new MockClientHttpResponse(new byte[0], HttpStatus.TOO_MANY_REQUESTS);
+                rejected.getHeaders().set(HttpHeaders.RETRY_AFTER, "0");
+                return rejected;
+            }
+        );
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(calls[0]).isEqualTo(2);
+    }
+
+    @Test
+    void limitRate() throws Exception {
+        RateLimitInterceptor interceptor = new RateLimitInterceptor(20, 1, 0);
+        long start = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            interceptor.intercept(
+                new MockClientHttpRequest(),
+                new byte[0],
+                (request, body) -> new MockClientHttpResponse(new byte[0], HttpStatus.OK)
+            );
+        }
+        //The first request uses the burst, the next four wait 50ms each
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(190_000_000L);
+    }
+}
@@ -0,0 +1,84 @@
+package org.mskcc.oncokb.transcript.service.mapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.mskcc.oncokb.transcript.IntegrationTest;
+import org.mskcc.oncokb.transcript.domain.EnsemblGene;
+import org.mskcc.oncokb.transcript.domain.GenomeFragment;
+import org.mskcc.oncokb.transcript.domain.Transcript;
+import org.mskcc.oncokb.transcript.domain.enumeration.GenomeFragmentType;
+import org.mskcc.oncokb.transcript.repository.TranscriptRepository;
+import org.mskcc.oncokb.transcript.service.dto.TranscriptDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Integration tests for the batched genome fragment loading of {@link TranscriptMapper}.
+ */
+@IntegrationTest
+@Transactional
+class TranscriptMapperIT {
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private TranscriptMapper transcriptMapper;
+
+    @Autowired
+    private TranscriptRepository transcriptRepository;
+
+    @Test
+    void toDtoListOfDetachedTranscriptsRunsOneQuery() {
+        EnsemblGene ensemblGene = new EnsemblGene()
+            .referenceGenome("GRCh37")
+            .ensemblGeneId("ENSG00000157764")
+            .canonical(true)
+            .chromosome("7")
+            .start(140424943)
+            .end(140624564)
+            .strand(-1);
+        em.persist(ensemblGene);
+        List<Long> transcriptIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Transcript transcript = new Transcript().ensemblTranscriptId("ENST0000028860" + i).canonical(i == 0).ensemblGene(ensemblGene);
+            em.persist(transcript);
+            em.persist(
+                new GenomeFragment()
+                    .type(GenomeFragmentType.EXON)
+                    .chromosome("7")
+                    .start(140424943 + i)
+                    .end(140425000 + i)
+                    .strand(-1)
+                    .transcript(transcript)
+            );
+            transcriptIds.add(transcript.getId());
+        }
+        em.flush();
+        List<Transcript> transcripts = transcriptRepository.findAllById(transcriptIds);
+        //Detached, like the transcripts of a cache hit
+        em.clear();
+
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        List<TranscriptDTO> transcriptDTOs;
+        long queries;
+        try {
+            transcriptDTOs = transcriptMapper.toDto(transcripts);
+            queries = statistics.getPrepareStatementCount();
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+
+        assertThat(queries).isEqualTo(1);
+        assertThat(transcriptDTOs).hasSize(3);
+        assertThat(transcriptDTOs).allSatisfy(transcriptDTO -> assertThat(transcriptDTO.getExons()).hasSize(1));
+    }
+}
@@ -1,9 +1,19 @@
 package org.mskcc.oncokb.transcript.service.mapper;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
 
+import java.util.Arrays;
+import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mskcc.oncokb.transcript.domain.Transcript;
+import org.mskcc.oncokb.transcript.domain.enumeration.GenomeFragmentType;
+import org.mskcc.oncokb.transcript.repository.GenomeFragmentRepository;
+import org.mskcc.oncokb.transcript.repository.GenomeFragmentRepository.TranscriptGenomeFragment;
+import org.mskcc.oncokb.transcript.service.dto.TranscriptDTO;
 
 class TranscriptMapperTest {
 
@@ -12,5 +22,52 @@ class TranscriptMapperTest {
     @BeforeEach
     public void setUp() {
         transcriptMapper = new TranscriptMapperImpl();
+        transcriptMapper.genomeFragmentRepository = mock(GenomeFragmentRepository.class);
+    }
+
+    @Test
+    void toDtoListLoadsFragmentsInOneQuery() {
+        Transcript braf = new Transcript().id(1L).ensemblTranscriptId("ENST00000288602");
+        Transcript tp53 = new Transcript().id(2L).ensemblTranscriptId("ENST00000269305");
+        //Built before stubbing the repository, the fragments are mocks themselves
+        List<TranscriptGenomeFragment> fragments = Arrays.asList(
+            fragment(1L, GenomeFragmentType.GENE, "7", 140719327, 140924929, -1),
+            fragment(1L, GenomeFragmentType.EXON, null, 140719327, 140726516, null),
+            fragment(1L, GenomeFragmentType.THREE_PRIME_UTR, null, 140719327, 140726493, null),
+            fragment(2L, GenomeFragmentType.EXON, null, 7668402, 7669690, null)
+        );
+        when(transcriptMapper.genomeFragmentRepository.findAllByTranscriptIdIn(any())).thenReturn(fragments);
+
+        List<TranscriptDTO> transcriptDTOs = transcriptMapper.toDto(Arrays.asList(braf, tp53, new Transcript().id(3L)));
+
+        verify(transcriptMapper.genomeFragmentRepository, times(1)).findAllByTranscriptIdIn(Arrays.asList(1L, 2L, 3L));
+        verify(transcriptMapper.genomeFragmentRepository, never()).findAllByTranscriptId(anyLong());
+        assertThat(transcriptDTOs).extracting(TranscriptDTO::getId).containsExactly(1L, 2L, 3L);
+        assertThat(transcriptDTOs.get(0).getChromosome()).isEqualTo("7");
+        assertThat(transcriptDTOs.get(0).getStrand()).isEqualTo(-1);
+        assertThat(transcriptDTOs.get(0).getExons()).hasSize(1);
+        assertThat(transcriptDTOs.get(0).getExons().get(0).getTranscript()).isSameAs(braf);
+        assertThat(transcriptDTOs.get(0).getUtrs()).hasSize(1);
+        assertThat(transcriptDTOs.get(1).getChromosome()).isNull();
+        assertThat(transcriptDTOs.get(1).getExons()).hasSize(1);
+        assertThat(transcriptDTOs.get(2).getExons()).isEmpty();
+    }
+
+    private static TranscriptGenomeFragment fragment(
+        Long transcriptId,
+        GenomeFragmentType type,
+        String chromosome,
+        Integer start,
+        Integer end,
+        Integer strand
+    ) {
+        TranscriptGenomeFragment fragment = mock(TranscriptGenomeFragment.class);
+        when(fragment.getTranscriptId()).thenReturn(transcriptId);
+        when(fragment.getType()).thenReturn(type);
+        when(fragment.getChromosome()).thenReturn(chromosome);
+        when(fragment.getStart()).thenReturn(start);
+        when(fragment.getEnd()).thenReturn(end);
+        when(fragment.getStrand()).thenReturn(strand);
+        return fragment;
     }
 }
@@ -0,0 +1,54 @@
+package org.mskcc.oncokb.transcript.service.sequence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class IndexedFastaTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void writeAndRead() throws Exception {
+        Path fasta = directory.resolve("GRCh38.protein.fa");
+        try (IndexedFasta.Writer writer = new IndexedFasta.Writer(fasta)) {
+            writer.write("ENSP00000269305", "MEEPQSDPSV");
+            writer.write("ENSP00000000001", "");
+            writer.write("ENSP00000288602", "MAALSGGGGG");
+        }
+
+        IndexedFasta indexedFasta = IndexedFasta.open(fasta);
+
+        assertThat(indexedFasta.size()).isEqualTo(3);
+        assertThat(indexedFasta.getSequence("ENSP00000269305")).contains("MEEPQSDPSV");
+        assertThat(indexedFasta.getSequence("ENSP00000000001")).contains("");
+        assertThat(indexedFasta.getSequence("ENSP00000288602")).contains("MAALSGGGGG");
+        assertThat(indexedFasta.getLength("ENSP00000288602")).isEqualTo(10);
+        assertThat(indexedFasta.residueAt("ENSP00000269305", 1)).contains('M');
+        assertThat(indexedFasta.residueAt("ENSP00000269305", 10)).contains('V');
+        assertThat(indexedFasta.residueAt("ENSP00000269305", 11)).isEmpty();
+        assertThat(indexedFasta.residueAt("ENSP00000288602", 2)).contains('A');
+        assertThat(indexedFasta.getSequence("ENSP00000000002")).isEmpty();
+        assertThat(indexedFasta.getLength("ENSP00000000002")).isEqualTo(-1);
+    }
+
+    @Test
+    void readWrappedLines() throws Exception {
+        //As indexed by samtools faidx, with 4 residues per line
+        Path fasta = directory.resolve("wrapped.fa");
+        Files.write(fasta, ">P1 description\nMEEP\nQSDP\nSV\n>P2\nMAAL\n".getBytes(StandardCharsets.US_ASCII));
+        Files.write(IndexedFasta.getIndexPath(fasta), "P1\t10\t16\t4\t5\nP2\t4\t33\t4\t5\n".getBytes(StandardCharsets.US_ASCII));
+
+        IndexedFasta indexedFasta = IndexedFasta.open(fasta);
+
+        assertThat(indexedFasta.getSequence("P1")).contains("MEEPQSDPSV");
+        assertThat(indexedFasta.residueAt("P1", 5)).contains('Q');
+        assertThat(indexedFasta.residueAt("P1", 9)).contains('S');
+        assertThat(indexedFasta.getSequence("P2")).contains("MAAL");
+    }
+}
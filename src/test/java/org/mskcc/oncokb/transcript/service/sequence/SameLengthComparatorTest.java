@@ -0,0 +1,50 @@
+package org.mskcc.oncokb.transcript.service.sequence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+
+class SameLengthComparatorTest {
+
+    private static final String REFERENCE = "MEEPQSDPSVEPPLSQETFSDLWKLLPENNV";
+
+    @Test
+    void countMismatches() {
+        SameLengthComparator comparator = new SameLengthComparator(REFERENCE);
+
+        assertThat(comparator.countMismatches(REFERENCE)).isZero();
+        //First residue, a whole word, and the last residue of the partial tail word
+        assertThat(comparator.countMismatches("AEEPQSDPSVEPPLSQETFSDLWKLLPENNV")).isEqualTo(1);
+        assertThat(comparator.countMismatches("MEEPQSDPAAAAAAAAETFSDLWKLLPENNV")).isEqualTo(8);
+        assertThat(comparator.countMismatches("MEEPQSDPSVEPPLSQETFSDLWKLLPENNA")).isEqualTo(1);
+        //Only the high bit of the byte differs
+        assertThat(comparator.countMismatches("MEEPQSDPSVEPPLSQETFSDLWKLLPENNÖ")).isEqualTo(1);
+    }
+
+    @Test
+    void countMismatchesOfWideResidues() {
+        SameLengthComparator comparator = new SameLengthComparator("MEEPŅSDP");
+
+        //0x145 and 0x45 share their low byte
+        assertThat(comparator.countMismatches("MEEPESDP")).isEqualTo(1);
+        assertThat(comparator.countMismatches("MEEPŅSDP")).isZero();
+        assertThat(new SameLengthComparator("MEEPESDP").countMismatches("MEEPŅSDP")).isEqualTo(1);
+    }
+
+    @Test
+    void countMismatchesOfOtherLength() {
+        assertThatThrownBy(() -> new SameLengthComparator(REFERENCE).countMismatches("MEEP")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void pickLeastMismatches() {
+        assertThat(
+            SameLengthComparator.pickLeastMismatches("MEEPQSDPSV", Arrays.asList("AAAPQSDPSV", "MEEPQSDPAA", "MEEPQSDPAB"), s -> s)
+        )
+            .contains("MEEPQSDPAA");
+        assertThat(SameLengthComparator.pickLeastMismatches("MEEPQSDPSV", Collections.<String>emptyList(), s -> s)).isEmpty();
+    }
+}
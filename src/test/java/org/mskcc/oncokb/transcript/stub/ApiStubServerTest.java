@@ -0,0 +1,182 @@
+package org.mskcc.oncokb.transcript.stub;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpServer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mskcc.oncokb.transcript.config.model.StubConfig;
+
+class ApiStubServerTest {
+
+    @TempDir
+    Path fixtures;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final AtomicInteger upstreamRequests = new AtomicInteger();
+    private HttpServer upstream;
+
+    @BeforeEach
+    void startUpstream() throws Exception {
+        //Answers like Ensembl, a sequence per requested id and nothing for the unknown ones
+        upstream = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        upstream.createContext(
+            "/",
+            exchange -> {
+                upstreamRequests.incrementAndGet();
+                String response;
+                if (exchange.getRequestURI().getPath().equals("/sequence/id")) {
+                    String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+                    JsonArray sequences = new JsonArray();
+                    for (var id : JsonParser.parseString(body).getAsJsonObject().getAsJsonArray("ids")) {
+                        if (id.getAsString().startsWith("UNKNOWN")) {
+                            continue;
+                        }
+                        JsonObject sequence = new JsonObject();
+                        sequence.addProperty("query", id.getAsString());
+                        sequence.addProperty("seq", "M" + id.getAsString());
+                        sequences.add(sequence);
+                    }
+                    response = sequences.toString();
+                } else {
+                    response = "{\"releases\":[105]}";
+                }
+                byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, bytes.length);
+                exchange.getResponseBody().write(bytes);
+                exchange.close();
+            }
+        );
+        upstream.start();
+    }
+
+    @AfterEach
+    void stopUpstream() {
+        upstream.stop(0);
+    }
+
+    @Test
+    void recordThenReplay() throws Exception {
+        ApiStubServer recorder = startStub("RECORD", 0, 0);
+        try {
+            assertThat(get(recorder, "/ensembl/info/data").body()).isEqualTo("{\"releases\":[105]}");
+            post(recorder, "/ensembl/sequence/id", "{\"ids\":[\"ENSP1\",\"ENSP2\"],\"type\":\"protein\"}");
+            post(recorder, "/ensembl/sequence/id", "{\"ids\":[\"ENSP3\"],\"type\":\"protein\"}");
+        } finally {
+            recorder.stop();
+        }
+        assertThat(upstreamRequests).hasValue(3);
+
+        ApiStubServer replayer = startStub("REPLAY", 0, 0);
+        try {
+            HttpResponse<String> release = get(replayer, "/ensembl/info/data");
+            assertThat(release.statusCode()).isEqualTo(200);
+            assertThat(release.body()).isEqualTo("{\"releases\":[105]}");
+
+            //Batched differently than when recorded
+            HttpResponse<String> sequences = post(replayer, "/ensembl/sequence/id", "{\"ids\":[\"ENSP3\",\"ENSP1\"],\"type\":\"protein\"}");
+            assertThat(sequences.statusCode()).isEqualTo(200);
+            JsonArray entries = JsonParser.parseString(sequences.body()).getAsJsonArray();
+            assertThat(entries).hasSize(2);
+            assertThat(entries.get(0).getAsJsonObject().get("seq").getAsString()).isEqualTo("MENSP3");
+            assertThat(entries.get(1).getAsJsonObject().get("seq").getAsString()).isEqualTo("MENSP1");
+
+            assertThat(post(replayer, "/ensembl/sequence/id", "{\"ids\":[\"ENSP4\"],\"type\":\"protein\"}").statusCode()).isEqualTo(502);
+            assertThat(get(replayer, "/unknown/info/data").statusCode()).isEqualTo(404);
+        } finally {
+            replayer.stop();
+        }
+        assertThat(upstreamRequests).hasValue(3);
+    }
+
+    @Test
+    void replayBatchWithUnknownId() throws Exception {
+        ApiStubServer recorder = startStub("RECORD", 0, 0);
+        try {
+            post(recorder, "/ensembl/sequence/id", "{\"ids\":[\"ENSP1\",\"UNKNOWN1\"],\"type\":\"protein\"}");
+        } finally {
+            recorder.stop();
+        }
+
+        ApiStubServer replayer = startStub("REPLAY", 0, 0);
+        try {
+            HttpResponse<String> sequences = post(
+                replayer,
+                "/ensembl/sequence/id",
+                "{\"ids\":[\"UNKNOWN1\",\"ENSP1\"],\"type\":\"protein\"}"
+            );
+            assertThat(sequences.statusCode()).isEqualTo(200);
+            JsonArray entries = JsonParser.parseString(sequences.body()).getAsJsonArray();
+            assertThat(entries).hasSize(1);
+            assertThat(entries.get(0).getAsJsonObject().get("seq").getAsString()).isEqualTo("MENSP1");
+
+            HttpResponse<String> unknown = post(replayer, "/ensembl/sequence/id", "{\"ids\":[\"UNKNOWN1\"],\"type\":\"protein\"}");
+            assertThat(unknown.statusCode()).isEqualTo(200);
+            assertThat(JsonParser.parseString(unknown.body()).getAsJsonArray()).isEmpty();
+        } finally {
+            replayer.stop();
+        }
+        assertThat(upstreamRequests).hasValue(1);
+    }
+
+    @Test
+    void injectErrorsAndLatency() throws Exception {
+        ApiStubServer replayer = startStub("REPLAY", 1, 100);
+        try {
+            long start = System.nanoTime();
+            HttpResponse<String> response = get(replayer, "/ensembl/info/data");
+            assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(100_000_000L);
+            assertThat(response.statusCode()).isEqualTo(429);
+            assertThat(response.headers().firstValue("Retry-After")).contains("1");
+        } finally {
+            replayer.stop();
+        }
+    }
+
+    private ApiStubServer startStub(String mode, double errorRate, int latency) throws Exception {
+        StubConfig stubConfig = new StubConfig();
+        stubConfig.setPort(0);
+        stubConfig.setMode(mode);
+        stubConfig.setFixtures(fixtures.toString());
+        stubConfig.setUpstreams(Collections.singletonMap("ensembl", "http://localhost:" + upstream.getAddress().getPort()));
+        stubConfig.setErrorRate(errorRate);
+        stubConfig.setErrorStatus(429);
+        stubConfig.setLatency(latency);
+        ApiStubServer server = new ApiStubServer(stubConfig);
+        server.start();
+        return server;
+    }
+
+    private HttpResponse<String> get(ApiStubServer server, String path) throws Exception {
+        return client.send(HttpRequest.newBuilder(getUri(server, path)).GET().build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> post(ApiStubServer server, String path, String body) throws Exception {
+        HttpRequest request = HttpRequest
+            .newBuilder(getUri(server, path))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(body))
+            .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static URI getUri(ApiStubServer server, String path) {
+        return URI.create("http://localhost:" + server.getPort() + path);
+    }
+}
@@ -0,0 +1,101 @@
+package org.mskcc.oncokb.transcript.web.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mskcc.oncokb.transcript.service.TranscriptService;
+import org.mskcc.oncokb.transcript.service.dto.TranscriptDTO;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+/**
+ * Unit tests for the keyset paging of the {@link TranscriptController} REST controller.
+ */
+class TranscriptControllerTest {
+
+    //Served two at a time whatever the requested size, so an export spans several slices
+    private static final int SLICE_SIZE = 2;
+    private static final List<Long> IDS = Arrays.asList(3L, 5L, 8L, 13L, 21L);
+
+    private TranscriptService transcriptService;
+    private ObjectMapper objectMapper;
+    private MockMvc restMockMvc;
+
+    @BeforeEach
+    public void setup() {
+        transcriptService = mock(TranscriptService.class);
+        when(transcriptService.findAllAfter(anyLong(), anyInt()))
+            .thenAnswer(invocation -> {
+                long afterId = invocation.getArgument(0);
+                List<TranscriptDTO> after = IDS
+                    .stream()
+                    .filter(id -> id > afterId)
+                    .map(TranscriptControllerTest::transcript)
+                    .collect(Collectors.toList());
+                int size = Math.min(after.size(), SLICE_SIZE);
+                return new SliceImpl<>(after.subList(0, size), PageRequest.of(0, SLICE_SIZE), after.size() > size);
+            });
+        objectMapper = new ObjectMapper();
+        TranscriptController transcriptController = new TranscriptController(null, transcriptService, null, null, null, objectMapper);
+        this.restMockMvc = MockMvcBuilders.standaloneSetup(transcriptController).build();
+    }
+
+    @Test
+    void getTranscriptsWithNextAfterId() throws Exception {
+        restMockMvc
+            .perform(get("/api/transcripts").param("afterId", "5").param("size", "2"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[*].id").value(contains(8, 13)))
+            .andExpect(header().string(TranscriptController.NEXT_AFTER_ID_HEADER, "13"));
+
+        restMockMvc
+            .perform(get("/api/transcripts").param("afterId", "13").param("size", "2"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[*].id").value(contains(21)))
+            .andExpect(header().doesNotExist(TranscriptController.NEXT_AFTER_ID_HEADER));
+    }
+
+    @Test
+    void exportOneLinePerTranscriptInIdOrder() throws Exception {
+        String body = restMockMvc
+            .perform(get("/api/transcripts/export"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+
+        List<String> lines = Arrays.asList(body.split("\n"));
+        assertThat(body).endsWith("\n");
+        assertThat(lines).hasSize(IDS.size());
+        for (int i = 0; i < IDS.size(); i++) {
+            assertThat(objectMapper.readTree(lines.get(i)).get("id").asLong()).isEqualTo(IDS.get(i));
+        }
+        verify(transcriptService).findAllAfter(0, TranscriptService.MAX_SLICE_SIZE);
+        verify(transcriptService).findAllAfter(5, TranscriptService.MAX_SLICE_SIZE);
+        verify(transcriptService).findAllAfter(13, TranscriptService.MAX_SLICE_SIZE);
+        verify(transcriptService, times(3)).findAllAfter(anyLong(), anyInt());
+    }
+
+    private static TranscriptDTO transcript(Long id) {
+        TranscriptDTO transcriptDTO = new TranscriptDTO();
+        transcriptDTO.setId(id);
+        return transcriptDTO;
+    }
+}